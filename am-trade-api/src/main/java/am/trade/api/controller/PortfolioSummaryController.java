@@ -4,9 +4,11 @@ import com.am.security.context.UserContext;
 import am.trade.api.service.PortfolioSummaryService;
 import am.trade.common.models.PortfolioModel;
 import am.trade.common.models.AssetAllocation;
+import am.trade.common.models.TradeDistributionMetrics;
 
 import am.trade.api.service.TradeApiService;
 import am.trade.api.dto.ErrorResponse;
+import am.trade.api.dto.PortfolioEquityResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -144,7 +146,8 @@ public class PortfolioSummaryController {
         }
     }
 
-    @Operation(summary = "Get portfolio performance over time")
+    @Operation(summary = "Get portfolio performance over time",
+            description = "Cumulative realized profit/loss per calendar day; a trade counts on the day it was closed")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Portfolio performance retrieved successfully"),
             @ApiResponse(responseCode = "400", description = "Invalid request parameters"),
@@ -171,6 +174,60 @@ public class PortfolioSummaryController {
         }
     }
 
+    @Operation(summary = "Get realized profit/loss and maximum drawdown of a portfolio over a date range")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Portfolio equity retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid request parameters"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/{portfolioId}/equity")
+    public ResponseEntity<PortfolioEquityResponse> getPortfolioEquity(
+            @Parameter(description = "Portfolio ID") @PathVariable String portfolioId,
+            @Parameter(description = "Start date in ISO format (YYYY-MM-DD)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "End date in ISO format (YYYY-MM-DD)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+
+        try {
+            log.info("Fetching portfolio equity for portfolioId: {} from {} to {}",
+                    portfolioId, startDate, endDate);
+            PortfolioEquityResponse equity = portfolioSummaryService.getPortfolioEquity(
+                    portfolioId, startDate, endDate);
+            return ResponseEntity.ok(equity);
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid request parameters: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error fetching portfolio equity", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @Operation(summary = "Get percentiles of portfolio trades over time")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Portfolio distribution retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid request parameters"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/{portfolioId}/distribution")
+    public ResponseEntity<TradeDistributionMetrics> getPortfolioDistribution(
+            @Parameter(description = "Portfolio ID") @PathVariable String portfolioId,
+            @Parameter(description = "Start date in ISO format (YYYY-MM-DD)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "End date in ISO format (YYYY-MM-DD)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+
+        try {
+            log.info("Fetching portfolio distribution for portfolioId: {} from {} to {}",
+                    portfolioId, startDate, endDate);
+            TradeDistributionMetrics distribution = portfolioSummaryService.getPortfolioDistribution(
+                    portfolioId, startDate, endDate);
+            return ResponseEntity.ok(distribution);
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid request parameters: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error fetching portfolio distribution", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     @Operation(summary = "Compare multiple portfolios")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Portfolio comparison retrieved successfully"),
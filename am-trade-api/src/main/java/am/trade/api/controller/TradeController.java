@@ -21,6 +21,7 @@ import org.springframework.web.bind.annotation.RestController;
 import com.am.security.context.UserContext;
 import am.trade.api.dto.FilterTradeDetailsRequest;
 import am.trade.api.dto.FilterTradeDetailsResponse;
+import am.trade.common.models.TradeCursorPage;
 import am.trade.common.models.TradeDetails;
 import am.trade.common.models.enums.TradeStatus;
 import am.trade.api.service.TradeApiService;
@@ -110,10 +111,11 @@ public class TradeController {
         return ResponseEntity.ok(updatedTrade);
     }
 
-    @Operation(summary = "Filter trades by multiple criteria")
+    @Operation(summary = "Filter trades by multiple criteria",
+            description = "Sortable by entryDate, exitDate, symbol, status, strategy or holdingTime")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Trades found successfully"),
-            @ApiResponse(responseCode = "400", description = "Invalid filter parameters"),
+            @ApiResponse(responseCode = "400", description = "Invalid filter parameters or unsupported sort key"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @GetMapping("/filter")
@@ -136,6 +138,32 @@ public class TradeController {
         return ResponseEntity.ok(filteredTrades);
     }
 
+    @Operation(summary = "Filter trades by multiple criteria, one keyset page at a time (newest entry first)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Trades found successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid filter parameters or cursor"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/filter/scroll")
+    public ResponseEntity<TradeCursorPage> scrollTradesByFilters(
+            @Parameter(description = "Portfolio IDs to filter by") @RequestParam(required = false) List<String> portfolioIds,
+            @Parameter(description = "Symbols to filter by") @RequestParam(required = false) List<String> symbols,
+            @Parameter(description = "Trade statuses to filter by") @RequestParam(required = false) List<TradeStatus> statuses,
+            @Parameter(description = "Start date for filtering trades (format: yyyy-MM-dd)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "End date for filtering trades (format: yyyy-MM-dd)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @Parameter(description = "Strategies to filter by") @RequestParam(required = false) List<String> strategies,
+            @Parameter(description = "Continuation token from the previous page; omit for the first page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "20") int size) {
+
+        log.info(
+                "Scrolling trades with criteria - portfolioIds: {}, symbols: {}, statuses: {}, startDate: {}, endDate: {}, strategies: {}, size: {}",
+                portfolioIds, symbols, statuses, startDate, endDate, strategies, size);
+
+        TradeCursorPage page = tradeApiService.scrollTradesByFilters(
+                portfolioIds, symbols, statuses, startDate, endDate, strategies, cursor, size);
+        return ResponseEntity.ok(page);
+    }
+
     @Operation(summary = "Add or update multiple trades")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Trades processed successfully"),
@@ -190,4 +218,24 @@ public class TradeController {
         FilterTradeDetailsResponse response = tradeApiService.filterTradeDetails(request, pageable);
         return ResponseEntity.ok(response);
     }
+
+    @Operation(summary = "Filter trade details one keyset page at a time (newest entry first)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Trade details filtered successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid filter request or cursor"),
+            @ApiResponse(responseCode = "404", description = "Favorite filter not found"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping("/details/filter/scroll")
+    public ResponseEntity<FilterTradeDetailsResponse> scrollTradeDetails(
+            @Parameter(description = "Filter criteria for trade details") @RequestBody @Valid FilterTradeDetailsRequest request,
+            @Parameter(description = "Continuation token from the previous page; omit for the first page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "20") int size) {
+
+        log.info("Scrolling trade details for user: {} with favorite filter: {}, size: {}",
+                UserContext.getUserIdOrThrow(), request.getFavoriteFilterId(), size);
+
+        FilterTradeDetailsResponse response = tradeApiService.scrollTradeDetails(request, cursor, size);
+        return ResponseEntity.ok(response);
+    }
 }
@@ -1,5 +1,6 @@
 package am.trade.api.controller;
 
+import am.trade.common.models.TradeCursorPage;
 import am.trade.common.models.TradeDetails;
 import am.trade.api.service.TradeManagementService;
 
@@ -189,4 +190,29 @@ public class TradeManagementController {
         Page<TradeDetails> tradeDetails = tradeManagementService.getTradeDetailsByPortfolio(portfolioId, pageable);
         return ResponseEntity.ok(tradeDetails);
     }
+
+    /**
+     * Get a keyset page of trade details for a specific portfolio
+     * 
+     * @param portfolioId The portfolio ID to retrieve trade details for
+     * @param cursor      Continuation token from the previous page, null for the first page
+     * @param size        Page size
+     * @return Page of trade details, newest entry first, with the token for the next page
+     */
+    @Operation(summary = "Get trade details for a specific portfolio, one keyset page at a time (newest entry first)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Trade details retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid request parameters or cursor"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/portfolio-details/{portfolioId}/scroll")
+    public ResponseEntity<TradeCursorPage> scrollTradeDetailsByPortfolio(
+            @Parameter(description = "Portfolio ID to retrieve trade details for") @PathVariable String portfolioId,
+            @Parameter(description = "Continuation token from the previous page; omit for the first page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "20") int size) {
+
+        log.info("Fetching keyset page of trade details for portfolio: {}", portfolioId);
+        TradeCursorPage tradeDetails = tradeManagementService.getTradeDetailsByPortfolio(portfolioId, cursor, size);
+        return ResponseEntity.ok(tradeDetails);
+    }
 }
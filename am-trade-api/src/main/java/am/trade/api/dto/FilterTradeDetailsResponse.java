@@ -25,8 +25,8 @@ public class FilterTradeDetailsResponse {
     @Schema(description = "List of filtered trade details")
     private List<TradeDetails> trades;
     
-    @Schema(description = "Total number of trades matching the filter")
-    private long totalCount;
+    @Schema(description = "Total number of trades matching the filter; not computed for keyset pages")
+    private Long totalCount;
     
     @Schema(description = "Applied filter name (if using favorite filter)")
     private String appliedFilterName;
@@ -49,6 +49,12 @@ public class FilterTradeDetailsResponse {
     @Schema(description = "Whether this is the last page")
     private Boolean isLast;
     
+    @Schema(description = "Continuation token for the next keyset page; absent on the last page")
+    private String nextCursor;
+    
+    @Schema(description = "Whether another keyset page follows")
+    private Boolean hasNext;
+    
     @Data
     @Builder
     @NoArgsConstructor
@@ -13,6 +13,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
@@ -66,6 +67,12 @@ public class MetricsResponse {
     @Schema(description = "Grouped metrics results if grouping was requested")
     private Map<String, Map<String, Object>> groupedMetrics;
     
+    @Schema(description = "Running profit/loss from the start of the trend to the end of this interval, set on trend responses")
+    private BigDecimal cumulativeProfitLoss;
+    
+    @Schema(description = "Distance of the running profit/loss below its peak at the end of this interval, set on trend responses")
+    private BigDecimal drawdown;
+    
     @Schema(description = "Metadata about the metrics calculation")
     private Map<String, Object> metadata;
 }
@@ -0,0 +1,38 @@
+package am.trade.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Realized equity of a portfolio over a date range, read from its equity curve.
+ * Equity is the cumulative profit/loss of the trades closed since the portfolio's first trade.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PortfolioEquityResponse {
+
+    private String portfolioId;
+    private LocalDate startDate;
+    private LocalDate endDate;
+
+    /** Equity at the start of the start date */
+    private BigDecimal startEquity;
+    /** Equity at the end of the end date */
+    private BigDecimal endEquity;
+    /** Profit/loss within the range, endEquity minus startEquity */
+    private BigDecimal profitLoss;
+
+    private BigDecimal highestEquity;
+    private BigDecimal lowestEquity;
+    /** Largest fall from a high to a later low within the range */
+    private BigDecimal maxDrawdown;
+    /** Distance of endEquity below the all-time high up to the end date */
+    private BigDecimal drawdownAtEnd;
+}
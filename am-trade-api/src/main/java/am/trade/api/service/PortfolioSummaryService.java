@@ -1,8 +1,10 @@
 package am.trade.api.service;
 
+import am.trade.api.dto.PortfolioEquityResponse;
 import am.trade.common.models.PortfolioModel;
 import am.trade.common.models.PortfolioSummaryDTO;
 import am.trade.common.models.AssetAllocation;
+import am.trade.common.models.TradeDistributionMetrics;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -39,6 +41,28 @@ public interface PortfolioSummaryService {
      */
     Map<LocalDate, Double> getPortfolioPerformance(String portfolioId, LocalDate startDate, LocalDate endDate);
 
+    /**
+     * Get the realized profit/loss, equity range and maximum drawdown of a portfolio over a
+     * time period, read from its equity curve
+     * 
+     * @param portfolioId the ID of the portfolio
+     * @param startDate start date
+     * @param endDate end date
+     * @return equity summary of the period
+     */
+    PortfolioEquityResponse getPortfolioEquity(String portfolioId, LocalDate startDate, LocalDate endDate);
+
+    /**
+     * Get percentiles of a portfolio's trade profit/loss, return, position size and holding
+     * time over a time period, merged from its daily rollup
+     * 
+     * @param portfolioId the ID of the portfolio
+     * @param startDate start date
+     * @param endDate end date
+     * @return distribution metrics with only the percentiles set
+     */
+    TradeDistributionMetrics getPortfolioDistribution(String portfolioId, LocalDate startDate, LocalDate endDate);
+
     /**
      * Compare multiple portfolios
      * 
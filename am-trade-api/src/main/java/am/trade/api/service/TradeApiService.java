@@ -8,6 +8,7 @@ import org.springframework.data.domain.Pageable;
 
 import am.trade.api.dto.FilterTradeDetailsRequest;
 import am.trade.api.dto.FilterTradeDetailsResponse;
+import am.trade.common.models.TradeCursorPage;
 import am.trade.common.models.TradeDetails;
 import am.trade.common.models.enums.TradeStatus;
 
@@ -51,8 +52,10 @@ public interface TradeApiService {
      * @param startDate Start date for filtering trades
      * @param endDate End date for filtering trades
      * @param strategies Strategies to filter by
-     * @param pageable Pagination information
+     * @param pageable Pagination information; sortable by entryDate, exitDate, symbol, status,
+     *                 strategy or holdingTime
      * @return Page of filtered trade details
+     * @throws IllegalArgumentException if the sort includes profit/loss, which cannot be sorted in the database
      */
     Page<TradeDetails> getTradesByFilters(
             List<String> portfolioIds,
@@ -63,6 +66,29 @@ public interface TradeApiService {
             List<String> strategies,
             Pageable pageable);
     
+    /**
+     * Get a keyset page of trades by filters, newest entry first
+     * 
+     * @param portfolioIds Portfolio IDs to filter by
+     * @param symbols Symbols to filter by
+     * @param statuses Trade statuses to filter by
+     * @param startDate Start date for filtering trades
+     * @param endDate End date for filtering trades
+     * @param strategies Strategies to filter by
+     * @param cursor Continuation token from the previous page, or null for the first page
+     * @param size Page size
+     * @return Page of filtered trade details with the token for the next one
+     */
+    TradeCursorPage scrollTradesByFilters(
+            List<String> portfolioIds,
+            List<String> symbols,
+            List<TradeStatus> statuses,
+            LocalDate startDate,
+            LocalDate endDate,
+            List<String> strategies,
+            String cursor,
+            int size);
+    
     /**
      * Add or update multiple trades
      * 
@@ -88,6 +114,17 @@ public interface TradeApiService {
      */
     FilterTradeDetailsResponse filterTradeDetails(FilterTradeDetailsRequest request, org.springframework.data.domain.Pageable pageable);
     
+    /**
+     * Filter trade details using favorite filter configuration, one keyset page at a time,
+     * newest entry first
+     * 
+     * @param request Filter request containing criteria and optional favorite filter ID
+     * @param cursor Continuation token from the previous page, or null for the first page
+     * @param size Page size
+     * @return Filtered trade details response with the token for the next page
+     */
+    FilterTradeDetailsResponse scrollTradeDetails(FilterTradeDetailsRequest request, String cursor, int size);
+    
     /**
      * Recalculates all metrics for a portfolio by fetching all historical trades
      * @param portfolioId The ID of the portfolio to recalculate
@@ -1,8 +1,8 @@
 package am.trade.api.service;
 
+import am.trade.common.models.TradeCursorPage;
 import am.trade.common.models.TradeDetails;
 import am.trade.common.models.TradeSummary;
-import am.trade.common.models.enums.TradeStatus;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -66,7 +66,7 @@ public interface TradeManagementService {
     Map<String, List<TradeDetails>> getTradeDetailsByDateRange(LocalDate startDate, LocalDate endDate, String portfolioId);
     
     /**
-     * Get paginated trade details for a specific portfolio
+     * Get paginated trade details of the current user for a specific portfolio
      * 
      * @param portfolioId The portfolio ID
      * @param pageable Pagination information
@@ -74,6 +74,17 @@ public interface TradeManagementService {
      */
     Page<TradeDetails> getTradeDetailsByPortfolio(String portfolioId, Pageable pageable);
     
+    /**
+     * Get a keyset page of the current user's trade details for a specific portfolio,
+     * newest entry first
+     * 
+     * @param portfolioId The portfolio ID
+     * @param cursor Continuation token from the previous page, or null for the first page
+     * @param size Page size
+     * @return Page of trade details with the token for the next one
+     */
+    TradeCursorPage getTradeDetailsByPortfolio(String portfolioId, String cursor, int size);
+    
     /** 
      * Get all trades for a specific portfolio
      * 
@@ -100,25 +111,5 @@ public interface TradeManagementService {
      * @return List of trade details for the specified portfolio and symbols
      */
     List<TradeDetails> getTradesBySymbols(String portfolioId, List<String> symbols);
-    
-    /**
-     * Get trades based on multiple filter criteria
-     * 
-     * @param portfolioIds List of portfolio IDs to filter by (optional)
-     * @param symbols List of symbols to filter by (optional)
-     * @param statuses List of trade statuses to filter by (optional)
-     * @param startDate Start date for filtering trades (optional)
-     * @param endDate End date for filtering trades (optional)
-     * @param strategies List of strategies to filter by (optional)
-     * @param pageable Pagination information (optional)
-     * @return Page of trade details matching the filter criteria
-     */
-    Page<TradeDetails> getTradesByFilters(
-            List<String> portfolioIds,
-            List<String> symbols,
-            List<TradeStatus> statuses,
-            LocalDate startDate,
-            LocalDate endDate,
-            List<String> strategies,
-            Pageable pageable);
+
 }
@@ -55,7 +55,8 @@ public interface TradeMetricsService {
      * @param startDate Start date of the overall period
      * @param endDate End date of the overall period
      * @param interval Time interval for breaking down the trends (DAY, WEEK, MONTH, QUARTER, YEAR)
-     * @return Map of interval labels to metrics responses for each interval
+     * @return Map of interval labels to metrics responses for each interval, each carrying the
+     *         running profit/loss and drawdown up to the end of its interval
      */
     Map<String, List<MetricsResponse>> getMetricsTrends(
             List<String> portfolioIds,
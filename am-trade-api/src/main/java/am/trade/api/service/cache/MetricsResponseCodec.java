@@ -0,0 +1,111 @@
+package am.trade.api.service.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import am.trade.api.dto.MetricsResponse;
+
+/**
+ * Compact binary form of a {@link MetricsResponse} for the metrics result cache.
+ *
+ * <p>Responses are written as Smile (binary JSON with back-referenced property names and
+ * values) and deflated when large, which is typical once trade details are included. The first
+ * byte tells the two forms apart. Untyped values, such as metadata entries, come back as the
+ * maps, lists and scalars they render to, so a decoded response serializes to the same JSON.
+ */
+final class MetricsResponseCodec {
+
+    private static final byte SMILE = 1;
+    private static final byte DEFLATED_SMILE = 2;
+    private static final int DEFLATE_THRESHOLD_BYTES = 4096;
+
+    private final ObjectMapper mapper;
+
+    MetricsResponseCodec() {
+        this.mapper = SmileMapper.builder(new SmileFactory())
+                .addModule(new JavaTimeModule())
+                .serializationInclusion(JsonInclude.Include.NON_NULL)
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+                .build();
+    }
+
+    byte[] encode(MetricsResponse response) {
+        byte[] smile;
+        try {
+            smile = mapper.writeValueAsBytes(response);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode metrics response", e);
+        }
+        if (smile.length < DEFLATE_THRESHOLD_BYTES) {
+            byte[] bytes = new byte[smile.length + 1];
+            bytes[0] = SMILE;
+            System.arraycopy(smile, 0, bytes, 1, smile.length);
+            return bytes;
+        }
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(smile);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(smile.length / 4 + 16);
+            out.write(DEFLATED_SMILE);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    MetricsResponse decode(byte[] bytes) {
+        try {
+            switch (bytes[0]) {
+                case SMILE:
+                    return mapper.readValue(bytes, 1, bytes.length - 1, MetricsResponse.class);
+                case DEFLATED_SMILE:
+                    return mapper.readValue(inflate(bytes), MetricsResponse.class);
+                default:
+                    throw new IllegalArgumentException("Unknown metrics response encoding " + bytes[0]);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to decode metrics response", e);
+        }
+    }
+
+    private static byte[] inflate(byte[] bytes) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes, 1, bytes.length - 1);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(buffer);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Truncated metrics response");
+                }
+                out.write(buffer, 0, inflated);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt metrics response", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package am.trade.api.service.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import am.trade.api.dto.MetricsFilterRequest;
+import am.trade.api.dto.MetricsResponse;
+import am.trade.services.cache.PortfolioVersions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Two-tier cache of {@code POST /v1/metrics} results.
+ *
+ * <p>An entry is keyed by a fingerprint of the request, canonicalized so that property order
+ * and the order of set-like values do not matter, together with the current
+ * {@link PortfolioVersions version} of every requested portfolio. Versions are read before
+ * the trades, and any trade write bumps them, so a cached result is never older than its key
+ * and stale entries simply stop being looked up. Relative periods such as {@code LAST_7_DAYS}
+ * are fingerprinted after they are resolved to dates, so they roll over with the calendar.
+ *
+ * <p>Results are stored in the compact binary form of {@link MetricsResponseCodec}, first in a
+ * local Caffeine tier bounded by size in bytes, then in Redis when a connection factory is
+ * configured, so replicas share warm results. Every hit decodes a fresh copy, which callers
+ * may modify. Responses with missing metric families are not cached. Redis errors are logged
+ * and Redis is skipped for a while; the cache then runs on the local tier alone.
+ *
+ * <p>The time-to-live of both tiers only bounds memory and the effect of a failed version
+ * bump; it plays no part in freshness.
+ */
+@Component
+@Slf4j
+public class MetricsResultCache {
+
+    private static final String KEY_PREFIX = "am-trade:metrics:";
+    private static final String RESULT_COUNTER = "metrics.result.cache";
+
+    private final PortfolioVersions portfolioVersions;
+    private final MetricsResponseCodec codec = new MetricsResponseCodec();
+    private final ObjectMapper canonicalMapper;
+    private final boolean enabled;
+    private final Duration timeToLive;
+    private final Cache<String, byte[]> local;
+    private final RedisTemplate<String, byte[]> shared;
+    private final long sharedRetryNanos;
+    private final MeterRegistry meterRegistry;
+    private volatile long sharedSuspendedUntil;
+
+    public MetricsResultCache(PortfolioVersions portfolioVersions,
+                              ObjectProvider<RedisConnectionFactory> redisConnectionFactoryProvider,
+                              ObjectProvider<MeterRegistry> meterRegistryProvider,
+                              @Value("${am.trade.api.metrics.cache.enabled:true}") boolean enabled,
+                              @Value("${am.trade.api.metrics.cache.local-max-mb:64}") long localMaxMegabytes,
+                              @Value("${am.trade.api.metrics.cache.ttl-hours:24}") long timeToLiveHours,
+                              @Value("${am.trade.api.metrics.cache.shared.enabled:true}") boolean sharedEnabled,
+                              @Value("${am.trade.api.metrics.cache.shared.retry-ms:30000}") long sharedRetryMillis) {
+        this.portfolioVersions = portfolioVersions;
+        this.enabled = enabled;
+        this.timeToLive = Duration.ofHours(timeToLiveHours);
+        this.sharedRetryNanos = TimeUnit.MILLISECONDS.toNanos(sharedRetryMillis);
+        this.sharedSuspendedUntil = System.nanoTime();
+        this.meterRegistry = meterRegistryProvider.getIfAvailable();
+        this.canonicalMapper = JsonMapper.builder()
+                .addModule(new JavaTimeModule())
+                .enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+                .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+
+        this.local = Caffeine.newBuilder()
+                .maximumWeight(localMaxMegabytes * 1024 * 1024)
+                .weigher((String key, byte[] value) -> key.length() + value.length)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, local, "metricsResultCache");
+        }
+
+        RedisConnectionFactory connectionFactory = sharedEnabled ? redisConnectionFactoryProvider.getIfAvailable() : null;
+        if (connectionFactory != null) {
+            RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+            template.setConnectionFactory(connectionFactory);
+            template.setKeySerializer(RedisSerializer.string());
+            template.setValueSerializer(RedisSerializer.byteArray());
+            template.afterPropertiesSet();
+            this.shared = template;
+        } else {
+            this.shared = null;
+        }
+
+        log.info("Metrics result cache {} with a {} MB local tier{}", enabled ? "enabled" : "disabled",
+                localMaxMegabytes, shared != null ? " and a shared Redis tier" : "");
+    }
+
+    /**
+     * Return the cached result of the request, or calculate and cache it
+     *
+     * @param request Request with its date range already resolved
+     * @param calculation Reads the trades and calculates the response
+     * @return Response for the request; a copy the caller may modify
+     */
+    public MetricsResponse getOrCalculate(MetricsFilterRequest request, Supplier<MetricsResponse> calculation) {
+        if (!enabled) {
+            return calculation.get();
+        }
+
+        String key;
+        try {
+            // Versions must be read before the calculation reads any trade
+            key = key(request);
+        } catch (RuntimeException e) {
+            log.warn("Metrics result cache unavailable, calculating directly: {}", e.getMessage());
+            return calculation.get();
+        }
+
+        byte[] bytes = local.getIfPresent(key);
+        if (bytes != null) {
+            count("local_hit");
+            return codec.decode(bytes);
+        }
+        bytes = readShared(key);
+        if (bytes != null) {
+            local.put(key, bytes);
+            count("shared_hit");
+            return codec.decode(bytes);
+        }
+
+        count("miss");
+        MetricsResponse response = calculation.get();
+        if (response.getMetadata() == null || !response.getMetadata().containsKey("incompleteMetrics")) {
+            bytes = codec.encode(response);
+            local.put(key, bytes);
+            writeShared(key, bytes);
+        }
+        return response;
+    }
+
+    /**
+     * Cache key of the request at the current portfolio versions
+     */
+    String key(MetricsFilterRequest request) {
+        List<String> portfolioIds = request.getPortfolioIds() != null ? request.getPortfolioIds() : List.of();
+        Map<String, Long> versions = new TreeMap<>(portfolioVersions.current(portfolioIds));
+
+        MessageDigest digest = sha256();
+        digest.update(fingerprint(request));
+        versions.forEach((portfolioId, version) ->
+                digest.update(("\n" + portfolioId + "=" + version).getBytes(StandardCharsets.UTF_8)));
+        return KEY_PREFIX + Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest());
+    }
+
+    private byte[] fingerprint(MetricsFilterRequest request) {
+        JsonNode tree = canonicalMapper.valueToTree(request);
+        try {
+            return canonicalMapper.writeValueAsBytes(canonicalize(tree));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Failed to fingerprint metrics request", e);
+        }
+    }
+
+    /**
+     * Sort arrays of plain values, which all stand for sets in a metrics request; object
+     * properties are already sorted by the mapper
+     */
+    private static JsonNode canonicalize(JsonNode node) {
+        if (node instanceof ObjectNode object) {
+            Iterator<Map.Entry<String, JsonNode>> fields = object.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                field.setValue(canonicalize(field.getValue()));
+            }
+            return object;
+        }
+        if (node instanceof ArrayNode array) {
+            List<JsonNode> elements = new ArrayList<>();
+            boolean scalars = true;
+            for (JsonNode element : array) {
+                JsonNode canonical = canonicalize(element);
+                elements.add(canonical);
+                scalars &= canonical.isValueNode();
+            }
+            if (scalars) {
+                elements.sort(Comparator.comparing(JsonNode::asText));
+            }
+            array.removeAll();
+            array.addAll(elements);
+            return array;
+        }
+        return node;
+    }
+
+    private byte[] readShared(String key) {
+        if (!sharedAvailable()) {
+            return null;
+        }
+        try {
+            return shared.opsForValue().get(key);
+        } catch (RuntimeException e) {
+            suspendShared(e);
+            return null;
+        }
+    }
+
+    private void writeShared(String key, byte[] bytes) {
+        if (!sharedAvailable()) {
+            return;
+        }
+        try {
+            shared.opsForValue().set(key, bytes, timeToLive);
+        } catch (RuntimeException e) {
+            suspendShared(e);
+        }
+    }
+
+    private boolean sharedAvailable() {
+        return shared != null && System.nanoTime() - sharedSuspendedUntil >= 0;
+    }
+
+    private void suspendShared(RuntimeException e) {
+        sharedSuspendedUntil = System.nanoTime() + sharedRetryNanos;
+        log.warn("Shared metrics result cache unavailable, using the local tier for {} ms: {}",
+                TimeUnit.NANOSECONDS.toMillis(sharedRetryNanos), e.getMessage());
+    }
+
+    private void count(String result) {
+        if (meterRegistry != null) {
+            Counter.builder(RESULT_COUNTER).tag("result", result).register(meterRegistry).increment();
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package am.trade.api.service.cube;
+
+import java.util.Arrays;
+
+import am.trade.common.util.TradeSketches;
+import am.trade.dashboard.service.metrics.columns.TradeColumns;
+
+/**
+ * Mergeable totals of a set of trades: counts, sums, extremes and running moments that give
+ * the same result whether they are folded trade by trade or merged from disjoint parts.
+ *
+ * <p>Performance metrics only see trades with a profit/loss and entry info, like
+ * {@code PerformanceMetricsService} after its validation; risk metrics see every trade, like
+ * {@code RiskMetricsService}. Metrics that depend on the order of the trades are not
+ * mergeable, so the aggregate also keeps the entry-time and exit-time ranks of its trades for
+ * one ordered walk after merging. Distributions are kept as mergeable sketches.
+ */
+final class CubeAggregate {
+
+    private static final long MILLIS_PER_HOUR = 3_600_000L;
+
+    // Every trade; those with a profit/loss as seen by risk metrics
+    int tradeCount;
+    final TradeSketches sketches = new TradeSketches();
+    long riskLargestLoss;
+    int sizedCount;
+    double sizedTotal;
+    // Sized trades with an entry time, for daily returns by entry day
+    int sizedDayCount;
+    long sizedDayProfitLoss;
+
+    // Trades kept by performance metrics
+    int validCount;
+    int winCount;
+    int lossCount;
+    long grossProfit;
+    long grossLoss;
+    long largestWin;
+    long largestLoss;
+
+    // Kept trades with an exit time
+    int closedCount;
+    long closedProfitLoss;
+    int returnCount;
+    int profitableCount;
+    double meanReturn;
+    double squaredReturnDeviations;
+    // Closed kept trades with an entry time no later than the exit, in whole hours held
+    int heldCount;
+    long heldHours;
+
+    // Kept trades with an entry time
+    int enteredCount;
+    long enteredProfitLoss;
+    double enteredInvested;
+    long firstEntryTime = Long.MAX_VALUE;
+    long lastEntryTime = Long.MIN_VALUE;
+
+    // Entry-time ranks of trades with a profit/loss, exit-time ranks of closed kept trades
+    int[] entryRanks = new int[0];
+    int entryRankCount;
+    int[] exitRanks = new int[0];
+    int exitRankCount;
+
+    /**
+     * Fold one trade in
+     *
+     * @param columns Snapshot of the trades
+     * @param row Row of the trade
+     * @param entryRank Position of the row in the snapshot's entry-time order
+     * @param exitRank Position of the row in the snapshot's exit-time order
+     */
+    void add(TradeColumns columns, int row, int entryRank, int exitRank) {
+        tradeCount++;
+        sketches.add(columns.trade(row));
+        if (!columns.hasProfitLoss(row)) {
+            return;
+        }
+
+        long tradeProfitLoss = columns.profitLoss(row);
+        entryRanks = append(entryRanks, entryRankCount++, entryRank);
+        if (tradeProfitLoss < 0) {
+            riskLargestLoss = Math.max(riskLargestLoss, -tradeProfitLoss);
+        }
+        double price = columns.entryPrice(row);
+        double quantity = columns.quantity(row);
+        if (!Double.isNaN(price) && !Double.isNaN(quantity)) {
+            sizedCount++;
+            sizedTotal += price * quantity;
+            if (columns.hasEntryTime(row)) {
+                sizedDayCount++;
+                sizedDayProfitLoss += tradeProfitLoss;
+            }
+        }
+
+        if (columns.trade(row).getEntryInfo() == null) {
+            return;
+        }
+
+        validCount++;
+        if (tradeProfitLoss > 0) {
+            winCount++;
+            grossProfit += tradeProfitLoss;
+            largestWin = Math.max(largestWin, tradeProfitLoss);
+        } else if (tradeProfitLoss < 0) {
+            lossCount++;
+            grossLoss -= tradeProfitLoss;
+            largestLoss = Math.min(largestLoss, tradeProfitLoss);
+        }
+        if (columns.hasEntryTime(row)) {
+            long entryTime = columns.entryTime(row);
+            enteredCount++;
+            enteredProfitLoss += tradeProfitLoss;
+            double entryValue = columns.entryValue(row);
+            if (!Double.isNaN(entryValue)) {
+                enteredInvested += entryValue;
+            }
+            firstEntryTime = Math.min(firstEntryTime, entryTime);
+            lastEntryTime = Math.max(lastEntryTime, entryTime);
+        }
+
+        if (columns.hasExitTime(row)) {
+            closedCount++;
+            closedProfitLoss += tradeProfitLoss;
+            exitRanks = append(exitRanks, exitRankCount++, exitRank);
+            if (columns.hasEntryTime(row) && columns.exitTime(row) >= columns.entryTime(row)) {
+                heldCount++;
+                heldHours += (columns.exitTime(row) - columns.entryTime(row)) / MILLIS_PER_HOUR;
+            }
+            double profitLossPercentage = columns.profitLossPercentage(row);
+            if (!Double.isNaN(profitLossPercentage)) {
+                double tradeReturn = profitLossPercentage / 100;
+                returnCount++;
+                if (tradeReturn > 0) {
+                    profitableCount++;
+                }
+                double delta = tradeReturn - meanReturn;
+                meanReturn += delta / returnCount;
+                squaredReturnDeviations += delta * (tradeReturn - meanReturn);
+            }
+        }
+    }
+
+    /**
+     * Merge the totals of a disjoint set of trades into this one
+     */
+    void merge(CubeAggregate other) {
+        tradeCount += other.tradeCount;
+        sketches.merge(other.sketches);
+        riskLargestLoss = Math.max(riskLargestLoss, other.riskLargestLoss);
+        sizedCount += other.sizedCount;
+        sizedTotal += other.sizedTotal;
+        sizedDayCount += other.sizedDayCount;
+        sizedDayProfitLoss += other.sizedDayProfitLoss;
+
+        validCount += other.validCount;
+        winCount += other.winCount;
+        lossCount += other.lossCount;
+        grossProfit += other.grossProfit;
+        grossLoss += other.grossLoss;
+        largestWin = Math.max(largestWin, other.largestWin);
+        largestLoss = Math.min(largestLoss, other.largestLoss);
+
+        closedCount += other.closedCount;
+        closedProfitLoss += other.closedProfitLoss;
+        // Parallel form of Welford's method
+        if (other.returnCount > 0) {
+            int count = returnCount + other.returnCount;
+            double delta = other.meanReturn - meanReturn;
+            squaredReturnDeviations += other.squaredReturnDeviations
+                    + delta * delta * returnCount * other.returnCount / count;
+            meanReturn += delta * other.returnCount / count;
+            returnCount = count;
+        }
+        profitableCount += other.profitableCount;
+        heldCount += other.heldCount;
+        heldHours += other.heldHours;
+
+        enteredCount += other.enteredCount;
+        enteredProfitLoss += other.enteredProfitLoss;
+        enteredInvested += other.enteredInvested;
+        firstEntryTime = Math.min(firstEntryTime, other.firstEntryTime);
+        lastEntryTime = Math.max(lastEntryTime, other.lastEntryTime);
+
+        entryRanks = appendAll(entryRanks, entryRankCount, other.entryRanks, other.entryRankCount);
+        entryRankCount += other.entryRankCount;
+        exitRanks = appendAll(exitRanks, exitRankCount, other.exitRanks, other.exitRankCount);
+        exitRankCount += other.exitRankCount;
+    }
+
+    /**
+     * Entry-time ranks of the trades with a profit/loss, ascending
+     */
+    int[] sortedEntryRanks() {
+        int[] ranks = Arrays.copyOf(entryRanks, entryRankCount);
+        Arrays.sort(ranks);
+        return ranks;
+    }
+
+    /**
+     * Exit-time ranks of the closed kept trades, ascending
+     */
+    int[] sortedExitRanks() {
+        int[] ranks = Arrays.copyOf(exitRanks, exitRankCount);
+        Arrays.sort(ranks);
+        return ranks;
+    }
+
+    private static int[] append(int[] values, int count, int value) {
+        if (count == values.length) {
+            values = Arrays.copyOf(values, Math.max(4, count * 2));
+        }
+        values[count] = value;
+        return values;
+    }
+
+    private static int[] appendAll(int[] values, int count, int[] others, int otherCount) {
+        if (count + otherCount > values.length) {
+            values = Arrays.copyOf(values, Math.max(count + otherCount, values.length * 2));
+        }
+        System.arraycopy(others, 0, values, count, otherCount);
+        return values;
+    }
+}
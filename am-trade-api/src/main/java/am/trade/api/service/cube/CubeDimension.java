@@ -0,0 +1,60 @@
+package am.trade.api.service.cube;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Dimension a {@link MetricsCube} can be rolled up along.
+ *
+ * <p>A {@code groupBy} entry names one dimension, or several joined with {@code +} for a
+ * multi-dimension group-by such as {@code INSTRUMENT+TAG}. {@code STRATEGY} stands for
+ * {@code INSTRUMENT+DIRECTION}, as it always has in grouped metrics.
+ */
+public enum CubeDimension {
+
+    /** Day the trade closed, as {@code yyyy-MM-dd} */
+    DAY,
+
+    /** Symbol of the instrument, falling back to the trade's symbol */
+    INSTRUMENT,
+
+    /** Long or short */
+    DIRECTION,
+
+    /** Each tag of the trade; trades without tags are left out */
+    TAG;
+
+    /**
+     * Dimensions of a {@code groupBy} entry
+     *
+     * @param groupBy Entry of the metrics request's {@code groupBy} list
+     * @return Dimensions in the order given, or an empty list when any of them is unsupported
+     */
+    public static List<CubeDimension> parse(String groupBy) {
+        List<CubeDimension> dimensions = new ArrayList<>();
+        if (groupBy == null) {
+            return dimensions;
+        }
+        for (String name : groupBy.split("\\+")) {
+            String dimension = name.trim().toUpperCase(Locale.ROOT);
+            if (dimension.equals("STRATEGY")) {
+                addOnce(dimensions, INSTRUMENT);
+                addOnce(dimensions, DIRECTION);
+                continue;
+            }
+            try {
+                addOnce(dimensions, valueOf(dimension));
+            } catch (IllegalArgumentException e) {
+                return List.of();
+            }
+        }
+        return dimensions;
+    }
+
+    private static void addOnce(List<CubeDimension> dimensions, CubeDimension dimension) {
+        if (!dimensions.contains(dimension)) {
+            dimensions.add(dimension);
+        }
+    }
+}
@@ -0,0 +1,393 @@
+package am.trade.api.service.cube;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+import am.trade.common.models.PerformanceMetrics;
+import am.trade.common.models.RiskMetrics;
+import am.trade.common.models.TradeDistributionMetrics;
+import am.trade.dashboard.service.metrics.columns.TradeColumns;
+
+/**
+ * One group of a {@link MetricsCube} roll-up: the merged cells of the group, with their
+ * totals per exit day and entry day.
+ *
+ * <p>Metrics follow the definitions of {@code PerformanceMetricsService} and
+ * {@code RiskMetricsService} over the group's trades. Order-free metrics come from the merged
+ * totals; drawdowns and streaks come from one walk over the group's ranks in the snapshot's
+ * time order, which needs no regrouping and no comparator sort.
+ */
+public final class CubeGroup {
+
+    private static final int SCALE = 4;
+    private static final int PERCENT_SCALE = 2;
+    // Average winning and losing trades are rounded to cents, as in AverageTradeCalculator
+    private static final int AVERAGE_TRADE_SCALE = 2;
+    private static final RoundingMode ROUNDING_MODE = RoundingMode.HALF_UP;
+    private static final BigDecimal HUNDRED = new BigDecimal("100");
+
+    private final MetricsCube cube;
+    private final CubeAggregate totals = new CubeAggregate();
+    // Profit/loss of closed kept trades by exit day, for the best and worst day
+    private final Map<Long, Long> closedDays = new TreeMap<>();
+    // Profit/loss of sized trades by entry day, for daily return volatility
+    private final Map<Long, Long> sizedDays = new TreeMap<>();
+
+    private final long yearStart;
+    private final long yearEnd;
+    private final long quarterStart;
+    private final long quarterEnd;
+    private final long monthStart;
+    private final long monthEnd;
+    private final PeriodTotals yearToDate = new PeriodTotals();
+    private final PeriodTotals quarter = new PeriodTotals();
+    private final PeriodTotals month = new PeriodTotals();
+
+    CubeGroup(MetricsCube cube, LocalDate today) {
+        this.cube = cube;
+        LocalDate firstOfYear = today.withDayOfYear(1);
+        LocalDate firstOfQuarter = today.withDayOfMonth(1).withMonth((today.getMonthValue() - 1) / 3 * 3 + 1);
+        LocalDate firstOfMonth = today.withDayOfMonth(1);
+        this.yearStart = firstOfYear.toEpochDay();
+        this.yearEnd = firstOfYear.plusYears(1).toEpochDay();
+        this.quarterStart = firstOfQuarter.toEpochDay();
+        this.quarterEnd = firstOfQuarter.plusMonths(3).toEpochDay();
+        this.monthStart = firstOfMonth.toEpochDay();
+        this.monthEnd = firstOfMonth.plusMonths(1).toEpochDay();
+    }
+
+    /**
+     * Merge a cell into the group
+     */
+    void add(long entryDay, long exitDay, CubeAggregate cell) {
+        totals.merge(cell);
+        if (cell.closedCount > 0) {
+            closedDays.merge(exitDay, cell.closedProfitLoss, Long::sum);
+        }
+        if (cell.sizedDayCount > 0) {
+            sizedDays.merge(entryDay, cell.sizedDayProfitLoss, Long::sum);
+        }
+        if (cell.enteredCount > 0 && entryDay >= yearStart && entryDay < yearEnd) {
+            yearToDate.add(cell);
+            if (entryDay >= quarterStart && entryDay < quarterEnd) {
+                quarter.add(cell);
+            }
+            if (entryDay >= monthStart && entryDay < monthEnd) {
+                month.add(cell);
+            }
+        }
+    }
+
+    /**
+     * Number of trades in the group
+     */
+    public int tradeCount() {
+        return totals.tradeCount;
+    }
+
+    /**
+     * Performance metrics of the group's trades
+     */
+    public PerformanceMetrics performanceMetrics() {
+        PerformanceMetrics metrics = new PerformanceMetrics();
+        if (totals.validCount == 0) {
+            return metrics;
+        }
+
+        BigDecimal totalProfitLoss = TradeColumns.fromMoney(totals.grossProfit - totals.grossLoss);
+        metrics.setTotalProfitLoss(totalProfitLoss);
+        metrics.setWinRate(BigDecimal.valueOf(totals.winCount * 100.0 / totals.validCount)
+                .setScale(PERCENT_SCALE, ROUNDING_MODE));
+        metrics.setExpectancy(expectancy());
+        metrics.setProfitFactor(totals.grossLoss > 0 ?
+                TradeColumns.fromMoney(totals.grossProfit).divide(TradeColumns.fromMoney(totals.grossLoss), SCALE, ROUNDING_MODE) :
+                BigDecimal.ZERO);
+        if (totals.largestWin > 0) {
+            metrics.setLargestWinningTrade(TradeColumns.fromMoney(totals.largestWin));
+        }
+        if (totals.largestLoss < 0) {
+            metrics.setLargestLosingTrade(TradeColumns.fromMoney(-totals.largestLoss));
+        }
+        // Sized trades all have entry info, so their total is the capital of the kept trades
+        metrics.setReturnOnCapital(totals.sizedTotal > 0 ?
+                totalProfitLoss.divide(BigDecimal.valueOf(totals.sizedTotal), PERCENT_SCALE, ROUNDING_MODE).multiply(HUNDRED) :
+                BigDecimal.ZERO);
+        metrics.setAverageHoldingTimeOverall(totals.heldCount > 0 ?
+                BigDecimal.valueOf(totals.heldHours).divide(BigDecimal.valueOf(totals.heldCount), SCALE, ROUNDING_MODE) :
+                BigDecimal.ZERO);
+
+        applyTradeAverages(metrics);
+        applyDays(metrics);
+        applyConsistency(metrics);
+        applyTimeBasedReturns(metrics);
+        return metrics;
+    }
+
+    /**
+     * Risk metrics of the group's trades
+     */
+    public RiskMetrics riskMetrics() {
+        RiskMetrics metrics = new RiskMetrics();
+        if (totals.tradeCount == 0) {
+            return metrics;
+        }
+
+        // Drawdown and consecutive losses in entry-time order
+        TradeColumns columns = cube.columns();
+        int[] order = columns.entryTimeOrder();
+        long cumulativeProfitLoss = 0;
+        long maxCumulativeProfitLoss = 0;
+        long maxDrawdown = 0;
+        int consecutiveLosses = 0;
+        int maxConsecutiveLosses = 0;
+        for (int rank : totals.sortedEntryRanks()) {
+            long profitLoss = columns.profitLoss(order[rank]);
+            cumulativeProfitLoss += profitLoss;
+            if (cumulativeProfitLoss > maxCumulativeProfitLoss) {
+                maxCumulativeProfitLoss = cumulativeProfitLoss;
+            } else {
+                maxDrawdown = Math.max(maxDrawdown, maxCumulativeProfitLoss - cumulativeProfitLoss);
+            }
+            if (profitLoss < 0) {
+                consecutiveLosses++;
+            } else {
+                maxConsecutiveLosses = Math.max(maxConsecutiveLosses, consecutiveLosses);
+                consecutiveLosses = 0;
+            }
+        }
+        maxConsecutiveLosses = Math.max(maxConsecutiveLosses, consecutiveLosses);
+
+        Collection<Long> dailyProfitLoss = sizedDays.values();
+        BigDecimal volatility = standardDeviation(dailyProfitLoss, false);
+        BigDecimal averageDailyReturn = average(dailyProfitLoss);
+        BigDecimal sharpeRatio = volatility.compareTo(BigDecimal.ZERO) > 0 ?
+                averageDailyReturn.divide(volatility, SCALE, ROUNDING_MODE).multiply(BigDecimal.valueOf(Math.sqrt(252))) :
+                BigDecimal.ZERO;
+        BigDecimal downsideDeviation = standardDeviation(dailyProfitLoss, true);
+        BigDecimal sortinoRatio = downsideDeviation.compareTo(BigDecimal.ZERO) > 0 ?
+                averageDailyReturn.divide(downsideDeviation, SCALE, ROUNDING_MODE).multiply(BigDecimal.valueOf(Math.sqrt(252))) :
+                BigDecimal.ZERO;
+        // No annual return is tracked, as in RiskMetricsService
+        BigDecimal calmarRatio = maxDrawdown > 0 ? BigDecimal.ZERO.setScale(SCALE) : BigDecimal.ZERO;
+
+        metrics.setMaxDrawdown(TradeColumns.fromMoney(maxDrawdown));
+        metrics.setSharpeRatio(sharpeRatio);
+        metrics.setSortinoRatio(sortinoRatio);
+        metrics.setCalmarRatio(calmarRatio);
+        metrics.setAveragePositionSize(totals.sizedCount > 0 ?
+                BigDecimal.valueOf(totals.sizedTotal / totals.sizedCount).setScale(SCALE, ROUNDING_MODE) :
+                BigDecimal.ZERO);
+        metrics.setConsecutiveLossesToRuin(maxConsecutiveLosses);
+        metrics.setLargestPositionSize(TradeColumns.fromMoney(totals.riskLargestLoss));
+        return metrics;
+    }
+
+    /**
+     * Percentiles of the group's trades, from the merged sketches of its cells
+     */
+    public TradeDistributionMetrics distributionMetrics() {
+        TradeDistributionMetrics metrics = new TradeDistributionMetrics();
+        totals.sketches.applyPercentiles(metrics);
+        return metrics;
+    }
+
+    private BigDecimal expectancy() {
+        BigDecimal winProbability = BigDecimal.valueOf((double) totals.winCount / totals.validCount);
+        BigDecimal lossProbability = BigDecimal.ONE.subtract(winProbability);
+        return winProbability.multiply(average(totals.grossProfit, totals.winCount))
+                .subtract(lossProbability.multiply(average(totals.grossLoss, totals.lossCount)))
+                .setScale(SCALE, ROUNDING_MODE);
+    }
+
+    /**
+     * Average winning and losing trade, and their ratio taken from the averages at four decimals
+     * as in WinLossRatioCalculator
+     */
+    private void applyTradeAverages(PerformanceMetrics metrics) {
+        if (totals.winCount > 0) {
+            metrics.setAverageWinningTrade(TradeColumns.fromMoney(totals.grossProfit)
+                    .divide(BigDecimal.valueOf(totals.winCount), AVERAGE_TRADE_SCALE, ROUNDING_MODE));
+        }
+        if (totals.lossCount > 0) {
+            metrics.setAverageLosingTrade(TradeColumns.fromMoney(totals.grossLoss)
+                    .divide(BigDecimal.valueOf(totals.lossCount), AVERAGE_TRADE_SCALE, ROUNDING_MODE));
+        }
+        BigDecimal averageWin = average(totals.grossProfit, totals.winCount);
+        BigDecimal averageLoss = average(totals.grossLoss, totals.lossCount);
+        metrics.setWinLossRatio(averageLoss.compareTo(BigDecimal.ZERO) > 0 ?
+                averageWin.divide(averageLoss, SCALE, ROUNDING_MODE) :
+                BigDecimal.ZERO);
+    }
+
+    /**
+     * Best and worst exit day; the earliest day wins a tie
+     */
+    private void applyDays(PerformanceMetrics metrics) {
+        if (closedDays.isEmpty()) {
+            return;
+        }
+        Map.Entry<Long, Long> best = null;
+        Map.Entry<Long, Long> worst = null;
+        for (Map.Entry<Long, Long> day : closedDays.entrySet()) {
+            if (best == null || day.getValue() > best.getValue()) {
+                best = day;
+            }
+            if (worst == null || day.getValue() < worst.getValue()) {
+                worst = day;
+            }
+        }
+        metrics.setBestDayProfit(TradeColumns.fromMoney(best.getValue()));
+        metrics.setBestDayDate(LocalDate.ofEpochDay(best.getKey()).atStartOfDay());
+        metrics.setWorstDayLoss(TradeColumns.fromMoney(worst.getValue()).abs());
+        metrics.setWorstDayDate(LocalDate.ofEpochDay(worst.getKey()).atStartOfDay());
+    }
+
+    /**
+     * Return deviation, profit consistency, and the drawdown and streaks of closed trades in
+     * exit-time order
+     */
+    private void applyConsistency(PerformanceMetrics metrics) {
+        if (totals.closedCount == 0) {
+            return;
+        }
+
+        metrics.setReturnStandardDeviation(totals.returnCount < 2 ? BigDecimal.ZERO :
+                BigDecimal.valueOf(Math.sqrt(totals.squaredReturnDeviations / (totals.returnCount - 1)))
+                        .setScale(SCALE, ROUNDING_MODE));
+        metrics.setProfitConsistency(totals.returnCount == 0 ? BigDecimal.ZERO :
+                BigDecimal.valueOf(totals.profitableCount)
+                        .divide(BigDecimal.valueOf(totals.returnCount), SCALE, ROUNDING_MODE));
+
+        TradeColumns columns = cube.columns();
+        int[] order = columns.exitTimeOrder();
+        long cumulativeProfitLoss = 0;
+        long peak = 0;
+        long maxDrawdown = 0;
+        int currentStreak = 0;
+        boolean isWinning = false;
+        int winStreak = 0;
+        int lossStreak = 0;
+        int longestWinningStreak = 0;
+        int longestLosingStreak = 0;
+        for (int rank : totals.sortedExitRanks()) {
+            long profitLoss = columns.profitLoss(order[rank]);
+            cumulativeProfitLoss += profitLoss;
+            if (cumulativeProfitLoss > peak) {
+                peak = cumulativeProfitLoss;
+            } else if (peak > 0) {
+                maxDrawdown = Math.max(maxDrawdown, peak - cumulativeProfitLoss);
+            }
+            boolean isTradeWinning = profitLoss > 0;
+            if (currentStreak > 0 && isTradeWinning == isWinning) {
+                currentStreak++;
+            } else {
+                isWinning = isTradeWinning;
+                currentStreak = 1;
+            }
+            // Break-even trades end both longest streaks but count as losses in the current one
+            winStreak = profitLoss > 0 ? winStreak + 1 : 0;
+            lossStreak = profitLoss < 0 ? lossStreak + 1 : 0;
+            longestWinningStreak = Math.max(longestWinningStreak, winStreak);
+            longestLosingStreak = Math.max(longestLosingStreak, lossStreak);
+        }
+        metrics.setMaxDrawdown(TradeColumns.fromMoney(maxDrawdown));
+        metrics.setCurrentStreak(isWinning ? currentStreak : -currentStreak);
+        metrics.setLongestWinningStreak(longestWinningStreak);
+        metrics.setLongestLosingStreak(longestLosingStreak);
+    }
+
+    private void applyTimeBasedReturns(PerformanceMetrics metrics) {
+        if (totals.enteredCount == 0) {
+            return;
+        }
+        if (yearToDate.tradeCount > 0) {
+            metrics.setYearToDateReturn(yearToDate.returnPercentage());
+        }
+        if (quarter.tradeCount > 0) {
+            metrics.setQuarterlyReturn(quarter.returnPercentage());
+        }
+        if (month.tradeCount > 0) {
+            metrics.setMonthlyReturn(month.returnPercentage());
+        }
+
+        long tradingDays = (totals.lastEntryTime - totals.firstEntryTime) / TradeColumns.MILLIS_PER_DAY;
+        double tradingYears = Math.max(0.1, tradingDays / 365.0);
+        double annualizedReturn = Math.pow(1 + TradeColumns.moneyToDouble(totals.enteredProfitLoss), 1 / tradingYears) - 1;
+        // Losses beyond the whole capital have no annualized return
+        if (Double.isFinite(annualizedReturn)) {
+            metrics.setAnnualizedReturn(BigDecimal.valueOf(annualizedReturn).multiply(HUNDRED)
+                    .setScale(PERCENT_SCALE, ROUNDING_MODE));
+        }
+    }
+
+    private static BigDecimal average(long money, int count) {
+        return count > 0 ?
+                TradeColumns.fromMoney(money).divide(BigDecimal.valueOf(count), SCALE, ROUNDING_MODE) :
+                BigDecimal.ZERO;
+    }
+
+    private static BigDecimal average(Collection<Long> values) {
+        if (values.isEmpty()) {
+            return BigDecimal.ZERO;
+        }
+        long sum = 0;
+        for (long value : values) {
+            sum += value;
+        }
+        return average(sum, values.size());
+    }
+
+    /**
+     * Sample standard deviation of money values in day order, optionally only of the negative ones
+     */
+    private static BigDecimal standardDeviation(Collection<Long> values, boolean negativeOnly) {
+        int n = 0;
+        double mean = 0;
+        double squaredDeviations = 0;
+        for (long money : values) {
+            if (negativeOnly && money >= 0) {
+                continue;
+            }
+            double value = TradeColumns.moneyToDouble(money);
+            n++;
+            double delta = value - mean;
+            mean += delta / n;
+            squaredDeviations += delta * (value - mean);
+        }
+        if (n < 2) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal variance = BigDecimal.valueOf(squaredDeviations / (n - 1)).setScale(SCALE, ROUNDING_MODE);
+        if (variance.compareTo(BigDecimal.ZERO) <= 0) {
+            return BigDecimal.ZERO;
+        }
+        return BigDecimal.valueOf(Math.sqrt(variance.doubleValue())).setScale(SCALE, ROUNDING_MODE);
+    }
+
+    /**
+     * Profit/loss and invested amount of the trades entered in a period
+     */
+    private static final class PeriodTotals {
+        private int tradeCount;
+        private long profitLoss;
+        private double invested;
+
+        private void add(CubeAggregate cell) {
+            tradeCount += cell.enteredCount;
+            profitLoss += cell.enteredProfitLoss;
+            invested += cell.enteredInvested;
+        }
+
+        private BigDecimal returnPercentage() {
+            BigDecimal totalInvested = BigDecimal.valueOf(invested);
+            if (totalInvested.compareTo(BigDecimal.ZERO) > 0) {
+                return TradeColumns.fromMoney(profitLoss).divide(totalInvested, PERCENT_SCALE, ROUNDING_MODE).multiply(HUNDRED);
+            }
+            return BigDecimal.ZERO;
+        }
+    }
+}
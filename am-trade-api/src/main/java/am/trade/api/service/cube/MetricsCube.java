@@ -0,0 +1,194 @@
+package am.trade.api.service.cube;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import am.trade.common.models.TradeDetails;
+import am.trade.common.models.enums.TradePositionType;
+import am.trade.dashboard.service.metrics.columns.TradeColumns;
+
+/**
+ * In-memory aggregation cube over a snapshot of trades, for grouped metrics.
+ *
+ * <p>One pass over the trades sorts them into cells keyed by entry day, exit day, instrument,
+ * direction and tag set, each holding a {@link CubeAggregate}. A roll-up along any
+ * combination of {@link CubeDimension dimensions} merges the cells of each group instead of
+ * regrouping and rescanning the trades, so several group-bys, and drilling down by adding a
+ * dimension, cost one merge per cell and group. A trade with several tags sits in one cell
+ * with its whole tag set, so it counts once in every roll-up that is not by tag.
+ *
+ * <p>A cube is immutable once built and may be rolled up from several threads.
+ */
+public final class MetricsCube {
+
+    static final long NO_DAY = Long.MIN_VALUE;
+    private static final String UNKNOWN = "Unknown";
+
+    private final TradeColumns columns;
+    private final List<Cell> cells;
+    private final String[] instruments;
+    private final int[][] tagSets;
+
+    private MetricsCube(TradeColumns columns, List<Cell> cells, String[] instruments, int[][] tagSets) {
+        this.columns = columns;
+        this.cells = cells;
+        this.instruments = instruments;
+        this.tagSets = tagSets;
+    }
+
+    /**
+     * Build the cube of a trade snapshot
+     *
+     * @param columns Snapshot of the trades; shared with the cube, whose ordered walks use its
+     *                entry-time and exit-time orders
+     * @return Cube of the trades
+     */
+    public static MetricsCube of(TradeColumns columns) {
+        int size = columns.size();
+        int[] entryRanks = ranks(columns.entryTimeOrder(), size);
+        int[] exitRanks = ranks(columns.exitTimeOrder(), size);
+
+        Map<String, Integer> instrumentCodes = new HashMap<>();
+        List<String> instruments = new ArrayList<>();
+        Map<TagSet, Integer> tagSetCodes = new HashMap<>();
+        List<int[]> tagSets = new ArrayList<>();
+        Map<CellKey, Cell> cells = new LinkedHashMap<>();
+
+        for (int row = 0; row < size; row++) {
+            String instrument = instrument(columns.trade(row));
+            int instrumentCode = instrumentCodes.computeIfAbsent(instrument, key -> {
+                instruments.add(key);
+                return instruments.size() - 1;
+            });
+
+            TagSet tagSet = TagSet.of(columns, row);
+            int tagSetCode = tagSetCodes.computeIfAbsent(tagSet, key -> {
+                tagSets.add(key.codes());
+                return tagSets.size() - 1;
+            });
+
+            CellKey key = new CellKey(
+                    columns.hasEntryTime(row) ? TradeColumns.epochDay(columns.entryTime(row)) : NO_DAY,
+                    columns.hasExitTime(row) ? TradeColumns.epochDay(columns.exitTime(row)) : NO_DAY,
+                    instrumentCode, columns.direction(row), tagSetCode);
+            cells.computeIfAbsent(key, Cell::new).aggregate.add(columns, row, entryRanks[row], exitRanks[row]);
+        }
+
+        return new MetricsCube(columns, List.copyOf(cells.values()), instruments.toArray(new String[0]),
+                tagSets.toArray(new int[0][]));
+    }
+
+    /**
+     * Roll the cube up along some dimensions
+     *
+     * @param dimensions Dimensions to group by, in the order their values appear in group keys
+     * @param today Date the current month, quarter and year of time-based returns are taken from
+     * @return Groups by key, the dimension values joined with {@code -}
+     */
+    public Map<String, CubeGroup> rollUp(List<CubeDimension> dimensions, LocalDate today) {
+        Map<String, CubeGroup> groups = new LinkedHashMap<>();
+        int tagIndex = dimensions.indexOf(CubeDimension.TAG);
+        String[] values = new String[dimensions.size()];
+
+        for (Cell cell : cells) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = i == tagIndex ? null : value(cell.key, dimensions.get(i));
+            }
+            if (tagIndex < 0) {
+                group(groups, values, today).add(cell.key.entryDay(), cell.key.exitDay(), cell.aggregate);
+                continue;
+            }
+            for (int tagCode : tagSets[cell.key.tagSet()]) {
+                values[tagIndex] = columns.tag(tagCode);
+                group(groups, values, today).add(cell.key.entryDay(), cell.key.exitDay(), cell.aggregate);
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * Number of cells, at most the number of trades
+     */
+    public int cellCount() {
+        return cells.size();
+    }
+
+    TradeColumns columns() {
+        return columns;
+    }
+
+    private CubeGroup group(Map<String, CubeGroup> groups, String[] values, LocalDate today) {
+        return groups.computeIfAbsent(String.join("-", values), key -> new CubeGroup(this, today));
+    }
+
+    private String value(CellKey key, CubeDimension dimension) {
+        switch (dimension) {
+            case DAY:
+                return key.exitDay() != NO_DAY ? LocalDate.ofEpochDay(key.exitDay()).toString() : UNKNOWN;
+            case INSTRUMENT:
+                return instruments[key.instrument()];
+            case DIRECTION:
+                return key.direction() != TradeColumns.NO_CODE ?
+                        TradePositionType.values()[key.direction()].toString() : UNKNOWN;
+            default:
+                throw new IllegalArgumentException("Unsupported cube dimension: " + dimension);
+        }
+    }
+
+    private static String instrument(TradeDetails trade) {
+        String instrument = trade.getInstrumentInfo() != null ? trade.getInstrumentInfo().getSymbol() : trade.getSymbol();
+        return instrument != null ? instrument : UNKNOWN;
+    }
+
+    /**
+     * Inverse of an order: the position of every row in it
+     */
+    private static int[] ranks(int[] order, int size) {
+        int[] ranks = new int[size];
+        for (int rank = 0; rank < order.length; rank++) {
+            ranks[order[rank]] = rank;
+        }
+        return ranks;
+    }
+
+    private record CellKey(long entryDay, long exitDay, int instrument, byte direction, int tagSet) {
+    }
+
+    private static final class Cell {
+        private final CellKey key;
+        private final CubeAggregate aggregate = new CubeAggregate();
+
+        private Cell(CellKey key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * Distinct tag codes of a trade in ascending order
+     */
+    private record TagSet(int[] codes) {
+
+        static TagSet of(TradeColumns columns, int row) {
+            int[] codes = new int[columns.tagEnd(row) - columns.tagStart(row)];
+            for (int i = 0; i < codes.length; i++) {
+                codes[i] = columns.tagCode(columns.tagStart(row) + i);
+            }
+            return new TagSet(Arrays.stream(codes).sorted().distinct().toArray());
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof TagSet tagSet && Arrays.equals(codes, tagSet.codes);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(codes);
+        }
+    }
+}
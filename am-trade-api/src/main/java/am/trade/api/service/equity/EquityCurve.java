@@ -0,0 +1,292 @@
+package am.trade.api.service.equity;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import am.trade.persistence.entity.PortfolioDailyStats;
+
+/**
+ * Equity curve of a portfolio over its trading days, indexed for range queries.
+ *
+ * <p>Equity is the cumulative profit/loss at the end of a day, starting from 0 before the first
+ * trading day. The curve holds:
+ * <ul>
+ *   <li>the trading days as sorted epoch days, found by binary search</li>
+ *   <li>equity after each trading day as prefix sums, so the profit/loss of any date range is
+ *       one subtraction</li>
+ *   <li>the running peak of equity, for the drawdown from the all-time high at any day</li>
+ *   <li>sparse tables of equity, for the highest and lowest equity of any range in O(1)</li>
+ *   <li>a segment tree of (high, low, drawdown), for the maximum drawdown within any range in
+ *       O(log n); drawdowns depend on the order of highs and lows, so unlike highs and lows
+ *       they cannot be read from overlapping sparse table ranges</li>
+ * </ul>
+ *
+ * <p>Amounts are longs scaled by {@link #MONEY_SCALE} decimal places, which keeps sums exact.
+ * A curve is immutable and may be shared between threads.
+ */
+public final class EquityCurve {
+
+    public static final int MONEY_SCALE = 4;
+
+    private static final EquityCurve EMPTY = new EquityCurve(new long[0], new long[0]);
+
+    // Epoch days with trades, ascending
+    private final long[] days;
+    // equity[i] is the equity after the first i trading days; equity[0] == 0
+    private final long[] equity;
+    private final long[] peak;
+    private final long[][] highs;
+    private final long[][] lows;
+    private final int leaves;
+    private final long[] treeHigh;
+    private final long[] treeLow;
+    private final long[] treeDrawdown;
+
+    private EquityCurve(long[] days, long[] profitLoss) {
+        int n = days.length;
+        this.days = days;
+        this.equity = new long[n + 1];
+        this.peak = new long[n + 1];
+        for (int i = 0; i < n; i++) {
+            equity[i + 1] = equity[i] + profitLoss[i];
+            peak[i + 1] = Math.max(peak[i], equity[i + 1]);
+        }
+
+        int points = n + 1;
+        int levels = 32 - Integer.numberOfLeadingZeros(points);
+        this.highs = new long[levels][];
+        this.lows = new long[levels][];
+        highs[0] = equity;
+        lows[0] = equity;
+        for (int level = 1; level < levels; level++) {
+            int width = 1 << level;
+            int half = width >> 1;
+            highs[level] = new long[points - width + 1];
+            lows[level] = new long[points - width + 1];
+            for (int i = 0; i + width <= points; i++) {
+                highs[level][i] = Math.max(highs[level - 1][i], highs[level - 1][i + half]);
+                lows[level][i] = Math.min(lows[level - 1][i], lows[level - 1][i + half]);
+            }
+        }
+
+        int size = 1;
+        while (size < points) {
+            size <<= 1;
+        }
+        this.leaves = size;
+        this.treeHigh = new long[2 * size];
+        this.treeLow = new long[2 * size];
+        this.treeDrawdown = new long[2 * size];
+        // Padding leaves repeat the last point, which adds no drawdown
+        for (int i = 0; i < size; i++) {
+            long value = equity[Math.min(i, points - 1)];
+            treeHigh[size + i] = value;
+            treeLow[size + i] = value;
+        }
+        for (int node = size - 1; node >= 1; node--) {
+            int left = 2 * node;
+            int right = left + 1;
+            treeHigh[node] = Math.max(treeHigh[left], treeHigh[right]);
+            treeLow[node] = Math.min(treeLow[left], treeLow[right]);
+            treeDrawdown[node] = Math.max(Math.max(treeDrawdown[left], treeDrawdown[right]),
+                    treeHigh[left] - treeLow[right]);
+        }
+    }
+
+    /**
+     * Build the curve of a portfolio's days
+     *
+     * @param dailyStats Days of the portfolio, oldest first
+     * @return Curve over the days
+     */
+    public static EquityCurve of(List<PortfolioDailyStats> dailyStats) {
+        if (dailyStats == null || dailyStats.isEmpty()) {
+            return EMPTY;
+        }
+        long[] days = new long[dailyStats.size()];
+        long[] profitLoss = new long[dailyStats.size()];
+        int n = 0;
+        for (PortfolioDailyStats stats : dailyStats) {
+            if (stats.getDate() == null) {
+                continue;
+            }
+            long day = stats.getDate().toLocalDate().toEpochDay();
+            if (n > 0 && day < days[n - 1]) {
+                throw new IllegalArgumentException("Daily stats must be ordered by date");
+            }
+            if (n > 0 && day == days[n - 1]) {
+                profitLoss[n - 1] += toMoney(stats.getProfitLoss());
+                continue;
+            }
+            days[n] = day;
+            profitLoss[n] = toMoney(stats.getProfitLoss());
+            n++;
+        }
+        return new EquityCurve(Arrays.copyOf(days, n), Arrays.copyOf(profitLoss, n));
+    }
+
+    /**
+     * Number of days with trades
+     */
+    public int tradingDays() {
+        return days.length;
+    }
+
+    /**
+     * Equity at the end of a day
+     */
+    public BigDecimal equityAt(LocalDate day) {
+        return fromMoney(equity[pointAt(day)]);
+    }
+
+    /**
+     * Profit/loss from the start of {@code from} to the end of {@code to}
+     */
+    public BigDecimal profitLoss(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            return fromMoney(0L);
+        }
+        return fromMoney(equity[pointAt(to)] - equity[pointBefore(from)]);
+    }
+
+    /**
+     * Distance of the equity at the end of a day below the highest equity up to that day
+     */
+    public BigDecimal drawdownAt(LocalDate day) {
+        int point = pointAt(day);
+        return fromMoney(peak[point] - equity[point]);
+    }
+
+    /**
+     * Highest equity from the start of {@code from} to the end of {@code to}
+     */
+    public BigDecimal highestEquity(LocalDate from, LocalDate to) {
+        int first = pointBefore(from);
+        int last = Math.max(first, pointAt(to));
+        int level = 31 - Integer.numberOfLeadingZeros(last - first + 1);
+        return fromMoney(Math.max(highs[level][first], highs[level][last - (1 << level) + 1]));
+    }
+
+    /**
+     * Lowest equity from the start of {@code from} to the end of {@code to}
+     */
+    public BigDecimal lowestEquity(LocalDate from, LocalDate to) {
+        int first = pointBefore(from);
+        int last = Math.max(first, pointAt(to));
+        int level = 31 - Integer.numberOfLeadingZeros(last - first + 1);
+        return fromMoney(Math.min(lows[level][first], lows[level][last - (1 << level) + 1]));
+    }
+
+    /**
+     * Largest fall of equity from a high to a later low, both from the start of {@code from}
+     * to the end of {@code to}
+     */
+    public BigDecimal maxDrawdown(LocalDate from, LocalDate to) {
+        int first = pointBefore(from);
+        int last = Math.max(first, pointAt(to));
+
+        // Non-commutative merge: collect the left and right halves separately, in order
+        boolean hasLeft = false;
+        long leftHigh = 0;
+        long leftLow = 0;
+        long leftDrawdown = 0;
+        boolean hasRight = false;
+        long rightHigh = 0;
+        long rightLow = 0;
+        long rightDrawdown = 0;
+        for (int lo = first + leaves, hi = last + leaves + 1; lo < hi; lo >>= 1, hi >>= 1) {
+            if ((lo & 1) == 1) {
+                if (hasLeft) {
+                    leftDrawdown = Math.max(Math.max(leftDrawdown, treeDrawdown[lo]), leftHigh - treeLow[lo]);
+                    leftHigh = Math.max(leftHigh, treeHigh[lo]);
+                    leftLow = Math.min(leftLow, treeLow[lo]);
+                } else {
+                    leftHigh = treeHigh[lo];
+                    leftLow = treeLow[lo];
+                    leftDrawdown = treeDrawdown[lo];
+                    hasLeft = true;
+                }
+                lo++;
+            }
+            if ((hi & 1) == 1) {
+                hi--;
+                if (hasRight) {
+                    rightDrawdown = Math.max(Math.max(treeDrawdown[hi], rightDrawdown), treeHigh[hi] - rightLow);
+                    rightHigh = Math.max(treeHigh[hi], rightHigh);
+                    rightLow = Math.min(treeLow[hi], rightLow);
+                } else {
+                    rightHigh = treeHigh[hi];
+                    rightLow = treeLow[hi];
+                    rightDrawdown = treeDrawdown[hi];
+                    hasRight = true;
+                }
+            }
+        }
+        if (!hasLeft) {
+            return fromMoney(rightDrawdown);
+        }
+        if (!hasRight) {
+            return fromMoney(leftDrawdown);
+        }
+        return fromMoney(Math.max(Math.max(leftDrawdown, rightDrawdown), leftHigh - rightLow));
+    }
+
+    /**
+     * Cumulative profit/loss at the end of every calendar day from {@code startDate} to
+     * {@code endDate}, counted from the start of {@code startDate}
+     *
+     * @return Cumulative profit/loss per day, in date order
+     */
+    public Map<LocalDate, Double> performance(LocalDate startDate, LocalDate endDate) {
+        Map<LocalDate, Double> performance = new LinkedHashMap<>();
+        int point = pointBefore(startDate);
+        long base = equity[point];
+        for (LocalDate day = startDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+            long epochDay = day.toEpochDay();
+            while (point < days.length && days[point] <= epochDay) {
+                point++;
+            }
+            performance.put(day, (equity[point] - base) / Math.pow(10, MONEY_SCALE));
+        }
+        return performance;
+    }
+
+    /**
+     * Index into {@link #equity} of the equity at the end of a day: the number of trading days
+     * up to and including it
+     */
+    private int pointAt(LocalDate day) {
+        long epochDay = day.toEpochDay();
+        int low = 0;
+        int high = days.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (days[mid] <= epochDay) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Index into {@link #equity} of the equity at the start of a day
+     */
+    private int pointBefore(LocalDate day) {
+        return pointAt(day.minusDays(1));
+    }
+
+    static long toMoney(BigDecimal value) {
+        return value == null ? 0L : value.setScale(MONEY_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    static BigDecimal fromMoney(long value) {
+        return BigDecimal.valueOf(value, MONEY_SCALE);
+    }
+}
@@ -0,0 +1,84 @@
+package am.trade.api.service.equity;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import am.trade.services.cache.PortfolioVersions;
+import am.trade.services.rollup.PortfolioDailyStatsRollup;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link EquityCurve} of each portfolio, built from the daily stats rollup and kept until the
+ * portfolio's {@link PortfolioVersions version} moves on.
+ *
+ * <p>The version is read before the rollup, so a cached curve is never older than the version
+ * it is stored under. A lookup that finds an older version rebuilds the curve; of two
+ * concurrent rebuilds the one at the newer version is kept. Curves are also rebuilt once
+ * {@code expire-after-write-minutes} have passed, as a backstop for a version that failed to
+ * move on.
+ */
+@Component
+@Slf4j
+public class EquityCurveCache {
+
+    private final PortfolioVersions portfolioVersions;
+    private final PortfolioDailyStatsRollup portfolioDailyStatsRollup;
+    private final boolean enabled;
+    private final Cache<String, VersionedCurve> curves;
+
+    public EquityCurveCache(PortfolioVersions portfolioVersions,
+                            PortfolioDailyStatsRollup portfolioDailyStatsRollup,
+                            ObjectProvider<MeterRegistry> meterRegistryProvider,
+                            @Value("${am.trade.api.equity-curve.cache.enabled:true}") boolean enabled,
+                            @Value("${am.trade.api.equity-curve.cache.max-portfolios:10000}") long maxPortfolios,
+                            @Value("${am.trade.api.equity-curve.cache.expire-after-access-minutes:60}") long expireAfterAccessMinutes,
+                            @Value("${am.trade.api.equity-curve.cache.expire-after-write-minutes:1440}") long expireAfterWriteMinutes) {
+        this.portfolioVersions = portfolioVersions;
+        this.portfolioDailyStatsRollup = portfolioDailyStatsRollup;
+        this.enabled = enabled;
+        this.curves = Caffeine.newBuilder()
+                .maximumSize(maxPortfolios)
+                .expireAfterAccess(Duration.ofMinutes(expireAfterAccessMinutes))
+                .expireAfterWrite(Duration.ofMinutes(expireAfterWriteMinutes))
+                .recordStats()
+                .build();
+        MeterRegistry meterRegistry = meterRegistryProvider.getIfAvailable();
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, curves, "equityCurveCache");
+        }
+    }
+
+    /**
+     * Equity curve of a portfolio as of its current version
+     */
+    public EquityCurve get(String portfolioId) {
+        if (!enabled) {
+            return EquityCurve.of(portfolioDailyStatsRollup.findDays(portfolioId));
+        }
+
+        long version = portfolioVersions.current(List.of(portfolioId)).getOrDefault(portfolioId, 0L);
+        VersionedCurve cached = curves.getIfPresent(portfolioId);
+        if (cached != null && cached.version() >= version) {
+            return cached.curve();
+        }
+
+        EquityCurve curve = EquityCurve.of(portfolioDailyStatsRollup.findDays(portfolioId));
+        log.debug("Built equity curve of portfolio {} at version {} over {} trading days", portfolioId, version,
+                curve.tradingDays());
+        curves.asMap().merge(portfolioId, new VersionedCurve(version, curve),
+                (existing, built) -> existing.version() >= built.version() ? existing : built);
+        return curve;
+    }
+
+    private record VersionedCurve(long version, EquityCurve curve) {
+    }
+}
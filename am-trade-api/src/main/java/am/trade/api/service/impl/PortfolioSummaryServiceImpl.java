@@ -1,24 +1,25 @@
 package am.trade.api.service.impl;
 
+import am.trade.api.dto.PortfolioEquityResponse;
 import am.trade.api.service.PortfolioSummaryService;
+import am.trade.api.service.equity.EquityCurve;
+import am.trade.api.service.equity.EquityCurveCache;
 import am.trade.common.models.PortfolioModel;
 import am.trade.common.models.PortfolioSummaryDTO;
 import am.trade.common.models.AssetAllocation;
-import am.trade.common.models.TradeDetails;
+import am.trade.common.models.TradeDistributionMetrics;
+import am.trade.services.rollup.PortfolioDailyStatsRollup;
 import am.trade.services.service.PortfolioService;
-import am.trade.services.service.TradeDetailsService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 /**
  * Implementation of the Portfolio Summary Service
@@ -29,7 +30,8 @@ import java.util.stream.Collectors;
 public class PortfolioSummaryServiceImpl implements PortfolioSummaryService {
 
     private final PortfolioService portfolioService;
-    private final TradeDetailsService tradeDetailsService;
+    private final EquityCurveCache equityCurveCache;
+    private final PortfolioDailyStatsRollup portfolioDailyStatsRollup;
 
     @Override
     public PortfolioModel getPortfolioSummary(String portfolioId) {
@@ -93,44 +95,72 @@ public class PortfolioSummaryServiceImpl implements PortfolioSummaryService {
             throw new IllegalArgumentException("Portfolio not found with ID: " + portfolioId);
         }
 
-        List<String> portfolioTradeIds = portfolio.get().getTradeIds();
+        // Cumulative realized profit/loss per day, read from the portfolio's cached equity curve
+        return equityCurveCache.get(portfolioId).performance(startDate, endDate);
+    }
+
+    @Override
+    public PortfolioEquityResponse getPortfolioEquity(String portfolioId, LocalDate startDate, LocalDate endDate) {
+        log.debug("Getting portfolio equity for portfolioId: {} from {} to {}", portfolioId, startDate, endDate);
+        
+        if (portfolioId == null || portfolioId.trim().isEmpty()) {
+            throw new IllegalArgumentException("Portfolio ID cannot be null or empty");
+        }
+        
+        if (startDate == null || endDate == null) {
+            throw new IllegalArgumentException("Start date and end date cannot be null");
+        }
+        
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("Start date cannot be after end date");
+        }
+        
+        if (portfolioService.findByPortfolioId(portfolioId).isEmpty()) {
+            log.warn("Portfolio not found with ID: {}", portfolioId);
+            throw new IllegalArgumentException("Portfolio not found with ID: " + portfolioId);
+        }
+
+        // Range queries on the cached curve; none of them read the trades or the rollup
+        EquityCurve curve = equityCurveCache.get(portfolioId);
+        return PortfolioEquityResponse.builder()
+                .portfolioId(portfolioId)
+                .startDate(startDate)
+                .endDate(endDate)
+                .startEquity(curve.equityAt(startDate.minusDays(1)))
+                .endEquity(curve.equityAt(endDate))
+                .profitLoss(curve.profitLoss(startDate, endDate))
+                .highestEquity(curve.highestEquity(startDate, endDate))
+                .lowestEquity(curve.lowestEquity(startDate, endDate))
+                .maxDrawdown(curve.maxDrawdown(startDate, endDate))
+                .drawdownAtEnd(curve.drawdownAt(endDate))
+                .build();
+    }
+
+    @Override
+    public TradeDistributionMetrics getPortfolioDistribution(String portfolioId, LocalDate startDate, LocalDate endDate) {
+        log.debug("Getting portfolio distribution for portfolioId: {} from {} to {}", portfolioId, startDate, endDate);
+        
+        if (portfolioId == null || portfolioId.trim().isEmpty()) {
+            throw new IllegalArgumentException("Portfolio ID cannot be null or empty");
+        }
+        
+        if (startDate == null || endDate == null) {
+            throw new IllegalArgumentException("Start date and end date cannot be null");
+        }
+        
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("Start date cannot be after end date");
+        }
+        
+        if (portfolioService.findByPortfolioId(portfolioId).isEmpty()) {
+            log.warn("Portfolio not found with ID: {}", portfolioId);
+            throw new IllegalArgumentException("Portfolio not found with ID: " + portfolioId);
+        }
 
-        List<TradeDetails> trades = tradeDetailsService.findModelsByTradeIds(portfolioTradeIds);
-        
-        // Calculate daily performance based on trade data
-        // This is a simplified version - actual implementation would depend on specific performance calculation logic
-        Map<LocalDate, Double> performance = new HashMap<>();
-        
-        // Get trades in the date range
-        List<TradeDetails> relevantTrades = trades.stream()
-            .filter(trade -> {
-                LocalDate tradeDate = trade.getTradeDate();
-                return !tradeDate.isBefore(startDate) && !tradeDate.isAfter(endDate);
-            })
-            .collect(Collectors.toList());
-        
-        // Group trades by date and calculate daily performance
-        Map<LocalDate, List<TradeDetails>> tradesByDate = relevantTrades.stream()
-            .collect(Collectors.groupingBy(TradeDetails::getTradeDate));
-        
-        // For each day in the range, calculate performance
-        LocalDate currentDate = startDate;
-        Double cumulativePerformance = 0.0;
-        
-        while (!currentDate.isAfter(endDate)) {
-            // Add current day's profit/loss to cumulative performance
-            List<TradeDetails> dailyTrades = tradesByDate.getOrDefault(currentDate, new ArrayList<>());
-            Double dailyProfitLoss = dailyTrades.stream()
-                .mapToDouble(trade -> trade.getMetrics().getProfitLoss().doubleValue())
-                .sum();
-            
-            cumulativePerformance += dailyProfitLoss;
-            performance.put(currentDate, cumulativePerformance);
-            
-            currentDate = currentDate.plusDays(1);
-        }
-        
-        return performance;
+        // Merge the sketches of the days in range rather than sorting the trades
+        TradeDistributionMetrics distribution = new TradeDistributionMetrics();
+        portfolioDailyStatsRollup.sketches(portfolioId, startDate, endDate).applyPercentiles(distribution);
+        return distribution;
     }
 
     @Override
@@ -4,12 +4,7 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.Month;
-import java.time.YearMonth;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
 
 import org.springframework.stereotype.Service;
@@ -18,83 +13,43 @@ import am.trade.common.models.enums.TradeStatus;
 import am.trade.common.models.HeatmapRequest;
 import am.trade.common.models.PeriodProfitLossData;
 import am.trade.common.models.ProfitLossHeatmapData;
+import am.trade.common.models.ProfitLossHeatmapData.GranularityType;
 import am.trade.common.models.TradeDetails;
 import am.trade.api.service.ProfitLossHeatmapService;
 import am.trade.api.service.TradeManagementService;
+import am.trade.services.service.TradeDetailsService;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Profit/loss heatmaps whose periods are grouped and totalled by a MongoDB aggregation;
+ * trade documents are only read when they are part of the response.
+ */
 @Service
 @Slf4j
 public class ProfitLossHeatmapServiceImpl implements ProfitLossHeatmapService {
 
     private final TradeManagementService tradeManagementService;
+    private final TradeDetailsService tradeDetailsService;
     
-    public ProfitLossHeatmapServiceImpl(TradeManagementService tradeManagementService) {
+    public ProfitLossHeatmapServiceImpl(TradeManagementService tradeManagementService,
+                                        TradeDetailsService tradeDetailsService) {
         this.tradeManagementService = tradeManagementService;
+        this.tradeDetailsService = tradeDetailsService;
     }
     
     @Override
     public ProfitLossHeatmapData getYearlyHeatmap(String portfolioId, boolean includeTradeDetails) {
         log.info("Generating yearly profit/loss heatmap for portfolio: {}", portfolioId);
         
-        // Get all trades for the portfolio
-        List<TradeDetails> allTrades = tradeManagementService.getAllTradesByTradePortfolioId(portfolioId);
+        List<PeriodProfitLossData> periodDataList = tradeDetailsService.findProfitLossByPeriod(
+                portfolioId, GranularityType.YEARLY, null, null);
         
-        // Group trades by year
-        Map<Integer, List<TradeDetails>> tradesByYear = allTrades.stream()
-                .filter(trade -> trade.getEntryInfo() != null && trade.getEntryInfo().getTimestamp() != null)
-                .collect(Collectors.groupingBy(
-                        trade -> trade.getEntryInfo().getTimestamp().getYear()
-                ));
+        // Full documents are only read when they are returned
+        List<TradeDetails> allTrades = includeTradeDetails
+                ? tradeManagementService.getAllTradesByTradePortfolioId(portfolioId)
+                : null;
         
-        // Calculate detailed profit/loss data for each year
-        List<PeriodProfitLossData> periodDataList = new ArrayList<>();
-        BigDecimal totalProfitLoss = BigDecimal.ZERO;
-        int winCount = 0;
-        int lossCount = 0;
-        
-        for (Map.Entry<Integer, List<TradeDetails>> entry : tradesByYear.entrySet()) {
-            List<TradeDetails> yearTrades = entry.getValue();
-            String periodId = String.valueOf(entry.getKey());
-            
-            // Create detailed period data
-            PeriodProfitLossData periodData = createPeriodProfitLossData(periodId, yearTrades);
-            periodDataList.add(periodData);
-            
-            // Update totals
-            totalProfitLoss = totalProfitLoss.add(periodData.getProfitLoss());
-            winCount += periodData.getWinCount();
-            lossCount += periodData.getLossCount();
-        }
-        
-        // Calculate win rate
-        BigDecimal winRate = calculateWinRate(winCount, lossCount);
-        
-        // If includeTradeDetails is true, separate win and loss trades
-        List<TradeDetails> winningTrades = null;
-        List<TradeDetails> losingTrades = null;
-        
-        if (includeTradeDetails) {
-            winningTrades = allTrades.stream()
-                    .filter(trade -> trade.getStatus() == TradeStatus.WIN)
-                    .collect(Collectors.toList());
-                    
-            losingTrades = allTrades.stream()
-                    .filter(trade -> trade.getStatus() == TradeStatus.LOSS)
-                    .collect(Collectors.toList());
-        }
-        
-        return ProfitLossHeatmapData.builder()
-                .granularityType(ProfitLossHeatmapData.GranularityType.YEARLY)
-                .periodData(periodDataList)
-                .totalProfitLoss(totalProfitLoss)
-                .winCount(winCount)
-                .lossCount(lossCount)
-                .winRate(winRate)
-                .tradeDetails(includeTradeDetails ? allTrades : null)
-                .winTrades(includeTradeDetails ? winningTrades : null)
-                .lossTrades(includeTradeDetails ? losingTrades : null)
-                .build();
+        return buildHeatmap(GranularityType.YEARLY, periodDataList, allTrades);
     }
     
     @Override
@@ -106,67 +61,14 @@ public class ProfitLossHeatmapServiceImpl implements ProfitLossHeatmapService {
         LocalDate startDate = LocalDate.of(financialYear, Month.APRIL, 1);
         LocalDate endDate = LocalDate.of(financialYear + 1, Month.MARCH, 31);
         
-        // Get trades for the financial year
-        List<TradeDetails> fyTrades = tradeManagementService.getTradesByDateRange(portfolioId, startDate, endDate);
-        
-        // Group trades by month
-        Map<YearMonth, List<TradeDetails>> tradesByMonth = fyTrades.stream()
-                .filter(trade -> trade.getEntryInfo() != null && trade.getEntryInfo().getTimestamp() != null)
-                .collect(Collectors.groupingBy(
-                        trade -> YearMonth.from(trade.getEntryInfo().getTimestamp())
-                ));
-        
-        // Calculate detailed profit/loss data for each month
-        List<PeriodProfitLossData> periodDataList = new ArrayList<>();
-        BigDecimal totalProfitLoss = BigDecimal.ZERO;
-        int winCount = 0;
-        int lossCount = 0;
-        
-        // Format for the period ID: "YYYY-MM"
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM");
-        
-        for (Map.Entry<YearMonth, List<TradeDetails>> entry : tradesByMonth.entrySet()) {
-            List<TradeDetails> monthTrades = entry.getValue();
-            String periodId = entry.getKey().format(formatter);
-            
-            // Create detailed period data
-            PeriodProfitLossData periodData = createPeriodProfitLossData(periodId, monthTrades);
-            periodDataList.add(periodData);
-            
-            // Update totals
-            totalProfitLoss = totalProfitLoss.add(periodData.getProfitLoss());
-            winCount += periodData.getWinCount();
-            lossCount += periodData.getLossCount();
-        }
-        
-        // Calculate win rate
-        BigDecimal winRate = calculateWinRate(winCount, lossCount);
-        
-        // If includeTradeDetails is true, separate win and loss trades
-        List<TradeDetails> winningTrades = null;
-        List<TradeDetails> losingTrades = null;
+        List<PeriodProfitLossData> periodDataList = tradeDetailsService.findProfitLossByPeriod(
+                portfolioId, GranularityType.MONTHLY, startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay());
         
-        if (includeTradeDetails) {
-            winningTrades = fyTrades.stream()
-                    .filter(trade -> trade.getStatus() == TradeStatus.WIN)
-                    .collect(Collectors.toList());
-                    
-            losingTrades = fyTrades.stream()
-                    .filter(trade -> trade.getStatus() == TradeStatus.LOSS)
-                    .collect(Collectors.toList());
-        }
+        List<TradeDetails> fyTrades = includeTradeDetails
+                ? tradeManagementService.getTradesByDateRange(portfolioId, startDate, endDate)
+                : null;
         
-        return ProfitLossHeatmapData.builder()
-                .granularityType(ProfitLossHeatmapData.GranularityType.MONTHLY)
-                .periodData(periodDataList)
-                .totalProfitLoss(totalProfitLoss)
-                .winCount(winCount)
-                .lossCount(lossCount)
-                .winRate(winRate)
-                .tradeDetails(includeTradeDetails ? fyTrades : null)
-                .winTrades(includeTradeDetails ? winningTrades : null)
-                .lossTrades(includeTradeDetails ? losingTrades : null)
-                .build();
+        return buildHeatmap(GranularityType.MONTHLY, periodDataList, fyTrades);
     }
     
     @Override
@@ -182,88 +84,56 @@ public class ProfitLossHeatmapServiceImpl implements ProfitLossHeatmapService {
         LocalDate startDate = LocalDate.of(year, month, 1);
         LocalDate endDate = startDate.plusMonths(1).minusDays(1);
         
-        // Get trades for the month
-        List<TradeDetails> monthlyTrades = tradeManagementService.getTradesByDateRange(portfolioId, startDate, endDate);
+        List<PeriodProfitLossData> periodDataList = tradeDetailsService.findProfitLossByPeriod(
+                portfolioId, GranularityType.DAILY, startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay());
         
-        // Group trades by day
-        Map<LocalDate, List<TradeDetails>> tradesByDay = monthlyTrades.stream()
-                .filter(trade -> trade.getEntryInfo() != null && trade.getEntryInfo().getTimestamp() != null)
-                .collect(Collectors.groupingBy(
-                        trade -> trade.getEntryInfo().getTimestamp().toLocalDate()
-                ));
+        List<TradeDetails> monthlyTrades = includeTradeDetails
+                ? tradeManagementService.getTradesByDateRange(portfolioId, startDate, endDate)
+                : null;
         
-        // Calculate detailed profit/loss data for each day
-        List<PeriodProfitLossData> periodDataList = new ArrayList<>();
+        return buildHeatmap(GranularityType.DAILY, periodDataList, monthlyTrades);
+    }
+    
+    /**
+     * Total the periods aggregated by the database and attach the trades, if they were loaded
+     */
+    private ProfitLossHeatmapData buildHeatmap(GranularityType granularity, List<PeriodProfitLossData> periodDataList,
+                                               List<TradeDetails> trades) {
         BigDecimal totalProfitLoss = BigDecimal.ZERO;
         int winCount = 0;
         int lossCount = 0;
-        
-        // Format for the period ID: "YYYY-MM-DD"
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-        
-        for (Map.Entry<LocalDate, List<TradeDetails>> entry : tradesByDay.entrySet()) {
-            List<TradeDetails> dayTrades = entry.getValue();
-            String periodId = entry.getKey().format(formatter);
-            
-            // Create detailed period data
-            PeriodProfitLossData periodData = createPeriodProfitLossData(periodId, dayTrades);
-            periodDataList.add(periodData);
-            
-            // Update totals
+        for (PeriodProfitLossData periodData : periodDataList) {
             totalProfitLoss = totalProfitLoss.add(periodData.getProfitLoss());
             winCount += periodData.getWinCount();
             lossCount += periodData.getLossCount();
         }
         
-        // Calculate win rate
-        BigDecimal winRate = calculateWinRate(winCount, lossCount);
-        
-        // If includeTradeDetails is true, separate win and loss trades
+        // Separate win and loss trades when the trades are part of the response
         List<TradeDetails> winningTrades = null;
         List<TradeDetails> losingTrades = null;
-        
-        if (includeTradeDetails) {
-            winningTrades = monthlyTrades.stream()
+        if (trades != null) {
+            winningTrades = trades.stream()
                     .filter(trade -> trade.getStatus() == TradeStatus.WIN)
                     .collect(Collectors.toList());
                     
-            losingTrades = monthlyTrades.stream()
+            losingTrades = trades.stream()
                     .filter(trade -> trade.getStatus() == TradeStatus.LOSS)
                     .collect(Collectors.toList());
         }
         
         return ProfitLossHeatmapData.builder()
-                .granularityType(ProfitLossHeatmapData.GranularityType.DAILY)
+                .granularityType(granularity)
                 .periodData(periodDataList)
                 .totalProfitLoss(totalProfitLoss)
                 .winCount(winCount)
                 .lossCount(lossCount)
-                .winRate(winRate)
-                .tradeDetails(includeTradeDetails ? monthlyTrades : null)
-                .winTrades(includeTradeDetails ? winningTrades : null)
-                .lossTrades(includeTradeDetails ? losingTrades : null)
+                .winRate(calculateWinRate(winCount, lossCount))
+                .tradeDetails(trades)
+                .winTrades(winningTrades)
+                .lossTrades(losingTrades)
                 .build();
     }
     
-    /**
-     * Calculate total profit/loss for a list of trades
-     */
-    private BigDecimal calculateTotalProfitLoss(List<TradeDetails> trades) {
-        return trades.stream()
-                .filter(trade -> trade.getMetrics() != null && trade.getMetrics().getProfitLoss() != null)
-                .map(trade -> trade.getMetrics().getProfitLoss())
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
-    
-    /**
-     * Count trades with a specific status
-     */
-    private int countTradesByStatus(List<TradeDetails> trades, TradeStatus status) {
-        return (int) trades.stream()
-                .filter(trade -> trade.getStatus() == status)
-                .count();
-    }
-    
     /**
      * Calculate win rate percentage
      */
@@ -278,77 +148,6 @@ public class ProfitLossHeatmapServiceImpl implements ProfitLossHeatmapService {
                 .divide(new BigDecimal(totalTrades), 2, RoundingMode.HALF_UP);
     }
     
-    /**
-     * Create a PeriodProfitLossData object for a specific period
-     */
-    private PeriodProfitLossData createPeriodProfitLossData(String periodId, List<TradeDetails> trades) {
-        // Calculate profit/loss
-        BigDecimal profitLoss = calculateTotalProfitLoss(trades);
-        
-        // Count wins and losses
-        int winCount = countTradesByStatus(trades, TradeStatus.WIN);
-        int lossCount = countTradesByStatus(trades, TradeStatus.LOSS);
-        
-        // Calculate win rate
-        BigDecimal winRate = calculateWinRate(winCount, lossCount);
-        
-        // Get winning and losing trades
-        List<TradeDetails> winningTrades = trades.stream()
-                .filter(trade -> trade.getStatus() == TradeStatus.WIN)
-                .collect(Collectors.toList());
-                
-        List<TradeDetails> losingTrades = trades.stream()
-                .filter(trade -> trade.getStatus() == TradeStatus.LOSS)
-                .collect(Collectors.toList());
-        
-        // Calculate average win and loss amounts
-        BigDecimal avgWinAmount = calculateAverageAmount(winningTrades);
-        BigDecimal avgLossAmount = calculateAverageAmount(losingTrades);
-        
-        // Calculate max win and loss amounts
-        BigDecimal maxWinAmount = calculateMaxAmount(winningTrades);
-        BigDecimal maxLossAmount = calculateMaxAmount(losingTrades);
-        
-        return PeriodProfitLossData.builder()
-                .periodId(periodId)
-                .profitLoss(profitLoss)
-                .winCount(winCount)
-                .lossCount(lossCount)
-                .winRate(winRate)
-                .avgWinAmount(avgWinAmount)
-                .avgLossAmount(avgLossAmount)
-                .maxWinAmount(maxWinAmount)
-                .maxLossAmount(maxLossAmount)
-                .build();
-    }
-    
-    /**
-     * Calculate average profit/loss amount for a list of trades
-     */
-    private BigDecimal calculateAverageAmount(List<TradeDetails> trades) {
-        if (trades == null || trades.isEmpty()) {
-            return BigDecimal.ZERO;
-        }
-        
-        BigDecimal total = calculateTotalProfitLoss(trades);
-        return total.divide(new BigDecimal(trades.size()), 2, RoundingMode.HALF_UP);
-    }
-    
-    /**
-     * Calculate maximum profit/loss amount for a list of trades
-     */
-    private BigDecimal calculateMaxAmount(List<TradeDetails> trades) {
-        if (trades == null || trades.isEmpty()) {
-            return BigDecimal.ZERO;
-        }
-        
-        return trades.stream()
-                .filter(trade -> trade.getMetrics() != null && trade.getMetrics().getProfitLoss() != null)
-                .map(trade -> trade.getMetrics().getProfitLoss().abs())
-                .max(BigDecimal::compareTo)
-                .orElse(BigDecimal.ZERO);
-    }
-    
     @Override
     public ProfitLossHeatmapData getHeatmapData(HeatmapRequest request) {
         log.info("Generating heatmap with granularity: {} for portfolios: {}", request.getGranularity(), request.getPortfolioIds());
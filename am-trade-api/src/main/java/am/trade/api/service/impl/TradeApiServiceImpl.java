@@ -3,7 +3,9 @@ package am.trade.api.service.impl;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
@@ -14,20 +16,24 @@ import am.trade.api.dto.FilterTradeDetailsRequest;
 import am.trade.api.dto.FilterTradeDetailsResponse;
 import am.trade.api.dto.FavoriteFilterResponse;
 import am.trade.api.service.FavoriteFilterService;
+import am.trade.exceptions.TradeException;
 import am.trade.exceptions.TradeFieldValidationException;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
 import am.trade.api.service.TradeApiService;
-import am.trade.api.service.TradeManagementService;
 import am.trade.api.validation.TradeValidator;
 import am.trade.common.models.Attachment;
-import am.trade.common.models.DerivativeInfo;
+import am.trade.common.models.MetricsFilterConfig;
+import am.trade.common.models.TradeBulkSaveResult;
+import am.trade.common.models.TradeCursorPage;
 import am.trade.common.models.TradeDetails;
 import am.trade.common.models.enums.TradePositionType;
 import am.trade.common.models.enums.TradeStatus;
+import am.trade.persistence.query.TradeFilterQuery;
 import am.trade.services.publisher.TradeHoldingEventPublisher;
 import am.trade.services.publisher.TradeHoldingEventPublisher;
 import am.trade.services.service.TradeDetailsService;
@@ -47,7 +53,6 @@ public class TradeApiServiceImpl implements TradeApiService {
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(TradeApiServiceImpl.class);
 
     
-    private final TradeManagementService tradeManagementService;
     private final TradeProcessingService tradeProcessingService;
     private final TradeDetailsService tradeDetailsService;
     private final PortfolioPersistenceService portfolioPersistenceService;
@@ -58,12 +63,13 @@ public class TradeApiServiceImpl implements TradeApiService {
     @Override
     public List<TradeDetails> getTradeDetailsByPortfolioAndSymbols(String portfolioId, List<String> symbols) {
         log.info("Service: Fetching trade details for portfolio: {} with symbols: {}", portfolioId, symbols);
-        List<TradeDetails> trades = tradeManagementService.getTradesBySymbols(portfolioId, symbols);
+        if (portfolioId == null || portfolioId.isEmpty()) {
+            throw new IllegalArgumentException("Portfolio ID cannot be null or empty");
+        }
         
-        // Verify ownership
         String currentUserId = UserContext.getUserIdOrThrow();
+        List<TradeDetails> trades = tradeDetailsService.findModelsByUserIdAndPortfolioId(currentUserId, portfolioId, symbols);
         return trades.stream()
-                .filter(t -> currentUserId.equals(t.getUserId()))
                 .filter(t -> {
                     boolean isValid = t.getTradeId() != null && t.getPortfolioId() != null && 
                                       t.getStatus() != null && t.getTradePositionType() != null;
@@ -90,8 +96,12 @@ public class TradeApiServiceImpl implements TradeApiService {
         tradeValidator.validateTrade(tradeDetails);
 
         // Generate a new trade ID if not provided
+        Optional<TradeDetails> previousTrade = Optional.empty();
         if (tradeDetails.getTradeId() == null || tradeDetails.getTradeId().isEmpty()) {
             tradeDetails.setTradeId(UUID.randomUUID().toString());
+        } else {
+            // A client-supplied ID may overwrite a trade that is already counted in its portfolio
+            previousTrade = tradeDetailsService.findModelByTradeId(tradeDetails.getTradeId());
         }
         
         logTradeComponents(tradeDetails);
@@ -105,10 +115,7 @@ public class TradeApiServiceImpl implements TradeApiService {
         // Save trade details and process for portfolio aggregation
         TradeDetails savedTrade = tradeDetailsService.saveTradeDetails(tradeDetails);
         if (savedTrade != null) {
-            tradeProcessingService.processTradeDetailsWithObjects(
-                List.of(savedTrade), 
-                savedTrade.getPortfolioId(), 
-                savedTrade.getUserId());
+            applySavedTrades(List.of(savedTrade), previousTrade.map(List::of).orElse(List.of()));
                 
             // Notify Portfolio service via am-portfolio topic
             try {
@@ -223,10 +230,7 @@ public class TradeApiServiceImpl implements TradeApiService {
         // Save and process trade
         TradeDetails savedTrade = tradeDetailsService.saveTradeDetails(tradeDetails);
         if (savedTrade != null) {
-            tradeProcessingService.processTradeDetailsWithObjects(
-                List.of(savedTrade), 
-                savedTrade.getPortfolioId(), 
-                savedTrade.getUserId());
+            applySavedTrades(List.of(savedTrade), List.of(originalTrade));
         }
         
         return savedTrade;
@@ -378,16 +382,73 @@ public class TradeApiServiceImpl implements TradeApiService {
         log.info("Service: Filtering trades with criteria - portfolioIds: {}, symbols: {}, statuses: {}, startDate: {}, endDate: {}, strategies: {}", 
                 portfolioIds, symbols, statuses, startDate, endDate, strategies);
         
-        Page<TradeDetails> tradesPage = tradeManagementService.getTradesByFilters(
-                portfolioIds, symbols, statuses, startDate, endDate, strategies, pageable);
-                
-        // Verify ownership
+        // Ownership is part of the query, so the page and its total only count the caller's trades
         String currentUserId = UserContext.getUserIdOrThrow();
-        List<TradeDetails> filteredList = tradesPage.getContent().stream()
-                .filter(t -> currentUserId.equals(t.getUserId()))
-                .collect(Collectors.toList());
-                
-        return new org.springframework.data.domain.PageImpl<>(filteredList, pageable, filteredList.size());
+        MetricsFilterConfig config = toFilterConfig(portfolioIds, symbols, statuses, startDate, endDate, strategies);
+        if (!TradeFilterQuery.supportsSort(pageable.getSort())) {
+            log.warn("Rejecting trade filter sort {} for user {}", pageable.getSort(), currentUserId);
+            throw new IllegalArgumentException("Unsupported sort " + pageable.getSort()
+                    + "; trades can be sorted by " + TradeFilterQuery.SUPPORTED_SORT_KEYS);
+        }
+        return tradeDetailsService.findModelsByFilter(currentUserId, config, pageable);
+    }
+    
+    @Override
+    public TradeCursorPage scrollTradesByFilters(
+            List<String> portfolioIds,
+            List<String> symbols,
+            List<TradeStatus> statuses,
+            LocalDate startDate,
+            LocalDate endDate,
+            List<String> strategies,
+            String cursor,
+            int size) {
+        
+        log.info("Service: Scrolling trades with criteria - portfolioIds: {}, symbols: {}, statuses: {}, startDate: {}, endDate: {}, strategies: {}", 
+                portfolioIds, symbols, statuses, startDate, endDate, strategies);
+        
+        String currentUserId = UserContext.getUserIdOrThrow();
+        MetricsFilterConfig config = toFilterConfig(portfolioIds, symbols, statuses, startDate, endDate, strategies);
+        return tradeDetailsService.findModelsByFilterAfter(currentUserId, config, cursor, size);
+    }
+    
+    /**
+     * Express the listing filters as a filter config so they compile to a single query
+     */
+    private MetricsFilterConfig toFilterConfig(
+            List<String> portfolioIds,
+            List<String> symbols,
+            List<TradeStatus> statuses,
+            LocalDate startDate,
+            LocalDate endDate,
+            List<String> strategies) {
+        
+        if (portfolioIds == null || portfolioIds.isEmpty()) {
+            throw new IllegalArgumentException("At least one portfolio ID must be provided");
+        }
+        
+        Map<String, Object> dateRange = new LinkedHashMap<>();
+        if (startDate != null) {
+            dateRange.put("startDate", startDate.toString());
+        }
+        if (endDate != null) {
+            dateRange.put("endDate", endDate.toString());
+        }
+        
+        Map<String, Object> characteristics = new LinkedHashMap<>();
+        if (statuses != null && !statuses.isEmpty()) {
+            characteristics.put("statuses", statuses.stream().map(TradeStatus::name).collect(Collectors.toList()));
+        }
+        if (strategies != null && !strategies.isEmpty()) {
+            characteristics.put("strategies", strategies);
+        }
+        
+        return MetricsFilterConfig.builder()
+                .portfolioIds(portfolioIds)
+                .instruments(symbols != null && !symbols.isEmpty() ? symbols : null)
+                .dateRange(dateRange.isEmpty() ? null : dateRange)
+                .tradeCharacteristics(characteristics.isEmpty() ? null : characteristics)
+                .build();
     }
     
     @Override
@@ -409,18 +470,33 @@ public class TradeApiServiceImpl implements TradeApiService {
             // Log batch statistics
             logBatchStatistics(tradeDetailsList);
             
-            // Save all trades in a single operation
-            List<TradeDetails> savedTrades = tradeDetailsService.saveAllTradeDetails(tradeDetailsList);
+            // Trades that already exist are updates: their old contribution must leave the metrics
+            List<TradeDetails> previousTrades = tradeDetailsService.findModelsByTradeIds(tradeDetailsList.stream()
+                    .map(TradeDetails::getTradeId)
+                    .distinct()
+                    .collect(Collectors.toList()));
             
-            // Process the saved trades to update portfolio metrics
-            if (!savedTrades.isEmpty()) {
-                TradeDetails representativeTrade = savedTrades.get(0);
-                tradeProcessingService.processTradeDetailsWithObjects(
-                    savedTrades, 
-                    representativeTrade.getPortfolioId(), 
-                    representativeTrade.getUserId());
+            // Save all trades with one bulk upsert; trades that fail do not stop the rest
+            TradeBulkSaveResult saveResult = tradeDetailsService.bulkSaveTradeDetails(tradeDetailsList);
+            List<TradeDetails> savedTrades = saveResult.getSaved();
+            if (saveResult.hasFailures()) {
+                if (savedTrades.isEmpty()) {
+                    TradeException exception = new TradeException("Failed to save any of the "
+                            + tradeDetailsList.size() + " trades", HttpStatus.UNPROCESSABLE_ENTITY);
+                    saveResult.getFailures().forEach(failure -> exception.addError(
+                            "trades[" + failure.getIndex() + "]", failure.getMessage(),
+                            "BULK_WRITE_ERROR_" + failure.getCode()));
+                    throw exception;
+                }
+                log.warn("Saved {} of {} trades; failed trade IDs: {}", savedTrades.size(), tradeDetailsList.size(),
+                        saveResult.getFailures().stream()
+                                .map(TradeBulkSaveResult.Failure::getTradeId)
+                                .collect(Collectors.toList()));
             }
             
+            // Process the saved trades to update portfolio metrics
+            applySavedTrades(savedTrades, previousTrades);
+            
             return savedTrades;
         } catch (Exception e) {
             log.error("Error processing batch of trades: {}", e.getMessage(), e);
@@ -428,6 +504,34 @@ public class TradeApiServiceImpl implements TradeApiService {
         }
     }
     
+    /**
+     * Applies saved trades to the metrics of the portfolios they belong to.
+     * New trades are added; a trade that existed before replaces its previous version,
+     * or is moved between portfolios if its portfolio ID changed.
+     * @param savedTrades The trades as saved
+     * @param previousTrades The stored versions of those trades that existed before the save
+     */
+    private void applySavedTrades(List<TradeDetails> savedTrades, List<TradeDetails> previousTrades) {
+        Map<String, TradeDetails> previousById = previousTrades.stream()
+                .collect(Collectors.toMap(TradeDetails::getTradeId, trade -> trade, (first, second) -> first));
+        
+        Map<String, List<TradeDetails>> newTradesByPortfolio = new LinkedHashMap<>();
+        for (TradeDetails savedTrade : savedTrades) {
+            TradeDetails previous = previousById.get(savedTrade.getTradeId());
+            if (previous == null) {
+                newTradesByPortfolio.computeIfAbsent(savedTrade.getPortfolioId(), key -> new ArrayList<>()).add(savedTrade);
+            } else if (Objects.equals(previous.getPortfolioId(), savedTrade.getPortfolioId())) {
+                tradeProcessingService.processTradeUpdate(previous, savedTrade, savedTrade.getPortfolioId(), savedTrade.getUserId());
+            } else {
+                tradeProcessingService.removeTradeDetails(List.of(previous), previous.getPortfolioId(), previous.getUserId());
+                newTradesByPortfolio.computeIfAbsent(savedTrade.getPortfolioId(), key -> new ArrayList<>()).add(savedTrade);
+            }
+        }
+        
+        newTradesByPortfolio.forEach((portfolioId, trades) -> tradeProcessingService.processTradeDetailsWithObjects(
+                trades, portfolioId, trades.get(0).getUserId()));
+    }
+    
     /**
      * Validates all trades in a batch
      * @param trades List of trades to validate
@@ -485,14 +589,9 @@ public class TradeApiServiceImpl implements TradeApiService {
         log.info("Service: Fetching trade details for {} trade IDs in a single database call", tradeIds.size());
         
         try {
-            // Use the efficient method that makes a single database call
-            List<TradeDetails> allTradeDetails = tradeDetailsService.findModelsByTradeIds(tradeIds);
-            
-            // Verify ownership
+            // Single owner-scoped database call; other users' trades are never read
             String currentUserId = UserContext.getUserIdOrThrow();
-            List<TradeDetails> tradeDetails = allTradeDetails.stream()
-                    .filter(t -> currentUserId.equals(t.getUserId()))
-                    .collect(Collectors.toList());
+            List<TradeDetails> tradeDetails = tradeDetailsService.findModelsByUserIdAndTradeIds(currentUserId, tradeIds);
             
             // Log success metrics
             int foundCount = tradeDetails.size();
@@ -526,8 +625,23 @@ public class TradeApiServiceImpl implements TradeApiService {
             appliedFilterName = getFilterName(userId, request.getFavoriteFilterId());
         }
         
-        // Apply filters and get all matching trades
-        List<TradeDetails> filteredTrades = applyFilters(effectiveFilter);
+        MetricsFilterConfig config = effectiveFilter.getMetricsConfig();
+        if (config == null || config.getPortfolioIds() == null || config.getPortfolioIds().isEmpty()) {
+            log.warn("No metrics configuration or portfolio IDs provided in filter request");
+            return buildFilterResponse(Collections.emptyList(), 0, effectiveFilter, appliedFilterName,
+                    pageable != null && pageable.isPaged() ? emptyPage(pageable) : null);
+        }
+        
+        // Filter, sort and page in the database whenever the sort can be pushed down
+        if (pageable != null && pageable.isPaged() && TradeFilterQuery.supportsSort(pageable.getSort())) {
+            Page<TradeDetails> page = tradeDetailsService.findModelsByFilter(userId, config, pageable);
+            return buildFilterResponse(page.getContent(), page.getTotalElements(), effectiveFilter, appliedFilterName,
+                    new PaginationResult(page.getContent(), page.getNumber(), page.getSize(),
+                            page.getTotalPages(), page.isFirst(), page.isLast()));
+        }
+        
+        // Filtering still runs in the database; only the sort is applied in memory
+        List<TradeDetails> filteredTrades = tradeDetailsService.findModelsByFilter(userId, config);
         
         // Apply sorting and pagination if Pageable is provided
         if (pageable != null && pageable.isPaged()) {
@@ -542,6 +656,39 @@ public class TradeApiServiceImpl implements TradeApiService {
                 effectiveFilter, appliedFilterName, null);
     }
     
+    @Override
+    public FilterTradeDetailsResponse scrollTradeDetails(FilterTradeDetailsRequest request, String cursor, int size) {
+        String userId = UserContext.getUserIdOrThrow();
+        log.info("Scrolling trade details for user: {} with filter ID: {}", 
+                userId, request.getFavoriteFilterId());
+        
+        FilterTradeDetailsRequest effectiveFilter = request;
+        String appliedFilterName = null;
+        
+        if (request.getFavoriteFilterId() != null && !request.getFavoriteFilterId().isEmpty()) {
+            effectiveFilter = mergeFavoriteFilter(request, userId);
+            appliedFilterName = getFilterName(userId, request.getFavoriteFilterId());
+        }
+        
+        MetricsFilterConfig config = effectiveFilter.getMetricsConfig();
+        TradeCursorPage page;
+        if (config == null || config.getPortfolioIds() == null || config.getPortfolioIds().isEmpty()) {
+            log.warn("No metrics configuration or portfolio IDs provided in filter request");
+            page = TradeCursorPage.builder().size(size).build();
+        } else {
+            page = tradeDetailsService.findModelsByFilterAfter(userId, config, cursor, size);
+        }
+        
+        return FilterTradeDetailsResponse.builder()
+                .trades(page.getTrades())
+                .appliedFilterName(appliedFilterName)
+                .filterSummary(buildFilterSummary(effectiveFilter))
+                .size(page.getSize())
+                .nextCursor(page.getNextCursor())
+                .hasNext(page.hasNext())
+                .build();
+    }
+    
     private FilterTradeDetailsRequest mergeFavoriteFilter(FilterTradeDetailsRequest request, String userId) {
         try {
             // Get saved filter configuration
@@ -611,178 +758,6 @@ public class TradeApiServiceImpl implements TradeApiService {
         }
     }
     
-    private List<TradeDetails> applyFilters(FilterTradeDetailsRequest filter) {
-        // Get all trades for the user's portfolios
-        List<TradeDetails> allTrades = new ArrayList<>();
-        
-        if (filter.getMetricsConfig() == null) {
-            log.warn("No metrics configuration provided in filter request");
-            return Collections.emptyList();
-        }
-        
-        List<String> portfolioIds = filter.getMetricsConfig().getPortfolioIds();
-        if (portfolioIds != null && !portfolioIds.isEmpty()) {
-            for (String portfolioId : portfolioIds) {
-                allTrades.addAll(tradeManagementService.getTradesBySymbols(portfolioId, null));
-            }
-        } else {
-            log.warn("No portfolio IDs provided in filter request");
-            return Collections.emptyList();
-        }
-        
-        // Apply all filters
-        String currentUserId = UserContext.getUserIdOrThrow();
-        return allTrades.stream()
-                .filter(trade -> currentUserId.equals(trade.getUserId()))
-                .filter(trade -> matchesFilter(trade, filter.getMetricsConfig()))
-                .collect(Collectors.toList());
-    }
-    
-    private boolean matchesFilter(TradeDetails trade, am.trade.common.models.MetricsFilterConfig config) {
-        // Symbol/Instrument filter
-        if (config.getInstruments() != null && !config.getInstruments().isEmpty()) {
-            if (!config.getInstruments().contains(trade.getSymbol())) {
-                return false;
-            }
-        }
-        
-        // Date range filter
-        if (config.getDateRange() != null && trade.getEntryInfo() != null) {
-            LocalDate tradeDate = trade.getEntryInfo().getTimestamp().toLocalDate();
-            
-            if (config.getDateRange().get("startDate") != null) {
-                LocalDate startDate = LocalDate.parse(config.getDateRange().get("startDate").toString());
-                if (tradeDate.isBefore(startDate)) {
-                    return false;
-                }
-            }
-            
-            if (config.getDateRange().get("endDate") != null) {
-                LocalDate endDate = LocalDate.parse(config.getDateRange().get("endDate").toString());
-                if (tradeDate.isAfter(endDate)) {
-                    return false;
-                }
-            }
-        }
-        
-        // Trade characteristics filter (status, strategy, position type, tags, etc.)
-        if (config.getTradeCharacteristics() != null) {
-            // Status filter
-            if (config.getTradeCharacteristics().get("statuses") != null) {
-                @SuppressWarnings("unchecked")
-                List<String> statuses = (List<String>) config.getTradeCharacteristics().get("statuses");
-                if (!statuses.contains(trade.getStatus().name())) {
-                    return false;
-                }
-            }
-            
-            // Strategy filter
-            if (config.getTradeCharacteristics().get("strategies") != null) {
-                @SuppressWarnings("unchecked")
-                List<String> strategies = (List<String>) config.getTradeCharacteristics().get("strategies");
-                if (!strategies.contains(trade.getStrategy())) {
-                    return false;
-                }
-            }
-            
-            // Position type filter
-            if (config.getTradeCharacteristics().get("positionTypes") != null) {
-                @SuppressWarnings("unchecked")
-                List<String> positionTypes = (List<String>) config.getTradeCharacteristics().get("positionTypes");
-                if (trade.getTradePositionType() == null || 
-                    !positionTypes.contains(trade.getTradePositionType().name())) {
-                    return false;
-                }
-            }
-            
-            // Tags filter
-            if (config.getTradeCharacteristics().get("tags") != null) {
-                @SuppressWarnings("unchecked")
-                List<String> tags = (List<String>) config.getTradeCharacteristics().get("tags");
-                if (trade.getTags() == null || trade.getTags().isEmpty()) {
-                    return false;
-                }
-                boolean hasAnyTag = tags.stream()
-                        .anyMatch(tag -> trade.getTags().contains(tag));
-                if (!hasAnyTag) {
-                    return false;
-                }
-            }
-            
-            // Holding time filters
-            if (config.getTradeCharacteristics().get("minHoldingTimeHours") != null && trade.getMetrics() != null) {
-                Integer minHours = (Integer) config.getTradeCharacteristics().get("minHoldingTimeHours");
-                if (trade.getMetrics().getHoldingTimeHours() < minHours) {
-                    return false;
-                }
-            }
-            
-            if (config.getTradeCharacteristics().get("maxHoldingTimeHours") != null && trade.getMetrics() != null) {
-                Integer maxHours = (Integer) config.getTradeCharacteristics().get("maxHoldingTimeHours");
-                if (trade.getMetrics().getHoldingTimeHours() > maxHours) {
-                    return false;
-                }
-            }
-        }
-        
-        // Profit/Loss filters
-        if (config.getProfitLossFilters() != null && trade.getMetrics() != null) {
-            if (config.getProfitLossFilters().get("minProfitLoss") != null) {
-                Double minPL = ((Number) config.getProfitLossFilters().get("minProfitLoss")).doubleValue();
-                if (trade.getMetrics().getProfitLoss().doubleValue() < minPL) {
-                    return false;
-                }
-            }
-            
-            if (config.getProfitLossFilters().get("maxProfitLoss") != null) {
-                Double maxPL = ((Number) config.getProfitLossFilters().get("maxProfitLoss")).doubleValue();
-                if (trade.getMetrics().getProfitLoss().doubleValue() > maxPL) {
-                    return false;
-                }
-            }
-        }
-        
-        // Instrument filters (option type, strike range, expiry, etc.)
-        if (config.getInstrumentFilters() != null && 
-            trade.getInstrumentInfo() != null && 
-            trade.getInstrumentInfo().getDerivativeInfo() != null) {
-            
-            DerivativeInfo derivativeInfo = trade.getInstrumentInfo().getDerivativeInfo();
-            
-            // Option type filter (CE/PE)
-            if (config.getInstrumentFilters().get("optionType") != null) {
-                String optionType = config.getInstrumentFilters().get("optionType").toString();
-                Boolean isCall = derivativeInfo.getIsCall();
-                if (isCall == null) {
-                    return false;
-                }
-                String tradeOptionType = isCall ? "CE" : "PE";
-                if (!tradeOptionType.equals(optionType)) {
-                    return false;
-                }
-            }
-            
-            // Strike price range
-            if (config.getInstrumentFilters().get("minStrike") != null && 
-                derivativeInfo.getStrikePrice() != null) {
-                Double minStrike = ((Number) config.getInstrumentFilters().get("minStrike")).doubleValue();
-                if (derivativeInfo.getStrikePrice().doubleValue() < minStrike) {
-                    return false;
-                }
-            }
-            
-            if (config.getInstrumentFilters().get("maxStrike") != null && 
-                derivativeInfo.getStrikePrice() != null) {
-                Double maxStrike = ((Number) config.getInstrumentFilters().get("maxStrike")).doubleValue();
-                if (derivativeInfo.getStrikePrice().doubleValue() > maxStrike) {
-                    return false;
-                }
-            }
-        }
-        
-        return true;
-    }
-    
     private List<TradeDetails> applySortingWithPageable(List<TradeDetails> trades, org.springframework.data.domain.Pageable pageable) {
         if (pageable == null || pageable.getSort().isUnsorted() || trades.isEmpty()) {
             return trades;
@@ -877,6 +852,10 @@ public class TradeApiServiceImpl implements TradeApiService {
         );
     }
     
+    private PaginationResult emptyPage(org.springframework.data.domain.Pageable pageable) {
+        return applyPaginationWithPageable(Collections.emptyList(), pageable);
+    }
+    
     private static class PaginationResult {
         final List<TradeDetails> trades;
         final int page;
@@ -987,16 +966,12 @@ public class TradeApiServiceImpl implements TradeApiService {
     public am.trade.common.models.PortfolioModel recalculatePortfolio(String portfolioId, String userId) {
         log.info("Service: Manually recalculating all metrics for portfolio: {} for user: {}", portfolioId, userId);
         
-        // 1. Fetch ALL trades for this portfolio from the database
-        List<TradeDetails> allTrades = tradeDetailsService.findModelsByPortfolioId(portfolioId);
-        log.info("Found {} historical trades to process for portfolio {}", allTrades.size(), portfolioId);
-        
-        // 2. Trigger the synchronous processing for all these trades
-        // This will rebuild the PortfolioMetrics from scratch
-        tradeProcessingService.processTradeDetailsWithObjects(allTrades, portfolioId, userId);
-        
-        // 3. Return the updated portfolio
-        return portfolioPersistenceService.findByPortfolioId(portfolioId)
-                .orElseThrow(() -> new am.trade.exceptions.TradeException("Portfolio not found with ID: " + portfolioId, org.springframework.http.HttpStatus.NOT_FOUND));
+        // Day-to-day updates are applied incrementally; this is the explicit repair path
+        // that reloads every trade and rebuilds the PortfolioMetrics from scratch
+        am.trade.common.models.PortfolioModel rebuilt = tradeProcessingService.rebuildPortfolioMetrics(portfolioId, userId);
+        if (rebuilt == null) {
+            throw new am.trade.exceptions.TradeException("Portfolio not found with ID: " + portfolioId, org.springframework.http.HttpStatus.NOT_FOUND);
+        }
+        return rebuilt;
     }
 }
@@ -1,14 +1,14 @@
 package am.trade.api.service.impl;
 
+import com.am.security.context.UserContext;
+import am.trade.common.models.TradeCursorPage;
 import am.trade.common.models.TradeDetails;
 import am.trade.common.models.TradeSummary;
-import am.trade.common.models.enums.TradeStatus;
 import am.trade.services.service.TradeDetailsService;
 import am.trade.api.service.TradeManagementService;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
@@ -24,7 +24,6 @@ import java.util.stream.Collectors;
 
 import am.trade.common.logger.AppLogger;
 import am.trade.persistence.repository.PortfolioRepository;
-import am.trade.persistence.entity.PortfolioEntity;
 import am.trade.persistence.entity.TradeDetailsEntity;
 import am.trade.persistence.mapper.TradeDetailsMapper;
 import java.util.Optional;
@@ -103,54 +102,17 @@ public class TradeManagementServiceImpl implements TradeManagementService {
 
         // If portfolio ID is provided, filter by it
         if (portfolioId != null && !portfolioId.isEmpty()) {
-            // Fetch embedded trades directly from PortfolioEntity
-            Optional<PortfolioEntity> portfolioOpt = portfolioRepository.findByPortfolioId(portfolioId);
-
-            if (portfolioOpt.isPresent()) {
-                PortfolioEntity portfolio = portfolioOpt.get();
-                List<String> tradeIds = portfolio.getTrades();
-
-                if (tradeIds != null && !tradeIds.isEmpty()) {
-                    log.info("Found {} trade IDs in portfolio {}", tradeIds.size(), portfolioId);
-                    // Fetch trades by ID
-                    trades = tradeDetailsService.findModelsByTradeIds(tradeIds);
-                } else {
-                    log.warn("Portfolio {} has null or empty trades list", portfolioId);
-                }
-            } else {
-                log.warn("Portfolio {} not found in database", portfolioId);
-                // Fallback attempt: try standard service
-                log.info("Attempting fallback to TradeDetailsService for portfolio {}", portfolioId);
-                trades = tradeDetailsService.findModelsByPortfolioId(portfolioId);
-            }
+            // Trades carry their portfolioId, so the (portfolioId, entry time) index
+            // serves the whole filter as one range scan
+            trades = tradeDetailsService.findModelsByPortfolioIdAndEntryDateBetween(portfolioId, startDateTime,
+                    endDateTime);
+            log.info("Found {} trades for portfolio {} in range", trades.size(), portfolioId);
         } else {
-            // Get all trades in the date range - this service method likely handles
-            // filtering already?
-            // If findModelsByEntryDateBetween handles it, we might double filter, but
-            // that's safe.
             trades = tradeDetailsService.findModelsByEntryDateBetween(startDateTime, endDateTime);
         }
 
-        // Apply date filtering to the collected trades
-        List<TradeDetails> filteredTrades = trades.stream()
-                .filter(trade -> {
-                    LocalDateTime tradeDate = trade.getEntryInfo() != null
-                            ? trade.getEntryInfo().getTimestamp()
-                            : null;
-
-                    if (tradeDate != null) {
-                        return !tradeDate.isBefore(startDateTime) && !tradeDate.isAfter(endDateTime);
-                    } else {
-                        log.debug("Trade {} skipped. No entry timestamp.", trade.getTradeId());
-                        return false;
-                    }
-                })
-                .collect(Collectors.toList());
-
-        log.info("Retained {} trades after date filtering", filteredTrades.size());
-
         // Group trades by portfolio ID
-        return filteredTrades.stream()
+        return trades.stream()
                 .collect(Collectors.groupingBy(
                         TradeDetails::getPortfolioId,
                         Collectors.toList()));
@@ -158,7 +120,13 @@ public class TradeManagementServiceImpl implements TradeManagementService {
 
     @Override
     public Page<TradeDetails> getTradeDetailsByPortfolio(String portfolioId, Pageable pageable) {
-        return tradeDetailsService.findModelsByPortfolioId(portfolioId, pageable);
+        return tradeDetailsService.findModelsByUserIdAndPortfolioId(UserContext.getUserIdOrThrow(), portfolioId, pageable);
+    }
+
+    @Override
+    public TradeCursorPage getTradeDetailsByPortfolio(String portfolioId, String cursor, int size) {
+        return tradeDetailsService.findModelsByUserIdAndPortfolioIdAfter(UserContext.getUserIdOrThrow(), portfolioId,
+                cursor, size);
     }
 
     @Override
@@ -171,17 +139,7 @@ public class TradeManagementServiceImpl implements TradeManagementService {
         LocalDateTime startDateTime = startDate.atStartOfDay();
         LocalDateTime endDateTime = endDate.plusDays(1).atStartOfDay().minusNanos(1);
 
-        List<TradeDetails> allTrades = tradeDetailsService.findModelsByPortfolioId(portfolioId);
-
-        return allTrades.stream()
-                .filter(trade -> {
-                    LocalDateTime tradeDate = trade.getEntryInfo() != null ? trade.getEntryInfo().getTimestamp() : null;
-
-                    return tradeDate != null &&
-                            !tradeDate.isBefore(startDateTime) &&
-                            !tradeDate.isAfter(endDateTime);
-                })
-                .collect(Collectors.toList());
+        return tradeDetailsService.findModelsByPortfolioIdAndEntryDateBetween(portfolioId, startDateTime, endDateTime);
     }
 
     @Override
@@ -208,84 +166,4 @@ public class TradeManagementServiceImpl implements TradeManagementService {
                 .collect(Collectors.toList());
     }
 
-    @Override
-    public Page<TradeDetails> getTradesByFilters(
-            List<String> portfolioIds,
-            List<String> symbols,
-            List<TradeStatus> statuses,
-            LocalDate startDate,
-            LocalDate endDate,
-            List<String> strategies,
-            Pageable pageable) {
-
-        log.info(
-                "Fetching trades with filters - portfolioIds: {}, symbols: {}, statuses: {}, startDate: {}, endDate: {}, strategies: {}",
-                portfolioIds, symbols, statuses, startDate, endDate, strategies);
-
-        // Collect all trades from the specified portfolios
-        List<TradeDetails> allTrades;
-
-        if (portfolioIds == null || portfolioIds.isEmpty()) {
-            // If no portfolio IDs provided, get all trades from all portfolios
-            // This would require a method to get all trades, which might not be efficient
-            // Consider implementing a repository method for this or limiting the scope
-            throw new IllegalArgumentException("At least one portfolio ID must be provided");
-        } else {
-            // Get trades from all specified portfolios
-            allTrades = portfolioIds.stream()
-                    .flatMap(portfolioId -> tradeDetailsService.findModelsByPortfolioId(portfolioId).stream())
-                    .collect(Collectors.toList());
-        }
-
-        // Apply filters
-        List<TradeDetails> filteredTrades = allTrades.stream()
-                // Filter by symbols if provided
-                .filter(trade -> symbols == null || symbols.isEmpty() ||
-                        (trade.getSymbol() != null &&
-                                symbols.stream().anyMatch(symbol -> trade.getSymbol().equalsIgnoreCase(symbol))))
-
-                // Filter by statuses if provided
-                .filter(trade -> statuses == null || statuses.isEmpty() ||
-                        (trade.getStatus() != null && statuses.contains(trade.getStatus())))
-
-                // Filter by strategies if provided
-                .filter(trade -> strategies == null || strategies.isEmpty() ||
-                        (trade.getStrategy() != null &&
-                                strategies.stream()
-                                        .anyMatch(strategy -> trade.getStrategy().equalsIgnoreCase(strategy))))
-
-                // Filter by date range if provided
-                .filter(trade -> {
-                    // If no date range provided, include all trades
-                    if (startDate == null && endDate == null) {
-                        return true;
-                    }
-
-                    LocalDate tradeDate = trade.getTradeDate();
-                    if (tradeDate == null) {
-                        return false; // Skip trades without a date
-                    }
-
-                    // Check if the trade date is within the specified range
-                    boolean afterStartDate = startDate == null || !tradeDate.isBefore(startDate);
-                    boolean beforeEndDate = endDate == null || !tradeDate.isAfter(endDate);
-
-                    return afterStartDate && beforeEndDate;
-                })
-                .collect(Collectors.toList());
-
-        // Apply pagination
-        int start = (int) pageable.getOffset();
-        int end = Math.min((start + pageable.getPageSize()), filteredTrades.size());
-
-        // Handle case where start might be beyond the list size
-        if (start > filteredTrades.size()) {
-            return new PageImpl<>(List.of(), pageable, filteredTrades.size());
-        }
-
-        List<TradeDetails> pagedTrades = filteredTrades.subList(start, end);
-
-        return new PageImpl<>(pagedTrades, pageable, filteredTrades.size());
-    }
-
 }
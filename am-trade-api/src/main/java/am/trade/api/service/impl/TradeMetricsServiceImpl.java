@@ -8,13 +8,19 @@ import am.trade.api.dto.ProfitLossFilter;
 import am.trade.api.dto.TimePeriodFilter;
 import am.trade.api.dto.TradeCharacteristicsFilter;
 import am.trade.api.service.TradeMetricsService;
+import am.trade.api.service.cache.MetricsResultCache;
+import am.trade.api.service.cube.CubeDimension;
+import am.trade.api.service.cube.CubeGroup;
+import am.trade.api.service.cube.MetricsCube;
 import am.trade.common.models.*;
 import am.trade.dashboard.service.metrics.*;
+import am.trade.dashboard.service.metrics.columns.TradeColumns;
 import am.trade.services.service.TradeDetailsService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -38,6 +44,8 @@ public class TradeMetricsServiceImpl implements TradeMetricsService {
     private final TradeDistributionMetricsService distributionMetricsService;
     private final TradeTimingMetricsService timingMetricsService;
     private final TradePatternMetricsService patternMetricsService;
+    private final MetricsFamilyExecutor metricsFamilyExecutor;
+    private final MetricsResultCache metricsResultCache;
 
     private static final List<String> AVAILABLE_METRIC_TYPES = Arrays.asList(
         "PERFORMANCE", "RISK", "DISTRIBUTION", "TIMING", "PATTERN", "STRATEGY", 
@@ -76,14 +84,17 @@ public class TradeMetricsServiceImpl implements TradeMetricsService {
             filterRequest.setDateRange(defaultDateRange);
         }
         
-        // Fetch trades based on filter criteria
-        List<TradeDetails> trades = fetchTradesByFilters(filterRequest, startDateTime, endDateTime);
-        
-        // Apply additional filters that can't be done at the database level
-        trades = applyAdditionalFilters(trades, filterRequest);
-        
-        // Build the response with requested metrics
-        return buildMetricsResponse(trades, filterRequest);
+        // Identical requests over unchanged portfolios are served from the result cache
+        return metricsResultCache.getOrCalculate(filterRequest, () -> {
+            // Fetch trades based on filter criteria
+            List<TradeDetails> trades = fetchTradesByFilters(filterRequest, startDateTime, endDateTime);
+            
+            // Apply additional filters that can't be done at the database level
+            trades = applyAdditionalFilters(trades, filterRequest);
+            
+            // Build the response with requested metrics
+            return buildMetricsResponse(trades, filterRequest);
+        });
     }
 
     @Override
@@ -156,24 +167,54 @@ public class TradeMetricsServiceImpl implements TradeMetricsService {
         
         // Generate time intervals based on the specified interval type
         List<Map.Entry<LocalDate, LocalDate>> intervals = generateTimeIntervals(startDate, endDate, interval);
+        if (intervals.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
         
-        // Calculate metrics for each interval
-        Map<String, List<MetricsResponse>> trends = new LinkedHashMap<>();
+        // One fetch covers every interval; month, quarter and year intervals may start before startDate
+        LocalDate rangeStart = intervals.get(0).getKey();
+        LocalDate rangeEnd = intervals.get(intervals.size() - 1).getValue();
+        List<TradeDetails> trades = tradeDetailsService.findMetricsViewsByPortfolioIdInAndEntryInfoTimestampBetween(
+                portfolioIds, rangeStart.atStartOfDay(), rangeEnd.atTime(LocalTime.MAX));
         
+        // Bucket the trades by entry date in a single pass
+        TreeMap<LocalDate, TrendBucket> buckets = new TreeMap<>();
         for (Map.Entry<LocalDate, LocalDate> periodInterval : intervals) {
-            LocalDate intervalStart = periodInterval.getKey();
-            LocalDate intervalEnd = periodInterval.getValue();
-            
+            buckets.put(periodInterval.getKey(), new TrendBucket(periodInterval.getKey(), periodInterval.getValue()));
+        }
+        for (TradeDetails trade : trades) {
+            if (trade.getEntryInfo() == null || trade.getEntryInfo().getTimestamp() == null) {
+                continue;
+            }
+            LocalDate entryDate = trade.getEntryInfo().getTimestamp().toLocalDate();
+            Map.Entry<LocalDate, TrendBucket> bucket = buckets.floorEntry(entryDate);
+            if (bucket != null && !entryDate.isAfter(bucket.getValue().end)) {
+                bucket.getValue().add(trade);
+            }
+        }
+        
+        // Derive the requested metrics per bucket, carrying the running P&L and its drawdown along
+        Map<String, List<MetricsResponse>> trends = new LinkedHashMap<>();
+        BigDecimal cumulativeProfitLoss = BigDecimal.ZERO;
+        BigDecimal peakProfitLoss = BigDecimal.ZERO;
+        
+        for (TrendBucket bucket : buckets.values()) {
             MetricsFilterRequest filterRequest = MetricsFilterRequest.builder()
                     .portfolioIds(portfolioIds)
-                    .dateRange(DateRangeFilter.builder().startDate(intervalStart).endDate(intervalEnd).build())
+                    .dateRange(DateRangeFilter.builder().startDate(bucket.start).endDate(bucket.end).build())
                     .metricTypes(metricTypes)
                     .build();
+            validateFilterRequest(filterRequest);
+            
+            MetricsResponse intervalMetrics = buildMetricsResponse(bucket.trades, filterRequest);
             
-            MetricsResponse intervalMetrics = getMetrics(filterRequest);
+            cumulativeProfitLoss = cumulativeProfitLoss.add(bucket.profitLoss);
+            peakProfitLoss = peakProfitLoss.max(cumulativeProfitLoss);
+            intervalMetrics.setCumulativeProfitLoss(cumulativeProfitLoss);
+            intervalMetrics.setDrawdown(peakProfitLoss.subtract(cumulativeProfitLoss));
             
             // Format the interval label based on interval type
-            String intervalLabel = formatIntervalLabel(intervalStart, intervalEnd, interval);
+            String intervalLabel = formatIntervalLabel(bucket.start, bucket.end, interval);
             
             // Add to trends map
             trends.computeIfAbsent(intervalLabel, k -> new ArrayList<>()).add(intervalMetrics);
@@ -182,6 +223,28 @@ public class TradeMetricsServiceImpl implements TradeMetricsService {
         return trends;
     }
 
+    /**
+     * Trades of one trend interval together with their summed profit/loss
+     */
+    private static final class TrendBucket {
+        private final LocalDate start;
+        private final LocalDate end;
+        private final List<TradeDetails> trades = new ArrayList<>();
+        private BigDecimal profitLoss = BigDecimal.ZERO;
+
+        private TrendBucket(LocalDate start, LocalDate end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        private void add(TradeDetails trade) {
+            trades.add(trade);
+            if (trade.getMetrics() != null && trade.getMetrics().getProfitLoss() != null) {
+                profitLoss = profitLoss.add(trade.getMetrics().getProfitLoss());
+            }
+        }
+    }
+
     // Helper methods
     
     /**
@@ -326,14 +389,14 @@ public class TradeMetricsServiceImpl implements TradeMetricsService {
     private List<TradeDetails> fetchTradesByFilters(MetricsFilterRequest filterRequest, LocalDateTime startDateTime,
             LocalDateTime endDateTime) {
         
-        // Basic query by portfolio IDs and date range - already returns domain models
-        List<TradeDetails> trades = tradeDetailsService.findByPortfolioIdInAndEntryInfoTimestampBetween(
+        // Full documents are only needed when they are returned to the client;
+        // the metric services work on the slim projection
+        if (Boolean.TRUE.equals(filterRequest.getIncludeTradeDetails())) {
+            return tradeDetailsService.findByPortfolioIdInAndEntryInfoTimestampBetween(
+                    filterRequest.getPortfolioIds(), startDateTime, endDateTime);
+        }
+        return tradeDetailsService.findMetricsViewsByPortfolioIdInAndEntryInfoTimestampBetween(
                 filterRequest.getPortfolioIds(), startDateTime, endDateTime);
-        
-        // Apply additional filters if needed
-        
-        // Return the trades directly since they're already domain models
-        return trades;
     }
     
     private List<TradeDetails> applyAdditionalFilters(List<TradeDetails> trades, MetricsFilterRequest filterRequest) {
@@ -577,25 +640,31 @@ public class TradeMetricsServiceImpl implements TradeMetricsService {
             return response;
         }
         
-        // Otherwise, only calculate metrics that were explicitly requested
+        // Otherwise, only calculate metrics that were explicitly requested, each family in parallel
+        MetricsFamilyExecutor.Batch families = metricsFamilyExecutor.batch();
+        
         if (metricTypes.contains("PERFORMANCE")) {
-            response.setPerformanceMetrics(performanceMetricsService.calculateMetrics(trades));
+            families.submit("performance", () -> performanceMetricsService.calculateMetrics(trades), response::setPerformanceMetrics);
         }
         
+        // Risk and timing metrics read the same primitive snapshot of the trades
+        TradeColumns columns = metricTypes.contains("RISK") || metricTypes.contains("TIMING") ?
+                TradeColumns.of(trades) : null;
+        
         if (metricTypes.contains("RISK")) {
-            response.setRiskMetrics(riskMetricsService.calculateMetrics(trades));
+            families.submit("risk", () -> riskMetricsService.calculateMetrics(columns), response::setRiskMetrics);
         }
         
         if (metricTypes.contains("DISTRIBUTION")) {
-            response.setDistributionMetrics(distributionMetricsService.calculateMetrics(trades));
+            families.submit("distribution", () -> distributionMetricsService.calculateMetrics(trades), response::setDistributionMetrics);
         }
         
         if (metricTypes.contains("TIMING")) {
-            response.setTimingMetrics(timingMetricsService.calculateMetrics(trades));
+            families.submit("timing", () -> timingMetricsService.calculateMetrics(columns), response::setTimingMetrics);
         }
         
         if (metricTypes.contains("PATTERN")) {
-            response.setPatternMetrics(patternMetricsService.calculateMetrics(trades));
+            families.submit("pattern", () -> patternMetricsService.calculateMetrics(trades), response::setPatternMetrics);
         }
         
         if (metricTypes.contains("STRATEGY")) {
@@ -623,98 +692,57 @@ public class TradeMetricsServiceImpl implements TradeMetricsService {
             // response.setTradingFeedback(tradingFeedbackService.generateFeedback(trades));
         }
         
-        // Handle grouping if requested
+        // Handle grouping if requested, on this thread while the families run
         if (filterRequest.getGroupBy() != null && !filterRequest.getGroupBy().isEmpty()) {
-            response.setGroupedMetrics(calculateGroupedMetrics(trades, filterRequest));
+            response.setGroupedMetrics(calculateGroupedMetrics(trades, columns, filterRequest));
+        }
+        
+        List<String> missing = families.await();
+        if (!missing.isEmpty()) {
+            metadata.put("incompleteMetrics", missing);
         }
         
         return response;
     }
     
     private Map<String, Map<String, Object>> calculateGroupedMetrics(
-            List<TradeDetails> trades, MetricsFilterRequest filterRequest) {
+            List<TradeDetails> trades, TradeColumns columns, MetricsFilterRequest filterRequest) {
         
         Map<String, Map<String, Object>> groupedMetrics = new HashMap<>();
         
+        // One pass sorts the trades into cells; every group-by below merges cells
+        MetricsCube cube = MetricsCube.of(columns != null ? columns : TradeColumns.of(trades));
+        LocalDate today = LocalDate.now();
+        Set<String> metricTypes = filterRequest.getMetricTypes();
+        
         for (String groupDimension : filterRequest.getGroupBy()) {
-            Map<String, List<TradeDetails>> groupedTrades = new HashMap<>();
-            
-            // Group trades by the specified dimension
-            switch (groupDimension.toUpperCase()) {
-                case "STRATEGY":
-                    // Group by instrument
-                    Map<String, List<TradeDetails>> instrumentGroups = trades.stream()
-                            .collect(Collectors.groupingBy(t -> t.getInstrumentInfo() != null ? 
-                                    t.getInstrumentInfo().getSymbol() : t.getSymbol()));
-                    
-                    // For each instrument, further group by direction
-                    for (Map.Entry<String, List<TradeDetails>> entry : instrumentGroups.entrySet()) {
-                        String instrument = entry.getKey();
-                        List<TradeDetails> instrumentTrades = entry.getValue();
-                        
-                        Map<String, List<TradeDetails>> directionGroups = instrumentTrades.stream()
-                                .collect(Collectors.groupingBy(t -> t.getTradePositionType() != null ? 
-                                        t.getTradePositionType().toString() : "Unknown"));
-                        
-                        for (Map.Entry<String, List<TradeDetails>> dirEntry : directionGroups.entrySet()) {
-                            String direction = dirEntry.getKey();
-                            String groupKey = instrument + "-" + direction;
-                            groupedTrades.put(groupKey, dirEntry.getValue());
-                        }
-                    }
-                    break;
-                    
-                case "INSTRUMENT":
-                    trades.forEach(trade -> {
-                        String instrument = trade.getInstrumentInfo() != null ? trade.getInstrumentInfo().getSymbol() : trade.getSymbol();
-                        groupedTrades.computeIfAbsent(instrument != null ? instrument : "Unknown", k -> new ArrayList<>()).add(trade);
-                    });
-                    break;
-                    
-                case "DIRECTION":
-                    trades.forEach(trade -> {
-                        String direction = trade.getTradePositionType() != null ? trade.getTradePositionType().toString() : "Unknown";
-                        groupedTrades.computeIfAbsent(direction, k -> new ArrayList<>()).add(trade);
-                    });
-                    break;
-                    
-                case "TAG":
-                    // For tags, we need to flatten since a trade can have multiple tags
-                    trades.stream()
-                            .filter(t -> t.getTags() != null && !t.getTags().isEmpty())
-                            .forEach(trade -> {
-                                for (String tag : trade.getTags()) {
-                                    groupedTrades.computeIfAbsent(tag, k -> new ArrayList<>()).add(trade);
-                                }
-                            });
-                    break;
-                    
-                default:
-                    log.warn("Unsupported grouping dimension: {}", groupDimension);
-                    continue;
+            List<CubeDimension> dimensions = CubeDimension.parse(groupDimension);
+            if (dimensions.isEmpty()) {
+                log.warn("Unsupported grouping dimension: {}", groupDimension);
+                continue;
             }
             
-            // Calculate metrics for each group
+            // Calculate metrics for each group from its merged cells
             Map<String, Object> dimensionMetrics = new HashMap<>();
-            for (Map.Entry<String, List<TradeDetails>> entry : groupedTrades.entrySet()) {
-                String groupValue = entry.getKey();
-                List<TradeDetails> groupTrades = entry.getValue();
+            for (Map.Entry<String, CubeGroup> entry : cube.rollUp(dimensions, today).entrySet()) {
+                CubeGroup group = entry.getValue();
                 
-                // Calculate basic metrics for this group
                 Map<String, Object> groupMetrics = new HashMap<>();
-                groupMetrics.put("tradeCount", groupTrades.size());
+                groupMetrics.put("tradeCount", group.tradeCount());
                 
-                // Calculate performance metrics for this group
-                Set<String> metricTypes = filterRequest.getMetricTypes();
                 if (metricTypes.isEmpty() || metricTypes.contains("PERFORMANCE")) {
-                    groupMetrics.put("performance", performanceMetricsService.calculateMetrics(groupTrades));
+                    groupMetrics.put("performance", group.performanceMetrics());
                 }
                 
                 if (metricTypes.isEmpty() || metricTypes.contains("RISK")) {
-                    groupMetrics.put("risk", riskMetricsService.calculateMetrics(groupTrades));
+                    groupMetrics.put("risk", group.riskMetrics());
+                }
+                
+                if (metricTypes.contains("DISTRIBUTION")) {
+                    groupMetrics.put("distribution", group.distributionMetrics());
                 }
                 
-                dimensionMetrics.put(groupValue, groupMetrics);
+                dimensionMetrics.put(entry.getKey(), groupMetrics);
             }
             
             groupedMetrics.put(groupDimension.toUpperCase(), dimensionMetrics);
@@ -0,0 +1,139 @@
+package am.trade.api.service.cache;
+
+import am.trade.api.dto.DateRangeFilter;
+import am.trade.api.dto.MetricsFilterRequest;
+import am.trade.api.dto.MetricsResponse;
+import am.trade.common.models.PerformanceMetrics;
+import am.trade.services.cache.PortfolioVersions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MetricsResultCacheTest {
+
+    @Mock
+    private PortfolioVersions portfolioVersions;
+    @Mock
+    private ObjectProvider<RedisConnectionFactory> redisConnectionFactoryProvider;
+    @Mock
+    private ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    private MetricsResultCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new MetricsResultCache(portfolioVersions, redisConnectionFactoryProvider, meterRegistryProvider,
+                true, 1, 1, true, 1000);
+    }
+
+    @Test
+    void key_shouldIgnoreOrderOfPortfoliosAndMetricTypes() {
+        when(portfolioVersions.current(any())).thenReturn(Map.of("p1", 3L, "p2", 5L));
+
+        MetricsFilterRequest first = request(List.of("p1", "p2"), List.of("RISK", "PERFORMANCE"));
+        MetricsFilterRequest second = request(List.of("p2", "p1"), List.of("PERFORMANCE", "RISK"));
+
+        assertEquals(cache.key(first), cache.key(second));
+    }
+
+    @Test
+    void key_shouldChangeWhenAPortfolioVersionChanges() {
+        MetricsFilterRequest request = request(List.of("p1", "p2"), List.of("PERFORMANCE"));
+
+        when(portfolioVersions.current(any())).thenReturn(Map.of("p1", 3L, "p2", 5L));
+        String before = cache.key(request);
+        when(portfolioVersions.current(any())).thenReturn(Map.of("p1", 3L, "p2", 6L));
+        String after = cache.key(request);
+
+        assertNotEquals(before, after);
+    }
+
+    @Test
+    void getOrCalculate_shouldCalculateOnceAndReturnDecodedCopies() {
+        when(portfolioVersions.current(any())).thenReturn(Map.of("p1", 1L));
+        MetricsFilterRequest request = request(List.of("p1"), List.of("PERFORMANCE"));
+        AtomicInteger calculations = new AtomicInteger();
+
+        MetricsResponse calculated = cache.getOrCalculate(request, () -> {
+            calculations.incrementAndGet();
+            return response();
+        });
+        MetricsResponse cached = cache.getOrCalculate(request, () -> {
+            calculations.incrementAndGet();
+            return response();
+        });
+
+        assertEquals(1, calculations.get());
+        assertNotSame(calculated, cached);
+        assertEquals(calculated.getTotalTradesCount(), cached.getTotalTradesCount());
+        assertEquals(calculated.getStartDate(), cached.getStartDate());
+        assertEquals(0, calculated.getPerformanceMetrics().getTotalProfitLoss()
+                .compareTo(cached.getPerformanceMetrics().getTotalProfitLoss()));
+    }
+
+    @Test
+    void getOrCalculate_shouldNotCacheIncompleteResponses() {
+        when(portfolioVersions.current(any())).thenReturn(Map.of("p1", 1L));
+        MetricsFilterRequest request = request(List.of("p1"), List.of("PERFORMANCE", "RISK"));
+        AtomicInteger calculations = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            cache.getOrCalculate(request, () -> {
+                calculations.incrementAndGet();
+                MetricsResponse response = response();
+                response.getMetadata().put("incompleteMetrics", List.of("risk"));
+                return response;
+            });
+        }
+
+        assertEquals(2, calculations.get());
+    }
+
+    private static MetricsFilterRequest request(List<String> portfolioIds, List<String> metricTypes) {
+        return MetricsFilterRequest.builder()
+                .portfolioIds(new ArrayList<>(portfolioIds))
+                .metricTypes(new LinkedHashSet<>(metricTypes))
+                .instruments(Set.of("NIFTY"))
+                .dateRange(DateRangeFilter.builder()
+                        .startDate(LocalDate.of(2024, 1, 1))
+                        .endDate(LocalDate.of(2024, 3, 31))
+                        .build())
+                .build();
+    }
+
+    private static MetricsResponse response() {
+        PerformanceMetrics performance = new PerformanceMetrics();
+        performance.setTotalProfitLoss(new BigDecimal("1250.50"));
+        MetricsResponse response = new MetricsResponse();
+        response.setPortfolioIds(List.of("p1"));
+        response.setStartDate(LocalDate.of(2024, 1, 1));
+        response.setEndDate(LocalDate.of(2024, 3, 31));
+        response.setTotalTradesCount(12);
+        response.setPerformanceMetrics(performance);
+        response.setMetadata(new HashMap<>());
+        return response;
+    }
+}
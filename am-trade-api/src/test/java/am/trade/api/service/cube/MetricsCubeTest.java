@@ -0,0 +1,253 @@
+package am.trade.api.service.cube;
+
+import am.trade.common.models.EntryExitInfo;
+import am.trade.common.models.InstrumentInfo;
+import am.trade.common.models.PerformanceMetrics;
+import am.trade.common.models.RiskMetrics;
+import am.trade.common.models.TradeDetails;
+import am.trade.common.models.TradeDistributionMetrics;
+import am.trade.common.models.TradeMetrics;
+import am.trade.common.models.enums.TradePositionType;
+import am.trade.dashboard.service.metrics.PerformanceMetricsService;
+import am.trade.dashboard.service.metrics.RiskMetricsService;
+import am.trade.dashboard.service.metrics.calculator.MetricsRegistry;
+import am.trade.dashboard.service.metrics.calculator.impl.AverageHoldingTimeCalculator;
+import am.trade.dashboard.service.metrics.calculator.impl.AverageTradeCalculator;
+import am.trade.dashboard.service.metrics.calculator.impl.BestWorstDayCalculator;
+import am.trade.dashboard.service.metrics.calculator.impl.ConsistencyMetricsCalculator;
+import am.trade.dashboard.service.metrics.calculator.impl.CurrentStreakCalculator;
+import am.trade.dashboard.service.metrics.calculator.impl.ExpectancyCalculator;
+import am.trade.dashboard.service.metrics.calculator.impl.LargestTradeCalculator;
+import am.trade.dashboard.service.metrics.calculator.impl.ProfitFactorCalculator;
+import am.trade.dashboard.service.metrics.calculator.impl.ProfitLossCalculator;
+import am.trade.dashboard.service.metrics.calculator.impl.ReturnOnCapitalCalculator;
+import am.trade.dashboard.service.metrics.calculator.impl.StreakCalculator;
+import am.trade.dashboard.service.metrics.calculator.impl.TimeBasedReturnCalculator;
+import am.trade.dashboard.service.metrics.calculator.impl.TradeFrequencyCalculator;
+import am.trade.dashboard.service.metrics.calculator.impl.WinLossRatioCalculator;
+import am.trade.dashboard.service.metrics.calculator.impl.WinRateCalculator;
+import am.trade.dashboard.service.metrics.columns.TradeColumns;
+import am.trade.dashboard.service.metrics.preprocessor.impl.ChronologicalSortPreprocessor;
+import am.trade.dashboard.service.metrics.preprocessor.impl.DataValidationPreprocessor;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsCubeTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2025, 3, 10);
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2025, 3, 3, 10, 0);
+
+    private final MetricsCube cube = MetricsCube.of(TradeColumns.of(List.of(
+            trade("AAPL", TradePositionType.LONG, MONDAY, MONDAY.plusHours(5), "100", "a", "b"),
+            trade("AAPL", TradePositionType.SHORT, MONDAY.plusDays(1), MONDAY.plusDays(2), "-40", "a"),
+            trade("MSFT", TradePositionType.LONG, MONDAY.plusDays(2), MONDAY.plusDays(3), "30"),
+            trade("AAPL", TradePositionType.LONG, MONDAY.plusDays(3), MONDAY.plusDays(3).plusHours(2), "-80", "b", "b"),
+            trade("AAPL", TradePositionType.LONG, MONDAY.plusDays(3).plusHours(1), MONDAY.plusDays(3).plusHours(3), "10", "b"))));
+
+    @Test
+    void parse_shouldExpandStrategyAndRejectUnknownDimensions() {
+        assertEquals(List.of(CubeDimension.INSTRUMENT, CubeDimension.DIRECTION), CubeDimension.parse("strategy"));
+        assertEquals(List.of(CubeDimension.TAG, CubeDimension.INSTRUMENT, CubeDimension.DIRECTION),
+                CubeDimension.parse("TAG+STRATEGY+INSTRUMENT"));
+        assertTrue(CubeDimension.parse("INSTRUMENT+SECTOR").isEmpty());
+    }
+
+    @Test
+    void of_shouldShareCellsBetweenTradesWithTheSameCoordinates() {
+        // The last two trades share day, instrument, direction and tag set
+        assertEquals(4, cube.cellCount());
+    }
+
+    @Test
+    void rollUp_shouldGroupByEveryDimensionCombination() {
+        Map<String, CubeGroup> strategies = cube.rollUp(CubeDimension.parse("STRATEGY"), TODAY);
+        assertEquals(3, strategies.size());
+        assertEquals(3, strategies.get("AAPL-LONG").tradeCount());
+        assertEquals(1, strategies.get("AAPL-SHORT").tradeCount());
+        assertEquals(1, strategies.get("MSFT-LONG").tradeCount());
+
+        // Untagged trades are left out and repeated tags count once
+        Map<String, CubeGroup> tags = cube.rollUp(CubeDimension.parse("TAG"), TODAY);
+        assertEquals(2, tags.size());
+        assertEquals(2, tags.get("a").tradeCount());
+        assertEquals(3, tags.get("b").tradeCount());
+
+        Map<String, CubeGroup> instrumentTags = cube.rollUp(CubeDimension.parse("INSTRUMENT+TAG"), TODAY);
+        assertEquals(2, instrumentTags.size());
+        assertEquals(3, instrumentTags.get("AAPL-b").tradeCount());
+    }
+
+    @Test
+    void performanceMetrics_shouldWalkTheGroupInExitOrder() {
+        PerformanceMetrics metrics = cube.rollUp(CubeDimension.parse("INSTRUMENT"), TODAY).get("AAPL").performanceMetrics();
+
+        assertMoney("50", metrics.getWinRate());
+        assertMoney("100", metrics.getLargestWinningTrade());
+        assertMoney("80", metrics.getLargestLosingTrade());
+        // Closed equity: 100, 60, -20, -10
+        assertMoney("120", metrics.getMaxDrawdown());
+        assertEquals(1, metrics.getCurrentStreak());
+        assertMoney("70", metrics.getWorstDayLoss());
+        assertEquals(MONDAY.plusDays(3).toLocalDate().atStartOfDay(), metrics.getWorstDayDate());
+    }
+
+    @Test
+    void riskMetrics_shouldWalkTheGroupInEntryOrder() {
+        RiskMetrics metrics = cube.rollUp(CubeDimension.parse("INSTRUMENT"), TODAY).get("AAPL").riskMetrics();
+
+        assertMoney("120", metrics.getMaxDrawdown());
+        assertEquals(2, metrics.getConsecutiveLossesToRuin());
+        assertMoney("80", metrics.getLargestPositionSize());
+    }
+
+    @Test
+    void performanceAndRiskMetrics_shouldMatchTheServicesOnTheGroupsTrades() {
+        // Relative to today so the month, quarter and year returns are filled in
+        LocalDateTime today = LocalDate.now().atTime(9, 30);
+        List<TradeDetails> aapl = List.of(
+                sizedTrade("AAPL", today.minusDays(40), today.minusDays(40).plusHours(3), "100", "10", 10),
+                sizedTrade("AAPL", today.minusDays(40).plusHours(1), today.minusDays(39), "-40", "10", 10),
+                // Break even, held an hour and a half
+                sizedTrade("AAPL", today.minusDays(20), today.minusDays(20).plusMinutes(90), "0", "20", 5),
+                sizedTrade("AAPL", today.minusDays(10), today.minusDays(10).plusHours(5), "60", "10", 10),
+                // Entered after the previous trade, closed before it
+                sizedTrade("AAPL", today.minusDays(10).plusHours(2), today.minusDays(10).plusHours(3), "25", "10", 10),
+                sizedTrade("AAPL", today, today.plusHours(1), "-20", "10", 10),
+                // Still open
+                sizedTrade("AAPL", today.minusDays(1), null, "5", "10", 10));
+        List<TradeDetails> msft = List.of(
+                sizedTrade("MSFT", today.minusDays(5), today.minusDays(4), "-30", "50", 2),
+                sizedTrade("MSFT", today.minusDays(3), today.minusDays(3).plusHours(2), "-10", "50", 2),
+                // No entry info: seen by risk metrics only
+                TradeDetails.builder()
+                        .tradeId("MSFT-unsized")
+                        .instrumentInfo(InstrumentInfo.builder().symbol("MSFT").build())
+                        .exitInfo(EntryExitInfo.builder().timestamp(today.minusDays(2)).build())
+                        .metrics(TradeMetrics.builder().profitLoss(new BigDecimal("15")).build())
+                        .build());
+        Map<String, CubeGroup> groups = MetricsCube.of(TradeColumns.of(concat(aapl, msft)))
+                .rollUp(CubeDimension.parse("INSTRUMENT"), LocalDate.now());
+
+        PerformanceMetricsService performanceMetricsService = new PerformanceMetricsService(
+                new MetricsRegistry(List.of(
+                        new TimeBasedReturnCalculator(), new LargestTradeCalculator(), new AverageTradeCalculator(),
+                        new BestWorstDayCalculator(), new ConsistencyMetricsCalculator(), new WinRateCalculator(),
+                        new ExpectancyCalculator(), new CurrentStreakCalculator(), new StreakCalculator(),
+                        new ProfitLossCalculator(), new ProfitFactorCalculator(), new WinLossRatioCalculator(),
+                        new ReturnOnCapitalCalculator(), new AverageHoldingTimeCalculator(), new TradeFrequencyCalculator())),
+                List.of(new DataValidationPreprocessor(), new ChronologicalSortPreprocessor()));
+        RiskMetricsService riskMetricsService = new RiskMetricsService();
+
+        for (Map.Entry<String, List<TradeDetails>> instrument : Map.of("AAPL", aapl, "MSFT", msft).entrySet()) {
+            CubeGroup group = groups.get(instrument.getKey());
+            assertSamePerformance(performanceMetricsService.calculateMetrics(instrument.getValue()), group.performanceMetrics());
+            assertSameRisk(riskMetricsService.calculateMetrics(instrument.getValue()), group.riskMetrics());
+        }
+    }
+
+    @Test
+    void distributionMetrics_shouldMergeTheSketchesOfTheGroup() {
+        TradeDistributionMetrics metrics = cube.rollUp(CubeDimension.parse("INSTRUMENT"), TODAY).get("AAPL").distributionMetrics();
+
+        // Holding minutes 120, 120, 300 and 1440; profit/loss -80, -40, 10 and 100
+        assertEquals(120, metrics.getHoldingMinutesPercentiles().get("P50").doubleValue(), 1.21);
+        assertEquals(10, metrics.getProfitLossPercentiles().get("P75").doubleValue(), 0.11);
+        assertEquals(-80, metrics.getProfitLossPercentiles().get("P10").doubleValue(), 0.81);
+        assertEquals(100, metrics.getPositionSizePercentiles().get("P90").doubleValue(), 1.01);
+    }
+
+    private static TradeDetails trade(String symbol, TradePositionType direction, LocalDateTime entry,
+                                      LocalDateTime exit, String profitLoss, String... tags) {
+        return TradeDetails.builder()
+                .tradeId(symbol + entry)
+                .instrumentInfo(InstrumentInfo.builder().symbol(symbol).build())
+                .tradePositionType(direction)
+                .entryInfo(EntryExitInfo.builder().timestamp(entry).price(BigDecimal.TEN).quantity(10).build())
+                .exitInfo(EntryExitInfo.builder().timestamp(exit).build())
+                .metrics(TradeMetrics.builder().profitLoss(new BigDecimal(profitLoss)).build())
+                .tags(List.of(tags))
+                .build();
+    }
+
+    private static TradeDetails sizedTrade(String symbol, LocalDateTime entry, LocalDateTime exit,
+                                           String profitLoss, String price, int quantity) {
+        BigDecimal invested = new BigDecimal(price).multiply(BigDecimal.valueOf(quantity));
+        return TradeDetails.builder()
+                .tradeId(symbol + entry)
+                .instrumentInfo(InstrumentInfo.builder().symbol(symbol).build())
+                .tradePositionType(TradePositionType.LONG)
+                .entryInfo(EntryExitInfo.builder().timestamp(entry).price(new BigDecimal(price)).quantity(quantity)
+                        .totalValue(invested).build())
+                .exitInfo(exit != null ? EntryExitInfo.builder().timestamp(exit).build() : null)
+                .metrics(TradeMetrics.builder()
+                        .profitLoss(new BigDecimal(profitLoss))
+                        .profitLossPercentage(new BigDecimal(profitLoss).multiply(new BigDecimal("100"))
+                                .divide(invested, 4, RoundingMode.HALF_UP))
+                        .build())
+                .build();
+    }
+
+    private static List<TradeDetails> concat(List<TradeDetails> first, List<TradeDetails> second) {
+        List<TradeDetails> trades = new ArrayList<>(first);
+        trades.addAll(second);
+        return trades;
+    }
+
+    private static void assertSamePerformance(PerformanceMetrics expected, PerformanceMetrics actual) {
+        List<Function<PerformanceMetrics, BigDecimal>> values = List.of(
+                PerformanceMetrics::getTotalProfitLoss, PerformanceMetrics::getWinRate,
+                PerformanceMetrics::getProfitFactor, PerformanceMetrics::getExpectancy,
+                PerformanceMetrics::getAverageWinningTrade, PerformanceMetrics::getAverageLosingTrade,
+                PerformanceMetrics::getLargestWinningTrade, PerformanceMetrics::getLargestLosingTrade,
+                PerformanceMetrics::getWinLossRatio, PerformanceMetrics::getAverageHoldingTimeOverall,
+                PerformanceMetrics::getReturnOnCapital, PerformanceMetrics::getBestDayProfit,
+                PerformanceMetrics::getWorstDayLoss, PerformanceMetrics::getReturnStandardDeviation,
+                PerformanceMetrics::getProfitConsistency, PerformanceMetrics::getMaxDrawdown,
+                PerformanceMetrics::getAnnualizedReturn, PerformanceMetrics::getMonthlyReturn,
+                PerformanceMetrics::getQuarterlyReturn, PerformanceMetrics::getYearToDateReturn);
+        for (int i = 0; i < values.size(); i++) {
+            assertSameValue("performance value " + i, values.get(i).apply(expected), values.get(i).apply(actual));
+        }
+        assertEquals(expected.getLongestWinningStreak(), actual.getLongestWinningStreak());
+        assertEquals(expected.getLongestLosingStreak(), actual.getLongestLosingStreak());
+        assertEquals(expected.getCurrentStreak(), actual.getCurrentStreak());
+        assertEquals(expected.getBestDayDate(), actual.getBestDayDate());
+        assertEquals(expected.getWorstDayDate(), actual.getWorstDayDate());
+    }
+
+    private static void assertSameRisk(RiskMetrics expected, RiskMetrics actual) {
+        List<Function<RiskMetrics, BigDecimal>> values = List.of(
+                RiskMetrics::getMaxDrawdown, RiskMetrics::getSharpeRatio, RiskMetrics::getSortinoRatio,
+                RiskMetrics::getCalmarRatio, RiskMetrics::getAveragePositionSize, RiskMetrics::getLargestPositionSize);
+        for (int i = 0; i < values.size(); i++) {
+            assertSameValue("risk value " + i, values.get(i).apply(expected), values.get(i).apply(actual));
+        }
+        assertEquals(expected.getConsecutiveLossesToRuin(), actual.getConsecutiveLossesToRuin());
+    }
+
+    private static void assertSameValue(String name, BigDecimal expected, BigDecimal actual) {
+        if (expected == null) {
+            assertNull(actual, name);
+            return;
+        }
+        assertNotNull(actual, name);
+        assertEquals(0, expected.compareTo(actual), () -> name + ": expected " + expected + " but was " + actual);
+    }
+
+    private static void assertMoney(String expected, BigDecimal actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), () -> "expected " + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,88 @@
+package am.trade.api.service.equity;
+
+import am.trade.persistence.entity.PortfolioDailyStats;
+import am.trade.services.cache.PortfolioVersions;
+import am.trade.services.rollup.PortfolioDailyStatsRollup;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class EquityCurveCacheTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2025, 3, 3);
+
+    @Mock
+    private PortfolioVersions portfolioVersions;
+    @Mock
+    private PortfolioDailyStatsRollup portfolioDailyStatsRollup;
+    @Mock
+    private ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    @Test
+    void get_shouldRebuildTheCurveOnceTheVersionMovesOn() {
+        // Given a rollup rebuilt between the second and third lookups, which moves the version
+        EquityCurveCache cache = cache(1440);
+        when(portfolioVersions.current(List.of("p1")))
+                .thenReturn(Map.of("p1", 3L), Map.of("p1", 3L), Map.of("p1", 4L));
+        when(portfolioDailyStatsRollup.findDays("p1"))
+                .thenReturn(List.of(day(MONDAY, "100")), List.of(day(MONDAY, "100"), day(MONDAY.plusDays(1), "50")));
+
+        // When
+        EquityCurve first = cache.get("p1");
+        EquityCurve cached = cache.get("p1");
+        EquityCurve rebuilt = cache.get("p1");
+
+        // Then
+        assertSame(first, cached);
+        assertNotSame(first, rebuilt);
+        assertEquals(2, rebuilt.tradingDays());
+        verify(portfolioDailyStatsRollup, times(2)).findDays("p1");
+    }
+
+    @Test
+    void get_shouldRebuildAnExpiredCurveAtTheSameVersion() {
+        // Given curves that expire as soon as they are written, as when a version failed to move on
+        EquityCurveCache cache = cache(0);
+        when(portfolioVersions.current(List.of("p1"))).thenReturn(Map.of("p1", 3L));
+        when(portfolioDailyStatsRollup.findDays("p1"))
+                .thenReturn(List.of(day(MONDAY, "100")), List.of(day(MONDAY, "100"), day(MONDAY.plusDays(1), "50")));
+
+        // When
+        cache.get("p1");
+        EquityCurve rebuilt = cache.get("p1");
+
+        // Then
+        assertEquals(2, rebuilt.tradingDays());
+    }
+
+    private EquityCurveCache cache(long expireAfterWriteMinutes) {
+        return new EquityCurveCache(portfolioVersions, portfolioDailyStatsRollup, meterRegistryProvider,
+                true, 100, 60, expireAfterWriteMinutes);
+    }
+
+    private static PortfolioDailyStats day(LocalDate date, String profitLoss) {
+        return PortfolioDailyStats.builder()
+                .id(PortfolioDailyStats.id("p1", date))
+                .portfolioId("p1")
+                .date(date.atStartOfDay())
+                .profitLoss(new BigDecimal(profitLoss))
+                .tradeCount(1)
+                .build();
+    }
+}
@@ -0,0 +1,127 @@
+package am.trade.api.service.equity;
+
+import am.trade.persistence.entity.PortfolioDailyStats;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class EquityCurveTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2025, 3, 3);
+
+    @Test
+    void rangeQueries_shouldFollowTheCumulativeProfitLoss() {
+        // Equity after each trading day: 100, 40, 160, 130
+        EquityCurve curve = EquityCurve.of(List.of(
+                day(MONDAY, "100"),
+                day(MONDAY.plusDays(1), "-60"),
+                day(MONDAY.plusDays(3), "120"),
+                day(MONDAY.plusDays(4), "-30")));
+
+        assertEquals(4, curve.tradingDays());
+        assertMoney("0", curve.equityAt(MONDAY.minusDays(1)));
+        assertMoney("40", curve.equityAt(MONDAY.plusDays(2)));
+        assertMoney("130", curve.equityAt(MONDAY.plusDays(10)));
+
+        assertMoney("60", curve.profitLoss(MONDAY.plusDays(1), MONDAY.plusDays(3)));
+        assertMoney("0", curve.profitLoss(MONDAY.plusDays(2), MONDAY.plusDays(2)));
+
+        assertMoney("60", curve.drawdownAt(MONDAY.plusDays(2)));
+        assertMoney("30", curve.drawdownAt(MONDAY.plusDays(4)));
+
+        assertMoney("160", curve.highestEquity(MONDAY.plusDays(1), MONDAY.plusDays(4)));
+        assertMoney("40", curve.lowestEquity(MONDAY.plusDays(2), MONDAY.plusDays(4)));
+        assertMoney("0", curve.lowestEquity(MONDAY, MONDAY.plusDays(4)));
+
+        assertMoney("60", curve.maxDrawdown(MONDAY, MONDAY.plusDays(4)));
+        assertMoney("30", curve.maxDrawdown(MONDAY.plusDays(2), MONDAY.plusDays(4)));
+        assertMoney("0", curve.maxDrawdown(MONDAY.plusDays(2), MONDAY.plusDays(3)));
+    }
+
+    @Test
+    void performance_shouldCoverEveryCalendarDayFromTheStartOfTheRange() {
+        EquityCurve curve = EquityCurve.of(List.of(
+                day(MONDAY, "100"),
+                day(MONDAY.plusDays(2), "-25.5")));
+
+        Map<LocalDate, Double> performance = curve.performance(MONDAY.plusDays(1), MONDAY.plusDays(3));
+
+        assertEquals(List.of(MONDAY.plusDays(1), MONDAY.plusDays(2), MONDAY.plusDays(3)),
+                new ArrayList<>(performance.keySet()));
+        assertEquals(0.0, performance.get(MONDAY.plusDays(1)));
+        assertEquals(-25.5, performance.get(MONDAY.plusDays(2)));
+        assertEquals(-25.5, performance.get(MONDAY.plusDays(3)));
+    }
+
+    @Test
+    void of_shouldHandleEmptyAndUnorderedDays() {
+        EquityCurve empty = EquityCurve.of(List.of());
+        assertEquals(0, empty.tradingDays());
+        assertMoney("0", empty.maxDrawdown(MONDAY, MONDAY.plusDays(7)));
+        assertEquals(0.0, empty.performance(MONDAY, MONDAY).get(MONDAY));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> EquityCurve.of(List.of(day(MONDAY.plusDays(1), "1"), day(MONDAY, "1"))));
+    }
+
+    @Test
+    void maxDrawdown_shouldMatchAScanOfEveryWindow() {
+        Random random = new Random(42);
+        List<PortfolioDailyStats> days = new ArrayList<>();
+        List<Long> equity = new ArrayList<>();
+        equity.add(0L);
+        LocalDate date = MONDAY;
+        for (int i = 0; i < 37; i++) {
+            long profitLoss = random.nextInt(2001) - 1000;
+            days.add(day(date, Long.toString(profitLoss)));
+            equity.add(equity.get(equity.size() - 1) + profitLoss);
+            date = date.plusDays(1 + random.nextInt(3));
+        }
+        EquityCurve curve = EquityCurve.of(days);
+
+        for (int from = 0; from < days.size(); from++) {
+            for (int to = from; to < days.size(); to++) {
+                // The window starts from the equity before its first trading day
+                long peak = Long.MIN_VALUE;
+                long drawdown = 0;
+                long high = Long.MIN_VALUE;
+                long low = Long.MAX_VALUE;
+                for (int point = from; point <= to + 1; point++) {
+                    long value = equity.get(point);
+                    peak = Math.max(peak, value);
+                    drawdown = Math.max(drawdown, peak - value);
+                    high = Math.max(high, value);
+                    low = Math.min(low, value);
+                }
+                LocalDate first = days.get(from).day();
+                LocalDate last = days.get(to).day();
+                assertMoney(Long.toString(drawdown), curve.maxDrawdown(first, last));
+                assertMoney(Long.toString(high), curve.highestEquity(first, last));
+                assertMoney(Long.toString(low), curve.lowestEquity(first, last));
+                assertMoney(Long.toString(equity.get(to + 1) - equity.get(from)), curve.profitLoss(first, last));
+            }
+        }
+    }
+
+    private static PortfolioDailyStats day(LocalDate date, String profitLoss) {
+        return PortfolioDailyStats.builder()
+                .id(PortfolioDailyStats.id("p1", date))
+                .portfolioId("p1")
+                .date(date.atStartOfDay())
+                .profitLoss(new BigDecimal(profitLoss))
+                .tradeCount(1)
+                .build();
+    }
+
+    private static void assertMoney(String expected, BigDecimal actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), () -> "expected " + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,148 @@
+package am.trade.api.service.impl;
+
+import am.trade.api.dto.PortfolioEquityResponse;
+import am.trade.api.service.equity.EquityCurve;
+import am.trade.api.service.equity.EquityCurveCache;
+import am.trade.common.models.PortfolioModel;
+import am.trade.common.models.TradeDistributionMetrics;
+import am.trade.common.util.TradeSketches;
+import am.trade.persistence.entity.PortfolioDailyStats;
+import am.trade.persistence.repository.PortfolioDailyStatsRepository;
+import am.trade.services.rollup.PortfolioDailyStatsRollup;
+import am.trade.services.service.PortfolioService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PortfolioSummaryServiceImplTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2025, 3, 10);
+
+    @Mock
+    private PortfolioService portfolioService;
+    @Mock
+    private EquityCurveCache equityCurveCache;
+    @Mock
+    private PortfolioDailyStatsRepository portfolioDailyStatsRepository;
+
+    private PortfolioSummaryServiceImpl portfolioSummaryService;
+
+    @BeforeEach
+    void setUp() {
+        portfolioSummaryService = new PortfolioSummaryServiceImpl(portfolioService, equityCurveCache,
+                new PortfolioDailyStatsRollup(portfolioDailyStatsRepository));
+    }
+
+    @Test
+    void getPortfolioEquity_shouldReadTheWindowFromTheCurve() {
+        // Given equity of 100, -50, -20 and 180 after Monday, Tuesday, Wednesday and Friday
+        when(portfolioService.findByPortfolioId("p1")).thenReturn(Optional.of(new PortfolioModel()));
+        when(equityCurveCache.get("p1")).thenReturn(EquityCurve.of(List.of(
+                closed(MONDAY, "100"), closed(MONDAY.plusDays(1), "-150"),
+                closed(MONDAY.plusDays(2), "30"), closed(MONDAY.plusDays(4), "200"))));
+
+        // When asking for Tuesday to Thursday
+        PortfolioEquityResponse equity = portfolioSummaryService.getPortfolioEquity("p1",
+                MONDAY.plusDays(1), MONDAY.plusDays(3));
+
+        // Then the window starts from Monday's close and leaves Friday out
+        assertMoney("100", equity.getStartEquity());
+        assertMoney("-20", equity.getEndEquity());
+        assertMoney("-120", equity.getProfitLoss());
+        assertMoney("100", equity.getHighestEquity());
+        assertMoney("-50", equity.getLowestEquity());
+        assertMoney("150", equity.getMaxDrawdown());
+        assertMoney("120", equity.getDrawdownAtEnd());
+    }
+
+    @Test
+    void getPortfolioEquity_shouldRejectARangeThatEndsBeforeItStarts() {
+        assertThrows(IllegalArgumentException.class,
+                () -> portfolioSummaryService.getPortfolioEquity("p1", MONDAY, MONDAY.minusDays(1)));
+        verifyNoInteractions(portfolioService, equityCurveCache);
+    }
+
+    @Test
+    void getPortfolioDistribution_shouldMergeTheSketchesOfTheDaysInRange() {
+        // Given two days; holding times only on the first and no position sizes at all
+        when(portfolioService.findByPortfolioId("p1")).thenReturn(Optional.of(new PortfolioModel()));
+        when(portfolioDailyStatsRepository.findByPortfolioIdAndDateBetween("p1",
+                MONDAY.atStartOfDay(), MONDAY.plusDays(4).atStartOfDay()))
+                .thenReturn(List.of(
+                        day(new double[] {10, 20}, new double[] {60, 120}),
+                        day(new double[] {-5, 40, 30}, new double[] {Double.NaN, Double.NaN, Double.NaN})));
+
+        // When
+        TradeDistributionMetrics distribution = portfolioSummaryService.getPortfolioDistribution("p1",
+                MONDAY, MONDAY.plusDays(4));
+
+        // Then the percentiles are those of all five trades, within the sketch's 1%
+        Map<String, BigDecimal> profitLoss = distribution.getProfitLossPercentiles();
+        assertEquals(-5, profitLoss.get("P10").doubleValue(), 0.05);
+        assertEquals(10, profitLoss.get("P25").doubleValue(), 0.1);
+        assertEquals(20, profitLoss.get("P50").doubleValue(), 0.2);
+        assertEquals(30, profitLoss.get("P75").doubleValue(), 0.3);
+        assertEquals(40, profitLoss.get("P90").doubleValue(), 0.4);
+        assertEquals(60, distribution.getHoldingMinutesPercentiles().get("P10").doubleValue(), 0.6);
+        assertEquals(120, distribution.getHoldingMinutesPercentiles().get("P90").doubleValue(), 1.2);
+        assertNull(distribution.getPositionSizePercentiles());
+    }
+
+    @Test
+    void getPortfolioDistribution_shouldRejectAnUnknownPortfolioWithoutReadingTheRollup() {
+        when(portfolioService.findByPortfolioId("missing")).thenReturn(Optional.empty());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> portfolioSummaryService.getPortfolioDistribution("missing", MONDAY, MONDAY.plusDays(4)));
+        verifyNoInteractions(portfolioDailyStatsRepository);
+    }
+
+    @Test
+    void getPortfolioDistribution_shouldRejectARangeThatEndsBeforeItStarts() {
+        assertThrows(IllegalArgumentException.class,
+                () -> portfolioSummaryService.getPortfolioDistribution("p1", MONDAY, MONDAY.minusDays(1)));
+        verifyNoInteractions(portfolioService, portfolioDailyStatsRepository);
+    }
+
+    private static PortfolioDailyStats closed(LocalDate date, String profitLoss) {
+        return PortfolioDailyStats.builder()
+                .date(date.atStartOfDay())
+                .profitLoss(new BigDecimal(profitLoss))
+                .build();
+    }
+
+    private static void assertMoney(String expected, BigDecimal actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), () -> "expected " + expected + " but was " + actual);
+    }
+
+    /**
+     * A stored day of trades with the given profit/loss and holding minutes; NaN leaves a value out
+     */
+    private static PortfolioDailyStats day(double[] profitLoss, double[] holdingMinutes) {
+        TradeSketches sketches = new TradeSketches();
+        for (int i = 0; i < profitLoss.length; i++) {
+            sketches.add(profitLoss[i], Double.NaN, Double.NaN, holdingMinutes[i], 1);
+        }
+        return PortfolioDailyStats.builder()
+                .profitLossSketch(sketches.getProfitLoss().toBuckets())
+                .returnSketch(sketches.getReturnPercentage().toBuckets())
+                .positionSizeSketch(sketches.getPositionSize().toBuckets())
+                .holdingMinutesSketch(sketches.getHoldingMinutes().toBuckets())
+                .build();
+    }
+}
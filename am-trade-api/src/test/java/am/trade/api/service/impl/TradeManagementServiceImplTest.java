@@ -7,19 +7,18 @@ import am.trade.services.service.TradeDetailsService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertFalse;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -43,7 +42,7 @@ class TradeManagementServiceImplTest {
     }
 
     @Test
-    void getTradeDetailsByMonth_shouldFilterTradesCorrectly() {
+    void getTradeDetailsByMonth_shouldQueryTheWholeMonthAndGroupByPortfolio() {
         // Given
         String portfolioId = "test-portfolio";
         int year = 2020;
@@ -58,29 +57,39 @@ class TradeManagementServiceImplTest {
         // Trade 3: Inside July 2020 (End)
         TradeDetails trade3 = createTrade("t3", portfolioId, LocalDateTime.of(2020, 7, 31, 23, 59, 59));
 
-        // Trade 4: Outside (June)
-        TradeDetails trade4 = createTrade("t4", portfolioId, LocalDateTime.of(2020, 6, 30, 23, 59, 59));
-
-        // Trade 5: Outside (August)
-        TradeDetails trade5 = createTrade("t5", portfolioId, LocalDateTime.of(2020, 8, 1, 0, 0));
-
-        when(portfolioRepository.findByPortfolioId(portfolioId)).thenReturn(java.util.Optional.empty());
-        when(tradeDetailsService.findModelsByPortfolioId(portfolioId))
-                .thenReturn(Arrays.asList(trade1, trade2, trade3, trade4, trade5));
+        ArgumentCaptor<LocalDateTime> start = ArgumentCaptor.forClass(LocalDateTime.class);
+        ArgumentCaptor<LocalDateTime> end = ArgumentCaptor.forClass(LocalDateTime.class);
+        when(tradeDetailsService.findModelsByPortfolioIdAndEntryDateBetween(eq(portfolioId), start.capture(),
+                end.capture())).thenReturn(Arrays.asList(trade1, trade2, trade3));
 
         // When
         Map<String, List<TradeDetails>> result = tradeManagementService.getTradeDetailsByMonth(year, month,
                 portfolioId);
 
+        // Then the repository range covers exactly July 2020
+        assertEquals(LocalDateTime.of(2020, 7, 1, 0, 0), start.getValue());
+        assertEquals(LocalDate.of(2020, 8, 1).atStartOfDay().minusNanos(1), end.getValue());
+        assertEquals(Map.of(portfolioId, List.of(trade1, trade2, trade3)), result);
+    }
+
+    @Test
+    void getTradeDetailsByMonth_shouldQueryAllPortfoliosWithoutAPortfolioId() {
+        // Given
+        TradeDetails first = createTrade("t1", "p1", LocalDateTime.of(2020, 7, 2, 9, 15));
+        TradeDetails second = createTrade("t2", "p2", LocalDateTime.of(2020, 7, 3, 9, 15));
+
+        ArgumentCaptor<LocalDateTime> start = ArgumentCaptor.forClass(LocalDateTime.class);
+        ArgumentCaptor<LocalDateTime> end = ArgumentCaptor.forClass(LocalDateTime.class);
+        when(tradeDetailsService.findModelsByEntryDateBetween(start.capture(), end.capture()))
+                .thenReturn(Arrays.asList(first, second));
+
+        // When
+        Map<String, List<TradeDetails>> result = tradeManagementService.getTradeDetailsByMonth(2020, 7, null);
+
         // Then
-        assertTrue(result.containsKey(portfolioId));
-        List<TradeDetails> trades = result.get(portfolioId);
-        assertEquals(3, trades.size());
-        assertTrue(trades.contains(trade1));
-        assertTrue(trades.contains(trade2));
-        assertTrue(trades.contains(trade3));
-        assertFalse(trades.contains(trade4));
-        assertFalse(trades.contains(trade5));
+        assertEquals(LocalDateTime.of(2020, 7, 1, 0, 0), start.getValue());
+        assertEquals(LocalDate.of(2020, 8, 1).atStartOfDay().minusNanos(1), end.getValue());
+        assertEquals(Map.of("p1", List.of(first), "p2", List.of(second)), result);
     }
 
     private TradeDetails createTrade(String id, String portfolioId, LocalDateTime entryTime) {
@@ -0,0 +1,196 @@
+package am.trade.api.service.impl;
+
+import am.trade.api.dto.DateRangeFilter;
+import am.trade.api.dto.MetricsFilterRequest;
+import am.trade.api.dto.MetricsResponse;
+import am.trade.api.service.cache.MetricsResultCache;
+import am.trade.common.models.EntryExitInfo;
+import am.trade.common.models.PerformanceMetrics;
+import am.trade.common.models.TradeDetails;
+import am.trade.common.models.TradeDistributionMetrics;
+import am.trade.common.models.TradeMetrics;
+import am.trade.dashboard.service.metrics.MetricsFamilyExecutor;
+import am.trade.dashboard.service.metrics.PerformanceMetricsService;
+import am.trade.dashboard.service.metrics.RiskMetricsService;
+import am.trade.dashboard.service.metrics.TradeDistributionMetricsService;
+import am.trade.dashboard.service.metrics.TradePatternMetricsService;
+import am.trade.dashboard.service.metrics.TradeTimingMetricsService;
+import am.trade.dashboard.service.metrics.columns.TradeColumns;
+import am.trade.services.service.TradeDetailsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TradeMetricsServiceImplTest {
+
+    @Mock
+    private TradeDetailsService tradeDetailsService;
+    @Mock
+    private PerformanceMetricsService performanceMetricsService;
+    @Mock
+    private RiskMetricsService riskMetricsService;
+    @Mock
+    private TradeDistributionMetricsService distributionMetricsService;
+    @Mock
+    private TradeTimingMetricsService timingMetricsService;
+    @Mock
+    private TradePatternMetricsService patternMetricsService;
+    @Mock
+    private MetricsResultCache metricsResultCache;
+    @Mock
+    private ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private MetricsFamilyExecutor metricsFamilyExecutor;
+    private TradeMetricsServiceImpl tradeMetricsService;
+
+    @BeforeEach
+    void setUp() {
+        metricsFamilyExecutor = new MetricsFamilyExecutor(meterRegistryProvider, true, 2, 100, false);
+        tradeMetricsService = new TradeMetricsServiceImpl(tradeDetailsService, performanceMetricsService,
+                riskMetricsService, distributionMetricsService, timingMetricsService, patternMetricsService,
+                metricsFamilyExecutor, metricsResultCache);
+        when(metricsResultCache.getOrCalculate(any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<MetricsResponse>>getArgument(1).get());
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        metricsFamilyExecutor.shutdown();
+    }
+
+    @Test
+    void getMetrics_shouldListFamiliesThatFailedOrMissedTheDeadlineAsIncomplete() {
+        // Given a family past the deadline, a failing one and one that finishes
+        TradeDistributionMetrics distribution = new TradeDistributionMetrics();
+        when(performanceMetricsService.calculateMetrics(anyList())).thenAnswer(invocation -> {
+            release.await(10, TimeUnit.SECONDS);
+            return new PerformanceMetrics();
+        });
+        when(riskMetricsService.calculateMetrics(any(TradeColumns.class)))
+                .thenThrow(new IllegalStateException("no prices"));
+        when(distributionMetricsService.calculateMetrics(anyList())).thenReturn(distribution);
+
+        // When
+        MetricsResponse response = tradeMetricsService.getMetrics(request("PERFORMANCE", "RISK", "DISTRIBUTION"));
+
+        // Then the finished family is returned and the others are reported
+        assertEquals(List.of("performance", "risk"), response.getMetadata().get("incompleteMetrics"));
+        assertSame(distribution, response.getDistributionMetrics());
+        assertNull(response.getPerformanceMetrics());
+        assertNull(response.getRiskMetrics());
+    }
+
+    @Test
+    void getMetrics_shouldNotMarkACompleteResponseIncomplete() {
+        // Given
+        PerformanceMetrics performance = new PerformanceMetrics();
+        when(performanceMetricsService.calculateMetrics(anyList())).thenReturn(performance);
+
+        // When
+        MetricsResponse response = tradeMetricsService.getMetrics(request("PERFORMANCE"));
+
+        // Then
+        assertSame(performance, response.getPerformanceMetrics());
+        assertFalse(response.getMetadata().containsKey("incompleteMetrics"));
+    }
+
+    @Test
+    void getMetricsTrends_shouldMatchGetMetricsForEachInterval() {
+        // Given trades across three months, one before the start date and one after the end date
+        List<TradeDetails> trades = List.of(
+                trade(LocalDateTime.of(2025, 1, 5, 10, 0), "100"),
+                trade(LocalDateTime.of(2025, 1, 31, 23, 59), "-30"),
+                trade(LocalDateTime.of(2025, 2, 10, 9, 30), "-200"),
+                trade(LocalDateTime.of(2025, 3, 1, 0, 0), "20"),
+                trade(LocalDateTime.of(2025, 3, 25, 15, 0), "30"),
+                trade(LocalDateTime.of(2025, 4, 1, 9, 0), "500"));
+        when(tradeDetailsService.findMetricsViewsByPortfolioIdInAndEntryInfoTimestampBetween(anyList(), any(), any()))
+                .thenAnswer(invocation -> {
+                    LocalDateTime from = invocation.getArgument(1);
+                    LocalDateTime to = invocation.getArgument(2);
+                    return trades.stream()
+                            .filter(trade -> !trade.getEntryInfo().getTimestamp().isBefore(from)
+                                    && !trade.getEntryInfo().getTimestamp().isAfter(to))
+                            .toList();
+                });
+        when(performanceMetricsService.calculateMetrics(anyList())).thenAnswer(invocation -> PerformanceMetrics.builder()
+                .totalProfitLoss(invocation.<List<TradeDetails>>getArgument(0).stream()
+                        .map(trade -> trade.getMetrics().getProfitLoss())
+                        .reduce(BigDecimal.ZERO, BigDecimal::add))
+                .build());
+
+        // When
+        Map<String, List<MetricsResponse>> trends = tradeMetricsService.getMetricsTrends(
+                List.of("p1"), Set.of("PERFORMANCE"), LocalDate.of(2025, 1, 15), LocalDate.of(2025, 3, 20), "MONTH");
+
+        // Then every interval equals a separate getMetrics call over that interval
+        List<MetricsResponse> intervals = trends.values().stream().flatMap(List::stream).toList();
+        assertEquals(3, intervals.size());
+        BigDecimal cumulative = BigDecimal.ZERO;
+        BigDecimal peak = BigDecimal.ZERO;
+        for (MetricsResponse interval : intervals) {
+            MetricsResponse perPeriod = tradeMetricsService.getMetrics(MetricsFilterRequest.builder()
+                    .portfolioIds(List.of("p1"))
+                    .dateRange(DateRangeFilter.builder()
+                            .startDate(interval.getStartDate())
+                            .endDate(interval.getEndDate())
+                            .build())
+                    .metricTypes(Set.of("PERFORMANCE"))
+                    .build());
+
+            assertEquals(perPeriod.getTotalTradesCount(), interval.getTotalTradesCount());
+            assertEquals(perPeriod.getPerformanceMetrics(), interval.getPerformanceMetrics());
+
+            cumulative = cumulative.add(perPeriod.getPerformanceMetrics().getTotalProfitLoss());
+            peak = peak.max(cumulative);
+            assertEquals(0, cumulative.compareTo(interval.getCumulativeProfitLoss()));
+            assertEquals(0, peak.subtract(cumulative).compareTo(interval.getDrawdown()));
+        }
+        assertEquals(0, new BigDecimal("-110").compareTo(cumulative));
+    }
+
+    private static MetricsFilterRequest request(String... metricTypes) {
+        return MetricsFilterRequest.builder()
+                .portfolioIds(List.of("p1"))
+                .dateRange(DateRangeFilter.builder()
+                        .startDate(LocalDate.of(2025, 3, 1))
+                        .endDate(LocalDate.of(2025, 3, 31))
+                        .build())
+                .metricTypes(Set.of(metricTypes))
+                .build();
+    }
+
+    private static TradeDetails trade(LocalDateTime entryTime, String profitLoss) {
+        return TradeDetails.builder()
+                .portfolioId("p1")
+                .entryInfo(EntryExitInfo.builder().timestamp(entryTime).build())
+                .metrics(TradeMetrics.builder().profitLoss(new BigDecimal(profitLoss)).build())
+                .build();
+    }
+}
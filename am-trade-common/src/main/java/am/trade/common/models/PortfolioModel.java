@@ -32,14 +32,12 @@ public class PortfolioModel {
     // Portfolio metrics
     private PortfolioMetrics metrics;
     
-    // List of all trades in this portfolio
-    private List<String> tradeIds;
-    
-    // Sorted lists of winning and losing trades
-    private List<String> winningTradeIds;  // Sorted by profit (highest profit first)
-    private List<String> losingTradeIds;   // Sorted by loss (highest loss first)
+    // Member trades are the trade_details documents carrying this portfolioId
     
     // Asset allocation
     private List<AssetAllocation> assetAllocations;
 
+    // Optimistic lock version of the stored document (null if never versioned)
+    private Long version;
+
 }
@@ -0,0 +1,45 @@
+package am.trade.common.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk trade details write: the trades that were saved and,
+ * for every trade that was not, the reason it failed.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TradeBulkSaveResult {
+
+    @Builder.Default
+    private List<TradeDetails> saved = new ArrayList<>();
+
+    @Builder.Default
+    private List<Failure> failures = new ArrayList<>();
+
+    public boolean hasFailures() {
+        return failures != null && !failures.isEmpty();
+    }
+
+    /**
+     * A trade that could not be written
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Failure {
+        // Position of the trade in the submitted list
+        private int index;
+        private String tradeId;
+        private int code;
+        private String message;
+    }
+}
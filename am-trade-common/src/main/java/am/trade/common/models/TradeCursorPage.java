@@ -0,0 +1,38 @@
+package am.trade.common.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A keyset page of trades, newest entry first. Pass {@code nextCursor} back to get the
+ * following page; it is absent on the last one. No total is computed, so every page
+ * costs the same however deep it is.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TradeCursorPage {
+
+    @Builder.Default
+    private List<TradeDetails> trades = new ArrayList<>();
+
+    // Requested page size
+    private int size;
+
+    private String nextCursor;
+
+    @JsonProperty("hasNext")
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -66,4 +66,10 @@ public class TradeDistributionMetrics {
     private Map<String, Integer> tradesBySetup; // Different trade setups
     private Map<String, BigDecimal> profitBySetup;
     private Map<String, BigDecimal> winRateBySetup;
+
+    // Percentiles P10 to P90, estimated from mergeable sketches within 1%
+    private Map<String, BigDecimal> profitLossPercentiles;
+    private Map<String, BigDecimal> returnPercentiles;
+    private Map<String, BigDecimal> positionSizePercentiles;
+    private Map<String, BigDecimal> holdingMinutesPercentiles;
 }
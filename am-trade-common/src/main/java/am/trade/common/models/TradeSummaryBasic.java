@@ -58,4 +58,10 @@ public class TradeSummaryBasic {
     
     // Reference to detailed metrics document
     private String detailedMetricsId;
+
+    // Time of the oldest trade write not yet reflected in the detailed metrics; null when up to date
+    private LocalDateTime metricsDirtySince;
+
+    // Time of the latest trade write; a calculation that started before it does not clear the dirty mark
+    private LocalDateTime tradesLastWrittenAt;
 }
@@ -0,0 +1,229 @@
+package am.trade.common.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Mergeable quantile sketch with bounded relative error, in the style of DDSketch.
+ *
+ * <p>Values are counted in logarithmic buckets: bucket {@code i} holds the magnitudes in
+ * {@code (GAMMA^(i-1), GAMMA^i]}, with positive and negative values kept apart and magnitudes
+ * below {@link #MIN_MAGNITUDE} counted as zero. Any quantile is then within
+ * {@link #RELATIVE_ACCURACY} of a value of the population, however many values were added.
+ *
+ * <p>A sketch is just its bucket counts, so merging two sketches adds their counts and gives
+ * exactly the sketch of both populations, in any order. Counts may also be subtracted, which
+ * lets a stored sketch follow values that change or go away; while a sketch carries such a
+ * delta its counts may be negative, and buckets without a positive count take no part in
+ * quantiles. The storage form of {@link #toBuckets()} keys each count by
+ * {@link #bucket(double)} and can be incremented in place.
+ *
+ * <p>Not thread-safe.
+ */
+public final class QuantileSketch {
+
+    /** Relative error of every quantile; stored buckets depend on it */
+    public static final double RELATIVE_ACCURACY = 0.01;
+
+    /** Magnitudes below this count as zero */
+    public static final double MIN_MAGNITUDE = 1e-4;
+
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    private static final String ZERO_BUCKET = "z";
+    private static final char POSITIVE = 'p';
+    private static final char NEGATIVE = 'n';
+
+    private final TreeMap<Integer, Long> positive = new TreeMap<>();
+    private final TreeMap<Integer, Long> negative = new TreeMap<>();
+    private long zero;
+
+    /**
+     * Sketch of stored bucket counts
+     *
+     * @param buckets Counts keyed by {@link #bucket(double)}; may be null
+     * @return Sketch of the counts; unknown keys are ignored
+     */
+    public static QuantileSketch of(Map<String, Long> buckets) {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.addBuckets(buckets);
+        return sketch;
+    }
+
+    /**
+     * Storage key of the bucket a value falls in, such as {@code p482}, {@code n-12} or
+     * {@code z}; never contains a dot, so it can be used as a document field name
+     *
+     * @throws IllegalArgumentException if the value is NaN or infinite
+     */
+    public static String bucket(double value) {
+        if (!Double.isFinite(value)) {
+            throw new IllegalArgumentException("Cannot sketch " + value);
+        }
+        double magnitude = Math.abs(value);
+        if (magnitude < MIN_MAGNITUDE) {
+            return ZERO_BUCKET;
+        }
+        return (value > 0 ? POSITIVE : NEGATIVE) + Integer.toString(index(magnitude));
+    }
+
+    /**
+     * Count a value once; NaN and infinite values are ignored
+     */
+    public void add(double value) {
+        add(value, 1);
+    }
+
+    /**
+     * Count a value {@code count} times; a negative count takes earlier occurrences out.
+     * NaN and infinite values are ignored.
+     */
+    public void add(double value, long count) {
+        if (!Double.isFinite(value) || count == 0) {
+            return;
+        }
+        double magnitude = Math.abs(value);
+        if (magnitude < MIN_MAGNITUDE) {
+            zero += count;
+        } else {
+            increment(value > 0 ? positive : negative, index(magnitude), count);
+        }
+    }
+
+    /**
+     * Add stored bucket counts to this sketch
+     *
+     * @param buckets Counts keyed by {@link #bucket(double)}; may be null
+     */
+    public void addBuckets(Map<String, Long> buckets) {
+        if (buckets == null) {
+            return;
+        }
+        for (Map.Entry<String, Long> bucket : buckets.entrySet()) {
+            String key = bucket.getKey();
+            long count = bucket.getValue() != null ? bucket.getValue() : 0;
+            if (key == null || key.isEmpty() || count == 0) {
+                continue;
+            }
+            if (key.equals(ZERO_BUCKET)) {
+                zero += count;
+                continue;
+            }
+            try {
+                int index = Integer.parseInt(key.substring(1));
+                if (key.charAt(0) == POSITIVE) {
+                    increment(positive, index, count);
+                } else if (key.charAt(0) == NEGATIVE) {
+                    increment(negative, index, count);
+                }
+            } catch (NumberFormatException e) {
+                // Not a bucket of this sketch
+            }
+        }
+    }
+
+    /**
+     * Add the counts of another sketch to this one
+     */
+    public void merge(QuantileSketch other) {
+        other.positive.forEach((index, count) -> increment(positive, index, count));
+        other.negative.forEach((index, count) -> increment(negative, index, count));
+        zero += other.zero;
+    }
+
+    /**
+     * Non-zero bucket counts keyed by {@link #bucket(double)}
+     */
+    public Map<String, Long> toBuckets() {
+        Map<String, Long> buckets = new HashMap<>();
+        positive.forEach((index, count) -> buckets.put(POSITIVE + Integer.toString(index), count));
+        negative.forEach((index, count) -> buckets.put(NEGATIVE + Integer.toString(index), count));
+        if (zero != 0) {
+            buckets.put(ZERO_BUCKET, zero);
+        }
+        return buckets;
+    }
+
+    /**
+     * Number of values counted, leaving out buckets without a positive count
+     */
+    public long count() {
+        long count = Math.max(zero, 0);
+        for (long bucketCount : positive.values()) {
+            count += Math.max(bucketCount, 0);
+        }
+        for (long bucketCount : negative.values()) {
+            count += Math.max(bucketCount, 0);
+        }
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count() == 0;
+    }
+
+    /**
+     * Estimate a quantile
+     *
+     * @param quantile Between 0 and 1; 0.5 is the median
+     * @return Value within {@link #RELATIVE_ACCURACY} of the value of that rank, or NaN when
+     *         the sketch is empty
+     */
+    public double quantile(double quantile) {
+        if (quantile < 0 || quantile > 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1: " + quantile);
+        }
+        long count = count();
+        if (count == 0) {
+            return Double.NaN;
+        }
+
+        // Walk up from the most negative value to the first bucket that reaches the rank
+        double rank = quantile * (count - 1);
+        long seen = 0;
+        for (Map.Entry<Integer, Long> bucket : negative.descendingMap().entrySet()) {
+            seen += Math.max(bucket.getValue(), 0);
+            if (seen > rank) {
+                return -value(bucket.getKey());
+            }
+        }
+        seen += Math.max(zero, 0);
+        if (seen > rank) {
+            return 0;
+        }
+        double last = 0;
+        for (Map.Entry<Integer, Long> bucket : positive.entrySet()) {
+            if (bucket.getValue() <= 0) {
+                continue;
+            }
+            last = value(bucket.getKey());
+            seen += bucket.getValue();
+            if (seen > rank) {
+                return last;
+            }
+        }
+        return last;
+    }
+
+    private static int index(double magnitude) {
+        return (int) Math.ceil(Math.log(magnitude) / LOG_GAMMA);
+    }
+
+    /**
+     * Value a bucket stands for, equally far in relative terms from both of its bounds
+     */
+    private static double value(int index) {
+        return 2 * Math.pow(GAMMA, index) / (GAMMA + 1);
+    }
+
+    private static void increment(TreeMap<Integer, Long> buckets, int index, long count) {
+        long updated = buckets.getOrDefault(index, 0L) + count;
+        if (updated == 0) {
+            buckets.remove(index);
+        } else {
+            buckets.put(index, updated);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package am.trade.common.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import am.trade.common.models.EntryExitInfo;
+import am.trade.common.models.TradeDetails;
+import am.trade.common.models.TradeDistributionMetrics;
+import am.trade.common.models.TradeMetrics;
+
+/**
+ * {@link QuantileSketch Quantile sketches} of the distributions of a set of trades: profit/loss,
+ * return percentage, position size and holding time in minutes.
+ *
+ * <p>The same sketches are kept per day in the daily rollup and per group of grouped metrics,
+ * so percentiles of a date range or group come from merging sketches instead of sorting every
+ * trade. A trade only counts in the sketches whose value it has.
+ *
+ * <p>Not thread-safe.
+ */
+public final class TradeSketches {
+
+    // Percentiles reported by applyPercentiles
+    private static final String[] PERCENTILE_NAMES = {"P10", "P25", "P50", "P75", "P90"};
+    private static final double[] PERCENTILES = {0.10, 0.25, 0.50, 0.75, 0.90};
+    private static final int SCALE = 2;
+
+    private final QuantileSketch profitLoss;
+    private final QuantileSketch returnPercentage;
+    private final QuantileSketch positionSize;
+    private final QuantileSketch holdingMinutes;
+
+    public TradeSketches() {
+        this(new QuantileSketch(), new QuantileSketch(), new QuantileSketch(), new QuantileSketch());
+    }
+
+    private TradeSketches(QuantileSketch profitLoss, QuantileSketch returnPercentage,
+                          QuantileSketch positionSize, QuantileSketch holdingMinutes) {
+        this.profitLoss = profitLoss;
+        this.returnPercentage = returnPercentage;
+        this.positionSize = positionSize;
+        this.holdingMinutes = holdingMinutes;
+    }
+
+    /**
+     * Sketches of stored bucket counts, as written from {@link QuantileSketch#toBuckets()}
+     */
+    public static TradeSketches of(Map<String, Long> profitLoss, Map<String, Long> returnPercentage,
+                                   Map<String, Long> positionSize, Map<String, Long> holdingMinutes) {
+        return new TradeSketches(QuantileSketch.of(profitLoss), QuantileSketch.of(returnPercentage),
+                QuantileSketch.of(positionSize), QuantileSketch.of(holdingMinutes));
+    }
+
+    /**
+     * Count a trade once
+     */
+    public void add(TradeDetails trade) {
+        add(trade.getEntryInfo(), trade.getExitInfo(), trade.getMetrics(), 1);
+    }
+
+    /**
+     * Count a trade {@code count} times; a negative count takes it out again
+     */
+    public void add(EntryExitInfo entryInfo, EntryExitInfo exitInfo, TradeMetrics metrics, long count) {
+        add(metrics != null ? doubleOrNaN(metrics.getProfitLoss()) : Double.NaN,
+                metrics != null ? doubleOrNaN(metrics.getProfitLossPercentage()) : Double.NaN,
+                positionSize(entryInfo),
+                holdingMinutes(entryInfo, exitInfo),
+                count);
+    }
+
+    /**
+     * Count the values of a trade {@code count} times; NaN leaves a sketch out and a negative
+     * holding time is taken as a data error
+     */
+    public void add(double profitLoss, double returnPercentage, double positionSize, double holdingMinutes,
+                    long count) {
+        this.profitLoss.add(profitLoss, count);
+        this.returnPercentage.add(returnPercentage, count);
+        this.positionSize.add(positionSize, count);
+        if (holdingMinutes >= 0) {
+            this.holdingMinutes.add(holdingMinutes, count);
+        }
+    }
+
+    /**
+     * Add the counts of other sketches to these
+     */
+    public void merge(TradeSketches other) {
+        profitLoss.merge(other.profitLoss);
+        returnPercentage.merge(other.returnPercentage);
+        positionSize.merge(other.positionSize);
+        holdingMinutes.merge(other.holdingMinutes);
+    }
+
+    /**
+     * Set the percentiles of every non-empty sketch on distribution metrics
+     */
+    public void applyPercentiles(TradeDistributionMetrics metrics) {
+        if (!profitLoss.isEmpty()) {
+            metrics.setProfitLossPercentiles(percentiles(profitLoss));
+        }
+        if (!returnPercentage.isEmpty()) {
+            metrics.setReturnPercentiles(percentiles(returnPercentage));
+        }
+        if (!positionSize.isEmpty()) {
+            metrics.setPositionSizePercentiles(percentiles(positionSize));
+        }
+        if (!holdingMinutes.isEmpty()) {
+            metrics.setHoldingMinutesPercentiles(percentiles(holdingMinutes));
+        }
+    }
+
+    public QuantileSketch getProfitLoss() {
+        return profitLoss;
+    }
+
+    public QuantileSketch getReturnPercentage() {
+        return returnPercentage;
+    }
+
+    public QuantileSketch getPositionSize() {
+        return positionSize;
+    }
+
+    public QuantileSketch getHoldingMinutes() {
+        return holdingMinutes;
+    }
+
+    /**
+     * Entry price times quantity, or NaN when either is missing
+     */
+    public static double positionSize(EntryExitInfo entryInfo) {
+        if (entryInfo == null || entryInfo.getPrice() == null || entryInfo.getQuantity() == null) {
+            return Double.NaN;
+        }
+        return entryInfo.getPrice().doubleValue() * entryInfo.getQuantity();
+    }
+
+    /**
+     * Minutes from entry to exit at millisecond precision, as stored, or NaN when either time
+     * is missing
+     */
+    public static double holdingMinutes(EntryExitInfo entryInfo, EntryExitInfo exitInfo) {
+        if (entryInfo == null || exitInfo == null || entryInfo.getTimestamp() == null || exitInfo.getTimestamp() == null) {
+            return Double.NaN;
+        }
+        LocalDateTime entryTime = entryInfo.getTimestamp().truncatedTo(ChronoUnit.MILLIS);
+        LocalDateTime exitTime = exitInfo.getTimestamp().truncatedTo(ChronoUnit.MILLIS);
+        return ChronoUnit.MILLIS.between(entryTime, exitTime) / 60_000.0;
+    }
+
+    private static Map<String, BigDecimal> percentiles(QuantileSketch sketch) {
+        Map<String, BigDecimal> percentiles = new LinkedHashMap<>();
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            percentiles.put(PERCENTILE_NAMES[i], BigDecimal.valueOf(sketch.quantile(PERCENTILES[i]))
+                    .setScale(SCALE, RoundingMode.HALF_UP));
+        }
+        return percentiles;
+    }
+
+    private static double doubleOrNaN(BigDecimal value) {
+        return value != null ? value.doubleValue() : Double.NaN;
+    }
+}
@@ -0,0 +1,101 @@
+package am.trade.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuantileSketchTest {
+
+    private static final double[] QUANTILES = {0, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 1};
+
+    @Test
+    void quantile_shouldStayWithinTheRelativeAccuracyOfTheExactValue() {
+        Random random = new Random(7);
+        double[] values = new double[5000];
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 0; i < values.length; i++) {
+            // Signed and spread over several orders of magnitude, with some zeros
+            values[i] = i % 50 == 0 ? 0 : Math.pow(10, random.nextDouble() * 6 - 2) * (random.nextBoolean() ? 1 : -1);
+            sketch.add(values[i]);
+        }
+        Arrays.sort(values);
+
+        assertEquals(values.length, sketch.count());
+        for (double quantile : QUANTILES) {
+            double exact = values[(int) (quantile * (values.length - 1))];
+            double estimate = sketch.quantile(quantile);
+            assertEquals(exact, estimate, Math.abs(exact) * QuantileSketch.RELATIVE_ACCURACY + 1e-9,
+                    "quantile " + quantile);
+        }
+    }
+
+    @Test
+    void merge_shouldEqualTheSketchOfBothPopulations() {
+        QuantileSketch all = new QuantileSketch();
+        QuantileSketch first = new QuantileSketch();
+        QuantileSketch second = new QuantileSketch();
+        for (int i = -300; i < 700; i++) {
+            double value = i * 1.7;
+            all.add(value);
+            (i % 3 == 0 ? first : second).add(value);
+        }
+
+        first.merge(second);
+
+        assertEquals(all.toBuckets(), first.toBuckets());
+        assertEquals(all.quantile(0.5), first.quantile(0.5));
+    }
+
+    @Test
+    void add_shouldTakeValuesOutWithANegativeCount() {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.add(100);
+        sketch.add(-40);
+        sketch.add(0);
+
+        sketch.add(100, -1);
+
+        assertEquals(2, sketch.count());
+        assertFalse(sketch.toBuckets().containsKey(QuantileSketch.bucket(100)));
+        assertEquals(0, sketch.quantile(1));
+
+        // A delta that is only removals leaves the sketch empty for quantiles
+        QuantileSketch delta = new QuantileSketch();
+        delta.add(5, -1);
+        assertTrue(delta.isEmpty());
+        assertTrue(Double.isNaN(delta.quantile(0.5)));
+        assertEquals(Map.of(QuantileSketch.bucket(5), -1L), delta.toBuckets());
+    }
+
+    @Test
+    void of_shouldReadBackStoredBuckets() {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.add(12.5, 3);
+        sketch.add(-0.75);
+        sketch.add(0.00001);
+
+        Map<String, Long> buckets = sketch.toBuckets();
+        assertTrue(buckets.keySet().stream().noneMatch(key -> key.contains(".")));
+        assertEquals(buckets, QuantileSketch.of(buckets).toBuckets());
+        assertEquals(1L, buckets.get("z"));
+        assertEquals(0, QuantileSketch.of(null).count());
+    }
+
+    @Test
+    void add_shouldIgnoreValuesThatAreNotFinite() {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.add(Double.NaN);
+        sketch.add(Double.POSITIVE_INFINITY);
+
+        assertTrue(sketch.isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> QuantileSketch.bucket(Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> sketch.quantile(1.5));
+    }
+}
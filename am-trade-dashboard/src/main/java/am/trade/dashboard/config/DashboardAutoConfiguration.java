@@ -6,6 +6,7 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import am.trade.services.config.TradeServicesAutoConfiguration;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
@@ -13,8 +14,10 @@ import io.github.resilience4j.retry.RetryConfig;
 
 /**
  * Auto-configuration for dashboard metrics module
+ * Scheduling is enabled for the background metrics recalculation jobs
  */
 @AutoConfiguration
+@EnableScheduling
 @ConditionalOnProperty(prefix = "am.trade.dashboard", name = "enabled", havingValue = "true", matchIfMissing = true)
 @ComponentScan(basePackages = "am.trade.dashboard")
 @Import(TradeServicesAutoConfiguration.class)
@@ -7,9 +7,7 @@ import am.trade.dashboard.service.TradeMetricsCalculationService;
 import am.trade.services.service.impl.TradeSummaryServiceImpl;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
@@ -39,14 +37,18 @@ public class MetricsCalculationServiceImpl implements MetricsCalculationService
 
     /**
      * Calculate detailed metrics for a basic trade summary
-     * This method performs the actual calculation and updates the lastCalculatedTimestamp
+     * This method performs the actual calculation, updates the lastCalculatedTimestamp to the time
+     * the calculation started and clears the summary's dirty mark unless a trade was written since
+     * If any metric family could not be calculated, nothing is saved and the mark is kept
      *
      * @param basicSummary The basic trade summary to calculate metrics for
      * @return The detailed trade metrics
+     * @throws IllegalStateException if a metric family is missing from the calculation
      */
     @Override
     public TradeSummaryDetailed calculateDetailedMetrics(TradeSummaryBasic basicSummary) {
         log.info("Calculating detailed metrics for basic summary ID: {}", basicSummary.getId());
+        LocalDateTime calculatedFrom = LocalDateTime.now();
         
         // Get existing detailed summary or create a new one
         TradeSummaryDetailed detailedSummary = tradeSummaryService.findDetailedByBasicId(basicSummary.getId())
@@ -58,6 +60,7 @@ public class MetricsCalculationServiceImpl implements MetricsCalculationService
         // Calculate metrics using the existing trade metrics calculation service
         // We'll use the portfolioIds from the basic summary to calculate metrics
         TradeSummary calculatedSummary = tradeMetricsCalculationService.calculateAllMetrics(basicSummary.getPortfolioIds());
+        requireAllFamilies(basicSummary, calculatedSummary);
         
         // Transfer calculated metrics to detailed summary
         detailedSummary.setPerformanceMetrics(calculatedSummary.getPerformanceMetrics());
@@ -67,11 +70,25 @@ public class MetricsCalculationServiceImpl implements MetricsCalculationService
         detailedSummary.setPatternMetrics(calculatedSummary.getPatternMetrics());
         detailedSummary.setTradingFeedback(calculatedSummary.getTradingFeedback());
         
-        // Update calculation timestamp
-        detailedSummary.setLastCalculatedTimestamp(LocalDateTime.now());
+        // Update calculation timestamp; trades written after it are not reflected in these metrics
+        detailedSummary.setLastCalculatedTimestamp(calculatedFrom);
         
-        // Save and return the updated detailed summary
-        return tradeSummaryService.saveTradeSummaryDetailed(detailedSummary);
+        // Save the updated detailed summary before marking the basic summary up to date
+        TradeSummaryDetailed saved = tradeSummaryService.saveTradeSummaryDetailed(detailedSummary);
+        tradeSummaryService.clearMetricsDirty(basicSummary.getId(), calculatedFrom);
+        return saved;
+    }
+
+    /**
+     * The stored families are replaced as a whole, so a missing one would overwrite good metrics
+     * with nothing while the summary is marked up to date
+     */
+    private static void requireAllFamilies(TradeSummaryBasic basicSummary, TradeSummary calculated) {
+        if (calculated.getPerformanceMetrics() == null || calculated.getRiskMetrics() == null
+                || calculated.getDistributionMetrics() == null || calculated.getTimingMetrics() == null
+                || calculated.getPatternMetrics() == null || calculated.getTradingFeedback() == null) {
+            throw new IllegalStateException("Incomplete metrics for basic summary ID: " + basicSummary.getId());
+        }
     }
 
     /**
@@ -105,6 +122,16 @@ public class MetricsCalculationServiceImpl implements MetricsCalculationService
             return true;
         }
         
+        // Check if trades were written since the last calculation started; summaries marked
+        // dirty before the last-written time was kept only have the mark to go by
+        LocalDateTime lastWritten = basicSummary.getTradesLastWrittenAt() != null
+                ? basicSummary.getTradesLastWrittenAt() : basicSummary.getMetricsDirtySince();
+        if (lastWritten != null && lastWritten.isAfter(detailedSummary.getLastCalculatedTimestamp())) {
+            log.info("Metrics recalculation needed: Trades written since last calculation for ID: {}",
+                    basicSummary.getId());
+            return true;
+        }
+        
         log.debug("No metrics recalculation needed for basic summary ID: {}", basicSummary.getId());
         return false;
     }
@@ -145,34 +172,4 @@ public class MetricsCalculationServiceImpl implements MetricsCalculationService
         // Create and return composite summary
         return TradeSummary.fromBasicAndDetailed(basicSummary, detailedSummary);
     }
-
-    /**
-     * Scheduled task to recalculate expired metrics
-     * Runs at 2 AM every day by default
-     */
-    @Scheduled(cron = "${metrics.recalculation.cron:0 0 2 * * ?}")
-    @CacheEvict(value = "tradeSummaryCache", allEntries = true)
-    public void recalculateExpiredMetrics() {
-        log.info("Starting scheduled recalculation of expired metrics");
-        
-        // Get all active basic summaries
-        tradeSummaryService.findAllActiveBasic().forEach(basicSummary -> {
-            try {
-                // Get detailed summary
-                Optional<TradeSummaryDetailed> detailedOpt = 
-                        tradeSummaryService.findDetailedByBasicId(basicSummary.getId());
-                
-                // Check if recalculation is needed
-                if (detailedOpt.isEmpty() || needsRecalculation(basicSummary, detailedOpt.get())) {
-                    log.info("Recalculating metrics for basic summary ID: {}", basicSummary.getId());
-                    calculateDetailedMetrics(basicSummary);
-                }
-            } catch (Exception e) {
-                log.error("Error recalculating metrics for basic summary ID: {}", 
-                        basicSummary.getId(), e);
-            }
-        });
-        
-        log.info("Completed scheduled recalculation of expired metrics");
-    }
 }
@@ -2,6 +2,7 @@ package am.trade.dashboard.service;
 
 import am.trade.common.models.*;
 import am.trade.dashboard.service.metrics.*;
+import am.trade.dashboard.service.metrics.columns.TradeColumns;
 // Removed unused import
 import am.trade.persistence.entity.TradeDetailsEntity;
 import am.trade.persistence.mapper.TradeDetailsMapper;
@@ -32,6 +33,7 @@ public class TradeMetricsCalculationService {
     private final TradeTimingMetricsService timingMetricsService;
     private final TradePatternMetricsService patternMetricsService;
     private final TradingFeedbackService tradingFeedbackService;
+    private final MetricsFamilyExecutor metricsFamilyExecutor;
     
     private static final int SCALE = 4;
     private static final RoundingMode ROUNDING_MODE = HALF_UP;
@@ -43,7 +45,8 @@ public class TradeMetricsCalculationService {
                                          TradeDistributionMetricsService distributionMetricsService,
                                          TradeTimingMetricsService timingMetricsService,
                                          TradePatternMetricsService patternMetricsService,
-                                         TradingFeedbackService tradingFeedbackService) {
+                                         TradingFeedbackService tradingFeedbackService,
+                                         MetricsFamilyExecutor metricsFamilyExecutor) {
         this.tradeDetailsRepository = tradeDetailsRepository;
         this.tradeDetailsMapper = tradeDetailsMapper;
         this.performanceMetricsService = performanceMetricsService;
@@ -52,13 +55,18 @@ public class TradeMetricsCalculationService {
         this.timingMetricsService = timingMetricsService;
         this.patternMetricsService = patternMetricsService;
         this.tradingFeedbackService = tradingFeedbackService;
+        this.metricsFamilyExecutor = metricsFamilyExecutor;
     }
     
     /**
      * Calculate all metrics for a list of portfolio IDs
      * 
+     * The metric families are independent of each other and are calculated concurrently.
+     * The summary is persisted, so there is no deadline and it is never partial.
+     * 
      * @param portfolioIds List of portfolio IDs to calculate metrics for
      * @return A complete trade summary with all metrics calculated
+     * @throws IllegalStateException if any metric family fails
      */
     public TradeSummary calculateAllMetrics(List<String> portfolioIds) {
         List<TradeDetailsEntity> tradeEntities = tradeDetailsRepository.findByPortfolioIdIn(portfolioIds);
@@ -74,19 +82,25 @@ public class TradeMetricsCalculationService {
         summary.setPortfolioIds(portfolioIds);
         summary.setTradeDetails(trades);
         
-        // Calculate and set all metrics using specialized services
-        summary.setPerformanceMetrics(performanceMetricsService.calculateMetrics(trades));
-        summary.setRiskMetrics(riskMetricsService.calculateMetrics(trades));
-        summary.setDistributionMetrics(distributionMetricsService.calculateMetrics(trades));
-        summary.setTimingMetrics(timingMetricsService.calculateMetrics(trades));
-        summary.setPatternMetrics(patternMetricsService.calculateMetrics(trades));
-        
-        // Generate personalized trading feedback based on trade details
-        summary.setTradingFeedback(tradingFeedbackService.generateFeedback(trades));
+        // Calculate all metrics families in parallel using specialized services
+        TradeColumns columns = TradeColumns.of(trades);
+        MetricsFamilyExecutor.Batch families = metricsFamilyExecutor.completeBatch()
+                .submit("performance", () -> performanceMetricsService.calculateMetrics(trades), summary::setPerformanceMetrics)
+                .submit("risk", () -> riskMetricsService.calculateMetrics(columns), summary::setRiskMetrics)
+                .submit("distribution", () -> distributionMetricsService.calculateMetrics(trades), summary::setDistributionMetrics)
+                .submit("timing", () -> timingMetricsService.calculateMetrics(columns), summary::setTimingMetrics)
+                .submit("pattern", () -> patternMetricsService.calculateMetrics(trades), summary::setPatternMetrics)
+                // Generate personalized trading feedback based on trade details
+                .submit("feedback", () -> tradingFeedbackService.generateCompleteFeedback(trades), summary::setTradingFeedback);
         
-        // Set legacy metrics for backward compatibility
+        // Set legacy metrics for backward compatibility while the families run
         setLegacyMetrics(summary, trades);
         
+        List<String> missing = families.await();
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("Trade summary for portfolios " + portfolioIds + " is missing metrics: " + missing);
+        }
+        
         return summary;
     }
     
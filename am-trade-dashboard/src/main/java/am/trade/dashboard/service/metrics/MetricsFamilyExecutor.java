@@ -0,0 +1,305 @@
+package am.trade.dashboard.service.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Computes independent metric families (performance, risk, timing, ...) of one request
+ * concurrently, so a request takes about as long as its slowest family instead of the sum
+ * of all of them.
+ *
+ * <p>Families run on a shared, bounded executor: virtual threads when the JVM offers them
+ * (gated by a semaphore of {@code max-concurrency} permits, since the work is CPU bound),
+ * otherwise a fixed platform pool of {@code max-concurrency} threads whose queue overflow
+ * runs on the caller. Every family is timed under {@code dashboard.metrics.family}.
+ *
+ * <p>A {@link #batch()} has a deadline. Results are handed to their sinks on the calling
+ * thread when {@link Batch#await()} collects them, so sinks can write into plain,
+ * non thread-safe response objects. A family that fails or misses the deadline is skipped
+ * and reported back instead of failing the whole request. A late family keeps its worker
+ * until it finishes; only its result is dropped. Batches may be nested: a family can submit
+ * and await a batch of its own.
+ *
+ * <p>Partial results are only acceptable for interactive reads. Results that are persisted
+ * use a {@link #completeBatch()}, which waits for every family however long it takes.
+ */
+@Component
+@Slf4j
+public class MetricsFamilyExecutor {
+
+    private static final String FAMILY_TIMER = "dashboard.metrics.family";
+    private static final String TIMEOUT_COUNTER = "dashboard.metrics.family.timeouts";
+
+    // Set while the current thread is calculating a family
+    private static final ThreadLocal<Boolean> IN_FAMILY = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private final boolean enabled;
+    private final long deadlineMillis;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final MeterRegistry meterRegistry;
+
+    public MetricsFamilyExecutor(ObjectProvider<MeterRegistry> meterRegistryProvider,
+                                 @Value("${am.trade.dashboard.metrics.parallel.enabled:true}") boolean enabled,
+                                 @Value("${am.trade.dashboard.metrics.parallel.max-concurrency:0}") int maxConcurrency,
+                                 @Value("${am.trade.dashboard.metrics.parallel.deadline-ms:5000}") long deadlineMillis,
+                                 @Value("${am.trade.dashboard.metrics.parallel.virtual-threads:true}") boolean virtualThreads) {
+        this.enabled = enabled;
+        this.deadlineMillis = deadlineMillis;
+        this.meterRegistry = meterRegistryProvider.getIfAvailable();
+
+        int concurrency = maxConcurrency > 0 ? maxConcurrency : Runtime.getRuntime().availableProcessors();
+        ExecutorService virtual = virtualThreads ? newVirtualThreadExecutor() : null;
+        ExecutorService workers = virtual != null ? virtual : newPlatformExecutor(concurrency);
+        this.permits = virtual != null ? new Semaphore(concurrency) : null;
+        this.executor = meterRegistry != null
+                ? ExecutorServiceMetrics.monitor(meterRegistry, workers, "dashboardMetricsFamilies")
+                : workers;
+
+        log.info("Metrics families run {} on {} with up to {} at a time and a {} ms deadline",
+                enabled ? "in parallel" : "sequentially",
+                virtual != null ? "virtual threads" : "platform threads",
+                concurrency, deadlineMillis);
+    }
+
+    /**
+     * Start a batch of families whose deadline counts from now
+     */
+    public Batch batch() {
+        return new Batch(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMillis), true);
+    }
+
+    /**
+     * Start a batch without a deadline, for results that are persisted; only families that
+     * fail are reported missing
+     */
+    public Batch completeBatch() {
+        return new Batch(0L, false);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Metric families submitted for one request
+     */
+    public final class Batch {
+
+        private final long deadlineNanos;
+        private final boolean bounded;
+        private final List<Pending<?>> pending = new ArrayList<>();
+
+        private Batch(long deadlineNanos, boolean bounded) {
+            this.deadlineNanos = deadlineNanos;
+            this.bounded = bounded;
+        }
+
+        /**
+         * Start calculating a family; its result goes to {@code sink} during {@link #await()}
+         *
+         * @param family Family name, used in logs and meter tags
+         * @param calculation Calculation of the family; must not touch shared mutable state
+         * @param sink Receives the result on the awaiting thread
+         * @return This batch
+         */
+        public <T> Batch submit(String family, Supplier<T> calculation, Consumer<T> sink) {
+            Pending<T> task = new Pending<>(family, calculation, sink);
+            pending.add(task);
+            if (!enabled) {
+                task.run();
+                return this;
+            }
+            try {
+                executor.execute(permits != null ? task::runWithPermit : task::run);
+            } catch (RejectedExecutionException e) {
+                // Executor shut down: compute inline rather than drop the family
+                task.run();
+            }
+            return this;
+        }
+
+        /**
+         * Wait for the submitted families until the deadline and hand their results to the sinks
+         *
+         * When called from within a family (a nested batch) or without a deadline, families no
+         * worker has started yet are run on the calling thread instead of waited for, so nesting
+         * cannot starve the pool and a family left unclaimed cannot block the caller forever.
+         *
+         * @return Names of the families that failed or missed the deadline, empty when complete
+         */
+        public List<String> await() {
+            if (!bounded || IN_FAMILY.get()) {
+                pending.forEach(Pending::run);
+            }
+
+            List<String> missing = new ArrayList<>();
+            for (Pending<?> family : pending) {
+                if (!family.complete(bounded, deadlineNanos)) {
+                    missing.add(family.name);
+                }
+            }
+            if (!missing.isEmpty()) {
+                log.warn("Returning partial metrics; families not calculated: {}", missing);
+            }
+            return missing;
+        }
+    }
+
+    /**
+     * A submitted family; whichever thread claims it first (a worker or the awaiting caller) runs it
+     */
+    private final class Pending<T> {
+
+        private final String name;
+        private final Supplier<T> calculation;
+        private final Consumer<T> sink;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private Pending(String name, Supplier<T> calculation, Consumer<T> sink) {
+            this.name = name;
+            this.calculation = calculation;
+            this.sink = sink;
+        }
+
+        private void run() {
+            if (!claimed.compareAndSet(false, true)) {
+                return;
+            }
+            boolean nested = IN_FAMILY.get();
+            IN_FAMILY.set(Boolean.TRUE);
+            try {
+                future.complete(time(name, calculation));
+            } catch (RuntimeException | Error e) {
+                future.completeExceptionally(e);
+            } finally {
+                IN_FAMILY.set(nested);
+            }
+        }
+
+        private void runWithPermit() {
+            if (claimed.get()) {
+                return;
+            }
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                // Left unclaimed, so the awaiting thread runs it
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                run();
+            } finally {
+                permits.release();
+            }
+        }
+
+        private void skip() {
+            if (claimed.compareAndSet(false, true)) {
+                future.cancel(false);
+            }
+        }
+
+        private boolean complete(boolean bounded, long deadlineNanos) {
+            T result;
+            try {
+                long remaining = Math.max(0L, deadlineNanos - System.nanoTime());
+                result = bounded ? future.get(remaining, TimeUnit.NANOSECONDS) : future.get();
+            } catch (TimeoutException | CancellationException e) {
+                // Never start it once its result can no longer be used
+                skip();
+                if (meterRegistry != null) {
+                    Counter.builder(TIMEOUT_COUNTER).tag("family", name).register(meterRegistry).increment();
+                }
+                log.warn("Metrics family {} missed the {} ms deadline", name, deadlineMillis);
+                return false;
+            } catch (ExecutionException e) {
+                log.error("Metrics family {} failed", name, e.getCause() != null ? e.getCause() : e);
+                return false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            sink.accept(result);
+            return true;
+        }
+    }
+
+    private <T> T time(String family, Supplier<T> calculation) {
+        long start = System.nanoTime();
+        String outcome = "failure";
+        try {
+            T result = calculation.get();
+            outcome = "success";
+            return result;
+        } finally {
+            if (meterRegistry != null) {
+                Timer.builder(FAMILY_TIMER)
+                        .tag("family", family)
+                        .tag("outcome", outcome)
+                        .register(meterRegistry)
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * Virtual-thread-per-task executor when running on a JVM that has one (Java 21+);
+     * looked up reflectively because the module is compiled for Java 17
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newPlatformExecutor(int threads) {
+        AtomicInteger threadCounter = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(threads * 16),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "metrics-family-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+}
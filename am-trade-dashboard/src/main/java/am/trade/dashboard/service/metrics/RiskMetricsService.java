@@ -2,13 +2,13 @@ package am.trade.dashboard.service.metrics;
 
 import am.trade.common.models.RiskMetrics;
 import am.trade.common.models.TradeDetails;
+import am.trade.dashboard.service.metrics.columns.TradeColumns;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.Arrays;
+import java.util.List;
 
 import static java.math.RoundingMode.HALF_UP;
 
@@ -30,83 +30,99 @@ public class RiskMetricsService {
             return new RiskMetrics();
         }
         
-        RiskMetrics metrics = new RiskMetrics();
+        return calculateMetrics(TradeColumns.of(trades));
+    }
+    
+    /**
+     * Calculate risk metrics from a column snapshot of trades
+     */
+    public RiskMetrics calculateMetrics(TradeColumns trades) {
+        if (trades == null || trades.size() == 0) {
+            return new RiskMetrics();
+        }
         
-        // Sort trades by date for chronological analysis
-        List<TradeDetails> sortedTrades = new ArrayList<>(trades);
-        sortedTrades.sort(Comparator.comparing(t -> t.getEntryInfo().getTimestamp()));
+        RiskMetrics metrics = new RiskMetrics();
         
         // Calculate drawdown metrics
-        BigDecimal cumulativeProfitLoss = BigDecimal.ZERO;
-        BigDecimal maxCumulativeProfitLoss = BigDecimal.ZERO;
-        BigDecimal maxDrawdown = BigDecimal.ZERO;
-        BigDecimal currentDrawdown = BigDecimal.ZERO;
+        long cumulativeProfitLoss = 0;
+        long maxCumulativeProfitLoss = 0;
+        long maxDrawdown = 0;
         
         // For Calmar ratio calculation
         BigDecimal annualReturn = BigDecimal.ZERO;
         
-        // For volatility calculation
-        List<BigDecimal> dailyReturns = new ArrayList<>();
-        Map<LocalDateTime, BigDecimal> dailyProfitLoss = new HashMap<>();
+        // Daily P/L for volatility calculation; rows come in entry-time order,
+        // so each day's trades are contiguous and only the open day is summed
+        long[] dailyProfitLoss = new long[16];
+        int dayCount = 0;
+        long currentDay = TradeColumns.NO_TIME;
         
         // For risk of ruin
         int consecutiveLosses = 0;
         int maxConsecutiveLosses = 0;
-        BigDecimal largestLoss = BigDecimal.ZERO;
+        long largestLoss = 0;
+        int winCount = 0;
         
-        // For position sizing analysis
-        BigDecimal totalPositionSize = BigDecimal.ZERO;
+        // For position sizing analysis (running mean and squared deviations)
+        double totalPositionSize = 0;
         int positionSizeCount = 0;
-        BigDecimal maxPositionSize = BigDecimal.ZERO;
-        List<BigDecimal> positionSizes = new ArrayList<>();
+        double maxPositionSize = 0;
+        double positionSizeMean = 0;
+        double positionSizeSquaredDeviations = 0;
         
-        // Process each trade for drawdown and other metrics
-        for (TradeDetails trade : sortedTrades) {
-            if (trade.getMetrics() == null || trade.getMetrics().getProfitLoss() == null) {
+        // Process trades chronologically for drawdown and other metrics
+        for (int row : trades.entryTimeOrder()) {
+            if (!trades.hasProfitLoss(row)) {
                 continue;
             }
             
-            BigDecimal profitLoss = trade.getMetrics().getProfitLoss();
+            long profitLoss = trades.profitLoss(row);
+            if (profitLoss > 0) {
+                winCount++;
+            }
             
             // Calculate position size if available
-            if (trade.getEntryInfo() != null && trade.getEntryInfo().getPrice() != null && 
-                trade.getEntryInfo().getQuantity() != null) {
-                BigDecimal positionSize = trade.getEntryInfo().getPrice()
-                    .multiply(BigDecimal.valueOf(trade.getEntryInfo().getQuantity().doubleValue()));
+            double price = trades.entryPrice(row);
+            double quantity = trades.quantity(row);
+            if (!Double.isNaN(price) && !Double.isNaN(quantity)) {
+                double positionSize = price * quantity;
                 
-                totalPositionSize = totalPositionSize.add(positionSize);
+                totalPositionSize += positionSize;
                 positionSizeCount++;
-                maxPositionSize = maxPositionSize.max(positionSize);
-                positionSizes.add(positionSize);
+                maxPositionSize = Math.max(maxPositionSize, positionSize);
+                double delta = positionSize - positionSizeMean;
+                positionSizeMean += delta / positionSizeCount;
+                positionSizeSquaredDeviations += delta * (positionSize - positionSizeMean);
                 
                 // Store daily P/L for volatility calculation
-                LocalDateTime tradeDate = trade.getEntryInfo().getTimestamp().toLocalDate().atStartOfDay();
-                dailyProfitLoss.merge(tradeDate, profitLoss, BigDecimal::add);
+                if (trades.hasEntryTime(row)) {
+                    long day = TradeColumns.epochDay(trades.entryTime(row));
+                    if (dayCount == 0 || day != currentDay) {
+                        if (dayCount == dailyProfitLoss.length) {
+                            dailyProfitLoss = Arrays.copyOf(dailyProfitLoss, dayCount * 2);
+                        }
+                        currentDay = day;
+                        dayCount++;
+                    }
+                    dailyProfitLoss[dayCount - 1] += profitLoss;
+                }
             }
             
             // Update cumulative P/L
-            cumulativeProfitLoss = cumulativeProfitLoss.add(profitLoss);
+            cumulativeProfitLoss += profitLoss;
             
-            // Update maximum cumulative P/L
-            if (cumulativeProfitLoss.compareTo(maxCumulativeProfitLoss) > 0) {
+            // Update maximum cumulative P/L, otherwise track the drawdown from it
+            if (cumulativeProfitLoss > maxCumulativeProfitLoss) {
                 maxCumulativeProfitLoss = cumulativeProfitLoss;
-                currentDrawdown = BigDecimal.ZERO;
             } else {
-                // Calculate current drawdown
-                currentDrawdown = maxCumulativeProfitLoss.subtract(cumulativeProfitLoss);
-                // Update max drawdown if current is larger
-                if (currentDrawdown.compareTo(maxDrawdown) > 0) {
-                    maxDrawdown = currentDrawdown;
-                }
+                maxDrawdown = Math.max(maxDrawdown, maxCumulativeProfitLoss - cumulativeProfitLoss);
             }
             
             // Track consecutive losses for risk of ruin
-            if (profitLoss.compareTo(BigDecimal.ZERO) < 0) {
+            if (profitLoss < 0) {
                 consecutiveLosses++;
                 // Track largest loss
-                if (profitLoss.abs().compareTo(largestLoss) > 0) {
-                    largestLoss = profitLoss.abs();
-                }
+                largestLoss = Math.max(largestLoss, -profitLoss);
             } else {
                 maxConsecutiveLosses = Math.max(maxConsecutiveLosses, consecutiveLosses);
                 consecutiveLosses = 0;
@@ -118,69 +134,40 @@ public class RiskMetricsService {
         
         // Calculate average position size
         BigDecimal averagePositionSize = positionSizeCount > 0 ?
-                totalPositionSize.divide(BigDecimal.valueOf(positionSizeCount), SCALE, ROUNDING_MODE) :
+                BigDecimal.valueOf(totalPositionSize / positionSizeCount).setScale(SCALE, ROUNDING_MODE) :
                 BigDecimal.ZERO;
         
         // Calculate position size standard deviation for consistency
-        BigDecimal positionSizeVariance = BigDecimal.ZERO;
-        if (positionSizeCount > 1) {
-            for (BigDecimal size : positionSizes) {
-                BigDecimal diff = size.subtract(averagePositionSize);
-                positionSizeVariance = positionSizeVariance.add(diff.multiply(diff));
-            }
-            positionSizeVariance = positionSizeVariance.divide(
-                BigDecimal.valueOf(positionSizeCount - 1), SCALE, ROUNDING_MODE);
-        }
+        BigDecimal positionSizeVariance = positionSizeCount > 1 ?
+                BigDecimal.valueOf(positionSizeSquaredDeviations / (positionSizeCount - 1)).setScale(SCALE, ROUNDING_MODE) :
+                BigDecimal.ZERO;
         BigDecimal positionSizeStdDev = sqrt(positionSizeVariance);
         
-        // Calculate daily returns for volatility
-        for (BigDecimal dailyPL : dailyProfitLoss.values()) {
-            dailyReturns.add(dailyPL);
-        }
-        
-        // Calculate volatility (standard deviation of returns)
-        BigDecimal volatility = calculateStandardDeviation(dailyReturns);
+        // Calculate volatility (standard deviation of daily returns)
+        BigDecimal volatility = calculateStandardDeviation(dailyProfitLoss, dayCount, false);
         
         // Calculate Sharpe Ratio (assuming risk-free rate of 0 for simplicity)
-        BigDecimal averageDailyReturn = calculateAverage(dailyReturns);
+        BigDecimal averageDailyReturn = calculateAverage(dailyProfitLoss, dayCount);
         BigDecimal sharpeRatio = volatility.compareTo(BigDecimal.ZERO) > 0 ?
                 averageDailyReturn.divide(volatility, SCALE, ROUNDING_MODE)
                     .multiply(BigDecimal.valueOf(Math.sqrt(252))) : // Annualized
                 BigDecimal.ZERO;
         
         // Calculate Sortino Ratio (only considering negative returns for downside risk)
-        List<BigDecimal> negativeReturns = dailyReturns.stream()
-                .filter(r -> r.compareTo(BigDecimal.ZERO) < 0)
-                .collect(Collectors.toList());
-        
-        BigDecimal downsideDeviation = calculateStandardDeviation(negativeReturns);
+        BigDecimal downsideDeviation = calculateStandardDeviation(dailyProfitLoss, dayCount, true);
         BigDecimal sortinoRatio = downsideDeviation.compareTo(BigDecimal.ZERO) > 0 ?
                 averageDailyReturn.divide(downsideDeviation, SCALE, ROUNDING_MODE)
                     .multiply(BigDecimal.valueOf(Math.sqrt(252))) :
                 BigDecimal.ZERO;
         
         // Calculate Calmar Ratio (annualized return / max drawdown)
-        BigDecimal calmarRatio = maxDrawdown.compareTo(BigDecimal.ZERO) > 0 ?
-                annualReturn.divide(maxDrawdown, SCALE, ROUNDING_MODE) :
+        BigDecimal calmarRatio = maxDrawdown > 0 ?
+                annualReturn.divide(TradeColumns.fromMoney(maxDrawdown), SCALE, ROUNDING_MODE) :
                 BigDecimal.ZERO;
         
         // Calculate risk of ruin based on win rate, risk-reward ratio and position sizing
-        BigDecimal winRate = BigDecimal.ZERO;
-        BigDecimal lossRate = BigDecimal.ZERO;
-        int winCount = 0;
-        
-        for (TradeDetails trade : trades) {
-            if (trade.getMetrics() != null && trade.getMetrics().getProfitLoss() != null) {
-                if (trade.getMetrics().getProfitLoss().compareTo(BigDecimal.ZERO) > 0) {
-                    winCount++;
-                }
-            }
-        }
-        
-        if (!trades.isEmpty()) {
-            winRate = BigDecimal.valueOf((double) winCount / trades.size());
-            lossRate = BigDecimal.ONE.subtract(winRate);
-        }
+        BigDecimal winRate = BigDecimal.valueOf((double) winCount / trades.size());
+        BigDecimal lossRate = BigDecimal.ONE.subtract(winRate);
         
         // Simple risk of ruin calculation (simplified version)
         BigDecimal riskOfRuin = BigDecimal.ONE;
@@ -192,18 +179,18 @@ public class RiskMetricsService {
         }
         
         // Set calculated metrics
-        metrics.setMaxDrawdown(maxDrawdown);
+        metrics.setMaxDrawdown(TradeColumns.fromMoney(maxDrawdown));
         metrics.setSharpeRatio(sharpeRatio);
         metrics.setSortinoRatio(sortinoRatio);
         metrics.setCalmarRatio(calmarRatio);
         metrics.setAveragePositionSize(averagePositionSize);
         metrics.setConsecutiveLossesToRuin(maxConsecutiveLosses);
-        metrics.setLargestPositionSize(largestLoss);
+        metrics.setLargestPositionSize(TradeColumns.fromMoney(largestLoss));
         
         // Set additional fields if they exist in the RiskMetrics class
         try {
             metrics.getClass().getMethod("setVolatility", BigDecimal.class).invoke(metrics, volatility);
-            metrics.getClass().getMethod("setMaxPositionSize", BigDecimal.class).invoke(metrics, maxPositionSize);
+            metrics.getClass().getMethod("setMaxPositionSize", BigDecimal.class).invoke(metrics, BigDecimal.valueOf(maxPositionSize));
             metrics.getClass().getMethod("setPositionSizeConsistency", BigDecimal.class).invoke(metrics, positionSizeStdDev);
             metrics.getClass().getMethod("setRiskOfRuin", BigDecimal.class).invoke(metrics, riskOfRuin);
         } catch (Exception e) {
@@ -226,36 +213,46 @@ public class RiskMetricsService {
     }
     
     /**
-     * Calculate standard deviation of a list of BigDecimal values
+     * Calculate sample standard deviation of the first {@code count} money values,
+     * optionally only of the negative ones
      */
-    private BigDecimal calculateStandardDeviation(List<BigDecimal> values) {
-        if (values == null || values.isEmpty() || values.size() < 2) {
-            return BigDecimal.ZERO;
-        }
+    private BigDecimal calculateStandardDeviation(long[] values, int count, boolean negativeOnly) {
+        int n = 0;
+        double mean = 0;
+        double squaredDeviations = 0;
         
-        BigDecimal mean = calculateAverage(values);
-        BigDecimal variance = BigDecimal.ZERO;
+        for (int i = 0; i < count; i++) {
+            if (negativeOnly && values[i] >= 0) {
+                continue;
+            }
+            double value = TradeColumns.moneyToDouble(values[i]);
+            n++;
+            double delta = value - mean;
+            mean += delta / n;
+            squaredDeviations += delta * (value - mean);
+        }
         
-        for (BigDecimal value : values) {
-            BigDecimal diff = value.subtract(mean);
-            variance = variance.add(diff.multiply(diff));
+        if (n < 2) {
+            return BigDecimal.ZERO;
         }
         
-        variance = variance.divide(BigDecimal.valueOf(values.size() - 1), SCALE, ROUNDING_MODE);
+        BigDecimal variance = BigDecimal.valueOf(squaredDeviations / (n - 1)).setScale(SCALE, ROUNDING_MODE);
         return sqrt(variance);
     }
     
     /**
-     * Calculate average of a list of BigDecimal values
+     * Calculate average of the first {@code count} money values
      */
-    private BigDecimal calculateAverage(List<BigDecimal> values) {
-        if (values == null || values.isEmpty()) {
+    private BigDecimal calculateAverage(long[] values, int count) {
+        if (count == 0) {
             return BigDecimal.ZERO;
         }
         
-        BigDecimal sum = values.stream()
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += values[i];
+        }
         
-        return sum.divide(BigDecimal.valueOf(values.size()), SCALE, ROUNDING_MODE);
+        return TradeColumns.fromMoney(sum).divide(BigDecimal.valueOf(count), SCALE, ROUNDING_MODE);
     }
 }
@@ -3,6 +3,7 @@ package am.trade.dashboard.service.metrics;
 import am.trade.common.models.TradeDetails;
 import am.trade.common.models.TradeDistributionMetrics;
 import am.trade.common.models.enums.AssetClass;
+import am.trade.common.util.TradeSketches;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
@@ -41,9 +42,12 @@ public class TradeDistributionMetricsService {
         Map<String, List<TradeDetails>> tradesByStrategy = new HashMap<>();
         Map<String, List<TradeDetails>> tradesByDuration = new HashMap<>();
         Map<String, List<TradeDetails>> tradesByPositionSize = new HashMap<>();
-        
+        TradeSketches sketches = new TradeSketches();
+
         // Process each trade
         for (TradeDetails trade : trades) {
+            sketches.add(trade);
+
             // Skip trades without entry info
             if (trade.getEntryInfo() == null || trade.getEntryInfo().getTimestamp() == null) {
                 continue;
@@ -142,7 +146,10 @@ public class TradeDistributionMetricsService {
         metrics.setTradesByPositionSize(convertToTradeCount(tradesByPositionSize));
         metrics.setProfitByPositionSize(profitByPositionSize);
         metrics.setWinRateByPositionSize(winRateByPositionSize);
-        
+
+        // Percentiles from sketches, which merge across days and groups without re-sorting
+        sketches.applyPercentiles(metrics);
+
         return metrics;
     }
     
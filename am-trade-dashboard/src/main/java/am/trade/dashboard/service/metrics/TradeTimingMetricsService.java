@@ -2,12 +2,11 @@ package am.trade.dashboard.service.metrics;
 
 import am.trade.common.models.TradeDetails;
 import am.trade.common.models.TradeTimingMetrics;
+import am.trade.dashboard.service.metrics.columns.TradeColumns;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
 
 import static java.math.RoundingMode.HALF_UP;
@@ -30,79 +29,69 @@ public class TradeTimingMetricsService {
             return new TradeTimingMetrics();
         }
         
-        TradeTimingMetrics metrics = new TradeTimingMetrics();
+        return calculateMetrics(TradeColumns.of(trades));
+    }
+    
+    /**
+     * Calculate timing metrics from a column snapshot of trades
+     */
+    public TradeTimingMetrics calculateMetrics(TradeColumns trades) {
+        if (trades == null || trades.size() == 0) {
+            return new TradeTimingMetrics();
+        }
         
-        // Sort trades by date for chronological analysis
-        List<TradeDetails> sortedTrades = new ArrayList<>(trades);
-        sortedTrades.sort(Comparator.comparing(t -> t.getEntryInfo().getTimestamp()));
+        TradeTimingMetrics metrics = new TradeTimingMetrics();
         
-        // Calculate entry timing quality
-        BigDecimal totalEntryQuality = BigDecimal.ZERO;
+        // Calculate entry and exit timing quality
+        double totalEntryQuality = 0;
         int entryQualityCount = 0;
-        
-        // Calculate exit timing quality
-        BigDecimal totalExitQuality = BigDecimal.ZERO;
+        double totalExitQuality = 0;
         int exitQualityCount = 0;
         
         // Calculate timing improvement over time
-        List<BigDecimal> entryQualityTrend = new ArrayList<>();
-        List<BigDecimal> exitQualityTrend = new ArrayList<>();
+        TrendSlope entryQualityTrend = new TrendSlope();
+        TrendSlope exitQualityTrend = new TrendSlope();
         
-        // Process each trade for timing metrics
-        for (TradeDetails trade : sortedTrades) {
-            if (trade.getMetrics() == null) {
+        // Process trades chronologically for timing metrics
+        for (int row : trades.entryTimeOrder()) {
+            if (!trades.hasProfitLoss(row)) {
                 continue;
             }
+            double profitLoss = TradeColumns.moneyToDouble(trades.profitLoss(row));
             
             // Calculate entry timing quality based on MAE (Maximum Adverse Excursion)
-            if (trade.getMetrics().getMaxAdverseExcursion() != null && 
-                trade.getMetrics().getProfitLoss() != null) {
-                
-                BigDecimal profitLoss = trade.getMetrics().getProfitLoss();
-                BigDecimal mae = trade.getMetrics().getMaxAdverseExcursion();
-                
+            double mae = trades.maxAdverseExcursion(row);
+            if (!Double.isNaN(mae)) {
                 // Entry quality: how close to the optimal entry point (lower MAE is better)
                 // Scale from 0-100 where 100 is perfect timing
-                BigDecimal entryQuality;
-                if (profitLoss.compareTo(BigDecimal.ZERO) > 0) {
+                double entryQuality;
+                if (profitLoss > 0) {
                     // For winning trades, lower MAE relative to profit is better
-                    if (mae.compareTo(BigDecimal.ZERO) == 0) {
-                        entryQuality = BigDecimal.valueOf(100); // Perfect entry
-                    } else {
-                        BigDecimal ratio = mae.divide(profitLoss.add(mae), SCALE, ROUNDING_MODE);
-                        entryQuality = BigDecimal.valueOf(100).multiply(BigDecimal.ONE.subtract(ratio));
-                    }
+                    entryQuality = mae == 0 ? 100 : 100 * (1 - mae / (profitLoss + mae));
                 } else {
                     // For losing trades, any MAE is bad
-                    entryQuality = BigDecimal.valueOf(25); // Base score for losing trades
+                    entryQuality = 25; // Base score for losing trades
                 }
                 
-                totalEntryQuality = totalEntryQuality.add(entryQuality);
+                totalEntryQuality += entryQuality;
                 entryQualityCount++;
                 entryQualityTrend.add(entryQuality);
             }
             
             // Calculate exit timing quality based on MFE (Maximum Favorable Excursion)
-            if (trade.getMetrics().getMaxFavorableExcursion() != null && 
-                trade.getMetrics().getProfitLoss() != null) {
-                
-                BigDecimal profitLoss = trade.getMetrics().getProfitLoss();
-                BigDecimal mfe = trade.getMetrics().getMaxFavorableExcursion();
-                
+            double mfe = trades.maxFavorableExcursion(row);
+            if (!Double.isNaN(mfe)) {
                 // Exit quality: how close to the optimal exit point (higher % of MFE captured is better)
                 // Scale from 0-100 where 100 is perfect timing
-                BigDecimal exitQuality;
-                if (mfe.compareTo(BigDecimal.ZERO) > 0) {
-                    // Calculate percentage of maximum potential profit captured
-                    BigDecimal capturedRatio = profitLoss.divide(mfe, SCALE, ROUNDING_MODE);
-                    exitQuality = BigDecimal.valueOf(100).multiply(capturedRatio);
-                    // Cap at 100
-                    exitQuality = exitQuality.min(BigDecimal.valueOf(100));
+                double exitQuality;
+                if (mfe > 0) {
+                    // Percentage of maximum potential profit captured, capped at 100
+                    exitQuality = Math.min(100, 100 * (profitLoss / mfe));
                 } else {
-                    exitQuality = BigDecimal.valueOf(50); // Neutral if no favorable excursion
+                    exitQuality = 50; // Neutral if no favorable excursion
                 }
                 
-                totalExitQuality = totalExitQuality.add(exitQuality);
+                totalExitQuality += exitQuality;
                 exitQualityCount++;
                 exitQualityTrend.add(exitQuality);
             }
@@ -110,20 +99,16 @@ public class TradeTimingMetricsService {
         
         // Calculate average entry and exit quality
         BigDecimal averageEntryQuality = entryQualityCount > 0 ?
-                totalEntryQuality.divide(BigDecimal.valueOf(entryQualityCount), SCALE, ROUNDING_MODE) :
+                BigDecimal.valueOf(totalEntryQuality / entryQualityCount).setScale(SCALE, ROUNDING_MODE) :
                 BigDecimal.ZERO;
         
         BigDecimal averageExitQuality = exitQualityCount > 0 ?
-                totalExitQuality.divide(BigDecimal.valueOf(exitQualityCount), SCALE, ROUNDING_MODE) :
+                BigDecimal.valueOf(totalExitQuality / exitQualityCount).setScale(SCALE, ROUNDING_MODE) :
                 BigDecimal.ZERO;
         
         // Calculate timing improvement trend
-        BigDecimal entryTimingImprovement = calculateTrendSlope(entryQualityTrend);
-        BigDecimal exitTimingImprovement = calculateTrendSlope(exitQualityTrend);
-        
-        // Calculate overall timing score
-        BigDecimal overallTimingScore = averageEntryQuality.add(averageExitQuality)
-                .divide(BigDecimal.valueOf(2), SCALE, ROUNDING_MODE);
+        BigDecimal entryTimingImprovement = entryQualityTrend.slope();
+        BigDecimal exitTimingImprovement = exitQualityTrend.slope();
         
         // Set calculated metrics
         metrics.setAverageEntryEfficiency(averageEntryQuality);
@@ -135,40 +120,30 @@ public class TradeTimingMetricsService {
     }
     
     /**
-     * Calculate trend slope from a list of values
-     * Positive value means improving trend, negative means deteriorating
+     * Running linear regression of values against their position (1, 2, 3, ...)
+     * Positive slope means improving trend, negative means deteriorating
      */
-    private BigDecimal calculateTrendSlope(List<BigDecimal> values) {
-        if (values == null || values.size() < 2) {
-            return BigDecimal.ZERO;
+    private static final class TrendSlope {
+        private long n;
+        private double sumX;
+        private double sumY;
+        private double sumXY;
+        private double sumXX;
+        
+        private void add(double y) {
+            double x = ++n;
+            sumX += x;
+            sumY += y;
+            sumXY += x * y;
+            sumXX += x * x;
         }
         
-        int n = values.size();
-        
-        // Simple linear regression slope calculation
-        BigDecimal sumX = BigDecimal.ZERO;
-        BigDecimal sumY = BigDecimal.ZERO;
-        BigDecimal sumXY = BigDecimal.ZERO;
-        BigDecimal sumXX = BigDecimal.ZERO;
-        
-        for (int i = 0; i < n; i++) {
-            BigDecimal x = BigDecimal.valueOf(i + 1);
-            BigDecimal y = values.get(i);
-            
-            sumX = sumX.add(x);
-            sumY = sumY.add(y);
-            sumXY = sumXY.add(x.multiply(y));
-            sumXX = sumXX.add(x.multiply(x));
+        private BigDecimal slope() {
+            if (n < 2) {
+                return BigDecimal.ZERO;
+            }
+            double slope = (sumXY * n - sumX * sumY) / (sumXX * n - sumX * sumX);
+            return BigDecimal.valueOf(slope).setScale(SCALE, ROUNDING_MODE);
         }
-        
-        BigDecimal slope = sumXY.multiply(BigDecimal.valueOf(n))
-            .subtract(sumX.multiply(sumY))
-            .divide(
-                sumXX.multiply(BigDecimal.valueOf(n))
-                .subtract(sumX.multiply(sumX)), 
-                SCALE, ROUNDING_MODE
-            );
-        
-        return slope;
     }
 }
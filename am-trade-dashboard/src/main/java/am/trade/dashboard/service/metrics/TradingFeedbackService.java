@@ -45,4 +45,21 @@ public class TradingFeedbackService {
             return new TradingFeedback(); // Return empty feedback object in case of error
         }
     }
+    
+    /**
+     * Generate trading feedback that is going to be persisted
+     * 
+     * Unlike {@link #generateFeedback(List)}, errors are not hidden behind an empty feedback
+     * object, so the caller does not store one over the previous feedback.
+     * 
+     * @param trades List of trade details
+     * @return TradingFeedback object with every analyzer's insights
+     * @throws FeedbackGenerationException if any analyzer fails
+     */
+    public TradingFeedback generateCompleteFeedback(List<TradeDetails> trades) {
+        if (trades == null || trades.isEmpty()) {
+            return new TradingFeedback();
+        }
+        return tradingFeedbackFacade.generateCompleteFeedback(trades);
+    }
 }
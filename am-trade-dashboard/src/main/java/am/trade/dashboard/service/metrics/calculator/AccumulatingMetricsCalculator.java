@@ -0,0 +1,16 @@
+package am.trade.dashboard.service.metrics.calculator;
+
+/**
+ * A metrics calculator that can take part in the registry's single pass over the trades.
+ * Calculators implementing this are not run on their own by {@link MetricsRegistry};
+ * their {@link #calculate} method stays available for direct use.
+ */
+public interface AccumulatingMetricsCalculator extends MetricsCalculator {
+
+    /**
+     * Create fresh running state for one pass
+     * 
+     * @return A new accumulator
+     */
+    TradeMetricsAccumulator newAccumulator();
+}
@@ -2,18 +2,14 @@ package am.trade.dashboard.service.metrics.calculator;
 
 import am.trade.common.models.PerformanceMetrics;
 import am.trade.common.models.TradeDetails;
-import am.trade.dashboard.service.metrics.calculator.impl.AverageTradeCalculator;
-import am.trade.dashboard.service.metrics.calculator.impl.BestWorstDayCalculator;
-import am.trade.dashboard.service.metrics.calculator.impl.ConsistencyMetricsCalculator;
-import am.trade.dashboard.service.metrics.calculator.impl.LargestTradeCalculator;
-import am.trade.dashboard.service.metrics.calculator.impl.TradeFrequencyCalculator;
-import am.trade.dashboard.service.metrics.calculator.impl.TimeBasedReturnCalculator;
-import lombok.RequiredArgsConstructor;
+import am.trade.dashboard.service.metrics.columns.TradeColumns;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.BiConsumer;
@@ -26,14 +22,42 @@ import java.util.function.BiConsumer;
  * calculation of various trading metrics.
  */
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class MetricsRegistry {
 
+    private static final Map<String, BiConsumer<PerformanceMetrics, BigDecimal>> METRIC_SETTERS = createMetricSetters();
+
     private final List<MetricsCalculator> calculators;
     
+    // Calculators folded into the single pass
+    private final List<AccumulatingMetricsCalculator> accumulatingCalculators = new ArrayList<>();
+    
+    // Remaining calculators whose result has a setter, run on their own
+    private final Map<MetricsCalculator, BiConsumer<PerformanceMetrics, BigDecimal>> standardCalculators = new LinkedHashMap<>();
+    
+    public MetricsRegistry(List<MetricsCalculator> calculators) {
+        this.calculators = calculators;
+        
+        for (MetricsCalculator calculator : calculators) {
+            if (calculator instanceof AccumulatingMetricsCalculator accumulatingCalculator) {
+                accumulatingCalculators.add(accumulatingCalculator);
+                continue;
+            }
+            
+            BiConsumer<PerformanceMetrics, BigDecimal> setter = METRIC_SETTERS.get(calculator.getMetricName());
+            if (setter != null) {
+                standardCalculators.put(calculator, setter);
+            } else {
+                log.warn("No setter found for metric: {}, calculator {} will not be run",
+                        calculator.getMetricName(), calculator.getClass().getSimpleName());
+            }
+        }
+    }
+    
     /**
-     * Calculate all metrics and apply them to the provided PerformanceMetrics object
+     * Calculate all metrics and apply them to the provided PerformanceMetrics object.
+     * Accumulating calculators share one walk over the trades in exit-time order;
+     * the remaining calculators are run individually.
      * 
      * @param trades List of trade details to analyze
      * @param metrics PerformanceMetrics object to populate with calculated values
@@ -44,32 +68,18 @@ public class MetricsRegistry {
             return;
         }
         
-        log.debug("Calculating metrics using {} calculators", calculators.size());
+        log.debug("Calculating metrics using {} accumulating and {} standard calculators",
+                accumulatingCalculators.size(), standardCalculators.size());
         
-        // Get mapping of metric names to setters
-        Map<String, BiConsumer<PerformanceMetrics, BigDecimal>> metricSetters = getMetricSetters();
-        
-        // Process special calculators first (those that calculate multiple metrics)
-        processSpecialCalculators(trades, metrics);
+        accumulateMetrics(trades, metrics);
         
         // Calculate and apply each standard metric
-        for (MetricsCalculator calculator : calculators) {
-            // Skip special calculators as they've already been processed
-            if (isSpecialCalculator(calculator)) {
-                continue;
-            }
-            
+        for (Map.Entry<MetricsCalculator, BiConsumer<PerformanceMetrics, BigDecimal>> entry : standardCalculators.entrySet()) {
+            MetricsCalculator calculator = entry.getKey();
             try {
-                String metricName = calculator.getMetricName();
                 BigDecimal value = calculator.calculate(trades);
-                
-                BiConsumer<PerformanceMetrics, BigDecimal> setter = metricSetters.get(metricName);
-                if (setter != null) {
-                    setter.accept(metrics, value);
-                    log.debug("Applied metric {}: {}", metricName, value);
-                } else {
-                    log.warn("No setter found for metric: {}", metricName);
-                }
+                entry.getValue().accept(metrics, value);
+                log.debug("Applied metric {}: {}", calculator.getMetricName(), value);
             } catch (Exception e) {
                 log.error("Error calculating metric with calculator: {}", calculator.getClass().getSimpleName(), e);
             }
@@ -77,95 +87,53 @@ public class MetricsRegistry {
     }
     
     /**
-     * Process special calculators that calculate multiple metrics at once
+     * Snapshot the trades into columns and walk them once in exit-time order, feeding every
+     * accumulator, then apply the results.
+     * An accumulator that fails is dropped for the rest of the pass without affecting the others.
      * 
      * @param trades List of trade details
      * @param metrics PerformanceMetrics object to update
      */
-    private void processSpecialCalculators(List<TradeDetails> trades, PerformanceMetrics metrics) {
-        // Process TimeBasedReturnCalculator
-        calculators.stream()
-                .filter(c -> c instanceof TimeBasedReturnCalculator)
-                .findFirst()
-                .ifPresent(calculator -> {
-                    try {
-                        TimeBasedReturnCalculator timeCalculator = (TimeBasedReturnCalculator) calculator;
-                        timeCalculator.calculateTimeBasedReturns(trades, metrics);
-                        log.debug("Applied time-based return metrics");
-                    } catch (Exception e) {
-                        log.error("Error calculating time-based metrics", e);
-                    }
-                });
+    private void accumulateMetrics(List<TradeDetails> trades, PerformanceMetrics metrics) {
+        if (accumulatingCalculators.isEmpty()) {
+            return;
+        }
         
-        // Process LargestTradeCalculator
-        calculators.stream()
-                .filter(c -> c instanceof LargestTradeCalculator)
-                .findFirst()
-                .ifPresent(calculator -> {
-                    try {
-                        LargestTradeCalculator largestTradeCalculator = (LargestTradeCalculator) calculator;
-                        largestTradeCalculator.calculateLargestTrades(trades, metrics);
-                        log.debug("Applied largest trade metrics");
-                    } catch (Exception e) {
-                        log.error("Error calculating largest trade metrics", e);
-                    }
-                });
+        TradeColumns columns = TradeColumns.of(trades);
         
-        // Process AverageTradeCalculator
-        calculators.stream()
-                .filter(c -> c instanceof AverageTradeCalculator)
-                .findFirst()
-                .ifPresent(calculator -> {
-                    try {
-                        AverageTradeCalculator averageTradeCalculator = (AverageTradeCalculator) calculator;
-                        averageTradeCalculator.calculateAverageTrades(trades, metrics);
-                        log.debug("Applied average trade metrics");
-                    } catch (Exception e) {
-                        log.error("Error calculating average trade metrics", e);
-                    }
-                });
+        int count = accumulatingCalculators.size();
+        TradeMetricsAccumulator[] accumulators = new TradeMetricsAccumulator[count];
+        for (int i = 0; i < count; i++) {
+            accumulators[i] = accumulatingCalculators.get(i).newAccumulator();
+        }
         
-        // Process BestWorstDayCalculator
-        calculators.stream()
-                .filter(c -> c instanceof BestWorstDayCalculator)
-                .findFirst()
-                .ifPresent(calculator -> {
-                    try {
-                        BestWorstDayCalculator bestWorstDayCalculator = (BestWorstDayCalculator) calculator;
-                        bestWorstDayCalculator.calculateBestWorstDays(trades, metrics);
-                        log.debug("Applied best/worst day metrics");
-                    } catch (Exception e) {
-                        log.error("Error calculating best/worst day metrics", e);
-                    }
-                });
+        for (int row : columns.exitTimeOrder()) {
+            for (int i = 0; i < count; i++) {
+                if (accumulators[i] == null) {
+                    continue;
+                }
+                try {
+                    accumulators[i].accept(columns, row);
+                } catch (Exception e) {
+                    log.error("Error calculating metrics with calculator: {}",
+                            accumulatingCalculators.get(i).getClass().getSimpleName(), e);
+                    accumulators[i] = null;
+                }
+            }
+        }
         
-        // Process ConsistencyMetricsCalculator
-        calculators.stream()
-                .filter(c -> c instanceof ConsistencyMetricsCalculator)
-                .findFirst()
-                .ifPresent(calculator -> {
-                    try {
-                        ConsistencyMetricsCalculator consistencyCalculator = (ConsistencyMetricsCalculator) calculator;
-                        consistencyCalculator.calculateConsistencyMetrics(trades, metrics);
-                        log.debug("Applied consistency metrics");
-                    } catch (Exception e) {
-                        log.error("Error calculating consistency metrics", e);
-                    }
-                });
-    }
-    
-    /**
-     * Check if a calculator is a special calculator that handles multiple metrics
-     * 
-     * @param calculator The calculator to check
-     * @return True if it's a special calculator
-     */
-    private boolean isSpecialCalculator(MetricsCalculator calculator) {
-        return calculator instanceof TimeBasedReturnCalculator ||
-               calculator instanceof LargestTradeCalculator ||
-               calculator instanceof AverageTradeCalculator ||
-               calculator instanceof BestWorstDayCalculator ||
-               calculator instanceof ConsistencyMetricsCalculator;
+        for (int i = 0; i < count; i++) {
+            if (accumulators[i] == null) {
+                continue;
+            }
+            try {
+                accumulators[i].applyTo(metrics);
+                log.debug("Applied metrics from {}", accumulatingCalculators.get(i).getClass().getSimpleName());
+            } catch (Exception e) {
+                log.error("Error calculating metrics with calculator: {}",
+                        accumulatingCalculators.get(i).getClass().getSimpleName(), e);
+            }
+        }
     }
     
     /**
@@ -183,7 +151,7 @@ public class MetricsRegistry {
      * 
      * @return Map of metric name to setter function
      */
-    private Map<String, BiConsumer<PerformanceMetrics, BigDecimal>> getMetricSetters() {
+    private static Map<String, BiConsumer<PerformanceMetrics, BigDecimal>> createMetricSetters() {
         // Using HashMap instead of Map.ofEntries for better maintainability with many entries
         Map<String, BiConsumer<PerformanceMetrics, BigDecimal>> setters = new HashMap<>();
         
@@ -226,6 +194,6 @@ public class MetricsRegistry {
             log.debug("Trades per day: {}", value);
         });
         
-        return setters;
+        return Map.copyOf(setters);
     }
 }
@@ -0,0 +1,40 @@
+package am.trade.dashboard.service.metrics.calculator;
+
+import am.trade.common.models.PerformanceMetrics;
+import am.trade.dashboard.service.metrics.columns.TradeColumns;
+
+/**
+ * Running state of one calculator during a single pass over the trades.
+ * The registry feeds every row of a {@link TradeColumns} snapshot to {@link #accept}
+ * in exit-time order and calls {@link #applyTo} once when the pass is done.
+ */
+public interface TradeMetricsAccumulator {
+
+    /**
+     * Fold one trade into the running state
+     * 
+     * @param columns Snapshot of the trades
+     * @param row The next row, in exit-time order; rows without an exit time come last
+     */
+    void accept(TradeColumns columns, int row);
+
+    /**
+     * Write the finished metrics to the metrics object
+     * 
+     * @param metrics PerformanceMetrics object to update
+     */
+    void applyTo(PerformanceMetrics metrics);
+    
+    /**
+     * Feed every row of a snapshot in exit-time order
+     * 
+     * @param columns Snapshot of the trades
+     * @return This accumulator
+     */
+    default TradeMetricsAccumulator acceptAll(TradeColumns columns) {
+        for (int row : columns.exitTimeOrder()) {
+            accept(columns, row);
+        }
+        return this;
+    }
+}
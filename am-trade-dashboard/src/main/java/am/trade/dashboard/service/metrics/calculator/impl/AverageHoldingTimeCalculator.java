@@ -1,7 +1,11 @@
 package am.trade.dashboard.service.metrics.calculator.impl;
 
+import am.trade.common.models.PerformanceMetrics;
 import am.trade.common.models.TradeDetails;
 import am.trade.dashboard.service.metrics.calculator.AbstractBigDecimalMetricCalculator;
+import am.trade.dashboard.service.metrics.calculator.AccumulatingMetricsCalculator;
+import am.trade.dashboard.service.metrics.calculator.TradeMetricsAccumulator;
+import am.trade.dashboard.service.metrics.columns.TradeColumns;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
@@ -12,7 +16,9 @@ import java.util.List;
  * Calculator for average holding time metric in hours
  */
 @Component
-public class AverageHoldingTimeCalculator extends AbstractBigDecimalMetricCalculator {
+public class AverageHoldingTimeCalculator extends AbstractBigDecimalMetricCalculator implements AccumulatingMetricsCalculator {
+
+    private static final long MILLIS_PER_HOUR = 3_600_000L;
 
     @Override
     protected BigDecimal doCalculate(List<TradeDetails> trades) {
@@ -45,8 +51,42 @@ public class AverageHoldingTimeCalculator extends AbstractBigDecimalMetricCalcul
                 BigDecimal.ZERO;
     }
 
+    @Override
+    public TradeMetricsAccumulator newAccumulator() {
+        return new Accumulator();
+    }
+
     @Override
     public String getMetricName() {
         return "averageHoldingTimeOverall";
     }
+    
+    private final class Accumulator implements TradeMetricsAccumulator {
+        private long totalHoldingHours;
+        private int tradesWithHoldingTime;
+        
+        @Override
+        public void accept(TradeColumns columns, int row) {
+            if (!columns.hasEntryTime(row) || !columns.hasExitTime(row)) {
+                return;
+            }
+            
+            long holdingMillis = columns.exitTime(row) - columns.entryTime(row);
+            // Skip negative durations (data error)
+            if (holdingMillis < 0) {
+                return;
+            }
+            
+            // Whole hours, as Duration.toHours
+            totalHoldingHours += holdingMillis / MILLIS_PER_HOUR;
+            tradesWithHoldingTime++;
+        }
+        
+        @Override
+        public void applyTo(PerformanceMetrics metrics) {
+            metrics.setAverageHoldingTimeOverall(tradesWithHoldingTime > 0 ?
+                    safeDivide(BigDecimal.valueOf(totalHoldingHours), BigDecimal.valueOf(tradesWithHoldingTime)) :
+                    BigDecimal.ZERO);
+        }
+    }
 }
@@ -3,13 +3,15 @@ package am.trade.dashboard.service.metrics.calculator.impl;
 import am.trade.common.models.PerformanceMetrics;
 import am.trade.common.models.TradeDetails;
 import am.trade.dashboard.service.metrics.calculator.AbstractBigDecimalMetricCalculator;
+import am.trade.dashboard.service.metrics.calculator.AccumulatingMetricsCalculator;
+import am.trade.dashboard.service.metrics.calculator.TradeMetricsAccumulator;
+import am.trade.dashboard.service.metrics.columns.TradeColumns;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Calculator for average winning and losing trade metrics
@@ -17,7 +19,7 @@ import java.util.stream.Collectors;
  */
 @Component
 @Slf4j
-public class AverageTradeCalculator extends AbstractBigDecimalMetricCalculator {
+public class AverageTradeCalculator extends AbstractBigDecimalMetricCalculator implements AccumulatingMetricsCalculator {
 
     public AverageTradeCalculator() {
         super(2, RoundingMode.HALF_UP);
@@ -59,54 +61,58 @@ public class AverageTradeCalculator extends AbstractBigDecimalMetricCalculator {
         }
         
         try {
-            // Filter trades with valid profit/loss data
-            List<TradeDetails> validTrades = trades.stream()
-                    .filter(trade -> trade.getMetrics() != null && 
-                                    trade.getMetrics().getProfitLoss() != null)
-                    .collect(Collectors.toList());
-                    
-            if (validTrades.isEmpty()) {
+            newAccumulator().acceptAll(TradeColumns.of(trades)).applyTo(metrics);
+        } catch (Exception e) {
+            log.error("Error calculating average trades", e);
+        }
+    }
+    
+    @Override
+    public TradeMetricsAccumulator newAccumulator() {
+        return new Accumulator();
+    }
+
+    @Override
+    public String getMetricName() {
+        return "averageTrade";
+    }
+    
+    private final class Accumulator implements TradeMetricsAccumulator {
+        private long totalWinnings;
+        private int winCount;
+        private long totalLosses;
+        private int lossCount;
+        
+        @Override
+        public void accept(TradeColumns columns, int row) {
+            if (!columns.hasProfitLoss(row)) {
                 return;
             }
             
-            // Separate winning and losing trades
-            List<TradeDetails> winningTrades = validTrades.stream()
-                    .filter(trade -> trade.getMetrics().getProfitLoss().compareTo(BigDecimal.ZERO) > 0)
-                    .collect(Collectors.toList());
-                    
-            List<TradeDetails> losingTrades = validTrades.stream()
-                    .filter(trade -> trade.getMetrics().getProfitLoss().compareTo(BigDecimal.ZERO) < 0)
-                    .collect(Collectors.toList());
-            
-            // Calculate average winning trade
-            if (!winningTrades.isEmpty()) {
-                BigDecimal totalWinnings = winningTrades.stream()
-                        .map(trade -> trade.getMetrics().getProfitLoss())
-                        .reduce(BigDecimal.ZERO, BigDecimal::add);
-                        
-                BigDecimal averageWinningTrade = safeDivide(totalWinnings, new BigDecimal(winningTrades.size()));
+            long profitLoss = columns.profitLoss(row);
+            if (profitLoss > 0) {
+                totalWinnings += profitLoss;
+                winCount++;
+            } else if (profitLoss < 0) {
+                totalLosses -= profitLoss;
+                lossCount++;
+            }
+        }
+        
+        @Override
+        public void applyTo(PerformanceMetrics metrics) {
+            if (winCount > 0) {
+                BigDecimal averageWinningTrade = safeDivide(TradeColumns.fromMoney(totalWinnings), new BigDecimal(winCount));
                 metrics.setAverageWinningTrade(averageWinningTrade);
                 log.debug("Average winning trade: {}", averageWinningTrade);
             }
             
-            // Calculate average losing trade (as a positive number for consistency)
-            if (!losingTrades.isEmpty()) {
-                BigDecimal totalLosses = losingTrades.stream()
-                        .map(trade -> trade.getMetrics().getProfitLoss().abs())
-                        .reduce(BigDecimal.ZERO, BigDecimal::add);
-                        
-                BigDecimal averageLosingTrade = safeDivide(totalLosses, new BigDecimal(losingTrades.size()));
+            // Average losing trade as a positive number for consistency
+            if (lossCount > 0) {
+                BigDecimal averageLosingTrade = safeDivide(TradeColumns.fromMoney(totalLosses), new BigDecimal(lossCount));
                 metrics.setAverageLosingTrade(averageLosingTrade);
                 log.debug("Average losing trade: {}", averageLosingTrade);
             }
-            
-        } catch (Exception e) {
-            log.error("Error calculating average trades", e);
         }
     }
-
-    @Override
-    public String getMetricName() {
-        return "averageTrade";
-    }
 }
@@ -2,15 +2,15 @@ package am.trade.dashboard.service.metrics.calculator.impl;
 
 import am.trade.common.models.PerformanceMetrics;
 import am.trade.common.models.TradeDetails;
-import am.trade.dashboard.service.metrics.calculator.MetricsCalculator;
+import am.trade.dashboard.service.metrics.calculator.AccumulatingMetricsCalculator;
+import am.trade.dashboard.service.metrics.calculator.TradeMetricsAccumulator;
+import am.trade.dashboard.service.metrics.columns.TradeColumns;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Calculator for best and worst trading day metrics
@@ -18,7 +18,7 @@ import java.util.stream.Collectors;
  */
 @Component
 @Slf4j
-public class BestWorstDayCalculator implements MetricsCalculator {
+public class BestWorstDayCalculator implements AccumulatingMetricsCalculator {
 
     @Override
     public BigDecimal calculate(List<TradeDetails> trades) {
@@ -49,64 +49,37 @@ public class BestWorstDayCalculator implements MetricsCalculator {
         }
         
         try {
-            // Group trades by day and calculate daily P&L
-            Map<LocalDate, BigDecimal> dailyProfitLoss = calculateDailyProfitLoss(trades);
-            
-            if (dailyProfitLoss.isEmpty()) {
-                return;
-            }
-            
-            // Find the best day
-            Optional<Map.Entry<LocalDate, BigDecimal>> bestDay = dailyProfitLoss.entrySet().stream()
-                    .max(Map.Entry.comparingByValue());
-                    
-            // Find the worst day
-            Optional<Map.Entry<LocalDate, BigDecimal>> worstDay = dailyProfitLoss.entrySet().stream()
-                    .min(Map.Entry.comparingByValue());
-            
-            // Apply to metrics object
-            bestDay.ifPresent(day -> {
-                metrics.setBestDayProfit(day.getValue());
-                metrics.setBestDayDate(day.getKey().atStartOfDay());
-                log.debug("Best day: {} with profit {}", day.getKey(), day.getValue());
-            });
-            
-            worstDay.ifPresent(day -> {
-                metrics.setWorstDayLoss(day.getValue().abs());
-                metrics.setWorstDayDate(day.getKey().atStartOfDay());
-                log.debug("Worst day: {} with loss {}", day.getKey(), day.getValue());
-            });
-            
+            newAccumulator().acceptAll(TradeColumns.of(trades)).applyTo(metrics);
         } catch (Exception e) {
             log.error("Error calculating best/worst days", e);
         }
     }
     
+    @Override
+    public TradeMetricsAccumulator newAccumulator() {
+        return new Accumulator();
+    }
+    
     /**
      * Group trades by day and calculate daily profit/loss
      * 
      * @param trades List of trades
      * @return Map of date to profit/loss for that day
      */
-    private Map<LocalDate, BigDecimal> calculateDailyProfitLoss(List<TradeDetails> trades) {
+    private static Map<LocalDate, BigDecimal> calculateDailyProfitLoss(List<TradeDetails> trades) {
         Map<LocalDate, BigDecimal> dailyProfitLoss = new HashMap<>();
         
-        // Filter trades with valid data
-        List<TradeDetails> validTrades = trades.stream()
-                .filter(trade -> trade.getExitInfo() != null && 
-                                trade.getExitInfo().getTimestamp() != null &&
-                                trade.getMetrics() != null && 
-                                trade.getMetrics().getProfitLoss() != null)
-                .collect(Collectors.toList());
-                
         // Group trades by exit date (when the profit/loss was realized)
-        for (TradeDetails trade : validTrades) {
-            LocalDateTime exitTime = trade.getExitInfo().getTimestamp();
-            LocalDate exitDate = exitTime.toLocalDate();
-            BigDecimal profitLoss = trade.getMetrics().getProfitLoss();
+        for (TradeDetails trade : trades) {
+            if (trade.getExitInfo() == null || 
+                    trade.getExitInfo().getTimestamp() == null ||
+                    trade.getMetrics() == null || 
+                    trade.getMetrics().getProfitLoss() == null) {
+                continue;
+            }
             
-            // Add to daily total
-            dailyProfitLoss.merge(exitDate, profitLoss, BigDecimal::add);
+            LocalDate exitDate = trade.getExitInfo().getTimestamp().toLocalDate();
+            dailyProfitLoss.merge(exitDate, trade.getMetrics().getProfitLoss(), BigDecimal::add);
         }
         
         return dailyProfitLoss;
@@ -116,4 +89,69 @@ public class BestWorstDayCalculator implements MetricsCalculator {
     public String getMetricName() {
         return "bestDayProfit";
     }
+    
+    /**
+     * Sums profit/loss per exit day; expects rows in exit-time order, so each day's
+     * trades arrive together and only the running day total is kept
+     */
+    private static final class Accumulator implements TradeMetricsAccumulator {
+        private boolean hasDay;
+        private long day;
+        private long dayProfitLoss;
+        
+        private boolean hasClosedDay;
+        private long bestDay;
+        private long bestDayProfitLoss;
+        private long worstDay;
+        private long worstDayProfitLoss;
+        
+        @Override
+        public void accept(TradeColumns columns, int row) {
+            if (!columns.hasExitTime(row) || !columns.hasProfitLoss(row)) {
+                return;
+            }
+            
+            long exitDay = TradeColumns.epochDay(columns.exitTime(row));
+            if (!hasDay || exitDay != day) {
+                if (hasDay) {
+                    closeDay();
+                }
+                hasDay = true;
+                day = exitDay;
+                dayProfitLoss = 0;
+            }
+            dayProfitLoss += columns.profitLoss(row);
+        }
+        
+        private void closeDay() {
+            if (!hasClosedDay || dayProfitLoss > bestDayProfitLoss) {
+                bestDay = day;
+                bestDayProfitLoss = dayProfitLoss;
+            }
+            if (!hasClosedDay || dayProfitLoss < worstDayProfitLoss) {
+                worstDay = day;
+                worstDayProfitLoss = dayProfitLoss;
+            }
+            hasClosedDay = true;
+        }
+        
+        @Override
+        public void applyTo(PerformanceMetrics metrics) {
+            if (!hasDay) {
+                return;
+            }
+            closeDay();
+            
+            // Apply to metrics object
+            BigDecimal bestDayProfit = TradeColumns.fromMoney(bestDayProfitLoss);
+            metrics.setBestDayProfit(bestDayProfit);
+            metrics.setBestDayDate(LocalDate.ofEpochDay(bestDay).atStartOfDay());
+            log.debug("Best day: {} with profit {}", LocalDate.ofEpochDay(bestDay), bestDayProfit);
+            
+            BigDecimal worstDayLoss = TradeColumns.fromMoney(worstDayProfitLoss);
+            metrics.setWorstDayLoss(worstDayLoss.abs());
+            metrics.setWorstDayDate(LocalDate.ofEpochDay(worstDay).atStartOfDay());
+            log.debug("Worst day: {} with loss {}", LocalDate.ofEpochDay(worstDay), worstDayLoss);
+        }
+    }
 }
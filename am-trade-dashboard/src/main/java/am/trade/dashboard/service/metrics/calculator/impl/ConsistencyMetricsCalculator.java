@@ -2,16 +2,16 @@ package am.trade.dashboard.service.metrics.calculator.impl;
 
 import am.trade.common.models.PerformanceMetrics;
 import am.trade.common.models.TradeDetails;
-import am.trade.dashboard.service.metrics.calculator.MetricsCalculator;
+import am.trade.dashboard.service.metrics.calculator.AccumulatingMetricsCalculator;
+import am.trade.dashboard.service.metrics.calculator.TradeMetricsAccumulator;
+import am.trade.dashboard.service.metrics.columns.TradeColumns;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Calculator for trade consistency metrics including standard deviation of returns,
@@ -19,7 +19,7 @@ import java.util.stream.Collectors;
  */
 @Component
 @Slf4j
-public class ConsistencyMetricsCalculator implements MetricsCalculator {
+public class ConsistencyMetricsCalculator implements AccumulatingMetricsCalculator {
 
     private static final int SCALE = 4;
     private static final RoundingMode ROUNDING_MODE = RoundingMode.HALF_UP;
@@ -51,49 +51,24 @@ public class ConsistencyMetricsCalculator implements MetricsCalculator {
         }
         
         try {
-            // Sort trades by exit timestamp
-            List<TradeDetails> sortedTrades = trades.stream()
-                    .filter(trade -> trade.getExitInfo() != null && 
-                                    trade.getExitInfo().getTimestamp() != null &&
-                                    trade.getMetrics() != null && 
-                                    trade.getMetrics().getProfitLoss() != null)
-                    .sorted(Comparator.comparing(t -> t.getExitInfo().getTimestamp()))
-                    .collect(Collectors.toList());
-                    
-            if (sortedTrades.isEmpty()) {
-                return;
-            }
-            
-            // Extract returns
-            List<BigDecimal> returns = extractReturns(sortedTrades);
-            
-            // Calculate standard deviation of returns
-            BigDecimal stdDeviation = calculateStandardDeviation(returns);
-            metrics.setReturnStandardDeviation(stdDeviation);
-            log.debug("Standard deviation of returns: {}", stdDeviation);
-            
-            // Calculate profit consistency (percentage of profitable periods)
-            BigDecimal profitConsistency = calculateProfitConsistency(returns);
-            metrics.setProfitConsistency(profitConsistency);
-            log.debug("Profit consistency: {}", profitConsistency);
-            
-            // Calculate maximum drawdown
-            BigDecimal maxDrawdown = calculateMaxDrawdown(sortedTrades);
-            metrics.setMaxDrawdown(maxDrawdown);
-            log.debug("Maximum drawdown: {}", maxDrawdown);
-            
+            newAccumulator().acceptAll(TradeColumns.of(trades)).applyTo(metrics);
         } catch (Exception e) {
             log.error("Error calculating consistency metrics", e);
         }
     }
     
+    @Override
+    public TradeMetricsAccumulator newAccumulator() {
+        return new Accumulator();
+    }
+    
     /**
      * Extract returns from trades
      * 
      * @param trades List of trades
      * @return List of returns as BigDecimal
      */
-    private List<BigDecimal> extractReturns(List<TradeDetails> trades) {
+    private static List<BigDecimal> extractReturns(List<TradeDetails> trades) {
         List<BigDecimal> returns = new ArrayList<>();
         
         for (TradeDetails trade : trades) {
@@ -115,7 +90,7 @@ public class ConsistencyMetricsCalculator implements MetricsCalculator {
      * @param values List of values
      * @return Standard deviation as BigDecimal
      */
-    private BigDecimal calculateStandardDeviation(List<BigDecimal> values) {
+    private static BigDecimal calculateStandardDeviation(List<BigDecimal> values) {
         if (values.isEmpty() || values.size() < 2) {
             return BigDecimal.ZERO;
         }
@@ -138,65 +113,78 @@ public class ConsistencyMetricsCalculator implements MetricsCalculator {
                 .setScale(SCALE, ROUNDING_MODE);
     }
     
-    /**
-     * Calculate profit consistency (percentage of profitable periods)
-     * 
-     * @param returns List of returns
-     * @return Profit consistency as BigDecimal (0-1)
-     */
-    private BigDecimal calculateProfitConsistency(List<BigDecimal> returns) {
-        if (returns.isEmpty()) {
-            return BigDecimal.ZERO;
-        }
-        
-        long profitablePeriods = returns.stream()
-                .filter(r -> r.compareTo(BigDecimal.ZERO) > 0)
-                .count();
-                
-        return new BigDecimal(profitablePeriods)
-                .divide(new BigDecimal(returns.size()), SCALE, ROUNDING_MODE);
+    @Override
+    public String getMetricName() {
+        return "returnStandardDeviation";
     }
     
     /**
-     * Calculate maximum drawdown from peak equity
-     * 
-     * @param trades List of trades sorted by exit time
-     * @return Maximum drawdown as BigDecimal (positive value)
+     * Tracks the mean and variance of returns (Welford's method) and the drawdown of cumulative
+     * profit/loss from its peak; expects rows in exit-time order
      */
-    private BigDecimal calculateMaxDrawdown(List<TradeDetails> trades) {
-        if (trades.isEmpty()) {
-            return BigDecimal.ZERO;
-        }
+    private static final class Accumulator implements TradeMetricsAccumulator {
+        private boolean hasTrades;
         
-        BigDecimal cumulativePnL = BigDecimal.ZERO;
-        BigDecimal peak = BigDecimal.ZERO;
-        BigDecimal maxDrawdown = BigDecimal.ZERO;
+        private int returnCount;
+        private int profitableCount;
+        private double meanReturn;
+        private double squaredDeviations;
         
-        for (TradeDetails trade : trades) {
-            if (trade.getMetrics() != null && trade.getMetrics().getProfitLoss() != null) {
-                // Add trade P&L to cumulative P&L
-                cumulativePnL = cumulativePnL.add(trade.getMetrics().getProfitLoss());
-                
-                // Update peak if we have a new high
-                if (cumulativePnL.compareTo(peak) > 0) {
-                    peak = cumulativePnL;
-                } 
-                // Calculate drawdown if we're below peak
-                else if (peak.compareTo(BigDecimal.ZERO) > 0) {
-                    BigDecimal drawdown = peak.subtract(cumulativePnL);
-                    // Update max drawdown if this is larger
-                    if (drawdown.compareTo(maxDrawdown) > 0) {
-                        maxDrawdown = drawdown;
-                    }
+        private long cumulativePnL;
+        private long peak;
+        private long maxDrawdown;
+        
+        @Override
+        public void accept(TradeColumns columns, int row) {
+            if (!columns.hasExitTime(row) || !columns.hasProfitLoss(row)) {
+                return;
+            }
+            hasTrades = true;
+            
+            double profitLossPercentage = columns.profitLossPercentage(row);
+            if (!Double.isNaN(profitLossPercentage)) {
+                double tradeReturn = profitLossPercentage / 100;
+                returnCount++;
+                if (tradeReturn > 0) {
+                    profitableCount++;
                 }
+                double delta = tradeReturn - meanReturn;
+                meanReturn += delta / returnCount;
+                squaredDeviations += delta * (tradeReturn - meanReturn);
+            }
+            
+            // Add trade P&L to cumulative P&L
+            cumulativePnL += columns.profitLoss(row);
+            
+            // Update peak if we have a new high, otherwise track the drawdown below a positive peak
+            if (cumulativePnL > peak) {
+                peak = cumulativePnL;
+            } else if (peak > 0) {
+                maxDrawdown = Math.max(maxDrawdown, peak - cumulativePnL);
             }
         }
         
-        return maxDrawdown;
-    }
-
-    @Override
-    public String getMetricName() {
-        return "returnStandardDeviation";
+        @Override
+        public void applyTo(PerformanceMetrics metrics) {
+            if (!hasTrades) {
+                return;
+            }
+            
+            // Sample standard deviation of returns
+            BigDecimal stdDeviation = returnCount < 2 ? BigDecimal.ZERO :
+                    BigDecimal.valueOf(Math.sqrt(squaredDeviations / (returnCount - 1))).setScale(SCALE, ROUNDING_MODE);
+            metrics.setReturnStandardDeviation(stdDeviation);
+            log.debug("Standard deviation of returns: {}", stdDeviation);
+            
+            // Profit consistency (percentage of profitable periods)
+            BigDecimal profitConsistency = returnCount == 0 ? BigDecimal.ZERO :
+                    BigDecimal.valueOf(profitableCount).divide(BigDecimal.valueOf(returnCount), SCALE, ROUNDING_MODE);
+            metrics.setProfitConsistency(profitConsistency);
+            log.debug("Profit consistency: {}", profitConsistency);
+            
+            BigDecimal drawdown = TradeColumns.fromMoney(maxDrawdown);
+            metrics.setMaxDrawdown(drawdown);
+            log.debug("Maximum drawdown: {}", drawdown);
+        }
     }
 }
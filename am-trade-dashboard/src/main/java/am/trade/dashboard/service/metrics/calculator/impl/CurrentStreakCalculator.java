@@ -1,14 +1,15 @@
 package am.trade.dashboard.service.metrics.calculator.impl;
 
+import am.trade.common.models.PerformanceMetrics;
 import am.trade.common.models.TradeDetails;
-import am.trade.dashboard.service.metrics.calculator.MetricsCalculator;
+import am.trade.dashboard.service.metrics.calculator.AccumulatingMetricsCalculator;
+import am.trade.dashboard.service.metrics.calculator.TradeMetricsAccumulator;
+import am.trade.dashboard.service.metrics.columns.TradeColumns;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
-import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Calculator for the current winning or losing streak
@@ -16,7 +17,7 @@ import java.util.stream.Collectors;
  */
 @Component
 @Slf4j
-public class CurrentStreakCalculator implements MetricsCalculator {
+public class CurrentStreakCalculator implements AccumulatingMetricsCalculator {
 
     @Override
     public BigDecimal calculate(List<TradeDetails> trades) {
@@ -24,50 +25,54 @@ public class CurrentStreakCalculator implements MetricsCalculator {
             return BigDecimal.ZERO;
         }
         
-        // Sort trades by exit timestamp to ensure chronological order
-        List<TradeDetails> sortedTrades = trades.stream()
-                .filter(trade -> trade.getExitInfo() != null && 
-                                trade.getExitInfo().getTimestamp() != null &&
-                                trade.getMetrics() != null && 
-                                trade.getMetrics().getProfitLoss() != null)
-                .sorted(Comparator.comparing(t -> t.getExitInfo().getTimestamp()))
-                .collect(Collectors.toList());
-        
-        if (sortedTrades.isEmpty()) {
-            return BigDecimal.ZERO;
-        }
-        
-        // Start from the most recent trade and count backwards
-        int currentStreak = 0;
-        boolean isWinning = false;
-        boolean isFirst = true;
+        // Walk trades by exit timestamp to ensure chronological order
+        Accumulator accumulator = new Accumulator();
+        accumulator.acceptAll(TradeColumns.of(trades));
+        return BigDecimal.valueOf(accumulator.currentStreak());
+    }
+    
+    @Override
+    public TradeMetricsAccumulator newAccumulator() {
+        return new Accumulator();
+    }
+
+    @Override
+    public String getMetricName() {
+        return "currentStreak";
+    }
+    
+    /**
+     * Tracks the streak ending at the latest trade seen; expects trades in exit-time order
+     */
+    private static final class Accumulator implements TradeMetricsAccumulator {
+        private int currentStreak;
+        private boolean isWinning;
         
-        // Iterate from the most recent trade backwards
-        for (int i = sortedTrades.size() - 1; i >= 0; i--) {
-            TradeDetails trade = sortedTrades.get(i);
-            BigDecimal profitLoss = trade.getMetrics().getProfitLoss();
-            boolean isTradeWinning = profitLoss.compareTo(BigDecimal.ZERO) > 0;
+        @Override
+        public void accept(TradeColumns columns, int row) {
+            if (!columns.hasExitTime(row) || !columns.hasProfitLoss(row)) {
+                return;
+            }
             
-            if (isFirst) {
-                // First trade (most recent)
-                isWinning = isTradeWinning;
-                currentStreak = 1;
-                isFirst = false;
-            } else if (isTradeWinning == isWinning) {
+            boolean isTradeWinning = columns.profitLoss(row) > 0;
+            if (currentStreak > 0 && isTradeWinning == isWinning) {
                 // Continuing the streak
                 currentStreak++;
             } else {
-                // Streak broken
-                break;
+                // First trade or streak broken
+                isWinning = isTradeWinning;
+                currentStreak = 1;
             }
         }
         
-        // Return positive value for winning streak, negative for losing streak
-        return BigDecimal.valueOf(isWinning ? currentStreak : -currentStreak);
-    }
-
-    @Override
-    public String getMetricName() {
-        return "currentStreak";
+        @Override
+        public void applyTo(PerformanceMetrics metrics) {
+            metrics.setCurrentStreak(currentStreak());
+        }
+        
+        // Positive value for winning streak, negative for losing streak
+        private int currentStreak() {
+            return isWinning ? currentStreak : -currentStreak;
+        }
     }
 }
@@ -1,7 +1,10 @@
 package am.trade.dashboard.service.metrics.calculator.impl;
 
+import am.trade.common.models.PerformanceMetrics;
 import am.trade.common.models.TradeDetails;
-import am.trade.dashboard.service.metrics.calculator.MetricsCalculator;
+import am.trade.dashboard.service.metrics.calculator.AccumulatingMetricsCalculator;
+import am.trade.dashboard.service.metrics.calculator.TradeMetricsAccumulator;
+import am.trade.dashboard.service.metrics.columns.TradeColumns;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
@@ -12,7 +15,7 @@ import java.util.List;
  * Calculator for trade expectancy metrics
  */
 @Component
-public class ExpectancyCalculator implements MetricsCalculator {
+public class ExpectancyCalculator implements AccumulatingMetricsCalculator {
 
     private static final int SCALE = 4;
     private static final RoundingMode ROUNDING_MODE = RoundingMode.HALF_UP;
@@ -23,51 +26,72 @@ public class ExpectancyCalculator implements MetricsCalculator {
             return BigDecimal.ZERO;
         }
         
-        // Calculate win rate
-        long winCount = trades.stream()
-                .filter(t -> t.getMetrics() != null && t.getMetrics().getProfitLoss() != null && 
-                       t.getMetrics().getProfitLoss().compareTo(BigDecimal.ZERO) > 0)
-                .count();
-        
-        BigDecimal winProbability = BigDecimal.valueOf((double) winCount / trades.size());
-        BigDecimal lossProbability = BigDecimal.ONE.subtract(winProbability);
-        
-        // Calculate average win and loss
-        BigDecimal totalWin = BigDecimal.ZERO;
-        BigDecimal totalLoss = BigDecimal.ZERO;
-        int winCounter = 0;
-        int lossCounter = 0;
-        
-        for (TradeDetails trade : trades) {
-            if (trade.getMetrics() != null && trade.getMetrics().getProfitLoss() != null) {
-                BigDecimal profitLoss = trade.getMetrics().getProfitLoss();
-                
-                if (profitLoss.compareTo(BigDecimal.ZERO) > 0) {
-                    totalWin = totalWin.add(profitLoss);
-                    winCounter++;
-                } else if (profitLoss.compareTo(BigDecimal.ZERO) < 0) {
-                    totalLoss = totalLoss.add(profitLoss.abs());
-                    lossCounter++;
-                }
-            }
-        }
-        
-        BigDecimal averageWin = winCounter > 0 ?
-                totalWin.divide(BigDecimal.valueOf(winCounter), SCALE, ROUNDING_MODE) :
-                BigDecimal.ZERO;
-        
-        BigDecimal averageLoss = lossCounter > 0 ?
-                totalLoss.divide(BigDecimal.valueOf(lossCounter), SCALE, ROUNDING_MODE) :
-                BigDecimal.ZERO;
-        
-        // Calculate expectancy
-        return winProbability.multiply(averageWin)
-                .subtract(lossProbability.multiply(averageLoss))
-                .setScale(SCALE, ROUNDING_MODE);
+        Accumulator accumulator = new Accumulator();
+        accumulator.acceptAll(TradeColumns.of(trades));
+        return accumulator.expectancy();
+    }
+    
+    @Override
+    public TradeMetricsAccumulator newAccumulator() {
+        return new Accumulator();
     }
     
     @Override
     public String getMetricName() {
         return "Trade Expectancy";
     }
+    
+    private static final class Accumulator implements TradeMetricsAccumulator {
+        private int tradeCount;
+        private long totalWin;
+        private long totalLoss;
+        private int winCounter;
+        private int lossCounter;
+        
+        @Override
+        public void accept(TradeColumns columns, int row) {
+            tradeCount++;
+            if (!columns.hasProfitLoss(row)) {
+                return;
+            }
+            
+            long profitLoss = columns.profitLoss(row);
+            if (profitLoss > 0) {
+                totalWin += profitLoss;
+                winCounter++;
+            } else if (profitLoss < 0) {
+                totalLoss -= profitLoss;
+                lossCounter++;
+            }
+        }
+        
+        @Override
+        public void applyTo(PerformanceMetrics metrics) {
+            metrics.setExpectancy(expectancy());
+        }
+        
+        private BigDecimal expectancy() {
+            if (tradeCount == 0) {
+                return BigDecimal.ZERO;
+            }
+            
+            // Calculate win rate
+            BigDecimal winProbability = BigDecimal.valueOf((double) winCounter / tradeCount);
+            BigDecimal lossProbability = BigDecimal.ONE.subtract(winProbability);
+            
+            // Calculate average win and loss
+            BigDecimal averageWin = winCounter > 0 ?
+                    TradeColumns.fromMoney(totalWin).divide(BigDecimal.valueOf(winCounter), SCALE, ROUNDING_MODE) :
+                    BigDecimal.ZERO;
+            
+            BigDecimal averageLoss = lossCounter > 0 ?
+                    TradeColumns.fromMoney(totalLoss).divide(BigDecimal.valueOf(lossCounter), SCALE, ROUNDING_MODE) :
+                    BigDecimal.ZERO;
+            
+            // Calculate expectancy
+            return winProbability.multiply(averageWin)
+                    .subtract(lossProbability.multiply(averageLoss))
+                    .setScale(SCALE, ROUNDING_MODE);
+        }
+    }
 }
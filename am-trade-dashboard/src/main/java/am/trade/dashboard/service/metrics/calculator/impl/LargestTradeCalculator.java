@@ -2,7 +2,9 @@ package am.trade.dashboard.service.metrics.calculator.impl;
 
 import am.trade.common.models.PerformanceMetrics;
 import am.trade.common.models.TradeDetails;
-import am.trade.dashboard.service.metrics.calculator.MetricsCalculator;
+import am.trade.dashboard.service.metrics.calculator.AccumulatingMetricsCalculator;
+import am.trade.dashboard.service.metrics.calculator.TradeMetricsAccumulator;
+import am.trade.dashboard.service.metrics.columns.TradeColumns;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
@@ -17,7 +19,7 @@ import java.util.Optional;
  */
 @Component
 @Slf4j
-public class LargestTradeCalculator implements MetricsCalculator {
+public class LargestTradeCalculator implements AccumulatingMetricsCalculator {
 
     @Override
     public BigDecimal calculate(List<TradeDetails> trades) {
@@ -49,39 +51,54 @@ public class LargestTradeCalculator implements MetricsCalculator {
         }
         
         try {
-            // Find largest winning trade
-            Optional<TradeDetails> largestWinningTrade = trades.stream()
-                    .filter(trade -> trade.getMetrics() != null && 
-                                    trade.getMetrics().getProfitLoss() != null &&
-                                    trade.getMetrics().getProfitLoss().compareTo(BigDecimal.ZERO) > 0)
-                    .max(Comparator.comparing(trade -> trade.getMetrics().getProfitLoss()));
-                    
-            // Find largest losing trade (most negative)
-            Optional<TradeDetails> largestLosingTrade = trades.stream()
-                    .filter(trade -> trade.getMetrics() != null && 
-                                    trade.getMetrics().getProfitLoss() != null &&
-                                    trade.getMetrics().getProfitLoss().compareTo(BigDecimal.ZERO) < 0)
-                    .min(Comparator.comparing(trade -> trade.getMetrics().getProfitLoss()));
-            
-            // Apply to metrics object
-            largestWinningTrade.ifPresent(trade -> {
-                metrics.setLargestWinningTrade(trade.getMetrics().getProfitLoss());
-                log.debug("Largest winning trade: {}", trade.getMetrics().getProfitLoss());
-            });
-            
-            largestLosingTrade.ifPresent(trade -> {
-                // Store as absolute value for consistency
-                metrics.setLargestLosingTrade(trade.getMetrics().getProfitLoss().abs());
-                log.debug("Largest losing trade: {}", trade.getMetrics().getProfitLoss());
-            });
-            
+            newAccumulator().acceptAll(TradeColumns.of(trades)).applyTo(metrics);
         } catch (Exception e) {
             log.error("Error calculating largest trades", e);
         }
     }
+    
+    @Override
+    public TradeMetricsAccumulator newAccumulator() {
+        return new Accumulator();
+    }
 
     @Override
     public String getMetricName() {
         return "largestWinningTrade";
     }
+    
+    private static final class Accumulator implements TradeMetricsAccumulator {
+        private long largestWin;
+        private long largestLoss;
+        
+        @Override
+        public void accept(TradeColumns columns, int row) {
+            if (!columns.hasProfitLoss(row)) {
+                return;
+            }
+            
+            long profitLoss = columns.profitLoss(row);
+            if (profitLoss > largestWin) {
+                largestWin = profitLoss;
+            } else if (profitLoss < largestLoss) {
+                largestLoss = profitLoss;
+            }
+        }
+        
+        @Override
+        public void applyTo(PerformanceMetrics metrics) {
+            if (largestWin > 0) {
+                BigDecimal largestWinningTrade = TradeColumns.fromMoney(largestWin);
+                metrics.setLargestWinningTrade(largestWinningTrade);
+                log.debug("Largest winning trade: {}", largestWinningTrade);
+            }
+            
+            if (largestLoss < 0) {
+                // Store as absolute value for consistency
+                BigDecimal largestLosingTrade = TradeColumns.fromMoney(-largestLoss);
+                metrics.setLargestLosingTrade(largestLosingTrade);
+                log.debug("Largest losing trade: {}", largestLosingTrade);
+            }
+        }
+    }
 }
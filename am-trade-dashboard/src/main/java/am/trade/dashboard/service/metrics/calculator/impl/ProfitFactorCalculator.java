@@ -1,7 +1,11 @@
 package am.trade.dashboard.service.metrics.calculator.impl;
 
+import am.trade.common.models.PerformanceMetrics;
 import am.trade.common.models.TradeDetails;
 import am.trade.dashboard.service.metrics.calculator.AbstractBigDecimalMetricCalculator;
+import am.trade.dashboard.service.metrics.calculator.AccumulatingMetricsCalculator;
+import am.trade.dashboard.service.metrics.calculator.TradeMetricsAccumulator;
+import am.trade.dashboard.service.metrics.columns.TradeColumns;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
@@ -11,7 +15,7 @@ import java.util.List;
  * Calculator for profit factor metric (total winning amount / total losing amount)
  */
 @Component
-public class ProfitFactorCalculator extends AbstractBigDecimalMetricCalculator {
+public class ProfitFactorCalculator extends AbstractBigDecimalMetricCalculator implements AccumulatingMetricsCalculator {
 
     @Override
     protected BigDecimal doCalculate(List<TradeDetails> trades) {
@@ -41,8 +45,39 @@ public class ProfitFactorCalculator extends AbstractBigDecimalMetricCalculator {
                 BigDecimal.ZERO;
     }
 
+    @Override
+    public TradeMetricsAccumulator newAccumulator() {
+        return new Accumulator();
+    }
+
     @Override
     public String getMetricName() {
         return "profitFactor";
     }
+    
+    private final class Accumulator implements TradeMetricsAccumulator {
+        private long totalWinAmount;
+        private long totalLossAmount;
+        
+        @Override
+        public void accept(TradeColumns columns, int row) {
+            if (!columns.hasProfitLoss(row)) {
+                return;
+            }
+            
+            long profitLoss = columns.profitLoss(row);
+            if (profitLoss > 0) {
+                totalWinAmount += profitLoss;
+            } else if (profitLoss < 0) {
+                totalLossAmount -= profitLoss;
+            }
+        }
+        
+        @Override
+        public void applyTo(PerformanceMetrics metrics) {
+            metrics.setProfitFactor(totalLossAmount > 0 ?
+                    safeDivide(TradeColumns.fromMoney(totalWinAmount), TradeColumns.fromMoney(totalLossAmount)) :
+                    BigDecimal.ZERO);
+        }
+    }
 }
@@ -1,7 +1,11 @@
 package am.trade.dashboard.service.metrics.calculator.impl;
 
+import am.trade.common.models.PerformanceMetrics;
 import am.trade.common.models.TradeDetails;
 import am.trade.dashboard.service.metrics.calculator.AbstractBigDecimalMetricCalculator;
+import am.trade.dashboard.service.metrics.calculator.AccumulatingMetricsCalculator;
+import am.trade.dashboard.service.metrics.calculator.TradeMetricsAccumulator;
+import am.trade.dashboard.service.metrics.columns.TradeColumns;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -11,7 +15,7 @@ import org.springframework.stereotype.Component;
  * Calculator for total profit/loss metric
  */
 @Component
-public class ProfitLossCalculator extends AbstractBigDecimalMetricCalculator {
+public class ProfitLossCalculator extends AbstractBigDecimalMetricCalculator implements AccumulatingMetricsCalculator {
 
     @Override
     protected BigDecimal doCalculate(List<TradeDetails> trades) {
@@ -21,8 +25,29 @@ public class ProfitLossCalculator extends AbstractBigDecimalMetricCalculator {
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
     }
 
+    @Override
+    public TradeMetricsAccumulator newAccumulator() {
+        return new Accumulator();
+    }
+
     @Override
     public String getMetricName() {
         return "totalProfitLoss";
     }
+    
+    private static final class Accumulator implements TradeMetricsAccumulator {
+        private long totalProfitLoss;
+        
+        @Override
+        public void accept(TradeColumns columns, int row) {
+            if (columns.hasProfitLoss(row)) {
+                totalProfitLoss += columns.profitLoss(row);
+            }
+        }
+        
+        @Override
+        public void applyTo(PerformanceMetrics metrics) {
+            metrics.setTotalProfitLoss(TradeColumns.fromMoney(totalProfitLoss));
+        }
+    }
 }
@@ -1,7 +1,11 @@
 package am.trade.dashboard.service.metrics.calculator.impl;
 
+import am.trade.common.models.PerformanceMetrics;
 import am.trade.common.models.TradeDetails;
 import am.trade.dashboard.service.metrics.calculator.AbstractBigDecimalMetricCalculator;
+import am.trade.dashboard.service.metrics.calculator.AccumulatingMetricsCalculator;
+import am.trade.dashboard.service.metrics.calculator.TradeMetricsAccumulator;
+import am.trade.dashboard.service.metrics.columns.TradeColumns;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
@@ -12,7 +16,7 @@ import java.util.List;
  * Calculator for Return on Capital (ROI) metric
  */
 @Component
-public class ReturnOnCapitalCalculator extends AbstractBigDecimalMetricCalculator {
+public class ReturnOnCapitalCalculator extends AbstractBigDecimalMetricCalculator implements AccumulatingMetricsCalculator {
 
     public ReturnOnCapitalCalculator() {
         super(2, RoundingMode.HALF_UP); // Use 2 decimal places for percentage
@@ -47,8 +51,39 @@ public class ReturnOnCapitalCalculator extends AbstractBigDecimalMetricCalculato
         return BigDecimal.ZERO;
     }
 
+    @Override
+    public TradeMetricsAccumulator newAccumulator() {
+        return new Accumulator();
+    }
+
     @Override
     public String getMetricName() {
         return "returnOnCapital";
     }
+    
+    private final class Accumulator implements TradeMetricsAccumulator {
+        private long totalProfitLoss;
+        private double totalInvestedAmount;
+        
+        @Override
+        public void accept(TradeColumns columns, int row) {
+            if (columns.hasProfitLoss(row)) {
+                totalProfitLoss += columns.profitLoss(row);
+            }
+            
+            double price = columns.entryPrice(row);
+            double quantity = columns.quantity(row);
+            if (!Double.isNaN(price) && !Double.isNaN(quantity)) {
+                totalInvestedAmount += price * quantity;
+            }
+        }
+        
+        @Override
+        public void applyTo(PerformanceMetrics metrics) {
+            metrics.setReturnOnCapital(totalInvestedAmount > 0 ?
+                    TradeColumns.fromMoney(totalProfitLoss).divide(BigDecimal.valueOf(totalInvestedAmount), scale, roundingMode)
+                            .multiply(new BigDecimal("100")) :
+                    BigDecimal.ZERO);
+        }
+    }
 }
@@ -2,7 +2,9 @@ package am.trade.dashboard.service.metrics.calculator.impl;
 
 import am.trade.common.models.PerformanceMetrics;
 import am.trade.common.models.TradeDetails;
-import am.trade.dashboard.service.metrics.calculator.MetricsCalculator;
+import am.trade.dashboard.service.metrics.calculator.AccumulatingMetricsCalculator;
+import am.trade.dashboard.service.metrics.calculator.TradeMetricsAccumulator;
+import am.trade.dashboard.service.metrics.columns.TradeColumns;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
@@ -14,16 +16,22 @@ import java.util.function.BiConsumer;
 /**
  * Calculator for winning and losing streaks.
  * This calculator is special as it calculates multiple metrics at once.
+ * Streaks are counted over closed trades in exit-time order, like the current streak.
  */
 @Component
 @Slf4j
-public class StreakCalculator implements MetricsCalculator {
+public class StreakCalculator implements AccumulatingMetricsCalculator {
 
     @Override
     public BigDecimal calculate(List<TradeDetails> trades) {
-        // This method is not used directly as this calculator sets multiple metrics
-        // Return a placeholder value
-        return BigDecimal.ZERO;
+        // This method returns the longest winning streak as the primary metric
+        if (trades == null || trades.isEmpty()) {
+            return BigDecimal.ZERO;
+        }
+        
+        Accumulator accumulator = new Accumulator();
+        accumulator.acceptAll(TradeColumns.of(trades));
+        return BigDecimal.valueOf(accumulator.maxWinStreak);
     }
     
     /**
@@ -37,44 +45,16 @@ public class StreakCalculator implements MetricsCalculator {
             return;
         }
         
-        int currentWinStreak = 0;
-        int currentLossStreak = 0;
-        int maxWinStreak = 0;
-        int maxLossStreak = 0;
-        
-        for (TradeDetails trade : trades) {
-            if (trade.getMetrics() == null || trade.getMetrics().getProfitLoss() == null) {
-                continue;
-            }
-            
-            BigDecimal profitLoss = trade.getMetrics().getProfitLoss();
-            int comparison = profitLoss.compareTo(BigDecimal.ZERO);
-            
-            if (comparison > 0) {
-                // Win
-                currentWinStreak++;
-                currentLossStreak = 0;
-                maxWinStreak = Math.max(maxWinStreak, currentWinStreak);
-            } else if (comparison < 0) {
-                // Loss
-                currentLossStreak++;
-                currentWinStreak = 0;
-                maxLossStreak = Math.max(maxLossStreak, currentLossStreak);
-            } else {
-                // Break even
-                currentWinStreak = 0;
-                currentLossStreak = 0;
-            }
+        try {
+            newAccumulator().acceptAll(TradeColumns.of(trades)).applyTo(metrics);
+        } catch (Exception e) {
+            log.error("Error calculating streaks", e);
         }
-        
-        // Set streak metrics
-        metrics.setLongestWinningStreak(maxWinStreak);
-        metrics.setLongestLosingStreak(maxLossStreak);
-        
-        // Also set current streaks if needed
-        // Note: These fields would need to be added to the PerformanceMetrics class
-        // metrics.setCurrentWinStreak(currentWinStreak);
-        // metrics.setCurrentLossStreak(currentLossStreak);
+    }
+    
+    @Override
+    public TradeMetricsAccumulator newAccumulator() {
+        return new Accumulator();
     }
 
     @Override
@@ -93,4 +73,44 @@ public class StreakCalculator implements MetricsCalculator {
             "longestLosingStreak", (metrics, value) -> metrics.setLongestLosingStreak(value.intValue())
         );
     }
+    
+    /**
+     * Tracks the longest runs of wins and losses; expects trades in exit-time order
+     */
+    private static final class Accumulator implements TradeMetricsAccumulator {
+        private int currentWinStreak;
+        private int currentLossStreak;
+        private int maxWinStreak;
+        private int maxLossStreak;
+        
+        @Override
+        public void accept(TradeColumns columns, int row) {
+            if (!columns.hasExitTime(row) || !columns.hasProfitLoss(row)) {
+                return;
+            }
+            
+            long profitLoss = columns.profitLoss(row);
+            if (profitLoss > 0) {
+                // Win
+                currentWinStreak++;
+                currentLossStreak = 0;
+                maxWinStreak = Math.max(maxWinStreak, currentWinStreak);
+            } else if (profitLoss < 0) {
+                // Loss
+                currentLossStreak++;
+                currentWinStreak = 0;
+                maxLossStreak = Math.max(maxLossStreak, currentLossStreak);
+            } else {
+                // Break even
+                currentWinStreak = 0;
+                currentLossStreak = 0;
+            }
+        }
+        
+        @Override
+        public void applyTo(PerformanceMetrics metrics) {
+            metrics.setLongestWinningStreak(maxWinStreak);
+            metrics.setLongestLosingStreak(maxLossStreak);
+        }
+    }
 }
@@ -2,17 +2,16 @@ package am.trade.dashboard.service.metrics.calculator.impl;
 
 import am.trade.common.models.PerformanceMetrics;
 import am.trade.common.models.TradeDetails;
-import am.trade.dashboard.service.metrics.calculator.MetricsCalculator;
+import am.trade.dashboard.service.metrics.calculator.AccumulatingMetricsCalculator;
+import am.trade.dashboard.service.metrics.calculator.TradeMetricsAccumulator;
+import am.trade.dashboard.service.metrics.columns.TradeColumns;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.List;
 
 /**
  * Advanced calculator for time-based return metrics (monthly, quarterly, annual)
@@ -20,7 +19,7 @@ import java.util.stream.Collectors;
  */
 @Component
 @Slf4j
-public class TimeBasedReturnCalculator implements MetricsCalculator {
+public class TimeBasedReturnCalculator implements AccumulatingMetricsCalculator {
 
     private static final int SCALE = 2;
     private static final RoundingMode ROUNDING_MODE = RoundingMode.HALF_UP;
@@ -33,35 +32,9 @@ public class TimeBasedReturnCalculator implements MetricsCalculator {
             return BigDecimal.ZERO;
         }
         
-        // Filter trades with valid timestamps and sort chronologically
-        List<TradeDetails> validTrades = trades.stream()
-                .filter(trade -> trade.getEntryInfo() != null && 
-                                trade.getEntryInfo().getTimestamp() != null &&
-                                trade.getMetrics() != null && 
-                                trade.getMetrics().getProfitLoss() != null)
-                .sorted(Comparator.comparing(t -> t.getEntryInfo().getTimestamp()))
-                .collect(Collectors.toList());
-                
-        if (validTrades.isEmpty()) {
-            return BigDecimal.ZERO;
-        }
-        
-        // Get first and last trade dates
-        LocalDateTime firstTradeDate = validTrades.get(0).getEntryInfo().getTimestamp();
-        LocalDateTime lastTradeDate = validTrades.get(validTrades.size() - 1).getEntryInfo().getTimestamp();
-        
-        // Calculate total profit/loss
-        BigDecimal totalProfitLoss = validTrades.stream()
-                .map(trade -> trade.getMetrics().getProfitLoss())
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        // Calculate trading period in years
-        double tradingYears = Math.max(0.1, ChronoUnit.DAYS.between(firstTradeDate, lastTradeDate) / 365.0);
-        
-        // Calculate annualized return (simple method)
-        return BigDecimal.valueOf(Math.pow(1 + totalProfitLoss.doubleValue(), 1 / tradingYears) - 1)
-                .multiply(new BigDecimal("100"))
-                .setScale(SCALE, ROUNDING_MODE);
+        Accumulator accumulator = new Accumulator(LocalDate.now());
+        accumulator.acceptAll(TradeColumns.of(trades));
+        return accumulator.annualizedReturn();
     }
     
     /**
@@ -76,98 +49,25 @@ public class TimeBasedReturnCalculator implements MetricsCalculator {
         }
         
         try {
-            // Filter and sort trades
-            List<TradeDetails> validTrades = trades.stream()
-                    .filter(trade -> trade.getEntryInfo() != null && 
-                                    trade.getEntryInfo().getTimestamp() != null &&
-                                    trade.getMetrics() != null && 
-                                    trade.getMetrics().getProfitLoss() != null)
-                    .sorted(Comparator.comparing(t -> t.getEntryInfo().getTimestamp()))
-                    .collect(Collectors.toList());
-                    
-            if (validTrades.isEmpty()) {
-                return;
-            }
-            
-            // Group trades by time periods
-            Map<Integer, List<TradeDetails>> tradesByYear = new HashMap<>();
-            Map<Integer, List<TradeDetails>> tradesByQuarter = new HashMap<>();
-            Map<Integer, List<TradeDetails>> tradesByMonth = new HashMap<>();
-            
-            for (TradeDetails trade : validTrades) {
-                LocalDateTime timestamp = trade.getEntryInfo().getTimestamp();
-                int year = timestamp.getYear();
-                int quarter = (timestamp.getMonthValue() - 1) / 3 + 1;
-                int month = timestamp.getMonthValue();
-                
-                // Group by year
-                tradesByYear.computeIfAbsent(year, k -> new ArrayList<>()).add(trade);
-                
-                // Group by quarter (year * 10 + quarter gives a unique key)
-                int quarterKey = year * 10 + quarter;
-                tradesByQuarter.computeIfAbsent(quarterKey, k -> new ArrayList<>()).add(trade);
-                
-                // Group by month (year * 100 + month gives a unique key)
-                int monthKey = year * 100 + month;
-                tradesByMonth.computeIfAbsent(monthKey, k -> new ArrayList<>()).add(trade);
-            }
-            
-            // Calculate year-to-date return
-            int currentYear = LocalDate.now().getYear();
-            List<TradeDetails> ytdTrades = tradesByYear.get(currentYear);
-            if (ytdTrades != null && !ytdTrades.isEmpty()) {
-                BigDecimal ytdReturn = calculateReturnForTrades(ytdTrades);
-                metrics.setYearToDateReturn(ytdReturn);
-            }
-            
-            // Calculate quarterly return (most recent quarter)
-            int currentQuarter = (LocalDate.now().getMonthValue() - 1) / 3 + 1;
-            int currentQuarterKey = currentYear * 10 + currentQuarter;
-            List<TradeDetails> quarterTrades = tradesByQuarter.get(currentQuarterKey);
-            if (quarterTrades != null && !quarterTrades.isEmpty()) {
-                BigDecimal quarterlyReturn = calculateReturnForTrades(quarterTrades);
-                metrics.setQuarterlyReturn(quarterlyReturn);
-            }
-            
-            // Calculate monthly return (most recent month)
-            int currentMonth = LocalDate.now().getMonthValue();
-            int currentMonthKey = currentYear * 100 + currentMonth;
-            List<TradeDetails> monthTrades = tradesByMonth.get(currentMonthKey);
-            if (monthTrades != null && !monthTrades.isEmpty()) {
-                BigDecimal monthlyReturn = calculateReturnForTrades(monthTrades);
-                metrics.setMonthlyReturn(monthlyReturn);
-            }
-            
-            // Calculate annualized return
-            BigDecimal annualizedReturn = calculate(validTrades);
-            metrics.setAnnualizedReturn(annualizedReturn);
-            
+            newAccumulator().acceptAll(TradeColumns.of(trades)).applyTo(metrics);
         } catch (Exception e) {
             log.error("Error calculating time-based returns", e);
         }
     }
     
+    @Override
+    public TradeMetricsAccumulator newAccumulator() {
+        return new Accumulator(LocalDate.now());
+    }
+    
     /**
-     * Calculate return percentage for a list of trades
+     * Calculate return percentage from summed profit/loss and invested amount
      * 
-     * @param trades List of trades
+     * @param totalProfitLoss Summed profit/loss
+     * @param totalInvested Summed entry value
      * @return Return percentage
      */
-    private BigDecimal calculateReturnForTrades(List<TradeDetails> trades) {
-        if (trades == null || trades.isEmpty()) {
-            return BigDecimal.ZERO;
-        }
-        
-        BigDecimal totalProfitLoss = trades.stream()
-                .map(trade -> trade.getMetrics().getProfitLoss())
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-                
-        BigDecimal totalInvested = trades.stream()
-                .filter(trade -> trade.getEntryInfo() != null && 
-                               trade.getEntryInfo().getTotalValue() != null)
-                .map(trade -> trade.getEntryInfo().getTotalValue())
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-                
+    private static BigDecimal calculateReturn(BigDecimal totalProfitLoss, BigDecimal totalInvested) {
         if (totalInvested.compareTo(BigDecimal.ZERO) > 0) {
             return totalProfitLoss.divide(totalInvested, SCALE, ROUNDING_MODE)
                     .multiply(new BigDecimal("100"));
@@ -180,4 +80,119 @@ public class TimeBasedReturnCalculator implements MetricsCalculator {
     public String getMetricName() {
         return "annualizedReturn";
     }
+    
+    /**
+     * Sums profit/loss and invested amount for the current year, quarter and month,
+     * and tracks the overall trading period for the annualized return
+     */
+    private static final class Accumulator implements TradeMetricsAccumulator {
+        // Period bounds as epoch millis, start inclusive and end exclusive
+        private final long yearStart;
+        private final long yearEnd;
+        private final long quarterStart;
+        private final long quarterEnd;
+        private final long monthStart;
+        private final long monthEnd;
+        
+        private final PeriodTotals yearToDate = new PeriodTotals();
+        private final PeriodTotals quarter = new PeriodTotals();
+        private final PeriodTotals month = new PeriodTotals();
+        
+        private long totalProfitLoss;
+        private long firstTradeTime = Long.MAX_VALUE;
+        private long lastTradeTime = Long.MIN_VALUE;
+        
+        private Accumulator(LocalDate today) {
+            LocalDate firstOfYear = today.withDayOfYear(1);
+            LocalDate firstOfQuarter = today.withDayOfMonth(1).withMonth((today.getMonthValue() - 1) / 3 * 3 + 1);
+            LocalDate firstOfMonth = today.withDayOfMonth(1);
+            
+            this.yearStart = TradeColumns.toEpochMillis(firstOfYear.atStartOfDay());
+            this.yearEnd = TradeColumns.toEpochMillis(firstOfYear.plusYears(1).atStartOfDay());
+            this.quarterStart = TradeColumns.toEpochMillis(firstOfQuarter.atStartOfDay());
+            this.quarterEnd = TradeColumns.toEpochMillis(firstOfQuarter.plusMonths(3).atStartOfDay());
+            this.monthStart = TradeColumns.toEpochMillis(firstOfMonth.atStartOfDay());
+            this.monthEnd = TradeColumns.toEpochMillis(firstOfMonth.plusMonths(1).atStartOfDay());
+        }
+        
+        @Override
+        public void accept(TradeColumns columns, int row) {
+            if (!columns.hasEntryTime(row) || !columns.hasProfitLoss(row)) {
+                return;
+            }
+            
+            long entryTime = columns.entryTime(row);
+            totalProfitLoss += columns.profitLoss(row);
+            firstTradeTime = Math.min(firstTradeTime, entryTime);
+            lastTradeTime = Math.max(lastTradeTime, entryTime);
+            
+            if (entryTime < yearStart || entryTime >= yearEnd) {
+                return;
+            }
+            yearToDate.add(columns, row);
+            if (entryTime >= quarterStart && entryTime < quarterEnd) {
+                quarter.add(columns, row);
+            }
+            if (entryTime >= monthStart && entryTime < monthEnd) {
+                month.add(columns, row);
+            }
+        }
+        
+        @Override
+        public void applyTo(PerformanceMetrics metrics) {
+            if (firstTradeTime > lastTradeTime) {
+                return;
+            }
+            
+            if (yearToDate.tradeCount > 0) {
+                metrics.setYearToDateReturn(yearToDate.returnPercentage());
+            }
+            
+            // Most recent quarter
+            if (quarter.tradeCount > 0) {
+                metrics.setQuarterlyReturn(quarter.returnPercentage());
+            }
+            
+            // Most recent month
+            if (month.tradeCount > 0) {
+                metrics.setMonthlyReturn(month.returnPercentage());
+            }
+            
+            metrics.setAnnualizedReturn(annualizedReturn());
+        }
+        
+        private BigDecimal annualizedReturn() {
+            if (firstTradeTime > lastTradeTime) {
+                return BigDecimal.ZERO;
+            }
+            
+            // Calculate trading period in years, counting whole days
+            long tradingDays = (lastTradeTime - firstTradeTime) / TradeColumns.MILLIS_PER_DAY;
+            double tradingYears = Math.max(0.1, tradingDays / 365.0);
+            
+            // Calculate annualized return (simple method)
+            return BigDecimal.valueOf(Math.pow(1 + TradeColumns.moneyToDouble(totalProfitLoss), 1 / tradingYears) - 1)
+                    .multiply(new BigDecimal("100"))
+                    .setScale(SCALE, ROUNDING_MODE);
+        }
+    }
+    
+    private static final class PeriodTotals {
+        private int tradeCount;
+        private long totalProfitLoss;
+        private double totalInvested;
+        
+        private void add(TradeColumns columns, int row) {
+            tradeCount++;
+            totalProfitLoss += columns.profitLoss(row);
+            double invested = columns.entryValue(row);
+            if (!Double.isNaN(invested)) {
+                totalInvested += invested;
+            }
+        }
+        
+        private BigDecimal returnPercentage() {
+            return calculateReturn(TradeColumns.fromMoney(totalProfitLoss), BigDecimal.valueOf(totalInvested));
+        }
+    }
 }
@@ -1,7 +1,11 @@
 package am.trade.dashboard.service.metrics.calculator.impl;
 
+import am.trade.common.models.PerformanceMetrics;
 import am.trade.common.models.TradeDetails;
 import am.trade.dashboard.service.metrics.calculator.AbstractBigDecimalMetricCalculator;
+import am.trade.dashboard.service.metrics.calculator.AccumulatingMetricsCalculator;
+import am.trade.dashboard.service.metrics.calculator.TradeMetricsAccumulator;
+import am.trade.dashboard.service.metrics.columns.TradeColumns;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
@@ -11,7 +15,7 @@ import java.util.List;
  * Calculator for win-loss ratio metric (average win / average loss)
  */
 @Component
-public class WinLossRatioCalculator extends AbstractBigDecimalMetricCalculator {
+public class WinLossRatioCalculator extends AbstractBigDecimalMetricCalculator implements AccumulatingMetricsCalculator {
 
     @Override
     protected BigDecimal doCalculate(List<TradeDetails> trades) {
@@ -54,8 +58,50 @@ public class WinLossRatioCalculator extends AbstractBigDecimalMetricCalculator {
                 BigDecimal.ZERO;
     }
 
+    @Override
+    public TradeMetricsAccumulator newAccumulator() {
+        return new Accumulator();
+    }
+
     @Override
     public String getMetricName() {
         return "winLossRatio";
     }
+    
+    private final class Accumulator implements TradeMetricsAccumulator {
+        private long totalWinAmount;
+        private long totalLossAmount;
+        private int winCount;
+        private int lossCount;
+        
+        @Override
+        public void accept(TradeColumns columns, int row) {
+            if (!columns.hasProfitLoss(row)) {
+                return;
+            }
+            
+            long profitLoss = columns.profitLoss(row);
+            if (profitLoss > 0) {
+                totalWinAmount += profitLoss;
+                winCount++;
+            } else if (profitLoss < 0) {
+                totalLossAmount -= profitLoss;
+                lossCount++;
+            }
+        }
+        
+        @Override
+        public void applyTo(PerformanceMetrics metrics) {
+            // Same rounding steps as doCalculate
+            BigDecimal averageWin = winCount > 0 ?
+                    safeDivide(TradeColumns.fromMoney(totalWinAmount), BigDecimal.valueOf(winCount)) :
+                    BigDecimal.ZERO;
+            BigDecimal averageLoss = lossCount > 0 ?
+                    safeDivide(TradeColumns.fromMoney(totalLossAmount), BigDecimal.valueOf(lossCount)) :
+                    BigDecimal.ZERO;
+            metrics.setWinLossRatio(averageLoss.compareTo(BigDecimal.ZERO) > 0 ?
+                    safeDivide(averageWin, averageLoss) :
+                    BigDecimal.ZERO);
+        }
+    }
 }
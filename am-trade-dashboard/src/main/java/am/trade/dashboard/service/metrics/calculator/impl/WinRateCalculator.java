@@ -1,7 +1,10 @@
 package am.trade.dashboard.service.metrics.calculator.impl;
 
+import am.trade.common.models.PerformanceMetrics;
 import am.trade.common.models.TradeDetails;
-import am.trade.dashboard.service.metrics.calculator.MetricsCalculator;
+import am.trade.dashboard.service.metrics.calculator.AccumulatingMetricsCalculator;
+import am.trade.dashboard.service.metrics.calculator.TradeMetricsAccumulator;
+import am.trade.dashboard.service.metrics.columns.TradeColumns;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
@@ -12,7 +15,7 @@ import java.util.List;
  * Calculator for win rate metrics
  */
 @Component
-public class WinRateCalculator implements MetricsCalculator {
+public class WinRateCalculator implements AccumulatingMetricsCalculator {
 
     private static final int SCALE = 2; // Win rate typically shown as percentage with 2 decimal places
     private static final RoundingMode ROUNDING_MODE = RoundingMode.HALF_UP;
@@ -23,17 +26,44 @@ public class WinRateCalculator implements MetricsCalculator {
             return BigDecimal.ZERO;
         }
         
-        long winCount = trades.stream()
-                .filter(t -> t.getMetrics() != null && t.getMetrics().getProfitLoss() != null && 
-                       t.getMetrics().getProfitLoss().compareTo(BigDecimal.ZERO) > 0)
-                .count();
-        
-        // Calculate as percentage
-        return BigDecimal.valueOf(winCount * 100.0 / trades.size()).setScale(SCALE, ROUNDING_MODE);
+        Accumulator accumulator = new Accumulator();
+        accumulator.acceptAll(TradeColumns.of(trades));
+        return accumulator.winRate();
+    }
+    
+    @Override
+    public TradeMetricsAccumulator newAccumulator() {
+        return new Accumulator();
     }
     
     @Override
     public String getMetricName() {
         return "Win Rate";
     }
+    
+    private static final class Accumulator implements TradeMetricsAccumulator {
+        private long tradeCount;
+        private long winCount;
+        
+        @Override
+        public void accept(TradeColumns columns, int row) {
+            tradeCount++;
+            if (columns.hasProfitLoss(row) && columns.profitLoss(row) > 0) {
+                winCount++;
+            }
+        }
+        
+        @Override
+        public void applyTo(PerformanceMetrics metrics) {
+            metrics.setWinRate(winRate());
+        }
+        
+        private BigDecimal winRate() {
+            if (tradeCount == 0) {
+                return BigDecimal.ZERO;
+            }
+            // Calculate as percentage
+            return BigDecimal.valueOf(winCount * 100.0 / tradeCount).setScale(SCALE, ROUNDING_MODE);
+        }
+    }
 }
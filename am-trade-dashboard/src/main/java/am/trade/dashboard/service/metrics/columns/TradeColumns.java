@@ -0,0 +1,431 @@
+package am.trade.dashboard.service.metrics.columns;
+
+import am.trade.common.models.EntryExitInfo;
+import am.trade.common.models.TradeDetails;
+import am.trade.common.models.TradeMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column-oriented, primitive snapshot of a list of trades.
+ *
+ * Built once per calculation so the metric loops read flat arrays instead of walking
+ * {@link TradeDetails} object graphs, null-checking nested getters and doing BigDecimal
+ * arithmetic per trade. Row {@code i} describes the {@code i}-th trade of the source list.
+ *
+ * Encoding of absent values: times are {@link #NO_TIME}, money amounts {@link #NO_MONEY},
+ * other decimals {@code NaN}, enums {@link #NO_CODE} and dictionary codes {@code -1}.
+ * Times are epoch milliseconds of the trade's local timestamp read as UTC, so calendar
+ * boundaries of a {@link LocalDateTime} map to exact millisecond values.
+ * Money amounts (profit/loss) are longs scaled by {@link #MONEY_SCALE} decimal places, which
+ * keeps sums exact. A profit/loss too large for that encoding is logged and treated as absent.
+ */
+@Slf4j
+public final class TradeColumns {
+
+    public static final long NO_TIME = Long.MIN_VALUE;
+    public static final long NO_MONEY = Long.MIN_VALUE;
+    public static final byte NO_CODE = -1;
+    public static final int MONEY_SCALE = 4;
+    public static final long MILLIS_PER_DAY = 86_400_000L;
+    private static final double MONEY_FACTOR = Math.pow(10, MONEY_SCALE);
+
+    private final int size;
+    private final TradeDetails[] trades;
+
+    private final long[] entryTimes;
+    private final long[] exitTimes;
+
+    private final long[] profitLoss;
+    private final double[] profitLossPercentages;
+    private final double[] entryPrices;
+    private final double[] exitPrices;
+    private final double[] quantities;
+    private final double[] entryValues;
+    private final double[] fees;
+    private final double[] maxAdverseExcursions;
+    private final double[] maxFavorableExcursions;
+
+    private final byte[] statuses;
+    private final byte[] directions;
+
+    private final int[] symbolCodes;
+    private final int[] strategyCodes;
+    private final String[] symbolDictionary;
+    private final String[] strategyDictionary;
+
+    // Tags of row i are tagCodes[tagOffsets[i] .. tagOffsets[i + 1])
+    private final int[] tagOffsets;
+    private final int[] tagCodes;
+    private final String[] tagDictionary;
+
+    // Lazily built; volatile so families running in parallel can share one snapshot
+    private volatile int[] entryTimeOrder;
+    private volatile int[] exitTimeOrder;
+
+    private TradeColumns(List<TradeDetails> source) {
+        size = source.size();
+        trades = source.toArray(new TradeDetails[0]);
+
+        entryTimes = new long[size];
+        exitTimes = new long[size];
+        profitLoss = new long[size];
+        profitLossPercentages = new double[size];
+        entryPrices = new double[size];
+        exitPrices = new double[size];
+        quantities = new double[size];
+        entryValues = new double[size];
+        fees = new double[size];
+        maxAdverseExcursions = new double[size];
+        maxFavorableExcursions = new double[size];
+        statuses = new byte[size];
+        directions = new byte[size];
+        symbolCodes = new int[size];
+        strategyCodes = new int[size];
+        tagOffsets = new int[size + 1];
+
+        Dictionary symbols = new Dictionary();
+        Dictionary strategies = new Dictionary();
+        Dictionary tags = new Dictionary();
+        int[] tagBuffer = new int[size];
+        int tagCount = 0;
+
+        for (int i = 0; i < size; i++) {
+            TradeDetails trade = trades[i];
+            EntryExitInfo entry = trade.getEntryInfo();
+            EntryExitInfo exit = trade.getExitInfo();
+            TradeMetrics metrics = trade.getMetrics();
+
+            entryTimes[i] = entry != null ? toEpochMillis(entry.getTimestamp()) : NO_TIME;
+            exitTimes[i] = exit != null ? toEpochMillis(exit.getTimestamp()) : NO_TIME;
+
+            profitLoss[i] = metrics != null ? profitLossOf(trade, metrics.getProfitLoss()) : NO_MONEY;
+            profitLossPercentages[i] = metrics != null ? toDouble(metrics.getProfitLossPercentage()) : Double.NaN;
+            maxAdverseExcursions[i] = metrics != null ? toDouble(metrics.getMaxAdverseExcursion()) : Double.NaN;
+            maxFavorableExcursions[i] = metrics != null ? toDouble(metrics.getMaxFavorableExcursion()) : Double.NaN;
+
+            entryPrices[i] = entry != null ? toDouble(entry.getPrice()) : Double.NaN;
+            exitPrices[i] = exit != null ? toDouble(exit.getPrice()) : Double.NaN;
+            quantities[i] = entry != null && entry.getQuantity() != null ? entry.getQuantity().doubleValue() : Double.NaN;
+            entryValues[i] = entry != null ? toDouble(entry.getTotalValue()) : Double.NaN;
+            fees[i] = sumFees(entry, exit);
+
+            statuses[i] = trade.getStatus() != null ? (byte) trade.getStatus().ordinal() : NO_CODE;
+            directions[i] = trade.getTradePositionType() != null ? (byte) trade.getTradePositionType().ordinal() : NO_CODE;
+
+            symbolCodes[i] = symbols.code(trade.getSymbol());
+            strategyCodes[i] = strategies.code(trade.getStrategy());
+
+            tagOffsets[i] = tagCount;
+            if (trade.getTags() != null) {
+                for (String tag : trade.getTags()) {
+                    if (tag == null) {
+                        continue;
+                    }
+                    if (tagCount == tagBuffer.length) {
+                        tagBuffer = Arrays.copyOf(tagBuffer, Math.max(8, tagBuffer.length * 2));
+                    }
+                    tagBuffer[tagCount++] = tags.code(tag);
+                }
+            }
+        }
+        tagOffsets[size] = tagCount;
+        tagCodes = Arrays.copyOf(tagBuffer, tagCount);
+
+        symbolDictionary = symbols.values();
+        strategyDictionary = strategies.values();
+        tagDictionary = tags.values();
+    }
+
+    /**
+     * Build a snapshot of the given trades, keeping their order
+     *
+     * @param trades List of trades
+     * @return Column snapshot of the trades
+     */
+    public static TradeColumns of(List<TradeDetails> trades) {
+        return new TradeColumns(trades == null ? List.of() : trades);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The source trade of a row, for the few calculations that still need the full object
+     */
+    public TradeDetails trade(int row) {
+        return trades[row];
+    }
+
+    public long entryTime(int row) {
+        return entryTimes[row];
+    }
+
+    public long exitTime(int row) {
+        return exitTimes[row];
+    }
+
+    public boolean hasEntryTime(int row) {
+        return entryTimes[row] != NO_TIME;
+    }
+
+    public boolean hasExitTime(int row) {
+        return exitTimes[row] != NO_TIME;
+    }
+
+    /**
+     * Profit/loss of a row scaled by {@link #MONEY_SCALE}, or {@link #NO_MONEY}
+     */
+    public long profitLoss(int row) {
+        return profitLoss[row];
+    }
+
+    public boolean hasProfitLoss(int row) {
+        return profitLoss[row] != NO_MONEY;
+    }
+
+    public double profitLossPercentage(int row) {
+        return profitLossPercentages[row];
+    }
+
+    public double entryPrice(int row) {
+        return entryPrices[row];
+    }
+
+    public double exitPrice(int row) {
+        return exitPrices[row];
+    }
+
+    public double quantity(int row) {
+        return quantities[row];
+    }
+
+    /**
+     * Entry total value of a row, used as the invested amount
+     */
+    public double entryValue(int row) {
+        return entryValues[row];
+    }
+
+    /**
+     * Entry plus exit fees of a row
+     */
+    public double fees(int row) {
+        return fees[row];
+    }
+
+    public double maxAdverseExcursion(int row) {
+        return maxAdverseExcursions[row];
+    }
+
+    public double maxFavorableExcursion(int row) {
+        return maxFavorableExcursions[row];
+    }
+
+    /**
+     * {@link am.trade.common.models.enums.TradeStatus} ordinal of a row, or {@link #NO_CODE}
+     */
+    public byte status(int row) {
+        return statuses[row];
+    }
+
+    /**
+     * {@link am.trade.common.models.enums.TradePositionType} ordinal of a row, or {@link #NO_CODE}
+     */
+    public byte direction(int row) {
+        return directions[row];
+    }
+
+    public int symbolCode(int row) {
+        return symbolCodes[row];
+    }
+
+    public int strategyCode(int row) {
+        return strategyCodes[row];
+    }
+
+    public String symbol(int code) {
+        return code < 0 ? null : symbolDictionary[code];
+    }
+
+    public String strategy(int code) {
+        return code < 0 ? null : strategyDictionary[code];
+    }
+
+    public int tagStart(int row) {
+        return tagOffsets[row];
+    }
+
+    public int tagEnd(int row) {
+        return tagOffsets[row + 1];
+    }
+
+    public int tagCode(int index) {
+        return tagCodes[index];
+    }
+
+    public String tag(int code) {
+        return tagDictionary[code];
+    }
+
+    /**
+     * Rows ordered by entry time, ties in row order, rows without an entry time last
+     *
+     * @return Row indexes; shared, must not be modified
+     */
+    public int[] entryTimeOrder() {
+        int[] rows = entryTimeOrder;
+        if (rows == null) {
+            rows = order(entryTimes);
+            entryTimeOrder = rows;
+        }
+        return rows;
+    }
+
+    /**
+     * Rows ordered by exit time, ties in row order, rows without an exit time last
+     *
+     * @return Row indexes; shared, must not be modified
+     */
+    public int[] exitTimeOrder() {
+        int[] rows = exitTimeOrder;
+        if (rows == null) {
+            rows = order(exitTimes);
+            exitTimeOrder = rows;
+        }
+        return rows;
+    }
+
+    public static long toEpochMillis(LocalDateTime timestamp) {
+        return timestamp == null ? NO_TIME : timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    public static long epochDay(long epochMillis) {
+        return Math.floorDiv(epochMillis, MILLIS_PER_DAY);
+    }
+
+    public static LocalDate toLocalDate(long epochMillis) {
+        return LocalDate.ofEpochDay(epochDay(epochMillis));
+    }
+
+    /**
+     * @return The amount scaled by {@link #MONEY_SCALE}, or {@link #NO_MONEY} if it is null
+     * @throws ArithmeticException if the scaled amount does not fit in a long
+     */
+    public static long toMoney(BigDecimal value) {
+        return value == null ? NO_MONEY : value.setScale(MONEY_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal fromMoney(long money) {
+        return BigDecimal.valueOf(money, MONEY_SCALE);
+    }
+
+    public static double moneyToDouble(long money) {
+        return money / MONEY_FACTOR;
+    }
+
+    /**
+     * A corrupt amount on one trade must not fail the whole calculation, so it is left out
+     * of the money metrics instead
+     */
+    private static long profitLossOf(TradeDetails trade, BigDecimal value) {
+        long money;
+        try {
+            money = toMoney(value);
+        } catch (ArithmeticException e) {
+            money = NO_MONEY;
+        }
+        if (money == NO_MONEY && value != null) {
+            log.warn("Ignoring out-of-range profit/loss {} of trade {}", value, trade.getTradeId());
+        }
+        return money;
+    }
+
+    private static double toDouble(BigDecimal value) {
+        return value == null ? Double.NaN : value.doubleValue();
+    }
+
+    private static double sumFees(EntryExitInfo entry, EntryExitInfo exit) {
+        double entryFees = entry != null ? toDouble(entry.getFees()) : Double.NaN;
+        double exitFees = exit != null ? toDouble(exit.getFees()) : Double.NaN;
+        if (Double.isNaN(entryFees)) {
+            return exitFees;
+        }
+        return Double.isNaN(exitFees) ? entryFees : entryFees + exitFees;
+    }
+
+    /**
+     * Stable bottom-up merge sort of row indexes by time, {@link #NO_TIME} last
+     */
+    private static int[] order(long[] times) {
+        int n = times.length;
+        int[] order = new int[n];
+        int[] buffer = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+
+        for (int width = 1; width < n; width <<= 1) {
+            for (int lo = 0; lo < n - width; lo += width << 1) {
+                int mid = lo + width;
+                int hi = Math.min(lo + (width << 1), n);
+                int i = lo;
+                int j = mid;
+                int k = lo;
+                while (i < mid && j < hi) {
+                    buffer[k++] = before(times[order[j]], times[order[i]]) ? order[j++] : order[i++];
+                }
+                while (i < mid) {
+                    buffer[k++] = order[i++];
+                }
+                while (j < hi) {
+                    buffer[k++] = order[j++];
+                }
+                System.arraycopy(buffer, lo, order, lo, hi - lo);
+            }
+        }
+        return order;
+    }
+
+    private static boolean before(long time, long other) {
+        if (time == NO_TIME) {
+            return false;
+        }
+        return other == NO_TIME || time < other;
+    }
+
+    /**
+     * Assigns dense int codes to distinct strings in first-seen order
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+
+        private int code(String value) {
+            if (value == null) {
+                return -1;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = codes.size();
+                codes.put(value, code);
+            }
+            return code;
+        }
+
+        private String[] values() {
+            String[] values = new String[codes.size()];
+            codes.forEach((value, code) -> values[code] = value);
+            return values;
+        }
+    }
+}
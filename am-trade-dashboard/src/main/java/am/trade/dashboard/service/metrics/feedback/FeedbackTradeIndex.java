@@ -0,0 +1,271 @@
+package am.trade.dashboard.service.metrics.feedback;
+
+import am.trade.common.models.TradeDetails;
+import am.trade.common.models.enums.EntryPsychology;
+import am.trade.common.models.enums.ExitPsychology;
+import am.trade.common.models.enums.TradeBehaviorPattern;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable index of the trades being analyzed for feedback, built once and shared by all
+ * analyzers (which may run concurrently).
+ *
+ * Holds the groupings the analyzers work on, with profit/loss statistics precomputed per group:
+ * <ul>
+ *   <li>by behavior pattern: a trade is in the group of every pattern it lists, once per listing</li>
+ *   <li>by entry psychology and by exit psychology: by the first factor a trade lists</li>
+ * </ul>
+ * plus the same statistics over all trades and the trades in entry-time order.
+ */
+public final class FeedbackTradeIndex {
+
+    private static final Comparator<TradeDetails> BY_ENTRY_TIME = Comparator.comparing(
+            FeedbackTradeIndex::entryTime, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final List<TradeDetails> trades;
+    private final List<TradeDetails> chronological;
+    private final GroupStats overall;
+    private final Map<TradeBehaviorPattern, GroupStats> byPattern;
+    private final Map<EntryPsychology, GroupStats> byEntryPsychology;
+    private final Map<ExitPsychology, GroupStats> byExitPsychology;
+    private final double averageRiskRewardRatio;
+
+    private FeedbackTradeIndex(List<TradeDetails> source) {
+        this.trades = Collections.unmodifiableList(new ArrayList<>(source));
+
+        List<TradeDetails> sorted = new ArrayList<>(source);
+        sorted.sort(BY_ENTRY_TIME);
+        this.chronological = Collections.unmodifiableList(sorted);
+
+        GroupBuilder all = new GroupBuilder();
+        Map<TradeBehaviorPattern, GroupBuilder> patterns = new LinkedHashMap<>();
+        Map<EntryPsychology, GroupBuilder> entryPsychology = new LinkedHashMap<>();
+        Map<ExitPsychology, GroupBuilder> exitPsychology = new LinkedHashMap<>();
+        double riskRewardSum = 0.0;
+        int riskRewardCount = 0;
+
+        for (TradeDetails trade : source) {
+            all.add(trade);
+
+            if (trade.getMetrics() != null && trade.getMetrics().getRiskRewardRatio() != null) {
+                riskRewardSum += trade.getMetrics().getRiskRewardRatio().doubleValue();
+                riskRewardCount++;
+            }
+
+            if (trade.getPsychologyData() == null) {
+                continue;
+            }
+            if (trade.getPsychologyData().getBehaviorPatterns() != null) {
+                for (TradeBehaviorPattern pattern : trade.getPsychologyData().getBehaviorPatterns()) {
+                    if (pattern == null) {
+                        continue;
+                    }
+                    patterns.computeIfAbsent(pattern, k -> new GroupBuilder()).add(trade);
+                }
+            }
+            List<EntryPsychology> entryFactors = trade.getPsychologyData().getEntryPsychologyFactors();
+            if (entryFactors != null && !entryFactors.isEmpty() && entryFactors.get(0) != null) {
+                entryPsychology.computeIfAbsent(entryFactors.get(0), k -> new GroupBuilder()).add(trade);
+            }
+            List<ExitPsychology> exitFactors = trade.getPsychologyData().getExitPsychologyFactors();
+            if (exitFactors != null && !exitFactors.isEmpty() && exitFactors.get(0) != null) {
+                exitPsychology.computeIfAbsent(exitFactors.get(0), k -> new GroupBuilder()).add(trade);
+            }
+        }
+
+        this.overall = all.build();
+        this.byPattern = build(patterns);
+        this.byEntryPsychology = build(entryPsychology);
+        this.byExitPsychology = build(exitPsychology);
+        this.averageRiskRewardRatio = riskRewardCount == 0 ? 0.0 : riskRewardSum / riskRewardCount;
+    }
+
+    /**
+     * Build the index of the given trades
+     *
+     * @param trades List of trades to analyze
+     * @return Index over the trades
+     */
+    public static FeedbackTradeIndex of(List<TradeDetails> trades) {
+        return new FeedbackTradeIndex(trades == null ? List.of() : trades);
+    }
+
+    /**
+     * All trades, in their original order
+     */
+    public List<TradeDetails> trades() {
+        return trades;
+    }
+
+    public int size() {
+        return trades.size();
+    }
+
+    public boolean isEmpty() {
+        return trades.isEmpty();
+    }
+
+    /**
+     * All trades by entry time, trades without an entry time last
+     */
+    public List<TradeDetails> chronological() {
+        return chronological;
+    }
+
+    /**
+     * Statistics over all trades
+     */
+    public GroupStats overall() {
+        return overall;
+    }
+
+    public Map<TradeBehaviorPattern, GroupStats> byPattern() {
+        return byPattern;
+    }
+
+    public Map<EntryPsychology, GroupStats> byEntryPsychology() {
+        return byEntryPsychology;
+    }
+
+    public Map<ExitPsychology, GroupStats> byExitPsychology() {
+        return byExitPsychology;
+    }
+
+    /**
+     * Number of times the behavior pattern with the given code is listed across all trades
+     */
+    public int patternOccurrences(String patternCode) {
+        for (Map.Entry<TradeBehaviorPattern, GroupStats> entry : byPattern.entrySet()) {
+            if (entry.getKey().getCode().equals(patternCode)) {
+                return entry.getValue().size();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Average risk-reward ratio over the trades that have one
+     */
+    public double averageRiskRewardRatio() {
+        return averageRiskRewardRatio;
+    }
+
+    private static LocalDateTime entryTime(TradeDetails trade) {
+        return trade.getEntryInfo() != null ? trade.getEntryInfo().getTimestamp() : null;
+    }
+
+    private static <K> Map<K, GroupStats> build(Map<K, GroupBuilder> builders) {
+        Map<K, GroupStats> groups = new LinkedHashMap<>();
+        builders.forEach((key, builder) -> groups.put(key, builder.build()));
+        return Collections.unmodifiableMap(groups);
+    }
+
+    /**
+     * Profit/loss statistics of a group of trades
+     */
+    public static final class GroupStats {
+
+        private final List<TradeDetails> trades;
+        private final int winCount;
+        private final int profitLossCount;
+        private final double totalProfitLoss;
+        private final double grossProfit;
+        private final double grossLoss;
+
+        private GroupStats(List<TradeDetails> trades, int winCount, int profitLossCount,
+                           double totalProfitLoss, double grossProfit, double grossLoss) {
+            this.trades = trades;
+            this.winCount = winCount;
+            this.profitLossCount = profitLossCount;
+            this.totalProfitLoss = totalProfitLoss;
+            this.grossProfit = grossProfit;
+            this.grossLoss = grossLoss;
+        }
+
+        public List<TradeDetails> trades() {
+            return trades;
+        }
+
+        public int size() {
+            return trades.size();
+        }
+
+        public int winCount() {
+            return winCount;
+        }
+
+        /**
+         * Whole-number percentage of the group's trades with a positive profit/loss
+         */
+        public double winRate() {
+            return trades.isEmpty() ? 0.0 : Math.round((double) winCount / trades.size() * 100);
+        }
+
+        public double totalProfitLoss() {
+            return totalProfitLoss;
+        }
+
+        /**
+         * Whether the group's total profit/loss is positive
+         */
+        public boolean isProfitable() {
+            return totalProfitLoss > 0;
+        }
+
+        /**
+         * Average profit/loss over the group's trades that have one
+         */
+        public double averageProfitLoss() {
+            return profitLossCount == 0 ? 0.0 : totalProfitLoss / profitLossCount;
+        }
+
+        /**
+         * Gross profit over gross loss; infinite without losses, 0 without either
+         */
+        public double profitFactor() {
+            if (grossLoss > 0) {
+                return grossProfit / grossLoss;
+            }
+            return grossProfit > 0 ? Double.POSITIVE_INFINITY : 0.0;
+        }
+    }
+
+    private static final class GroupBuilder {
+
+        private final List<TradeDetails> trades = new ArrayList<>();
+        private int winCount;
+        private int profitLossCount;
+        private double totalProfitLoss;
+        private double grossProfit;
+        private double grossLoss;
+
+        private void add(TradeDetails trade) {
+            trades.add(trade);
+            if (trade.getMetrics() == null || trade.getMetrics().getProfitLoss() == null) {
+                return;
+            }
+            double profitLoss = trade.getMetrics().getProfitLoss().doubleValue();
+            int sign = trade.getMetrics().getProfitLoss().signum();
+            profitLossCount++;
+            totalProfitLoss += profitLoss;
+            if (sign > 0) {
+                winCount++;
+                grossProfit += profitLoss;
+            } else if (sign < 0) {
+                grossLoss -= profitLoss;
+            }
+        }
+
+        private GroupStats build() {
+            return new GroupStats(Collections.unmodifiableList(trades), winCount, profitLossCount,
+                    totalProfitLoss, grossProfit, grossLoss);
+        }
+    }
+}
@@ -16,5 +16,16 @@ public interface TradeAnalyzer<T> {
      * @param trades List of trade details to analyze
      * @return Analysis results of type T
      */
-    T analyze(List<TradeDetails> trades);
+    default T analyze(List<TradeDetails> trades) {
+        return analyze(FeedbackTradeIndex.of(trades));
+    }
+    
+    /**
+     * Analyze indexed trades and produce analysis results
+     * Implementations only read the index, so several analyzers can share one concurrently
+     * 
+     * @param index Index of the trades to analyze
+     * @return Analysis results of type T
+     */
+    T analyze(FeedbackTradeIndex index);
 }
@@ -7,15 +7,18 @@ import am.trade.dashboard.model.feeback.DecisionAnalysis;
 import am.trade.dashboard.model.feeback.PatternAnalysis;
 import am.trade.dashboard.model.feeback.PsychologyAnalysis;
 import am.trade.dashboard.model.feeback.RiskManagementAnalysis;
+import am.trade.dashboard.service.metrics.MetricsFamilyExecutor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Facade service that coordinates the generation of trading feedback
  * by delegating to specialized analyzers.
+ * The trades are indexed once and the analyzers run concurrently against the shared index.
  */
 @Service
 @Slf4j
@@ -26,14 +29,34 @@ public class TradingFeedbackFacade {
     private final PatternAnalyzer patternAnalyzer;
     private final DecisionAnalyzer decisionAnalyzer;
     private final RiskManagementAnalyzer riskAnalyzer;
+    private final MetricsFamilyExecutor metricsFamilyExecutor;
     
     /**
-     * Generate comprehensive trading feedback based on trade details
+     * Generate comprehensive trading feedback based on trade details, for an interactive read
+     * 
+     * Analyzers that fail or miss the deadline contribute empty sections.
      * 
      * @param trades List of trade details
      * @return TradingFeedback object with personalized insights
      */
     public TradingFeedback generateFeedback(List<TradeDetails> trades) {
+        return generateFeedback(trades, false);
+    }
+    
+    /**
+     * Generate trading feedback that is going to be persisted
+     * 
+     * Waits for every analyzer, so no section is left empty because it ran late.
+     * 
+     * @param trades List of trade details
+     * @return TradingFeedback object with every analyzer's insights
+     * @throws FeedbackGenerationException if any analyzer fails
+     */
+    public TradingFeedback generateCompleteFeedback(List<TradeDetails> trades) {
+        return generateFeedback(trades, true);
+    }
+    
+    private TradingFeedback generateFeedback(List<TradeDetails> trades, boolean complete) {
         log.info("Generating trading feedback for {} trades", trades != null ? trades.size() : 0);
         
         if (trades == null || trades.isEmpty()) {
@@ -42,11 +65,30 @@ public class TradingFeedbackFacade {
         }
         
         try {
-            // Delegate to specialized analyzers
-            PsychologyAnalysis psychologyAnalysis = psychologyAnalyzer.analyze(trades);
-            PatternAnalysis patternAnalysis = patternAnalyzer.analyze(trades);
-            DecisionAnalysis decisionAnalysis = decisionAnalyzer.analyze(trades);
-            RiskManagementAnalysis riskAnalysis = riskAnalyzer.analyze(trades);
+            // Group the trades and precompute their stats once for all analyzers
+            FeedbackTradeIndex index = FeedbackTradeIndex.of(trades);
+            
+            // Delegate to specialized analyzers, in parallel
+            AtomicReference<PsychologyAnalysis> psychology = new AtomicReference<>();
+            AtomicReference<PatternAnalysis> pattern = new AtomicReference<>();
+            AtomicReference<DecisionAnalysis> decision = new AtomicReference<>();
+            AtomicReference<RiskManagementAnalysis> risk = new AtomicReference<>();
+            MetricsFamilyExecutor.Batch analyzers = complete ? metricsFamilyExecutor.completeBatch() : metricsFamilyExecutor.batch();
+            List<String> missing = analyzers
+                    .submit("feedback.psychology", () -> psychologyAnalyzer.analyze(index), psychology::set)
+                    .submit("feedback.pattern", () -> patternAnalyzer.analyze(index), pattern::set)
+                    .submit("feedback.decision", () -> decisionAnalyzer.analyze(index), decision::set)
+                    .submit("feedback.risk", () -> riskAnalyzer.analyze(index), risk::set)
+                    .await();
+            if (missing.size() == 4 || (complete && !missing.isEmpty())) {
+                throw new FeedbackGenerationException("Feedback analyzers did not complete: " + missing);
+            }
+            
+            // Analyzers that failed or ran late contribute nothing
+            PsychologyAnalysis psychologyAnalysis = psychology.get() != null ? psychology.get() : PsychologyAnalysis.builder().build();
+            PatternAnalysis patternAnalysis = pattern.get() != null ? pattern.get() : PatternAnalysis.builder().build();
+            DecisionAnalysis decisionAnalysis = decision.get() != null ? decision.get() : DecisionAnalysis.builder().build();
+            RiskManagementAnalysis riskAnalysis = risk.get() != null ? risk.get() : RiskManagementAnalysis.builder().build();
             
             // Build and return the feedback object
             TradingFeedback feedback = TradingFeedback.builder()
@@ -3,10 +3,10 @@ package am.trade.dashboard.service.metrics.feedback.impl;
 import am.trade.common.models.TradeDetails;
 import am.trade.dashboard.model.feeback.DecisionAnalysis;
 import am.trade.dashboard.service.metrics.feedback.DecisionAnalyzer;
+import am.trade.dashboard.service.metrics.feedback.FeedbackTradeIndex;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
 import java.util.List;
 
 /**
@@ -17,14 +17,14 @@ import java.util.List;
 public class DecisionAnalyzerImpl implements DecisionAnalyzer {
 
     @Override
-    public DecisionAnalysis analyze(List<TradeDetails> trades) {
-        log.debug("Analyzing trading decisions for {} trades", trades.size());
+    public DecisionAnalysis analyze(FeedbackTradeIndex index) {
+        log.debug("Analyzing trading decisions for {} trades", index.size());
         
         try {
             // Generate analysis components
-            String entryDecisionFeedback = generateEntryDecisionFeedback(trades);
-            String exitDecisionFeedback = generateExitDecisionFeedback(trades);
-            String overallDecisionQualityFeedback = generateOverallDecisionFeedback(trades);
+            String entryDecisionFeedback = generateEntryDecisionFeedback(index.trades());
+            String exitDecisionFeedback = generateExitDecisionFeedback(index.trades());
+            String overallDecisionQualityFeedback = generateOverallDecisionFeedback(index);
             
             log.debug("Successfully analyzed trading decisions");
             
@@ -169,16 +169,16 @@ public class DecisionAnalyzerImpl implements DecisionAnalyzer {
     /**
      * Generate overall decision quality feedback
      */
-    private String generateOverallDecisionFeedback(List<TradeDetails> trades) {
+    private String generateOverallDecisionFeedback(FeedbackTradeIndex index) {
         log.debug("Generating overall decision quality feedback");
         
-        if (trades.isEmpty()) {
+        if (index.isEmpty()) {
             return "No trade data available for decision quality analysis.";
         }
         
-        // Calculate overall metrics
-        double winRate = calculateWinRate(trades);
-        double profitFactor = calculateProfitFactor(trades);
+        // Overall metrics precomputed by the index
+        double winRate = index.overall().winRate();
+        double profitFactor = index.overall().profitFactor();
         
         // Generate feedback based on overall decision quality
         StringBuilder feedback = new StringBuilder();
@@ -199,43 +199,4 @@ public class DecisionAnalyzerImpl implements DecisionAnalyzer {
         log.debug("Generated overall decision quality feedback");
         return feedback.toString();
     }
-    
-    /**
-     * Helper method to calculate win rate for a list of trades
-     */
-    private double calculateWinRate(List<TradeDetails> trades) {
-        if (trades == null || trades.isEmpty()) {
-            return 0.0;
-        }
-        
-        long winCount = trades.stream()
-            .filter(t -> t.getMetrics() != null && t.getMetrics().getProfitLoss() != null)
-            .filter(t -> t.getMetrics().getProfitLoss().compareTo(BigDecimal.ZERO) > 0)
-            .count();
-            
-        return Math.round((double) winCount / trades.size() * 100);
-    }
-    
-    /**
-     * Helper method to calculate profit factor (gross profit / gross loss)
-     */
-    private double calculateProfitFactor(List<TradeDetails> trades) {
-        if (trades == null || trades.isEmpty()) {
-            return 0.0;
-        }
-        
-        double grossProfit = trades.stream()
-            .filter(t -> t.getMetrics() != null && t.getMetrics().getProfitLoss() != null)
-            .filter(t -> t.getMetrics().getProfitLoss().compareTo(BigDecimal.ZERO) > 0)
-            .mapToDouble(t -> t.getMetrics().getProfitLoss().doubleValue())
-            .sum();
-            
-        double grossLoss = trades.stream()
-            .filter(t -> t.getMetrics() != null && t.getMetrics().getProfitLoss() != null)
-            .filter(t -> t.getMetrics().getProfitLoss().compareTo(BigDecimal.ZERO) < 0)
-            .mapToDouble(t -> Math.abs(t.getMetrics().getProfitLoss().doubleValue()))
-            .sum();
-            
-        return grossLoss > 0 ? grossProfit / grossLoss : grossProfit > 0 ? Double.POSITIVE_INFINITY : 0.0;
-    }
 }
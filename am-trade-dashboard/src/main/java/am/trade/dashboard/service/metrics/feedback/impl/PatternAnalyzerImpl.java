@@ -3,11 +3,12 @@ package am.trade.dashboard.service.metrics.feedback.impl;
 import am.trade.common.models.TradeDetails;
 import am.trade.common.models.enums.TradeBehaviorPattern;
 import am.trade.dashboard.model.feeback.PatternAnalysis;
+import am.trade.dashboard.service.metrics.feedback.FeedbackTradeIndex;
+import am.trade.dashboard.service.metrics.feedback.FeedbackTradeIndex.GroupStats;
 import am.trade.dashboard.service.metrics.feedback.PatternAnalyzer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -19,16 +20,16 @@ import java.util.stream.Collectors;
 public class PatternAnalyzerImpl implements PatternAnalyzer {
 
     @Override
-    public PatternAnalysis analyze(List<TradeDetails> trades) {
-        log.debug("Analyzing trading patterns for {} trades", trades.size());
+    public PatternAnalysis analyze(FeedbackTradeIndex index) {
+        log.debug("Analyzing trading patterns for {} trades", index.size());
         
         try {
-            // Group trades by behavior patterns
-            Map<TradeBehaviorPattern, List<TradeDetails>> tradesByPattern = groupTradesByPattern(trades);
+            // Trades grouped by behavior patterns, with their P&L stats
+            Map<TradeBehaviorPattern, GroupStats> tradesByPattern = index.byPattern();
             
             // Generate analysis components
-            List<String> recommendedBehaviorChanges = generateBehaviorRecommendations(trades, tradesByPattern);
-            List<String> positiveHabits = identifyPositiveHabits(trades);
+            List<String> recommendedBehaviorChanges = generateBehaviorRecommendations(index.trades(), tradesByPattern);
+            List<String> positiveHabits = identifyPositiveHabits(index);
             Map<String, String> patternSpecificFeedback = generatePatternFeedback(tradesByPattern);
             List<String> successPatternRecommendations = identifySuccessPatterns(tradesByPattern);
             
@@ -47,43 +48,23 @@ public class PatternAnalyzerImpl implements PatternAnalyzer {
         }
     }
     
-    /**
-     * Group trades by behavior patterns
-     */
-    private Map<TradeBehaviorPattern, List<TradeDetails>> groupTradesByPattern(List<TradeDetails> trades) {
-        log.trace("Grouping {} trades by behavior pattern", trades.size());
-        Map<TradeBehaviorPattern, List<TradeDetails>> result = new HashMap<>();
-        
-        for (TradeDetails trade : trades) {
-            if (trade.getPsychologyData() != null && trade.getPsychologyData().getBehaviorPatterns() != null) {
-                for (TradeBehaviorPattern pattern : trade.getPsychologyData().getBehaviorPatterns()) {
-                    result.computeIfAbsent(pattern, k -> new ArrayList<>()).add(trade);
-                }
-            }
-        }
-        
-        log.trace("Grouped trades into {} behavior pattern categories", result.size());
-        return result;
-    }
-    
     /**
      * Generate behavior change recommendations
      */
     private List<String> generateBehaviorRecommendations(
             List<TradeDetails> trades,
-            Map<TradeBehaviorPattern, List<TradeDetails>> tradesByPattern) {
+            Map<TradeBehaviorPattern, GroupStats> tradesByPattern) {
         
         log.debug("Generating behavior change recommendations");
         List<String> recommendations = new ArrayList<>();
         
         // Check for specific behavior patterns that need addressing
-        for (Map.Entry<TradeBehaviorPattern, List<TradeDetails>> entry : tradesByPattern.entrySet()) {
+        for (Map.Entry<TradeBehaviorPattern, GroupStats> entry : tradesByPattern.entrySet()) {
             TradeBehaviorPattern pattern = entry.getKey();
-            List<TradeDetails> patternTrades = entry.getValue();
+            GroupStats patternTrades = entry.getValue();
             
             if (patternTrades.size() >= 3) {  // Only consider patterns with enough data
-                boolean isPatternProfitable = isProfitable(patternTrades);
-                double winRate = calculateWinRate(patternTrades);
+                boolean isPatternProfitable = patternTrades.isProfitable();
                 
                 String patternCode = pattern.getCode();
                 switch (patternCode) {
@@ -132,9 +113,10 @@ public class PatternAnalyzerImpl implements PatternAnalyzer {
     /**
      * Identify positive trading habits to reinforce
      */
-    private List<String> identifyPositiveHabits(List<TradeDetails> trades) {
+    private List<String> identifyPositiveHabits(FeedbackTradeIndex index) {
         log.debug("Identifying positive trading habits");
         List<String> habits = new ArrayList<>();
+        List<TradeDetails> trades = index.trades();
         
         // Check for consistent risk management
         boolean consistentRisk = trades.stream()
@@ -148,28 +130,20 @@ public class PatternAnalyzerImpl implements PatternAnalyzer {
         }
         
         // Check for good risk-reward ratio
-        double avgRiskReward = calculateAverageRiskRewardRatio(trades);
+        double avgRiskReward = index.averageRiskRewardRatio();
         if (avgRiskReward >= 2.0) {
             habits.add(String.format("Excellent risk-reward ratio (%.1f) - continue seeking high probability setups", avgRiskReward));
         }
         
         // Check for patience in entries
-        long patientEntries = trades.stream()
-            .filter(t -> t.getPsychologyData() != null && t.getPsychologyData().getBehaviorPatterns() != null)
-            .flatMap(t -> t.getPsychologyData().getBehaviorPatterns().stream())
-            .filter(pattern -> "PATIENT".equals(pattern.getCode()))
-            .count();
+        long patientEntries = index.patternOccurrences("PATIENT");
             
         if (patientEntries > trades.size() * 0.3) {  // More than 30% of trades show patience
             habits.add("Good patience in waiting for proper setups - continue this discipline");
         }
         
         // Check for letting winners run
-        long runningWinners = trades.stream()
-            .filter(t -> t.getPsychologyData() != null && t.getPsychologyData().getBehaviorPatterns() != null)
-            .flatMap(t -> t.getPsychologyData().getBehaviorPatterns().stream())
-            .filter(pattern -> "LETTING_WINNERS_RUN".equals(pattern.getCode()))
-            .count();
+        long runningWinners = index.patternOccurrences("LETTING_WINNERS_RUN");
             
         if (runningWinners > trades.size() * 0.2) {  // More than 20% of trades let winners run
             habits.add("Effectively letting winning trades run - continue using trailing stops");
@@ -182,21 +156,17 @@ public class PatternAnalyzerImpl implements PatternAnalyzer {
     /**
      * Generate feedback specific to trading patterns
      */
-    private Map<String, String> generatePatternFeedback(Map<TradeBehaviorPattern, List<TradeDetails>> tradesByPattern) {
+    private Map<String, String> generatePatternFeedback(Map<TradeBehaviorPattern, GroupStats> tradesByPattern) {
         log.debug("Generating pattern-specific feedback");
         Map<String, String> feedback = new HashMap<>();
         
-        for (Map.Entry<TradeBehaviorPattern, List<TradeDetails>> entry : tradesByPattern.entrySet()) {
+        for (Map.Entry<TradeBehaviorPattern, GroupStats> entry : tradesByPattern.entrySet()) {
             TradeBehaviorPattern pattern = entry.getKey();
-            List<TradeDetails> patternTrades = entry.getValue();
+            GroupStats patternTrades = entry.getValue();
             
             if (patternTrades.size() >= 3) {  // Only provide feedback for patterns with enough data
-                double winRate = calculateWinRate(patternTrades);
-                double avgProfitLoss = patternTrades.stream()
-                    .filter(t -> t.getMetrics() != null && t.getMetrics().getProfitLoss() != null)
-                    .mapToDouble(t -> t.getMetrics().getProfitLoss().doubleValue())
-                    .average()
-                    .orElse(0.0);
+                double winRate = patternTrades.winRate();
+                double avgProfitLoss = patternTrades.averageProfitLoss();
                     
                 String patternName = pattern.toString().toLowerCase().replace('_', ' ');
                 String feedbackText = String.format(
@@ -250,29 +220,25 @@ public class PatternAnalyzerImpl implements PatternAnalyzer {
     /**
      * Identify successful trading patterns
      */
-    private List<String> identifySuccessPatterns(Map<TradeBehaviorPattern, List<TradeDetails>> tradesByPattern) {
+    private List<String> identifySuccessPatterns(Map<TradeBehaviorPattern, GroupStats> tradesByPattern) {
         log.debug("Identifying successful trading patterns");
         List<String> recommendations = new ArrayList<>();
         
         // Find the most profitable patterns
-        List<Map.Entry<TradeBehaviorPattern, List<TradeDetails>>> profitablePatterns = tradesByPattern.entrySet().stream()
+        List<Map.Entry<TradeBehaviorPattern, GroupStats>> profitablePatterns = tradesByPattern.entrySet().stream()
             .filter(entry -> entry.getValue().size() >= 3)  // Only consider patterns with enough data
-            .filter(entry -> isProfitable(entry.getValue()))
-            .sorted((e1, e2) -> {
-                // Sort by average profit per trade (descending)
-                double avg1 = calculateAverageProfitLoss(e1.getValue());
-                double avg2 = calculateAverageProfitLoss(e2.getValue());
-                return Double.compare(avg2, avg1);
-            })
+            .filter(entry -> entry.getValue().isProfitable())
+            // Sort by average profit per trade (descending)
+            .sorted((e1, e2) -> Double.compare(e2.getValue().averageProfitLoss(), e1.getValue().averageProfitLoss()))
             .limit(3)  // Top 3 patterns
             .collect(Collectors.toList());
             
-        for (Map.Entry<TradeBehaviorPattern, List<TradeDetails>> entry : profitablePatterns) {
+        for (Map.Entry<TradeBehaviorPattern, GroupStats> entry : profitablePatterns) {
             TradeBehaviorPattern pattern = entry.getKey();
-            List<TradeDetails> patternTrades = entry.getValue();
+            GroupStats patternTrades = entry.getValue();
             
-            double winRate = calculateWinRate(patternTrades);
-            double avgProfit = calculateAverageProfitLoss(patternTrades);
+            double winRate = patternTrades.winRate();
+            double avgProfit = patternTrades.averageProfitLoss();
             
             String patternName = pattern.toString().toLowerCase().replace('_', ' ');
             recommendations.add(String.format(
@@ -285,68 +251,6 @@ public class PatternAnalyzerImpl implements PatternAnalyzer {
         return recommendations;
     }
     
-    /**
-     * Helper method to check if a list of trades is profitable overall
-     */
-    private boolean isProfitable(List<TradeDetails> trades) {
-        if (trades == null || trades.isEmpty()) {
-            return false;
-        }
-        
-        double totalProfitLoss = trades.stream()
-            .filter(t -> t.getMetrics() != null && t.getMetrics().getProfitLoss() != null)
-            .mapToDouble(t -> t.getMetrics().getProfitLoss().doubleValue())
-            .sum();
-            
-        return totalProfitLoss > 0;
-    }
-    
-    /**
-     * Helper method to calculate win rate for a list of trades
-     */
-    private double calculateWinRate(List<TradeDetails> trades) {
-        if (trades == null || trades.isEmpty()) {
-            return 0.0;
-        }
-        
-        long winCount = trades.stream()
-            .filter(t -> t.getMetrics() != null && t.getMetrics().getProfitLoss() != null)
-            .filter(t -> t.getMetrics().getProfitLoss().compareTo(BigDecimal.ZERO) > 0)
-            .count();
-            
-        return Math.round((double) winCount / trades.size() * 100);
-    }
-    
-    /**
-     * Helper method to calculate average profit/loss
-     */
-    private double calculateAverageProfitLoss(List<TradeDetails> trades) {
-        if (trades == null || trades.isEmpty()) {
-            return 0.0;
-        }
-        
-        return trades.stream()
-            .filter(t -> t.getMetrics() != null && t.getMetrics().getProfitLoss() != null)
-            .mapToDouble(t -> t.getMetrics().getProfitLoss().doubleValue())
-            .average()
-            .orElse(0.0);
-    }
-    
-    /**
-     * Helper method to calculate average risk-reward ratio
-     */
-    private double calculateAverageRiskRewardRatio(List<TradeDetails> trades) {
-        if (trades == null || trades.isEmpty()) {
-            return 0.0;
-        }
-        
-        return trades.stream()
-            .filter(t -> t.getMetrics() != null && t.getMetrics().getRiskRewardRatio() != null)
-            .mapToDouble(t -> t.getMetrics().getRiskRewardRatio().doubleValue())
-            .average()
-            .orElse(0.0);
-    }
-    
     /**
      * Helper method to capitalize each word in a string
      */
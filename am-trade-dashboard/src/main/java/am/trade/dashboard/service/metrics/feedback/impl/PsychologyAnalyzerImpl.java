@@ -5,14 +5,14 @@ import am.trade.common.models.enums.EntryPsychology;
 import am.trade.common.models.enums.ExitPsychology;
 import am.trade.common.models.enums.TradeBehaviorPattern;
 import am.trade.dashboard.model.feeback.PsychologyAnalysis;
+import am.trade.dashboard.service.metrics.feedback.FeedbackTradeIndex;
+import am.trade.dashboard.service.metrics.feedback.FeedbackTradeIndex.GroupStats;
 import am.trade.dashboard.service.metrics.feedback.PsychologyAnalyzer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Implementation of PsychologyAnalyzer that analyzes psychological aspects of trading
@@ -23,23 +23,23 @@ import java.util.stream.Collectors;
 public class PsychologyAnalyzerImpl implements PsychologyAnalyzer {
 
     @Override
-    public PsychologyAnalysis analyze(List<TradeDetails> trades) {
-        log.debug("Analyzing psychological aspects of {} trades", trades.size());
+    public PsychologyAnalysis analyze(FeedbackTradeIndex index) {
+        log.debug("Analyzing psychological aspects of {} trades", index.size());
         
         try {
-            // Group trades by psychology factors
-            Map<EntryPsychology, List<TradeDetails>> tradesByEntryPsychology = groupTradesByEntryPsychology(trades);
-            Map<ExitPsychology, List<TradeDetails>> tradesByExitPsychology = groupTradesByExitPsychology(trades);
-            Map<TradeBehaviorPattern, List<TradeDetails>> tradesByPattern = groupTradesByPattern(trades);
+            // Trades grouped by psychology factors, with their P&L stats
+            Map<EntryPsychology, GroupStats> tradesByEntryPsychology = index.byEntryPsychology();
+            Map<ExitPsychology, GroupStats> tradesByExitPsychology = index.byExitPsychology();
+            Map<TradeBehaviorPattern, GroupStats> tradesByPattern = index.byPattern();
             
             // Generate analysis components
-            List<String> strengthAreas = identifyStrengthAreas(trades, tradesByEntryPsychology, 
+            List<String> strengthAreas = identifyStrengthAreas(index, tradesByEntryPsychology, 
                     tradesByExitPsychology, tradesByPattern);
-            List<String> improvementAreas = identifyImprovementAreas(trades, tradesByEntryPsychology, 
+            List<String> improvementAreas = identifyImprovementAreas(index, tradesByEntryPsychology, 
                     tradesByExitPsychology, tradesByPattern);
             Map<String, List<String>> psychologyInsights = generatePsychologyInsights(
                     tradesByEntryPsychology, tradesByExitPsychology);
-            List<String> emotionalPatternObservations = identifyEmotionalPatterns(trades);
+            List<String> emotionalPatternObservations = identifyEmotionalPatterns(index);
             
             log.debug("Successfully analyzed psychological aspects: found {} strength areas, {} improvement areas", 
                     strengthAreas.size(), improvementAreas.size());
@@ -56,77 +56,22 @@ public class PsychologyAnalyzerImpl implements PsychologyAnalyzer {
         }
     }
     
-    /**
-     * Group trades by entry psychology factors
-     */
-    private Map<EntryPsychology, List<TradeDetails>> groupTradesByEntryPsychology(List<TradeDetails> trades) {
-        log.trace("Grouping {} trades by entry psychology", trades.size());
-        Map<EntryPsychology, List<TradeDetails>> result = new HashMap<>();
-        
-        for (TradeDetails trade : trades) {
-            if (trade.getPsychologyData() != null && trade.getPsychologyData().getEntryPsychologyFactors() != null && !trade.getPsychologyData().getEntryPsychologyFactors().isEmpty()) {
-                EntryPsychology psychology = trade.getPsychologyData().getEntryPsychologyFactors().get(0);
-                result.computeIfAbsent(psychology, k -> new ArrayList<>()).add(trade);
-            }
-        }
-        
-        log.trace("Grouped trades into {} entry psychology categories", result.size());
-        return result;
-    }
-    
-    /**
-     * Group trades by exit psychology factors
-     */
-    private Map<ExitPsychology, List<TradeDetails>> groupTradesByExitPsychology(List<TradeDetails> trades) {
-        log.trace("Grouping {} trades by exit psychology", trades.size());
-        Map<ExitPsychology, List<TradeDetails>> result = new HashMap<>();
-        
-        for (TradeDetails trade : trades) {
-            if (trade.getPsychologyData() != null && trade.getPsychologyData().getExitPsychologyFactors() != null && !trade.getPsychologyData().getExitPsychologyFactors().isEmpty()) {
-                ExitPsychology psychology = trade.getPsychologyData().getExitPsychologyFactors().get(0);
-                result.computeIfAbsent(psychology, k -> new ArrayList<>()).add(trade);
-            }
-        }
-        
-        log.trace("Grouped trades into {} exit psychology categories", result.size());
-        return result;
-    }
-    
-    /**
-     * Group trades by behavior patterns
-     */
-    private Map<TradeBehaviorPattern, List<TradeDetails>> groupTradesByPattern(List<TradeDetails> trades) {
-        log.trace("Grouping {} trades by behavior pattern", trades.size());
-        Map<TradeBehaviorPattern, List<TradeDetails>> result = new HashMap<>();
-        
-        for (TradeDetails trade : trades) {
-            if (trade.getPsychologyData() != null && trade.getPsychologyData().getBehaviorPatterns() != null) {
-                for (TradeBehaviorPattern pattern : trade.getPsychologyData().getBehaviorPatterns()) {
-                    result.computeIfAbsent(pattern, k -> new ArrayList<>()).add(trade);
-                }
-            }
-        }
-        
-        log.trace("Grouped trades into {} behavior pattern categories", result.size());
-        return result;
-    }
-    
     /**
      * Identify areas of strength based on trade data
      */
     private List<String> identifyStrengthAreas(
-            List<TradeDetails> trades,
-            Map<EntryPsychology, List<TradeDetails>> tradesByEntryPsychology,
-            Map<ExitPsychology, List<TradeDetails>> tradesByExitPsychology,
-            Map<TradeBehaviorPattern, List<TradeDetails>> tradesByPattern) {
+            FeedbackTradeIndex index,
+            Map<EntryPsychology, GroupStats> tradesByEntryPsychology,
+            Map<ExitPsychology, GroupStats> tradesByExitPsychology,
+            Map<TradeBehaviorPattern, GroupStats> tradesByPattern) {
         
         log.debug("Identifying strength areas from trade data");
         List<String> strengthAreas = new ArrayList<>();
         
         // Check for profitable entry psychology factors
-        for (Map.Entry<EntryPsychology, List<TradeDetails>> entry : tradesByEntryPsychology.entrySet()) {
-            if (isProfitable(entry.getValue()) && entry.getValue().size() >= 3) {
-                double winRate = calculateWinRate(entry.getValue());
+        for (Map.Entry<EntryPsychology, GroupStats> entry : tradesByEntryPsychology.entrySet()) {
+            if (entry.getValue().isProfitable() && entry.getValue().size() >= 3) {
+                double winRate = entry.getValue().winRate();
                 if (winRate > 60) {
                     strengthAreas.add(String.format("Strong performance when entering trades with %s mindset (%.0f%% win rate)",
                             entry.getKey().toString().toLowerCase().replace('_', ' '), winRate));
@@ -135,9 +80,9 @@ public class PsychologyAnalyzerImpl implements PsychologyAnalyzer {
         }
         
         // Check for profitable exit psychology factors
-        for (Map.Entry<ExitPsychology, List<TradeDetails>> entry : tradesByExitPsychology.entrySet()) {
-            if (isProfitable(entry.getValue()) && entry.getValue().size() >= 3) {
-                double winRate = calculateWinRate(entry.getValue());
+        for (Map.Entry<ExitPsychology, GroupStats> entry : tradesByExitPsychology.entrySet()) {
+            if (entry.getValue().isProfitable() && entry.getValue().size() >= 3) {
+                double winRate = entry.getValue().winRate();
                 if (winRate > 60) {
                     strengthAreas.add(String.format("Effective at exiting trades with %s approach (%.0f%% win rate)",
                             entry.getKey().toString().toLowerCase().replace('_', ' '), winRate));
@@ -146,9 +91,9 @@ public class PsychologyAnalyzerImpl implements PsychologyAnalyzer {
         }
         
         // Check for profitable behavior patterns
-        for (Map.Entry<TradeBehaviorPattern, List<TradeDetails>> entry : tradesByPattern.entrySet()) {
-            if (isProfitable(entry.getValue()) && entry.getValue().size() >= 3) {
-                double winRate = calculateWinRate(entry.getValue());
+        for (Map.Entry<TradeBehaviorPattern, GroupStats> entry : tradesByPattern.entrySet()) {
+            if (entry.getValue().isProfitable() && entry.getValue().size() >= 3) {
+                double winRate = entry.getValue().winRate();
                 if (winRate > 60) {
                     strengthAreas.add(String.format("Strong performance with %s trading pattern (%.0f%% win rate)",
                             entry.getKey().toString().toLowerCase().replace('_', ' '), winRate));
@@ -157,7 +102,7 @@ public class PsychologyAnalyzerImpl implements PsychologyAnalyzer {
         }
         
         // Check overall risk management
-        double avgRiskReward = calculateAverageRiskRewardRatio(trades);
+        double avgRiskReward = index.averageRiskRewardRatio();
         if (avgRiskReward >= 1.5) {
             strengthAreas.add(String.format("Good risk management with average risk-reward ratio of %.1f", avgRiskReward));
         }
@@ -170,18 +115,18 @@ public class PsychologyAnalyzerImpl implements PsychologyAnalyzer {
      * Identify areas needing improvement based on trade data
      */
     private List<String> identifyImprovementAreas(
-            List<TradeDetails> trades,
-            Map<EntryPsychology, List<TradeDetails>> tradesByEntryPsychology,
-            Map<ExitPsychology, List<TradeDetails>> tradesByExitPsychology,
-            Map<TradeBehaviorPattern, List<TradeDetails>> tradesByPattern) {
+            FeedbackTradeIndex index,
+            Map<EntryPsychology, GroupStats> tradesByEntryPsychology,
+            Map<ExitPsychology, GroupStats> tradesByExitPsychology,
+            Map<TradeBehaviorPattern, GroupStats> tradesByPattern) {
         
         log.debug("Identifying improvement areas from trade data");
         List<String> improvementAreas = new ArrayList<>();
         
         // Check for unprofitable entry psychology factors
-        for (Map.Entry<EntryPsychology, List<TradeDetails>> entry : tradesByEntryPsychology.entrySet()) {
-            if (!isProfitable(entry.getValue()) && entry.getValue().size() >= 3) {
-                double winRate = calculateWinRate(entry.getValue());
+        for (Map.Entry<EntryPsychology, GroupStats> entry : tradesByEntryPsychology.entrySet()) {
+            if (!entry.getValue().isProfitable() && entry.getValue().size() >= 3) {
+                double winRate = entry.getValue().winRate();
                 if (winRate < 40) {
                     improvementAreas.add(String.format("Consider avoiding trades with %s entry mindset (%.0f%% win rate)",
                             entry.getKey().toString().toLowerCase().replace('_', ' '), winRate));
@@ -190,9 +135,9 @@ public class PsychologyAnalyzerImpl implements PsychologyAnalyzer {
         }
         
         // Check for unprofitable exit psychology factors
-        for (Map.Entry<ExitPsychology, List<TradeDetails>> entry : tradesByExitPsychology.entrySet()) {
-            if (!isProfitable(entry.getValue()) && entry.getValue().size() >= 3) {
-                double winRate = calculateWinRate(entry.getValue());
+        for (Map.Entry<ExitPsychology, GroupStats> entry : tradesByExitPsychology.entrySet()) {
+            if (!entry.getValue().isProfitable() && entry.getValue().size() >= 3) {
+                double winRate = entry.getValue().winRate();
                 if (winRate < 40) {
                     improvementAreas.add(String.format("Work on improving exits with %s approach (%.0f%% win rate)",
                             entry.getKey().toString().toLowerCase().replace('_', ' '), winRate));
@@ -201,9 +146,9 @@ public class PsychologyAnalyzerImpl implements PsychologyAnalyzer {
         }
         
         // Check for unprofitable behavior patterns
-        for (Map.Entry<TradeBehaviorPattern, List<TradeDetails>> entry : tradesByPattern.entrySet()) {
-            if (!isProfitable(entry.getValue()) && entry.getValue().size() >= 3) {
-                double winRate = calculateWinRate(entry.getValue());
+        for (Map.Entry<TradeBehaviorPattern, GroupStats> entry : tradesByPattern.entrySet()) {
+            if (!entry.getValue().isProfitable() && entry.getValue().size() >= 3) {
+                double winRate = entry.getValue().winRate();
                 if (winRate < 40) {
                     improvementAreas.add(String.format("Address issues with %s trading pattern (%.0f%% win rate)",
                             entry.getKey().toString().toLowerCase().replace('_', ' '), winRate));
@@ -212,7 +157,7 @@ public class PsychologyAnalyzerImpl implements PsychologyAnalyzer {
         }
         
         // Check overall risk management
-        double avgRiskReward = calculateAverageRiskRewardRatio(trades);
+        double avgRiskReward = index.averageRiskRewardRatio();
         if (avgRiskReward < 1.0) {
             improvementAreas.add(String.format("Improve risk management - current average risk-reward ratio is only %.1f", avgRiskReward));
         }
@@ -225,8 +170,8 @@ public class PsychologyAnalyzerImpl implements PsychologyAnalyzer {
      * Generate insights based on psychology factors
      */
     private Map<String, List<String>> generatePsychologyInsights(
-            Map<EntryPsychology, List<TradeDetails>> tradesByEntryPsychology,
-            Map<ExitPsychology, List<TradeDetails>> tradesByExitPsychology) {
+            Map<EntryPsychology, GroupStats> tradesByEntryPsychology,
+            Map<ExitPsychology, GroupStats> tradesByExitPsychology) {
         
         log.debug("Generating psychology insights");
         Map<String, List<String>> insights = new HashMap<>();
@@ -234,9 +179,9 @@ public class PsychologyAnalyzerImpl implements PsychologyAnalyzer {
         List<String> exitInsights = new ArrayList<>();
         
         // Entry psychology insights
-        for (Map.Entry<EntryPsychology, List<TradeDetails>> entry : tradesByEntryPsychology.entrySet()) {
+        for (Map.Entry<EntryPsychology, GroupStats> entry : tradesByEntryPsychology.entrySet()) {
             if (entry.getValue().size() >= 3) {
-                double winRate = calculateWinRate(entry.getValue());
+                double winRate = entry.getValue().winRate();
                 String insight = String.format("%s mindset: %.0f%% win rate across %d trades",
                         entry.getKey().toString().toLowerCase().replace('_', ' '),
                         winRate, entry.getValue().size());
@@ -245,9 +190,9 @@ public class PsychologyAnalyzerImpl implements PsychologyAnalyzer {
         }
         
         // Exit psychology insights
-        for (Map.Entry<ExitPsychology, List<TradeDetails>> entry : tradesByExitPsychology.entrySet()) {
+        for (Map.Entry<ExitPsychology, GroupStats> entry : tradesByExitPsychology.entrySet()) {
             if (entry.getValue().size() >= 3) {
-                double winRate = calculateWinRate(entry.getValue());
+                double winRate = entry.getValue().winRate();
                 String insight = String.format("%s approach: %.0f%% win rate across %d trades",
                         entry.getKey().toString().toLowerCase().replace('_', ' '),
                         winRate, entry.getValue().size());
@@ -266,14 +211,14 @@ public class PsychologyAnalyzerImpl implements PsychologyAnalyzer {
     /**
      * Identify emotional patterns in trading
      */
-    private List<String> identifyEmotionalPatterns(List<TradeDetails> trades) {
+    private List<String> identifyEmotionalPatterns(FeedbackTradeIndex index) {
+        List<TradeDetails> trades = index.trades();
         log.debug("Identifying emotional patterns from {} trades", trades.size());
         List<String> observations = new ArrayList<>();
         
         // Check for FOMO (Fear of Missing Out)
-        long fomoCount = trades.stream()
-                .filter(t -> t.getPsychologyData() != null && t.getPsychologyData().getEntryPsychologyFactors() != null && !t.getPsychologyData().getEntryPsychologyFactors().isEmpty() && t.getPsychologyData().getEntryPsychologyFactors().get(0) == EntryPsychology.FEAR_OF_MISSING_OUT)
-                .count();
+        GroupStats fomoTrades = index.byEntryPsychology().get(EntryPsychology.FEAR_OF_MISSING_OUT);
+        long fomoCount = fomoTrades != null ? fomoTrades.size() : 0;
         
         if (fomoCount > trades.size() * 0.2) {  // More than 20% of trades show FOMO
             observations.add(String.format("FOMO influenced %.0f%% of your trades. Consider waiting for proper setups.",
@@ -281,9 +226,8 @@ public class PsychologyAnalyzerImpl implements PsychologyAnalyzer {
         }
         
         // Check for early exits due to fear
-        long fearfulExitCount = trades.stream()
-                .filter(t -> t.getPsychologyData() != null && t.getPsychologyData().getExitPsychologyFactors() != null && !t.getPsychologyData().getExitPsychologyFactors().isEmpty() && t.getPsychologyData().getExitPsychologyFactors().get(0) == ExitPsychology.FEAR)
-                .count();
+        GroupStats fearfulExits = index.byExitPsychology().get(ExitPsychology.FEAR);
+        long fearfulExitCount = fearfulExits != null ? fearfulExits.size() : 0;
         
         if (fearfulExitCount > trades.size() * 0.2) {  // More than 20% of trades show fearful exits
             observations.add(String.format("Fear led to early exits in %.0f%% of your trades. Consider using predetermined exit points.",
@@ -303,51 +247,4 @@ public class PsychologyAnalyzerImpl implements PsychologyAnalyzer {
         log.debug("Identified {} emotional pattern observations", observations.size());
         return observations;
     }
-    
-    /**
-     * Helper method to check if a list of trades is profitable overall
-     */
-    private boolean isProfitable(List<TradeDetails> trades) {
-        if (trades == null || trades.isEmpty()) {
-            return false;
-        }
-        
-        double totalProfitLoss = trades.stream()
-            .filter(t -> t.getMetrics() != null && t.getMetrics().getProfitLoss() != null)
-            .mapToDouble(t -> t.getMetrics().getProfitLoss().doubleValue())
-            .sum();
-            
-        return totalProfitLoss > 0;
-    }
-    
-    /**
-     * Helper method to calculate win rate for a list of trades
-     */
-    private double calculateWinRate(List<TradeDetails> trades) {
-        if (trades == null || trades.isEmpty()) {
-            return 0.0;
-        }
-        
-        long winCount = trades.stream()
-            .filter(t -> t.getMetrics() != null && t.getMetrics().getProfitLoss() != null)
-            .filter(t -> t.getMetrics().getProfitLoss().compareTo(BigDecimal.ZERO) > 0)
-            .count();
-            
-        return Math.round((double) winCount / trades.size() * 100);
-    }
-    
-    /**
-     * Helper method to calculate average risk-reward ratio
-     */
-    private double calculateAverageRiskRewardRatio(List<TradeDetails> trades) {
-        if (trades == null || trades.isEmpty()) {
-            return 0.0;
-        }
-        
-        return trades.stream()
-            .filter(t -> t.getMetrics() != null && t.getMetrics().getRiskRewardRatio() != null)
-            .mapToDouble(t -> t.getMetrics().getRiskRewardRatio().doubleValue())
-            .average()
-            .orElse(0.0);
-    }
 }
@@ -2,13 +2,13 @@ package am.trade.dashboard.service.metrics.feedback.impl;
 
 import am.trade.common.models.TradeDetails;
 import am.trade.dashboard.model.feeback.RiskManagementAnalysis;
+import am.trade.dashboard.service.metrics.feedback.FeedbackTradeIndex;
 import am.trade.dashboard.service.metrics.feedback.RiskManagementAnalyzer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -19,13 +19,16 @@ import java.util.List;
 public class RiskManagementAnalyzerImpl implements RiskManagementAnalyzer {
 
     @Override
-    public RiskManagementAnalysis analyze(List<TradeDetails> trades) {
-        log.debug("Analyzing risk management for {} trades", trades.size());
+    public RiskManagementAnalysis analyze(FeedbackTradeIndex index) {
+        log.debug("Analyzing risk management for {} trades", index.size());
         
         try {
+            // Drawdown and loss streaks walk the trades in entry order, sorted once by the index
+            double maxDrawdown = calculateMaxDrawdown(index.chronological());
+            
             // Generate analysis components
-            String riskManagementFeedback = generateRiskManagementFeedback(trades);
-            List<String> riskManagementSuggestions = generateRiskManagementSuggestions(trades);
+            String riskManagementFeedback = generateRiskManagementFeedback(index, maxDrawdown);
+            List<String> riskManagementSuggestions = generateRiskManagementSuggestions(index, maxDrawdown);
             
             log.debug("Successfully analyzed risk management: generated {} suggestions", 
                     riskManagementSuggestions.size());
@@ -43,8 +46,9 @@ public class RiskManagementAnalyzerImpl implements RiskManagementAnalyzer {
     /**
      * Generate risk management feedback
      */
-    private String generateRiskManagementFeedback(List<TradeDetails> trades) {
+    private String generateRiskManagementFeedback(FeedbackTradeIndex index, double maxDrawdown) {
         log.debug("Generating risk management feedback");
+        List<TradeDetails> trades = index.trades();
         
         if (trades.isEmpty()) {
             return "No trade data available for risk management analysis.";
@@ -57,8 +61,7 @@ public class RiskManagementAnalyzerImpl implements RiskManagementAnalyzer {
             .average()
             .orElse(0);
             
-        double avgRiskRewardRatio = calculateAverageRiskRewardRatio(trades);
-        double maxDrawdown = calculateMaxDrawdown(trades);
+        double avgRiskRewardRatio = index.averageRiskRewardRatio();
         
         // Generate feedback based on risk metrics
         StringBuilder feedback = new StringBuilder();
@@ -100,9 +103,10 @@ public class RiskManagementAnalyzerImpl implements RiskManagementAnalyzer {
     /**
      * Generate risk management suggestions
      */
-    private List<String> generateRiskManagementSuggestions(List<TradeDetails> trades) {
+    private List<String> generateRiskManagementSuggestions(FeedbackTradeIndex index, double maxDrawdown) {
         log.debug("Generating risk management suggestions");
         List<String> suggestions = new ArrayList<>();
+        List<TradeDetails> trades = index.trades();
         
         if (trades.isEmpty()) {
             return suggestions;
@@ -133,7 +137,7 @@ public class RiskManagementAnalyzerImpl implements RiskManagementAnalyzer {
         }
         
         // Check risk-reward ratio
-        double avgRiskRewardRatio = calculateAverageRiskRewardRatio(trades);
+        double avgRiskRewardRatio = index.averageRiskRewardRatio();
         if (avgRiskRewardRatio < 1.0) {
             suggestions.add(String.format(
                 "Improve risk-reward ratio from current %.1f:1 to at least 1.5:1 by setting wider profit targets or tighter stop losses", 
@@ -155,7 +159,6 @@ public class RiskManagementAnalyzerImpl implements RiskManagementAnalyzer {
         }
         
         // Check drawdown management
-        double maxDrawdown = calculateMaxDrawdown(trades);
         if (maxDrawdown > 20.0) {
             suggestions.add(String.format(
                 "Implement drawdown limits - your maximum drawdown of %.1f%% exceeds recommended levels", 
@@ -163,7 +166,7 @@ public class RiskManagementAnalyzerImpl implements RiskManagementAnalyzer {
         }
         
         // Check consecutive losses
-        int maxConsecutiveLosses = calculateMaxConsecutiveLosses(trades);
+        int maxConsecutiveLosses = calculateMaxConsecutiveLosses(index.chronological());
         if (maxConsecutiveLosses >= 5) {
             suggestions.add(String.format(
                 "Consider implementing a 'circuit breaker' rule after %d consecutive losses to pause trading and reassess", 
@@ -175,25 +178,10 @@ public class RiskManagementAnalyzerImpl implements RiskManagementAnalyzer {
     }
     
     /**
-     * Helper method to calculate average risk-reward ratio
+     * Helper method to calculate max drawdown of trades in chronological order
      */
-    private double calculateAverageRiskRewardRatio(List<TradeDetails> trades) {
-        if (trades == null || trades.isEmpty()) {
-            return 0.0;
-        }
-        
-        return trades.stream()
-            .filter(t -> t.getMetrics() != null && t.getMetrics().getRiskRewardRatio() != null)
-            .mapToDouble(t -> t.getMetrics().getRiskRewardRatio().doubleValue())
-            .average()
-            .orElse(0.0);
-    }
-    
-    /**
-     * Helper method to calculate max drawdown
-     */
-    private double calculateMaxDrawdown(List<TradeDetails> trades) {
-        if (trades == null || trades.isEmpty()) {
+    private double calculateMaxDrawdown(List<TradeDetails> sortedTrades) {
+        if (sortedTrades == null || sortedTrades.isEmpty()) {
             return 0.0;
         }
         
@@ -201,10 +189,6 @@ public class RiskManagementAnalyzerImpl implements RiskManagementAnalyzer {
         double peak = 0.0;
         double balance = 0.0;
         
-        // Sort trades chronologically
-        List<TradeDetails> sortedTrades = new ArrayList<>(trades);
-        sortedTrades.sort(Comparator.comparing(t -> t.getEntryInfo().getTimestamp()));
-        
         for (TradeDetails trade : sortedTrades) {
             if (trade.getMetrics() != null && trade.getMetrics().getProfitLoss() != null) {
                 balance += trade.getMetrics().getProfitLoss().doubleValue();
@@ -225,17 +209,13 @@ public class RiskManagementAnalyzerImpl implements RiskManagementAnalyzer {
     }
     
     /**
-     * Helper method to calculate maximum consecutive losses
+     * Helper method to calculate maximum consecutive losses of trades in chronological order
      */
-    private int calculateMaxConsecutiveLosses(List<TradeDetails> trades) {
-        if (trades == null || trades.isEmpty()) {
+    private int calculateMaxConsecutiveLosses(List<TradeDetails> sortedTrades) {
+        if (sortedTrades == null || sortedTrades.isEmpty()) {
             return 0;
         }
         
-        // Sort trades chronologically
-        List<TradeDetails> sortedTrades = new ArrayList<>(trades);
-        sortedTrades.sort(Comparator.comparing(t -> t.getEntryInfo().getTimestamp()));
-        
         int currentStreak = 0;
         int maxStreak = 0;
         
@@ -0,0 +1,330 @@
+package am.trade.dashboard.service.recalculation;
+
+import am.trade.common.models.TradeSummaryBasic;
+import am.trade.common.models.TradeSummaryDetailed;
+import am.trade.dashboard.service.MetricsCalculationService;
+import am.trade.persistence.repository.JobLeaseRepository;
+import am.trade.services.service.TradeSummaryService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Scheduled recalculation of the detailed metrics behind trade summaries.
+ *
+ * <p>Two jobs share the machinery below:
+ * <ul>
+ *   <li>{@code dirty}, every few minutes: summaries that trade writes marked dirty</li>
+ *   <li>{@code expired}, nightly: every active summary, recalculating those whose metrics expired</li>
+ * </ul>
+ *
+ * <p>Summaries are split into {@code shards} by ID. Each shard is guarded by a lease in
+ * Mongo, so with several replicas every shard is recalculated by exactly one node per run,
+ * and nodes whose schedules fire together share the shards between them. With one shard
+ * (the default) a single node owns the whole run. A node renews its lease while working and
+ * stops taking summaries from a shard once it loses the lease.
+ *
+ * <p>Within a shard, summaries are recalculated on a bounded pool of {@code parallelism}
+ * threads. Only the recalculated summaries are evicted from {@code tradeSummaryCache}.
+ * Progress is exposed as the {@code dashboard.metrics.recalculation.pending} gauge and the
+ * {@code dashboard.metrics.recalculation.summaries} counter, both tagged by job.
+ */
+@Component
+@Slf4j
+public class MetricsRecalculationJob {
+
+    private static final String DIRTY_JOB = "dirty";
+    private static final String EXPIRED_JOB = "expired";
+
+    private static final String LEASE_PREFIX = "metrics-recalculation-";
+    private static final String CACHE_NAME = "tradeSummaryCache";
+    private static final String RUN_TIMER = "dashboard.metrics.recalculation.run";
+    private static final String SUMMARY_COUNTER = "dashboard.metrics.recalculation.summaries";
+    private static final String SHARD_COUNTER = "dashboard.metrics.recalculation.shards";
+    private static final String PENDING_GAUGE = "dashboard.metrics.recalculation.pending";
+
+    private enum Outcome { RECALCULATED, UP_TO_DATE, FAILED }
+
+    private final MetricsCalculationService metricsCalculationService;
+    private final TradeSummaryService tradeSummaryService;
+    private final JobLeaseRepository jobLeaseRepository;
+    private final CacheManager cacheManager;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int parallelism;
+    private final int shards;
+    private final Duration leaseDuration;
+    private final Duration minimumHold;
+    private final String nodeId;
+    private final ExecutorService executor;
+    private final Map<String, AtomicInteger> pendingByJob = new ConcurrentHashMap<>();
+
+    public MetricsRecalculationJob(MetricsCalculationService metricsCalculationService,
+                                   TradeSummaryService tradeSummaryService,
+                                   JobLeaseRepository jobLeaseRepository,
+                                   CacheManager cacheManager,
+                                   ObjectProvider<MeterRegistry> meterRegistryProvider,
+                                   @Value("${am.trade.dashboard.metrics.recalculation.enabled:true}") boolean enabled,
+                                   @Value("${am.trade.dashboard.metrics.recalculation.parallelism:4}") int parallelism,
+                                   @Value("${am.trade.dashboard.metrics.recalculation.shards:1}") int shards,
+                                   @Value("${am.trade.dashboard.metrics.recalculation.lease-ms:1800000}") long leaseMillis,
+                                   @Value("${am.trade.dashboard.metrics.recalculation.min-hold-ms:60000}") long minimumHoldMillis,
+                                   @Value("${am.trade.dashboard.metrics.recalculation.node-id:}") String nodeId) {
+        this.metricsCalculationService = metricsCalculationService;
+        this.tradeSummaryService = tradeSummaryService;
+        this.jobLeaseRepository = jobLeaseRepository;
+        this.cacheManager = cacheManager;
+        this.meterRegistry = meterRegistryProvider.getIfAvailable();
+        this.enabled = enabled;
+        this.parallelism = Math.max(1, parallelism);
+        this.shards = Math.max(1, shards);
+        this.leaseDuration = Duration.ofMillis(leaseMillis);
+        this.minimumHold = Duration.ofMillis(minimumHoldMillis);
+        this.nodeId = nodeId == null || nodeId.isBlank() ? defaultNodeId() : nodeId;
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(this.parallelism, this.parallelism, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "metrics-recalculation-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        log.info("Metrics recalculation {} on node {} with {} shard(s) and {} thread(s)",
+                enabled ? "enabled" : "disabled", this.nodeId, this.shards, this.parallelism);
+    }
+
+    /**
+     * Recalculate the summaries whose trades changed since their metrics were calculated
+     */
+    @Scheduled(fixedDelayString = "${am.trade.dashboard.metrics.recalculation.dirty-interval-ms:300000}",
+            initialDelayString = "${am.trade.dashboard.metrics.recalculation.dirty-interval-ms:300000}")
+    public void recalculateDirtyMetrics() {
+        run(DIRTY_JOB, tradeSummaryService::findAllActiveMetricsDirtyBasic);
+    }
+
+    /**
+     * Recalculate expired metrics of all active summaries
+     * Runs at 2 AM every day by default
+     */
+    @Scheduled(cron = "${metrics.recalculation.cron:0 0 2 * * ?}")
+    public void recalculateExpiredMetrics() {
+        run(EXPIRED_JOB, tradeSummaryService::findAllActiveBasic);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run(String job, Supplier<List<TradeSummaryBasic>> candidates) {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        List<TradeSummaryBasic> summaries = candidates.get();
+        if (summaries.isEmpty()) {
+            log.debug("No trade summaries to recalculate for the {} job", job);
+            return;
+        }
+        log.info("Starting {} metrics recalculation over {} candidate summaries", job, summaries.size());
+
+        // Nodes start at different shards so that concurrent runs spread out before contending
+        int firstShard = Math.floorMod(nodeId.hashCode(), shards);
+        int[] totals = new int[Outcome.values().length];
+        int ownedShards = 0;
+        for (int i = 0; i < shards; i++) {
+            int shard = (firstShard + i) % shards;
+            String lease = shards == 1 ? LEASE_PREFIX + job : LEASE_PREFIX + job + "-shard-" + shard;
+            if (!jobLeaseRepository.tryAcquire(lease, nodeId, leaseDuration)) {
+                log.debug("Lease {} is held by another node; skipping shard {}", lease, shard);
+                countShard(job, "skipped");
+                continue;
+            }
+            ownedShards++;
+            try {
+                List<TradeSummaryBasic> shardSummaries = new ArrayList<>();
+                for (TradeSummaryBasic summary : summaries) {
+                    if (shardOf(summary.getId()) == shard) {
+                        shardSummaries.add(summary);
+                    }
+                }
+                int[] outcomes = recalculateShard(job, lease, shardSummaries);
+                for (int o = 0; o < totals.length; o++) {
+                    totals[o] += outcomes[o];
+                }
+            } finally {
+                jobLeaseRepository.release(lease, nodeId, minimumHold);
+            }
+        }
+
+        long elapsed = System.nanoTime() - start;
+        if (meterRegistry != null) {
+            Timer.builder(RUN_TIMER).tag("job", job).register(meterRegistry).record(elapsed, TimeUnit.NANOSECONDS);
+        }
+        log.info("Completed {} metrics recalculation in {} ms over {} of {} shard(s): {} recalculated, "
+                        + "{} up to date, {} failed", job, TimeUnit.NANOSECONDS.toMillis(elapsed), ownedShards, shards,
+                totals[Outcome.RECALCULATED.ordinal()], totals[Outcome.UP_TO_DATE.ordinal()],
+                totals[Outcome.FAILED.ordinal()]);
+    }
+
+    /**
+     * Recalculate a shard's summaries with at most {@code parallelism} in flight, renewing the
+     * lease while waiting and stopping early if it is lost
+     *
+     * @return Number of summaries per {@link Outcome}
+     */
+    private int[] recalculateShard(String job, String lease, List<TradeSummaryBasic> summaries) {
+        int[] outcomes = new int[Outcome.values().length];
+        AtomicInteger pending = pending(job);
+        pending.set(summaries.size());
+
+        ExecutorCompletionService<Outcome> completion = new ExecutorCompletionService<>(executor);
+        Iterator<TradeSummaryBasic> remaining = summaries.iterator();
+        List<Future<Outcome>> inFlight = new ArrayList<>();
+        long renewEveryNanos = Math.max(1L, leaseDuration.toNanos() / 3);
+        long renewAt = System.nanoTime() + renewEveryNanos;
+        boolean leaseHeld = true;
+
+        try {
+            while (leaseHeld && (remaining.hasNext() || !inFlight.isEmpty())) {
+                while (remaining.hasNext() && inFlight.size() < parallelism) {
+                    TradeSummaryBasic summary = remaining.next();
+                    inFlight.add(completion.submit(() -> recalculate(summary)));
+                }
+
+                Future<Outcome> done = completion.poll(Math.max(0L, renewAt - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (done != null) {
+                    inFlight.remove(done);
+                    Outcome outcome = outcomeOf(done);
+                    outcomes[outcome.ordinal()]++;
+                    pending.decrementAndGet();
+                    if (meterRegistry != null) {
+                        Counter.builder(SUMMARY_COUNTER)
+                                .tag("job", job)
+                                .tag("outcome", outcome.name().toLowerCase())
+                                .register(meterRegistry)
+                                .increment();
+                    }
+                }
+                if (System.nanoTime() - renewAt >= 0) {
+                    leaseHeld = jobLeaseRepository.tryAcquire(lease, nodeId, leaseDuration);
+                    renewAt = System.nanoTime() + renewEveryNanos;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            leaseHeld = false;
+        } finally {
+            if (!leaseHeld) {
+                // Summaries already running finish; the rest are left for the node that owns the lease
+                log.warn("Lost lease {} with {} summaries left; stopping", lease, pending.get());
+                countShard(job, "lost");
+            } else {
+                countShard(job, "completed");
+            }
+            pending.set(0);
+        }
+        return outcomes;
+    }
+
+    private Outcome recalculate(TradeSummaryBasic summary) {
+        try {
+            Optional<TradeSummaryDetailed> detailed = tradeSummaryService.findDetailedByBasicId(summary.getId());
+            if (detailed.isPresent() && !metricsCalculationService.needsRecalculation(summary, detailed.get())) {
+                // A mark left behind, e.g. by a calculation that failed to clear it, would be picked up every run
+                if (summary.getMetricsDirtySince() != null) {
+                    tradeSummaryService.clearMetricsDirty(summary.getId(), detailed.get().getLastCalculatedTimestamp());
+                }
+                return Outcome.UP_TO_DATE;
+            }
+            metricsCalculationService.calculateDetailedMetrics(summary);
+            Cache cache = cacheManager.getCache(CACHE_NAME);
+            if (cache != null) {
+                cache.evict(summary.getId());
+            }
+            return Outcome.RECALCULATED;
+        } catch (RuntimeException e) {
+            log.error("Error recalculating metrics for basic summary ID: {}", summary.getId(), e);
+            return Outcome.FAILED;
+        }
+    }
+
+    private static Outcome outcomeOf(Future<Outcome> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            return Outcome.FAILED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Outcome.FAILED;
+        }
+    }
+
+    private int shardOf(String summaryId) {
+        return summaryId == null ? 0 : Math.floorMod(summaryId.hashCode(), shards);
+    }
+
+    private AtomicInteger pending(String job) {
+        return pendingByJob.computeIfAbsent(job, key -> {
+            AtomicInteger pending = new AtomicInteger();
+            if (meterRegistry != null) {
+                Gauge.builder(PENDING_GAUGE, pending, AtomicInteger::get).tag("job", key).register(meterRegistry);
+            }
+            return pending;
+        });
+    }
+
+    private void countShard(String job, String outcome) {
+        if (meterRegistry != null) {
+            Counter.builder(SHARD_COUNTER).tag("job", job).tag("outcome", outcome).register(meterRegistry).increment();
+        }
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
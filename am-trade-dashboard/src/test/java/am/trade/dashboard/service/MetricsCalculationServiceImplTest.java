@@ -0,0 +1,123 @@
+package am.trade.dashboard.service;
+
+import am.trade.common.models.PerformanceMetrics;
+import am.trade.common.models.RiskMetrics;
+import am.trade.common.models.TradeDistributionMetrics;
+import am.trade.common.models.TradePatternMetrics;
+import am.trade.common.models.TradeSummary;
+import am.trade.common.models.TradeSummaryBasic;
+import am.trade.common.models.TradeSummaryDetailed;
+import am.trade.common.models.TradeTimingMetrics;
+import am.trade.common.models.TradingFeedback;
+import am.trade.services.service.impl.TradeSummaryServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MetricsCalculationServiceImplTest {
+
+    @Mock
+    private TradeSummaryServiceImpl tradeSummaryService;
+    @Mock
+    private TradeMetricsCalculationService tradeMetricsCalculationService;
+
+    private MetricsCalculationServiceImpl metricsCalculationService;
+    private final LocalDateTime calculatedFrom = LocalDateTime.now().minusMinutes(10);
+    private final TradeSummaryDetailed detailed = TradeSummaryDetailed.builder()
+            .lastCalculatedTimestamp(calculatedFrom)
+            .build();
+
+    @BeforeEach
+    void setUp() {
+        metricsCalculationService = new MetricsCalculationServiceImpl(tradeSummaryService, tradeMetricsCalculationService);
+        ReflectionTestUtils.setField(metricsCalculationService, "cacheInvalidationHours", 24L);
+    }
+
+    @Test
+    void needsRecalculation_shouldFollowTheLastWriteOfASummaryDirtyBeforeTheCalculation() {
+        // Dirty since before the calculation started, written again while it ran
+        TradeSummaryBasic writtenSince = summary(calculatedFrom.minusMinutes(5), calculatedFrom.plusMinutes(1));
+        TradeSummaryBasic writtenBefore = summary(calculatedFrom.minusMinutes(5), calculatedFrom);
+
+        assertTrue(metricsCalculationService.needsRecalculation(writtenSince, detailed));
+        assertFalse(metricsCalculationService.needsRecalculation(writtenBefore, detailed));
+    }
+
+    @Test
+    void needsRecalculation_shouldFallBackToTheMarkWithoutALastWrite() {
+        assertTrue(metricsCalculationService.needsRecalculation(summary(calculatedFrom.plusMinutes(1), null), detailed));
+        assertFalse(metricsCalculationService.needsRecalculation(summary(calculatedFrom.minusMinutes(1), null), detailed));
+        assertFalse(metricsCalculationService.needsRecalculation(summary(null, null), detailed));
+    }
+
+    @Test
+    void calculateDetailedMetrics_shouldSaveAllFamiliesAndClearTheMark() {
+        TradeSummaryBasic basic = summary(calculatedFrom, null);
+        TradeSummary calculated = complete();
+        when(tradeSummaryService.findDetailedByBasicId("s1")).thenReturn(Optional.of(detailed));
+        when(tradeMetricsCalculationService.calculateAllMetrics(List.of("p1"))).thenReturn(calculated);
+        when(tradeSummaryService.saveTradeSummaryDetailed(detailed)).thenReturn(detailed);
+
+        metricsCalculationService.calculateDetailedMetrics(basic);
+
+        assertSame(calculated.getRiskMetrics(), detailed.getRiskMetrics());
+        assertSame(calculated.getTradingFeedback(), detailed.getTradingFeedback());
+        verify(tradeSummaryService).clearMetricsDirty(eq("s1"), any(LocalDateTime.class));
+    }
+
+    @Test
+    void calculateDetailedMetrics_shouldKeepTheStoredMetricsAndTheMarkWhenAFamilyIsMissing() {
+        RiskMetrics stored = new RiskMetrics();
+        detailed.setRiskMetrics(stored);
+        TradeSummary calculated = complete();
+        calculated.setRiskMetrics(null);
+        when(tradeSummaryService.findDetailedByBasicId("s1")).thenReturn(Optional.of(detailed));
+        when(tradeMetricsCalculationService.calculateAllMetrics(List.of("p1"))).thenReturn(calculated);
+
+        assertThrows(IllegalStateException.class,
+                () -> metricsCalculationService.calculateDetailedMetrics(summary(calculatedFrom, null)));
+
+        assertSame(stored, detailed.getRiskMetrics());
+        verify(tradeSummaryService, never()).saveTradeSummaryDetailed(any());
+        verify(tradeSummaryService, never()).clearMetricsDirty(anyString(), any());
+    }
+
+    private static TradeSummary complete() {
+        TradeSummary summary = new TradeSummary();
+        summary.setPerformanceMetrics(new PerformanceMetrics());
+        summary.setRiskMetrics(new RiskMetrics());
+        summary.setDistributionMetrics(new TradeDistributionMetrics());
+        summary.setTimingMetrics(new TradeTimingMetrics());
+        summary.setPatternMetrics(new TradePatternMetrics());
+        summary.setTradingFeedback(new TradingFeedback());
+        return summary;
+    }
+
+    private static TradeSummaryBasic summary(LocalDateTime dirtySince, LocalDateTime lastWritten) {
+        return TradeSummaryBasic.builder()
+                .id("s1")
+                .portfolioIds(List.of("p1"))
+                .metricsDirtySince(dirtySince)
+                .tradesLastWrittenAt(lastWritten)
+                .build();
+    }
+}
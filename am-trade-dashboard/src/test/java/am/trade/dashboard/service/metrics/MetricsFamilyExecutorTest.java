@@ -0,0 +1,163 @@
+package am.trade.dashboard.service.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MetricsFamilyExecutorTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private MetricsFamilyExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void await_shouldReportFamiliesThatMissTheDeadline() {
+        executor = executor(true, 2, 50);
+        List<Object> results = new ArrayList<>();
+
+        List<String> missing = executor.batch()
+                .submit("slow", this::blockUntilReleased, results::add)
+                .submit("fast", () -> "fast", results::add)
+                .await();
+
+        assertEquals(List.of("slow"), missing);
+        assertEquals(List.of("fast"), results);
+        assertEquals(1.0, meterRegistry.counter("dashboard.metrics.family.timeouts", "family", "slow").count());
+    }
+
+    @Test
+    void await_shouldWaitPastTheDeadlineForACompleteBatch() {
+        executor = executor(true, 2, 50);
+        List<Object> results = new ArrayList<>();
+
+        List<String> missing = executor.completeBatch()
+                .submit("slow", () -> {
+                    sleep(200);
+                    return "slow";
+                }, results::add)
+                .submit("broken", () -> {
+                    throw new IllegalStateException("no data");
+                }, results::add)
+                .await();
+
+        assertEquals(List.of("broken"), missing);
+        assertEquals(List.of("slow"), results);
+        assertEquals(0.0, meterRegistry.counter("dashboard.metrics.family.timeouts", "family", "slow").count());
+    }
+
+    @Test
+    void await_shouldSkipAFailingFamilyAndHandTheOthersToTheCaller() {
+        executor = executor(true, 2, 5000);
+        List<Object> results = new ArrayList<>();
+        AtomicReference<Thread> sinkThread = new AtomicReference<>();
+        AtomicReference<Thread> calculationThread = new AtomicReference<>();
+
+        List<String> missing = executor.batch()
+                .submit("broken", () -> {
+                    throw new IllegalStateException("no data");
+                }, results::add)
+                .submit("working", () -> {
+                    calculationThread.set(Thread.currentThread());
+                    return "working";
+                }, result -> {
+                    sinkThread.set(Thread.currentThread());
+                    results.add(result);
+                })
+                .await();
+
+        assertEquals(List.of("broken"), missing);
+        assertEquals(List.of("working"), results);
+        assertNotSame(Thread.currentThread(), calculationThread.get());
+        assertSame(Thread.currentThread(), sinkThread.get());
+    }
+
+    @Test
+    void await_shouldRunANestedBatchInlineWhileItsFamilyHoldsTheOnlyWorker() {
+        executor = executor(true, 1, 5000);
+        List<Thread> nestedThreads = new ArrayList<>();
+        AtomicReference<Thread> outerThread = new AtomicReference<>();
+        AtomicReference<List<String>> nestedMissing = new AtomicReference<>();
+        List<Object> results = new ArrayList<>();
+
+        List<String> missing = executor.batch()
+                .submit("outer", () -> {
+                    outerThread.set(Thread.currentThread());
+                    // The pool has one thread and this family is on it, so only inline runs can finish these
+                    nestedMissing.set(executor.batch()
+                            .submit("inner-1", Thread::currentThread, nestedThreads::add)
+                            .submit("inner-2", Thread::currentThread, nestedThreads::add)
+                            .await());
+                    return "outer";
+                }, results::add)
+                .await();
+
+        assertTrue(missing.isEmpty());
+        assertEquals(List.of("outer"), results);
+        assertTrue(nestedMissing.get().isEmpty());
+        assertEquals(List.of(outerThread.get(), outerThread.get()), nestedThreads);
+    }
+
+    @Test
+    void submit_shouldRunOnTheCallerWhenDisabled() {
+        executor = executor(false, 2, 5000);
+        AtomicReference<Thread> calculationThread = new AtomicReference<>();
+
+        List<String> missing = executor.batch()
+                .submit("sequential", () -> {
+                    calculationThread.set(Thread.currentThread());
+                    return 1;
+                }, result -> { })
+                .await();
+
+        assertTrue(missing.isEmpty());
+        assertSame(Thread.currentThread(), calculationThread.get());
+    }
+
+    private MetricsFamilyExecutor executor(boolean enabled, int maxConcurrency, long deadlineMillis) {
+        @SuppressWarnings("unchecked")
+        ObjectProvider<MeterRegistry> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(meterRegistry);
+        // Platform threads, so the single-worker case is the same on every JVM
+        return new MetricsFamilyExecutor(provider, enabled, maxConcurrency, deadlineMillis, false);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String blockUntilReleased() {
+        try {
+            release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "slow";
+    }
+}
@@ -0,0 +1,178 @@
+package am.trade.dashboard.service.metrics.calculator;
+
+import am.trade.common.models.EntryExitInfo;
+import am.trade.common.models.PerformanceMetrics;
+import am.trade.common.models.TradeDetails;
+import am.trade.common.models.TradeMetrics;
+import am.trade.dashboard.service.metrics.calculator.impl.AverageHoldingTimeCalculator;
+import am.trade.dashboard.service.metrics.calculator.impl.AverageTradeCalculator;
+import am.trade.dashboard.service.metrics.calculator.impl.BestWorstDayCalculator;
+import am.trade.dashboard.service.metrics.calculator.impl.ConsistencyMetricsCalculator;
+import am.trade.dashboard.service.metrics.calculator.impl.CurrentStreakCalculator;
+import am.trade.dashboard.service.metrics.calculator.impl.DecisionQualityCalculator;
+import am.trade.dashboard.service.metrics.calculator.impl.EmotionalMetricsCalculator;
+import am.trade.dashboard.service.metrics.calculator.impl.ExpectancyCalculator;
+import am.trade.dashboard.service.metrics.calculator.impl.LargestTradeCalculator;
+import am.trade.dashboard.service.metrics.calculator.impl.ProfitFactorCalculator;
+import am.trade.dashboard.service.metrics.calculator.impl.ProfitLossCalculator;
+import am.trade.dashboard.service.metrics.calculator.impl.ProfitabilityCalculator;
+import am.trade.dashboard.service.metrics.calculator.impl.ReturnOnCapitalCalculator;
+import am.trade.dashboard.service.metrics.calculator.impl.RiskRewardCalculator;
+import am.trade.dashboard.service.metrics.calculator.impl.StreakCalculator;
+import am.trade.dashboard.service.metrics.calculator.impl.TimeBasedReturnCalculator;
+import am.trade.dashboard.service.metrics.calculator.impl.TradeFrequencyCalculator;
+import am.trade.dashboard.service.metrics.calculator.impl.TradeManagementCalculator;
+import am.trade.dashboard.service.metrics.calculator.impl.WinLossRatioCalculator;
+import am.trade.dashboard.service.metrics.calculator.impl.WinRateCalculator;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class MetricsRegistryTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    private final MetricsRegistry registry = new MetricsRegistry(List.of(
+            new TimeBasedReturnCalculator(), new LargestTradeCalculator(), new AverageTradeCalculator(),
+            new BestWorstDayCalculator(), new ConsistencyMetricsCalculator(), new WinRateCalculator(),
+            new ExpectancyCalculator(), new CurrentStreakCalculator(), new StreakCalculator(),
+            new TradeFrequencyCalculator(), new ProfitabilityCalculator(), new RiskRewardCalculator(),
+            new EmotionalMetricsCalculator(), new DecisionQualityCalculator(), new TradeManagementCalculator(),
+            new ProfitLossCalculator(), new ProfitFactorCalculator(), new WinLossRatioCalculator(),
+            new ReturnOnCapitalCalculator(), new AverageHoldingTimeCalculator()));
+
+    // Closed equity 100, 60, 120, 100; the last trade is entered today
+    private final List<TradeDetails> trades = List.of(
+            trade(TODAY.minusDays(10), "100", "10"),
+            trade(TODAY.minusDays(9), "-40", "-4"),
+            trade(TODAY.minusDays(5), "60", "6"),
+            trade(TODAY, "-20", "-2"));
+
+    @Test
+    void calculateAndApplyMetrics_shouldFillEveryFieldOfTheSpecialAndStandardCalculators() {
+        PerformanceMetrics metrics = new PerformanceMetrics();
+
+        registry.calculateAndApplyMetrics(trades, metrics);
+
+        // Standard calculators
+        assertMoney("50", metrics.getWinRate());
+        assertMoney("25", metrics.getExpectancy());
+        assertEquals(-1, metrics.getCurrentStreak());
+
+        // Totals and ratios
+        assertMoney("100", metrics.getTotalProfitLoss());
+        assertMoney("2.6667", metrics.getProfitFactor());
+        assertMoney("2.6667", metrics.getWinLossRatio());
+        // 100 on 4000 invested, rounded to 0.03 before the percentage
+        assertMoney("3", metrics.getReturnOnCapital());
+        assertMoney("2", metrics.getAverageHoldingTimeOverall());
+
+        // Streaks
+        assertEquals(1, metrics.getLongestWinningStreak());
+        assertEquals(1, metrics.getLongestLosingStreak());
+
+        // Largest and average trades
+        assertMoney("100", metrics.getLargestWinningTrade());
+        assertMoney("40", metrics.getLargestLosingTrade());
+        assertMoney("80", metrics.getAverageWinningTrade());
+        assertMoney("30", metrics.getAverageLosingTrade());
+
+        // Best and worst days
+        assertMoney("100", metrics.getBestDayProfit());
+        assertEquals(TODAY.minusDays(10).atStartOfDay(), metrics.getBestDayDate());
+        assertMoney("40", metrics.getWorstDayLoss());
+        assertEquals(TODAY.minusDays(9).atStartOfDay(), metrics.getWorstDayDate());
+
+        // Consistency
+        assertMoney("0.5", metrics.getProfitConsistency());
+        assertMoney("40", metrics.getMaxDrawdown());
+        assertNotNull(metrics.getReturnStandardDeviation());
+
+        // Time-based returns
+        assertNotNull(metrics.getYearToDateReturn());
+        assertNotNull(metrics.getQuarterlyReturn());
+        assertNotNull(metrics.getMonthlyReturn());
+        assertNotNull(metrics.getAnnualizedReturn());
+    }
+
+    @Test
+    void calculateAndApplyMetrics_shouldMatchTheCalculatorsRunOnTheirOwn() {
+        PerformanceMetrics metrics = new PerformanceMetrics();
+        registry.calculateAndApplyMetrics(trades, metrics);
+
+        PerformanceMetrics expected = new PerformanceMetrics();
+        new AverageTradeCalculator().calculateAverageTrades(trades, expected);
+        new LargestTradeCalculator().calculateLargestTrades(trades, expected);
+        new BestWorstDayCalculator().calculateBestWorstDays(trades, expected);
+
+        assertEquals(expected.getAverageWinningTrade(), metrics.getAverageWinningTrade());
+        assertEquals(expected.getAverageLosingTrade(), metrics.getAverageLosingTrade());
+        assertEquals(expected.getLargestWinningTrade(), metrics.getLargestWinningTrade());
+        assertEquals(expected.getWorstDayLoss(), metrics.getWorstDayLoss());
+        assertEquals(new WinRateCalculator().calculate(trades), metrics.getWinRate());
+        assertSameValue(new ProfitLossCalculator().calculate(trades), metrics.getTotalProfitLoss());
+        assertSameValue(new ProfitFactorCalculator().calculate(trades), metrics.getProfitFactor());
+        assertSameValue(new WinLossRatioCalculator().calculate(trades), metrics.getWinLossRatio());
+        assertSameValue(new ReturnOnCapitalCalculator().calculate(trades), metrics.getReturnOnCapital());
+        assertSameValue(new AverageHoldingTimeCalculator().calculate(trades), metrics.getAverageHoldingTimeOverall());
+    }
+
+    @Test
+    void calculateAndApplyMetrics_shouldCountStreaksInExitOrder() {
+        // Entered win, loss, win, win, but the loss closes last
+        LocalDateTime entry = TODAY.minusDays(3).atTime(9, 30);
+        List<TradeDetails> overlapping = List.of(
+                trade("w1", entry, entry.plusHours(1), "10"),
+                trade("l1", entry.plusMinutes(10), entry.plusHours(5), "-5"),
+                trade("w2", entry.plusMinutes(20), entry.plusHours(2), "10"),
+                trade("w3", entry.plusMinutes(30), entry.plusHours(3), "10"));
+        PerformanceMetrics metrics = new PerformanceMetrics();
+
+        registry.calculateAndApplyMetrics(overlapping, metrics);
+
+        PerformanceMetrics expected = new PerformanceMetrics();
+        new StreakCalculator().calculateStreaks(overlapping, expected);
+        assertEquals(3, metrics.getLongestWinningStreak());
+        assertEquals(1, metrics.getLongestLosingStreak());
+        assertEquals(expected.getLongestWinningStreak(), metrics.getLongestWinningStreak());
+        assertEquals(-1, metrics.getCurrentStreak());
+    }
+
+    private static TradeDetails trade(LocalDate day, String profitLoss, String profitLossPercentage) {
+        LocalDateTime entry = day.atTime(9, 30);
+        return TradeDetails.builder()
+                .tradeId(day.toString())
+                .entryInfo(EntryExitInfo.builder().timestamp(entry).price(new BigDecimal("100")).quantity(10)
+                        .totalValue(new BigDecimal("1000")).build())
+                .exitInfo(EntryExitInfo.builder().timestamp(entry.plusHours(2)).build())
+                .metrics(TradeMetrics.builder()
+                        .profitLoss(new BigDecimal(profitLoss))
+                        .profitLossPercentage(new BigDecimal(profitLossPercentage))
+                        .build())
+                .build();
+    }
+
+    private static TradeDetails trade(String tradeId, LocalDateTime entry, LocalDateTime exit, String profitLoss) {
+        return TradeDetails.builder()
+                .tradeId(tradeId)
+                .entryInfo(EntryExitInfo.builder().timestamp(entry).build())
+                .exitInfo(EntryExitInfo.builder().timestamp(exit).build())
+                .metrics(TradeMetrics.builder().profitLoss(new BigDecimal(profitLoss)).build())
+                .build();
+    }
+
+    private static void assertSameValue(BigDecimal expected, BigDecimal actual) {
+        assertMoney(expected.toPlainString(), actual);
+    }
+
+    private static void assertMoney(String expected, BigDecimal actual) {
+        assertNotNull(actual);
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), () -> "expected " + expected + " but was " + actual);
+    }
+}
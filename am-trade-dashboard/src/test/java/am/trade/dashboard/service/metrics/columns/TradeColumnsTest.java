@@ -0,0 +1,128 @@
+package am.trade.dashboard.service.metrics.columns;
+
+import am.trade.common.models.EntryExitInfo;
+import am.trade.common.models.TradeDetails;
+import am.trade.common.models.TradeMetrics;
+import am.trade.common.models.enums.TradeStatus;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TradeColumnsTest {
+
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2025, 3, 3, 9, 15);
+
+    @Test
+    void toMoney_shouldRoundHalfUpToTheMoneyScale() {
+        assertEquals(12346, TradeColumns.toMoney(new BigDecimal("1.23455")));
+        assertEquals(-12346, TradeColumns.toMoney(new BigDecimal("-1.23455")));
+        assertEquals(12345, TradeColumns.toMoney(new BigDecimal("1.234549")));
+        assertEquals(new BigDecimal("1.2346"), TradeColumns.fromMoney(12346));
+        assertEquals(TradeColumns.NO_MONEY, TradeColumns.toMoney(null));
+    }
+
+    @Test
+    void profitLoss_shouldSumExactlyOnceScaled() {
+        TradeColumns columns = TradeColumns.of(List.of(
+                trade(MONDAY, MONDAY.plusHours(1), "0.1"),
+                trade(MONDAY, MONDAY.plusHours(1), "0.2")));
+
+        long sum = columns.profitLoss(0) + columns.profitLoss(1);
+
+        assertEquals(new BigDecimal("0.3000"), TradeColumns.fromMoney(sum));
+        assertEquals(0.3, TradeColumns.moneyToDouble(sum));
+    }
+
+    @Test
+    void of_shouldEncodeMissingValues() {
+        TradeDetails empty = TradeDetails.builder().tradeId("empty").tags(Arrays.asList("a", null)).build();
+        TradeDetails noProfitLoss = TradeDetails.builder()
+                .tradeId("partial")
+                .status(TradeStatus.WIN)
+                .entryInfo(EntryExitInfo.builder().timestamp(MONDAY).fees(new BigDecimal("1.5")).build())
+                .exitInfo(EntryExitInfo.builder().build())
+                .metrics(TradeMetrics.builder().build())
+                .build();
+
+        TradeColumns columns = TradeColumns.of(List.of(empty, noProfitLoss));
+
+        assertFalse(columns.hasEntryTime(0));
+        assertFalse(columns.hasExitTime(0));
+        assertFalse(columns.hasProfitLoss(0));
+        assertEquals(TradeColumns.NO_MONEY, columns.profitLoss(0));
+        assertTrue(Double.isNaN(columns.profitLossPercentage(0)));
+        assertTrue(Double.isNaN(columns.quantity(0)));
+        assertTrue(Double.isNaN(columns.fees(0)));
+        assertEquals(TradeColumns.NO_CODE, columns.status(0));
+        assertEquals(TradeColumns.NO_CODE, columns.direction(0));
+        assertEquals(-1, columns.symbolCode(0));
+        // Null tags are dropped
+        assertEquals(1, columns.tagEnd(0) - columns.tagStart(0));
+        assertEquals("a", columns.tag(columns.tagCode(columns.tagStart(0))));
+
+        assertTrue(columns.hasEntryTime(1));
+        assertFalse(columns.hasExitTime(1));
+        assertFalse(columns.hasProfitLoss(1));
+        assertEquals(1.5, columns.fees(1));
+        assertEquals(TradeStatus.WIN.ordinal(), columns.status(1));
+        assertSame(noProfitLoss, columns.trade(1));
+        assertEquals(0, TradeColumns.of(null).size());
+    }
+
+    @Test
+    void of_shouldTreatOutOfRangeProfitLossAsMissing() {
+        TradeColumns columns = TradeColumns.of(List.of(
+                trade(MONDAY, MONDAY.plusHours(1), "1e30"),
+                trade(MONDAY, MONDAY.plusHours(1), "-922337203685477.5808"),
+                trade(MONDAY, MONDAY.plusHours(1), "2.5")));
+
+        assertFalse(columns.hasProfitLoss(0));
+        // Would collide with the NO_MONEY marker
+        assertFalse(columns.hasProfitLoss(1));
+        assertEquals(new BigDecimal("2.5000"), TradeColumns.fromMoney(columns.profitLoss(2)));
+    }
+
+    @Test
+    void timeOrders_shouldBeStableWithMissingTimesLastAndBuiltOnce() {
+        TradeColumns columns = TradeColumns.of(List.of(
+                trade(MONDAY.plusDays(2), MONDAY.plusDays(2), "1"),
+                trade(null, null, "2"),
+                trade(MONDAY, MONDAY.plusDays(3), "3"),
+                trade(MONDAY.plusDays(2), null, "4"),
+                trade(MONDAY.minusDays(1), MONDAY.plusDays(2), "5")));
+
+        // Rows 0 and 3 share an entry time and keep their order; row 1 has none
+        assertArrayEquals(new int[] {4, 2, 0, 3, 1}, columns.entryTimeOrder());
+        // Rows 0 and 4 share an exit time; rows 1 and 3 have none
+        assertArrayEquals(new int[] {0, 4, 2, 1, 3}, columns.exitTimeOrder());
+
+        assertSame(columns.entryTimeOrder(), columns.entryTimeOrder());
+        assertSame(columns.exitTimeOrder(), columns.exitTimeOrder());
+    }
+
+    @Test
+    void toEpochMillis_shouldReadLocalTimesAsUtc() {
+        assertEquals(TradeColumns.MILLIS_PER_DAY, TradeColumns.toEpochMillis(LocalDateTime.of(1970, 1, 2, 0, 0)));
+        assertEquals(TradeColumns.NO_TIME, TradeColumns.toEpochMillis(null));
+        assertEquals(MONDAY.toLocalDate(), TradeColumns.toLocalDate(TradeColumns.toEpochMillis(MONDAY)));
+        assertEquals(-1, TradeColumns.epochDay(-1));
+    }
+
+    private static TradeDetails trade(LocalDateTime entry, LocalDateTime exit, String profitLoss) {
+        return TradeDetails.builder()
+                .tradeId(profitLoss)
+                .entryInfo(EntryExitInfo.builder().timestamp(entry).build())
+                .exitInfo(EntryExitInfo.builder().timestamp(exit).build())
+                .metrics(TradeMetrics.builder().profitLoss(new BigDecimal(profitLoss)).build())
+                .build();
+    }
+}
@@ -0,0 +1,163 @@
+package am.trade.dashboard.service.metrics.feedback;
+
+import am.trade.common.models.EntryExitInfo;
+import am.trade.common.models.TradeDetails;
+import am.trade.common.models.TradeMetrics;
+import am.trade.common.models.TradePsychologyData;
+import am.trade.common.models.enums.EntryPsychology;
+import am.trade.common.models.enums.ExitPsychology;
+import am.trade.common.models.enums.TradeBehaviorPattern;
+import am.trade.dashboard.service.metrics.feedback.FeedbackTradeIndex.GroupStats;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FeedbackTradeIndexTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 1);
+
+    private final TradeDetails fomoWinner = trade("a", 3, "100", "2", EntryPsychology.FEAR_OF_MISSING_OUT,
+            ExitPsychology.GREED, TradeBehaviorPattern.OVERTRADING, TradeBehaviorPattern.CHASING_MOMENTUM);
+    private final TradeDetails fomoLoser = trade("b", 0, "-50", "1", EntryPsychology.FEAR_OF_MISSING_OUT,
+            ExitPsychology.PANIC, TradeBehaviorPattern.OVERTRADING);
+    // Lists the same pattern twice
+    private final TradeDetails disciplinedLoser = trade("c", 2, "-30", null, EntryPsychology.DISCIPLINED,
+            ExitPsychology.PANIC, TradeBehaviorPattern.OVERTRADING, TradeBehaviorPattern.OVERTRADING);
+    // No profit/loss and no exit psychology
+    private final TradeDetails disciplinedOpen = trade("d", 1, null, null, EntryPsychology.DISCIPLINED, null);
+    // Break-even, without psychology data
+    private final TradeDetails breakEven = TradeDetails.builder()
+            .tradeId("e")
+            .entryInfo(EntryExitInfo.builder().timestamp(DAY.plusDays(4).atTime(10, 0)).build())
+            .metrics(TradeMetrics.builder().profitLoss(BigDecimal.ZERO).riskRewardRatio(new BigDecimal("3")).build())
+            .build();
+
+    private final List<TradeDetails> trades = List.of(fomoWinner, fomoLoser, disciplinedLoser, disciplinedOpen, breakEven);
+
+    @Test
+    void of_shouldGroupAndSummarizeLikeThePerAnalyzerHelpers() {
+        FeedbackTradeIndex index = FeedbackTradeIndex.of(trades);
+
+        // Overall, as the decision and risk analyzers computed it
+        assertEquals(20.0, index.overall().winRate());
+        assertEquals(5.0, index.overall().averageProfitLoss());
+        assertEquals(1.25, index.overall().profitFactor());
+        assertTrue(index.overall().isProfitable());
+        assertEquals(2.0, index.averageRiskRewardRatio());
+
+        // By pattern, once per listing
+        GroupStats overtrading = index.byPattern().get(TradeBehaviorPattern.OVERTRADING);
+        assertEquals(List.of(fomoWinner, fomoLoser, disciplinedLoser, disciplinedLoser), overtrading.trades());
+        assertEquals(25.0, overtrading.winRate());
+        assertEquals(-2.5, overtrading.averageProfitLoss());
+        assertFalse(overtrading.isProfitable());
+        assertEquals(Double.POSITIVE_INFINITY, index.byPattern().get(TradeBehaviorPattern.CHASING_MOMENTUM).profitFactor());
+        assertEquals(4, index.patternOccurrences(TradeBehaviorPattern.OVERTRADING.getCode()));
+
+        // By first entry and exit psychology; the average skips trades without profit/loss
+        GroupStats disciplined = index.byEntryPsychology().get(EntryPsychology.DISCIPLINED);
+        assertEquals(List.of(disciplinedLoser, disciplinedOpen), disciplined.trades());
+        assertEquals(0.0, disciplined.winRate());
+        assertEquals(-30.0, disciplined.averageProfitLoss());
+        assertEquals(0.0, disciplined.profitFactor());
+        assertEquals(2.0, index.byEntryPsychology().get(EntryPsychology.FEAR_OF_MISSING_OUT).profitFactor());
+        assertEquals(-40.0, index.byExitPsychology().get(ExitPsychology.PANIC).averageProfitLoss());
+        assertEquals(2, index.byExitPsychology().size());
+
+        // Entry order, as the risk analyzer sorted it for drawdown and loss streaks
+        assertEquals(List.of(fomoLoser, disciplinedOpen, disciplinedLoser, fomoWinner, breakEven), index.chronological());
+    }
+
+    @Test
+    void of_shouldMatchTheRemovedHelpersForEveryGroup() {
+        FeedbackTradeIndex index = FeedbackTradeIndex.of(trades);
+
+        assertGroupsMatch(groupBy(trades, trade -> trade.getPsychologyData().getBehaviorPatterns()), index.byPattern());
+        assertGroupsMatch(groupBy(trades, trade -> firstOf(trade.getPsychologyData().getEntryPsychologyFactors())),
+                index.byEntryPsychology());
+        assertGroupsMatch(groupBy(trades, trade -> firstOf(trade.getPsychologyData().getExitPsychologyFactors())),
+                index.byExitPsychology());
+        assertStatsMatch(trades, index.overall());
+    }
+
+    @Test
+    void chronological_shouldPutTradesWithoutAnEntryTimeLast() {
+        TradeDetails undated = TradeDetails.builder().tradeId("f").build();
+
+        FeedbackTradeIndex index = FeedbackTradeIndex.of(List.of(undated, fomoWinner, fomoLoser));
+
+        assertEquals(List.of(fomoLoser, fomoWinner, undated), index.chronological());
+        assertEquals(List.of(undated, fomoWinner, fomoLoser), index.trades());
+    }
+
+    private static <K> void assertGroupsMatch(Map<K, List<TradeDetails>> expected, Map<K, GroupStats> actual) {
+        assertEquals(expected.keySet(), actual.keySet());
+        expected.forEach((key, groupTrades) -> {
+            assertEquals(groupTrades, actual.get(key).trades());
+            assertStatsMatch(groupTrades, actual.get(key));
+        });
+    }
+
+    // The win rate, average, profitability and profit factor helpers the analyzers had before the index
+    private static void assertStatsMatch(List<TradeDetails> groupTrades, GroupStats stats) {
+        List<Double> profitLosses = groupTrades.stream()
+                .filter(t -> t.getMetrics() != null && t.getMetrics().getProfitLoss() != null)
+                .map(t -> t.getMetrics().getProfitLoss().doubleValue())
+                .toList();
+        long winCount = profitLosses.stream().filter(profitLoss -> profitLoss > 0).count();
+        double grossProfit = profitLosses.stream().filter(profitLoss -> profitLoss > 0).mapToDouble(Double::doubleValue).sum();
+        double grossLoss = profitLosses.stream().filter(profitLoss -> profitLoss < 0).mapToDouble(Math::abs).sum();
+        double total = profitLosses.stream().mapToDouble(Double::doubleValue).sum();
+
+        assertEquals(Math.round((double) winCount / groupTrades.size() * 100), stats.winRate());
+        assertEquals(profitLosses.stream().mapToDouble(Double::doubleValue).average().orElse(0.0), stats.averageProfitLoss());
+        assertEquals(total > 0, stats.isProfitable());
+        assertEquals(grossLoss > 0 ? grossProfit / grossLoss : grossProfit > 0 ? Double.POSITIVE_INFINITY : 0.0,
+                stats.profitFactor());
+    }
+
+    private static <K> Map<K, List<TradeDetails>> groupBy(List<TradeDetails> trades,
+                                                          Function<TradeDetails, List<K>> keys) {
+        Map<K, List<TradeDetails>> result = new HashMap<>();
+        for (TradeDetails trade : trades) {
+            if (trade.getPsychologyData() == null || keys.apply(trade) == null) {
+                continue;
+            }
+            for (K key : keys.apply(trade)) {
+                result.computeIfAbsent(key, k -> new ArrayList<>()).add(trade);
+            }
+        }
+        return result;
+    }
+
+    private static <T> List<T> firstOf(List<T> factors) {
+        return factors == null || factors.isEmpty() ? null : List.of(factors.get(0));
+    }
+
+    private static TradeDetails trade(String id, int day, String profitLoss, String riskReward,
+                                      EntryPsychology entry, ExitPsychology exit, TradeBehaviorPattern... patterns) {
+        return TradeDetails.builder()
+                .tradeId(id)
+                .entryInfo(EntryExitInfo.builder().timestamp(DAY.plusDays(day).atTime(10, 0)).build())
+                .metrics(profitLoss == null ? null : TradeMetrics.builder()
+                        .profitLoss(new BigDecimal(profitLoss))
+                        .riskRewardRatio(riskReward == null ? null : new BigDecimal(riskReward))
+                        .build())
+                .psychologyData(TradePsychologyData.builder()
+                        .entryPsychologyFactors(List.of(entry))
+                        .exitPsychologyFactors(exit == null ? null : List.of(exit))
+                        .behaviorPatterns(patterns.length == 0 ? null : List.of(patterns))
+                        .build())
+                .build();
+    }
+}
@@ -0,0 +1,81 @@
+package am.trade.dashboard.service.metrics.feedback;
+
+import am.trade.common.models.TradeDetails;
+import am.trade.common.models.TradingFeedback;
+import am.trade.dashboard.exception.FeedbackGenerationException;
+import am.trade.dashboard.model.feeback.DecisionAnalysis;
+import am.trade.dashboard.model.feeback.PatternAnalysis;
+import am.trade.dashboard.model.feeback.PsychologyAnalysis;
+import am.trade.dashboard.service.metrics.MetricsFamilyExecutor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TradingFeedbackFacadeTest {
+
+    private static final List<TradeDetails> TRADES = List.of(TradeDetails.builder().tradeId("t1").build());
+
+    @Mock
+    private PsychologyAnalyzer psychologyAnalyzer;
+    @Mock
+    private PatternAnalyzer patternAnalyzer;
+    @Mock
+    private DecisionAnalyzer decisionAnalyzer;
+    @Mock
+    private RiskManagementAnalyzer riskAnalyzer;
+
+    private MetricsFamilyExecutor executor;
+    private TradingFeedbackFacade facade;
+
+    @BeforeEach
+    void setUp() {
+        @SuppressWarnings("unchecked")
+        ObjectProvider<MeterRegistry> provider = mock(ObjectProvider.class);
+        executor = new MetricsFamilyExecutor(provider, true, 4, 5000, false);
+        facade = new TradingFeedbackFacade(psychologyAnalyzer, patternAnalyzer, decisionAnalyzer, riskAnalyzer, executor);
+
+        when(psychologyAnalyzer.analyze(any(FeedbackTradeIndex.class)))
+                .thenReturn(PsychologyAnalysis.builder().strengthAreas(List.of("patience")).build());
+        when(patternAnalyzer.analyze(any(FeedbackTradeIndex.class)))
+                .thenReturn(PatternAnalysis.builder().positiveHabits(List.of("journaling")).build());
+        when(decisionAnalyzer.analyze(any(FeedbackTradeIndex.class)))
+                .thenReturn(DecisionAnalysis.builder().entryDecisionFeedback("entries").build());
+        when(riskAnalyzer.analyze(any(FeedbackTradeIndex.class)))
+                .thenThrow(new IllegalStateException("no stops"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void generateFeedback_shouldLeaveTheSectionsOfAFailedAnalyzerEmpty() {
+        TradingFeedback feedback = facade.generateFeedback(TRADES);
+
+        assertEquals(List.of("patience"), feedback.getStrengthAreas());
+        assertEquals(List.of("journaling"), feedback.getTradingHabitsToReinforce());
+        assertEquals("entries", feedback.getEntryDecisionFeedback());
+        assertNull(feedback.getRiskManagementFeedback());
+    }
+
+    @Test
+    void generateCompleteFeedback_shouldFailRatherThanReturnEmptySections() {
+        assertThrows(FeedbackGenerationException.class, () -> facade.generateCompleteFeedback(TRADES));
+    }
+}
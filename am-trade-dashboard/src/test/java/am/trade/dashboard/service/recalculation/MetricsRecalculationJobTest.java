@@ -0,0 +1,176 @@
+package am.trade.dashboard.service.recalculation;
+
+import am.trade.common.models.TradeSummaryBasic;
+import am.trade.common.models.TradeSummaryDetailed;
+import am.trade.dashboard.service.MetricsCalculationService;
+import am.trade.persistence.repository.JobLeaseRepository;
+import am.trade.services.service.TradeSummaryService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MetricsRecalculationJobTest {
+
+    private static final String NODE = "node-a";
+    private static final Duration LEASE = Duration.ofMinutes(1);
+    private static final Duration MINIMUM_HOLD = Duration.ofSeconds(5);
+    private static final LocalDateTime CALCULATED = LocalDateTime.of(2025, 3, 10, 9, 0);
+
+    @Mock
+    private MetricsCalculationService metricsCalculationService;
+    @Mock
+    private TradeSummaryService tradeSummaryService;
+    @Mock
+    private JobLeaseRepository jobLeaseRepository;
+    @Mock
+    private ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager("tradeSummaryCache");
+    private MetricsRecalculationJob job;
+
+    @BeforeEach
+    void setUp() {
+        when(meterRegistryProvider.getIfAvailable()).thenReturn(meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (job != null) {
+            job.shutdown();
+        }
+    }
+
+    @Test
+    void recalculateDirtyMetrics_shouldRecalculateStaleSummariesAndEvictOnlyThem() {
+        // Given one stale, one up-to-date and one failing summary
+        job = job(true, 1);
+        TradeSummaryBasic stale = summary("stale");
+        TradeSummaryBasic current = summary("current");
+        TradeSummaryBasic broken = summary("broken");
+        TradeSummaryDetailed staleDetailed = detailed();
+        TradeSummaryDetailed currentDetailed = detailed();
+        when(tradeSummaryService.findAllActiveMetricsDirtyBasic()).thenReturn(List.of(stale, current, broken));
+        when(jobLeaseRepository.tryAcquire("metrics-recalculation-dirty", NODE, LEASE)).thenReturn(true);
+        when(tradeSummaryService.findDetailedByBasicId("stale")).thenReturn(Optional.of(staleDetailed));
+        when(tradeSummaryService.findDetailedByBasicId("current")).thenReturn(Optional.of(currentDetailed));
+        when(tradeSummaryService.findDetailedByBasicId("broken")).thenReturn(Optional.empty());
+        when(metricsCalculationService.needsRecalculation(stale, staleDetailed)).thenReturn(true);
+        when(metricsCalculationService.needsRecalculation(current, currentDetailed)).thenReturn(false);
+        when(metricsCalculationService.calculateDetailedMetrics(broken)).thenThrow(new IllegalStateException("no trades"));
+        Cache cache = cacheManager.getCache("tradeSummaryCache");
+        cache.put("stale", "cached");
+        cache.put("current", "cached");
+
+        // When
+        job.recalculateDirtyMetrics();
+
+        // Then
+        verify(metricsCalculationService).calculateDetailedMetrics(stale);
+        verify(metricsCalculationService, never()).calculateDetailedMetrics(current);
+        assertNull(cache.get("stale"));
+        assertNotNull(cache.get("current"));
+        assertEquals(1.0, summaries("recalculated"));
+        assertEquals(1.0, summaries("up_to_date"));
+        assertEquals(1.0, summaries("failed"));
+        verify(jobLeaseRepository).release("metrics-recalculation-dirty", NODE, MINIMUM_HOLD);
+    }
+
+    @Test
+    void recalculateDirtyMetrics_shouldClearAMarkLeftOnAnUpToDateSummary() {
+        // Given
+        job = job(true, 1);
+        TradeSummaryBasic summary = summary("current");
+        TradeSummaryDetailed detailed = detailed();
+        when(tradeSummaryService.findAllActiveMetricsDirtyBasic()).thenReturn(List.of(summary));
+        when(jobLeaseRepository.tryAcquire(anyString(), eq(NODE), eq(LEASE))).thenReturn(true);
+        when(tradeSummaryService.findDetailedByBasicId("current")).thenReturn(Optional.of(detailed));
+        when(metricsCalculationService.needsRecalculation(summary, detailed)).thenReturn(false);
+
+        // When
+        job.recalculateDirtyMetrics();
+
+        // Then the mark is cleared only up to the time the stored metrics were calculated from
+        verify(tradeSummaryService).clearMetricsDirty("current", CALCULATED);
+        verify(metricsCalculationService, never()).calculateDetailedMetrics(any());
+    }
+
+    @Test
+    void recalculateExpiredMetrics_shouldSkipShardsLeasedByAnotherNode() {
+        // Given two shards: "b" and "d" hash to shard 0, "a" and "c" to shard 1
+        job = job(true, 2);
+        List<TradeSummaryBasic> summaries = List.of(summary("a"), summary("b"), summary("c"), summary("d"));
+        when(tradeSummaryService.findAllActiveBasic()).thenReturn(summaries);
+        when(jobLeaseRepository.tryAcquire("metrics-recalculation-expired-shard-0", NODE, LEASE)).thenReturn(true);
+        when(jobLeaseRepository.tryAcquire("metrics-recalculation-expired-shard-1", NODE, LEASE)).thenReturn(false);
+
+        // When
+        job.recalculateExpiredMetrics();
+
+        // Then only the leased shard is recalculated and only its lease released
+        verify(metricsCalculationService).calculateDetailedMetrics(summaries.get(1));
+        verify(metricsCalculationService).calculateDetailedMetrics(summaries.get(3));
+        verify(metricsCalculationService, never()).calculateDetailedMetrics(summaries.get(0));
+        verify(metricsCalculationService, never()).calculateDetailedMetrics(summaries.get(2));
+        verify(jobLeaseRepository).release("metrics-recalculation-expired-shard-0", NODE, MINIMUM_HOLD);
+        verify(jobLeaseRepository, never()).release(eq("metrics-recalculation-expired-shard-1"), anyString(), any());
+        assertEquals(1.0, meterRegistry.counter("dashboard.metrics.recalculation.shards",
+                "job", "expired", "outcome", "skipped").count());
+    }
+
+    @Test
+    void recalculateDirtyMetrics_shouldDoNothingWhenDisabled() {
+        job = job(false, 1);
+
+        job.recalculateDirtyMetrics();
+
+        verifyNoInteractions(tradeSummaryService, jobLeaseRepository, metricsCalculationService);
+    }
+
+    private MetricsRecalculationJob job(boolean enabled, int shards) {
+        return new MetricsRecalculationJob(metricsCalculationService, tradeSummaryService, jobLeaseRepository,
+                cacheManager, meterRegistryProvider, enabled, 2, shards, LEASE.toMillis(), MINIMUM_HOLD.toMillis(), NODE);
+    }
+
+    private double summaries(String outcome) {
+        return meterRegistry.counter("dashboard.metrics.recalculation.summaries",
+                "job", "dirty", "outcome", outcome).count();
+    }
+
+    private static TradeSummaryBasic summary(String id) {
+        return TradeSummaryBasic.builder()
+                .id(id)
+                .portfolioIds(List.of("p-" + id))
+                .metricsDirtySince(CALCULATED.minusHours(1))
+                .build();
+    }
+
+    private static TradeSummaryDetailed detailed() {
+        return TradeSummaryDetailed.builder().lastCalculatedTimestamp(CALCULATED).build();
+    }
+}
@@ -2,8 +2,10 @@ package am.trade.kafka.config;
 
 import org.apache.kafka.clients.admin.AdminClientConfig;
 import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
@@ -13,15 +15,18 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
 import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
 import org.springframework.kafka.listener.DefaultErrorHandler;
 import org.springframework.kafka.core.*;
 import org.springframework.util.backoff.FixedBackOff;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
+import am.trade.kafka.service.KafkaIdempotencyService;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -137,10 +142,30 @@ public class KafkaConfig {
         return new DefaultErrorHandler(recoverer, backOff);
     }
 
+    /**
+     * Tops up the idempotency Bloom filter whenever partitions are assigned.
+     *
+     * <p>
+     * After a rebalance this node may receive uncommitted records that another
+     * node already processed. Their IDs are in MongoDB but not in our local
+     * filter, so we load them before the first poll of the new assignment.
+     *
+     * @param kafkaIdempotencyService the idempotency store to refresh
+     */
+    @Bean
+    public ConsumerAwareRebalanceListener idempotencyRebalanceListener(KafkaIdempotencyService kafkaIdempotencyService) {
+        return new ConsumerAwareRebalanceListener() {
+            @Override
+            public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                kafkaIdempotencyService.syncFilter();
+            }
+        };
+    }
+
     @Bean(name = "kafkaListenerContainerFactory")
     @Primary
     public ConcurrentKafkaListenerContainerFactory<String, Object> kafkaListenerContainerFactory(
-            DefaultErrorHandler errorHandler) {
+            DefaultErrorHandler errorHandler, ConsumerAwareRebalanceListener idempotencyRebalanceListener) {
         ConcurrentKafkaListenerContainerFactory<String, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(kafkaConsumerFactory());
         // MANUAL_IMMEDIATE: offset is committed only after acknowledgment.acknowledge()
@@ -150,6 +175,42 @@ public class KafkaConfig {
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
         // Wire in the error handler — handles retries and DLT publishing on failure
         factory.setCommonErrorHandler(errorHandler);
+        factory.getContainerProperties().setConsumerRebalanceListener(idempotencyRebalanceListener);
+        return factory;
+    }
+
+    @Value("${am.trade.kafka.max-poll-records:500}")
+    private int batchMaxPollRecords;
+
+    /**
+     * Container factory for the opt-in batch listener
+     * ({@code am.trade.kafka.trade.consumer.mode=batch}).
+     *
+     * <p>
+     * The listener receives every record of a poll as one {@code List}. With
+     * MANUAL_IMMEDIATE, a single {@code acknowledgment.acknowledge()} commits the
+     * offsets of the whole batch, so nothing is committed until every record in
+     * the poll has been handled.
+     *
+     * <p>
+     * The same {@link DefaultErrorHandler} is reused: a
+     * {@code BatchListenerFailedException} commits the records before the failing
+     * index and retries from there; any other exception retries the whole batch
+     * and finally sends its records to the DLT.
+     *
+     * @param errorHandler the shared retry/DLT error handler
+     */
+    @Bean(name = "batchKafkaListenerContainerFactory")
+    public ConcurrentKafkaListenerContainerFactory<String, Object> batchKafkaListenerContainerFactory(
+            DefaultErrorHandler errorHandler, ConsumerAwareRebalanceListener idempotencyRebalanceListener) {
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(kafkaConsumerFactory());
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+        factory.getContainerProperties().getKafkaConsumerProperties()
+                .setProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(batchMaxPollRecords));
+        factory.setCommonErrorHandler(errorHandler);
+        factory.getContainerProperties().setConsumerRebalanceListener(idempotencyRebalanceListener);
         return factory;
     }
 
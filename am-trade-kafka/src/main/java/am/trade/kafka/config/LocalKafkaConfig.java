@@ -37,6 +37,15 @@ public class LocalKafkaConfig {
         return factory;
     }
 
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Object> batchKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(Collections.emptyMap()));
+        factory.setBatchListener(true);
+        factory.setAutoStartup(false);
+        return factory;
+    }
+
     private static class DummyKafkaTemplate extends KafkaTemplate<String, Object> {
         @SuppressWarnings("unchecked")
         public DummyKafkaTemplate() {
@@ -0,0 +1,207 @@
+package am.trade.kafka.consumer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+import am.trade.common.models.TradeDetails;
+import am.trade.kafka.mapper.PortfolioSyncEventMapper;
+import am.trade.kafka.model.TradeUpdateEvent;
+import am.trade.kafka.service.KafkaIdempotencyService;
+import am.trade.models.kafka.PortfolioSyncEvent;
+import am.trade.services.publisher.TradeHoldingEventPublisher;
+import am.trade.services.service.TradeDetailsService;
+import am.trade.services.service.TradeProcessingService;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Batch variant of {@link TradeConsumerService}, enabled with
+ * {@code am.trade.kafka.trade.consumer.mode=batch}.
+ *
+ * <p>During market close and broker tradebook syncs a single poll can carry
+ * thousands of events for a few hundred portfolios. Instead of recomputing a
+ * portfolio once per event, this listener coalesces the poll:
+ * <ol>
+ *   <li>Events are grouped by {@code portfolioId} (arrival order is kept).</li>
+ *   <li>All executions of a group are persisted with one {@code saveAllTradeDetails} call.</li>
+ *   <li>Each portfolio is updated once via {@code processTradeDetails}.</li>
+ *   <li>One holding update is published per portfolio group.</li>
+ *   <li>The offsets of the whole poll are committed only after every group succeeded.</li>
+ * </ol>
+ *
+ * <p>Events of a group are marked as processed only once that group has been saved and its
+ * holding update published, so if a later group fails and the batch is redelivered, the
+ * groups that already succeeded are skipped by the idempotency check without losing their
+ * holding updates, and the failed group is processed again in full.
+ */
+@Slf4j
+@Service
+@ConditionalOnExpression("${am.trade.kafka.trade.consumer.enabled:false} and '${am.trade.kafka.trade.consumer.mode:single}' == 'batch'")
+public class TradeBatchConsumerService {
+
+    @Value("${am.trade.kafka.trade.topic:am-trade}")
+    private String topicName;
+
+    @Value("${am.trade.kafka.trade.consumer-group-id:am-trade-group}")
+    private String consumerGroupId;
+
+    private final ObjectMapper objectMapper;
+    private final TradeProcessingService tradeProcessingService;
+    private final TradeDetailsService tradeDetailsService;
+    private final TradeHoldingEventPublisher tradeHoldingEventPublisher;
+    private final KafkaIdempotencyService kafkaIdempotencyService;
+    private final PortfolioSyncEventMapper portfolioSyncEventMapper;
+
+    public TradeBatchConsumerService(ObjectMapper objectMapper,
+                                     TradeProcessingService tradeProcessingService,
+                                     TradeDetailsService tradeDetailsService,
+                                     TradeHoldingEventPublisher tradeHoldingEventPublisher,
+                                     KafkaIdempotencyService kafkaIdempotencyService,
+                                     PortfolioSyncEventMapper portfolioSyncEventMapper) {
+        this.objectMapper = objectMapper;
+        this.tradeProcessingService = tradeProcessingService;
+        this.tradeDetailsService = tradeDetailsService;
+        this.tradeHoldingEventPublisher = tradeHoldingEventPublisher;
+        this.kafkaIdempotencyService = kafkaIdempotencyService;
+        this.portfolioSyncEventMapper = portfolioSyncEventMapper;
+    }
+
+    @KafkaListener(topics = "${am.trade.kafka.trade.topic}",
+                  groupId = "${am.trade.kafka.trade.consumer-group-id}",
+                  containerFactory = "batchKafkaListenerContainerFactory")
+    public void consumeBatch(List<ConsumerRecord<String, String>> records, Acknowledgment acknowledgment) {
+        log.info("Received batch of {} trade events", records.size());
+
+        // Step 1: Deserialize. On the first unreadable record we still process everything
+        // before it, then throw BatchListenerFailedException with its index: the error handler
+        // commits the good prefix, retries the bad record (and eventually sends it to the DLT),
+        // and redelivers the remainder of the poll.
+        List<TradeUpdateEvent> events = new ArrayList<>(records.size());
+        Exception deserializationError = null;
+        int failedIndex = -1;
+        for (int i = 0; i < records.size(); i++) {
+            try {
+                events.add(objectMapper.readValue(records.get(i).value(), TradeUpdateEvent.class));
+            } catch (Exception e) {
+                deserializationError = e;
+                failedIndex = i;
+                break;
+            }
+        }
+
+        processEvents(events);
+
+        if (deserializationError != null) {
+            throw new BatchListenerFailedException("Failed to deserialize trade event",
+                    deserializationError, failedIndex);
+        }
+
+        // Step 2: Commit the offsets of the whole poll.
+        acknowledgment.acknowledge();
+        log.info("Trade event batch processed and acknowledged successfully. records: {}", records.size());
+    }
+
+    private void processEvents(List<TradeUpdateEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        // Drop redeliveries (one batched lookup for the whole poll) and duplicates inside the same poll
+        Set<String> alreadyProcessed = kafkaIdempotencyService.findAlreadyProcessed(events.stream()
+                .map(TradeUpdateEvent::getId)
+                .filter(Objects::nonNull)
+                .map(Object::toString)
+                .collect(Collectors.toSet()));
+        Set<String> seenIds = new HashSet<>();
+        List<TradeUpdateEvent> freshEvents = new ArrayList<>(events.size());
+        for (TradeUpdateEvent event : events) {
+            String messageId = event.getId() != null ? event.getId().toString() : null;
+            if (messageId != null && (!seenIds.add(messageId) || alreadyProcessed.contains(messageId))) {
+                log.warn("Duplicate trade event detected — skipping. eventId: {}, userId: {}",
+                        messageId, event.getUserId());
+                continue;
+            }
+            freshEvents.add(event);
+        }
+
+        Map<String, List<TradeUpdateEvent>> eventsByPortfolio = new LinkedHashMap<>();
+        for (TradeUpdateEvent event : freshEvents) {
+            eventsByPortfolio.computeIfAbsent(event.getPortfolioId(), k -> new ArrayList<>()).add(event);
+        }
+
+        log.info("Coalesced {} trade events into {} portfolio groups", freshEvents.size(), eventsByPortfolio.size());
+
+        for (Map.Entry<String, List<TradeUpdateEvent>> group : eventsByPortfolio.entrySet()) {
+            processPortfolioGroup(group.getKey(), group.getValue());
+        }
+    }
+
+    /**
+     * Persist and aggregate all events of one portfolio with a single write and a
+     * single portfolio recomputation, publish its holding update and only then mark
+     * its events as processed.
+     */
+    private void processPortfolioGroup(String portfolioId, List<TradeUpdateEvent> groupEvents) {
+        String userId = groupEvents.get(0).getUserId();
+
+        // Each event is converted on its own so that trade cycles are identified exactly
+        // as they would be by the single-record consumer.
+        List<TradeDetails> tradeDetails = new ArrayList<>();
+        for (TradeUpdateEvent event : groupEvents) {
+            tradeDetails.addAll(tradeProcessingService.processTradeModels(event.getTrades(), portfolioId));
+        }
+
+        List<TradeDetails> savedTrades = tradeDetailsService.saveAllTradeDetails(tradeDetails);
+
+        tradeProcessingService.processTradeDetails(
+            savedTrades.stream().map(TradeDetails::getTradeId).collect(Collectors.toList()),
+            portfolioId,
+            userId
+        );
+
+        publishHoldingUpdate(groupEvents.get(groupEvents.size() - 1), savedTrades);
+
+        kafkaIdempotencyService.markAllAsProcessed(groupEvents.stream()
+                .map(TradeUpdateEvent::getId)
+                .filter(Objects::nonNull)
+                .map(Object::toString)
+                .collect(Collectors.toList()), topicName, consumerGroupId);
+
+        log.info("Processed {} events ({} trades) for portfolioId: {}",
+                groupEvents.size(), savedTrades.size(), portfolioId);
+    }
+
+    private void publishHoldingUpdate(TradeUpdateEvent lastEvent, List<TradeDetails> savedTrades) {
+        try {
+            PortfolioSyncEvent syncEvent = portfolioSyncEventMapper.toPortfolioSyncEvent(
+                lastEvent.getId() != null ? lastEvent.getId().toString() : null,
+                lastEvent.getBrokerType() != null ? lastEvent.getBrokerType().name() : null,
+                lastEvent.getUserId(),
+                savedTrades);
+
+            log.info("Publishing batch holding update to Portfolio with {} equities. userId: {}, portfolioId: {}",
+                     syncEvent.getEquities().size(), lastEvent.getUserId(), lastEvent.getPortfolioId());
+
+            tradeHoldingEventPublisher.publishHoldingUpdate(syncEvent);
+        } catch (Exception e) {
+            log.error("Failed to publish batch holding update. Trades are still saved. userId: {}",
+                      lastEvent.getUserId(), e);
+        }
+    }
+}
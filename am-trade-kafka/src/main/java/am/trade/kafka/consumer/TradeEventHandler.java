@@ -0,0 +1,123 @@
+package am.trade.kafka.consumer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import am.trade.common.models.TradeDetails;
+import am.trade.kafka.mapper.PortfolioSyncEventMapper;
+import am.trade.kafka.model.TradeUpdateEvent;
+import am.trade.kafka.service.KafkaIdempotencyService;
+import am.trade.models.kafka.PortfolioSyncEvent;
+import am.trade.services.publisher.TradeHoldingEventPublisher;
+import am.trade.services.service.TradeDetailsService;
+import am.trade.services.service.TradeProcessingService;
+
+/**
+ * Processes one deserialized {@link TradeUpdateEvent}: idempotency check, persistence,
+ * portfolio aggregation and the holding update to Portfolio.
+ *
+ * <p>Shared by the single-record listener ({@link TradeConsumerService}) and the
+ * key-ordered parallel listener ({@link TradeParallelConsumerService}) so both modes run
+ * exactly the same business logic. Offset handling stays with the listeners.
+ */
+@Slf4j
+@Component
+public class TradeEventHandler {
+
+    @Value("${am.trade.kafka.trade.topic:am-trade}")
+    private String topicName;
+
+    @Value("${am.trade.kafka.trade.consumer-group-id:am-trade-group}")
+    private String consumerGroupId;
+
+    private final TradeProcessingService tradeProcessingService;
+    private final TradeDetailsService tradeDetailsService;
+    private final TradeHoldingEventPublisher tradeHoldingEventPublisher;
+    private final KafkaIdempotencyService kafkaIdempotencyService;
+    private final PortfolioSyncEventMapper portfolioSyncEventMapper;
+
+    public TradeEventHandler(TradeProcessingService tradeProcessingService,
+                             TradeDetailsService tradeDetailsService,
+                             TradeHoldingEventPublisher tradeHoldingEventPublisher,
+                             KafkaIdempotencyService kafkaIdempotencyService,
+                             PortfolioSyncEventMapper portfolioSyncEventMapper) {
+        this.tradeProcessingService = tradeProcessingService;
+        this.tradeDetailsService = tradeDetailsService;
+        this.tradeHoldingEventPublisher = tradeHoldingEventPublisher;
+        this.kafkaIdempotencyService = kafkaIdempotencyService;
+        this.portfolioSyncEventMapper = portfolioSyncEventMapper;
+    }
+
+    /**
+     * Process an event unless it has already been processed.
+     *
+     * @param event The deserialized trade event
+     * @return {@code true} if the event was processed; {@code false} if it was a duplicate
+     */
+    public boolean handle(TradeUpdateEvent event) {
+        // Step 1: Idempotency check.
+        // If this message ID has already been successfully processed (e.g., Kafka redelivery),
+        // we skip it. No duplicate trades.
+        String messageId = event.getId() != null ? event.getId().toString() : null;
+
+        if (messageId != null && kafkaIdempotencyService.isAlreadyProcessed(messageId)) {
+            log.warn("Duplicate trade event detected — skipping. eventId: {}, userId: {}",
+                    messageId, event.getUserId());
+            return false;
+        }
+
+        // Step 2: Process the event — business logic lives here.
+        // Any exception here propagates to the listener, and from there to the DefaultErrorHandler.
+        processMessage(event);
+
+        // Step 3: Mark as processed AFTER successful processing.
+        // This order matters: if we marked it BEFORE processing and then crashed,
+        // we would permanently lose this trade (marked as done but never actually saved).
+        if (messageId != null) {
+            kafkaIdempotencyService.markAsProcessed(messageId, topicName, consumerGroupId);
+        }
+        return true;
+    }
+
+    private void processMessage(TradeUpdateEvent event) {
+        log.info("Processing trade update event with {} trades for user: {}", event.getTrades().size(), event.getUserId());
+
+        // Step 1: Convert raw TradeModels to TradeDetails and persist them
+        List<TradeDetails> tradeDetails = tradeProcessingService.processTradeModels(event.getTrades(), event.getPortfolioId());
+        List<TradeDetails> savedTrades = tradeDetailsService.saveAllTradeDetails(tradeDetails);
+
+        // Step 2: Run portfolio aggregation (e.g., compute net position per symbol)
+        tradeProcessingService.processTradeDetails(
+            savedTrades.stream().map(TradeDetails::getTradeId).collect(Collectors.toList()),
+            event.getPortfolioId(),
+            event.getUserId()
+        );
+
+        // Step 3: Notify Portfolio service via am-portfolio-update topic.
+        // Portfolio expects a batch synchronization payload (PortfolioSyncEvent)
+        // containing all the relevant equities.
+        try {
+            PortfolioSyncEvent syncEvent = portfolioSyncEventMapper.toPortfolioSyncEvent(
+                event.getId() != null ? event.getId().toString() : null,
+                event.getBrokerType() != null ? event.getBrokerType().name() : null,
+                event.getUserId(),
+                savedTrades);
+
+            log.info("Publishing batch holding update to Portfolio with {} equities. userId: {}",
+                     syncEvent.getEquities().size(), event.getUserId());
+                     
+            tradeHoldingEventPublisher.publishHoldingUpdate(syncEvent);
+
+        } catch (Exception e) {
+            log.error("Failed to publish batch holding update. Trades are still saved.", e);
+        }
+
+        log.info("Successfully processed {} trades and notified Portfolio. portfolioId: {}",
+                 savedTrades.size(), event.getPortfolioId());
+    }
+}
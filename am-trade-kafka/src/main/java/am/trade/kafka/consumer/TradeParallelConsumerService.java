@@ -0,0 +1,135 @@
+package am.trade.kafka.consumer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import jakarta.annotation.PreDestroy;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+import am.trade.kafka.model.TradeUpdateEvent;
+import am.trade.kafka.support.KeyOrderedExecutor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Key-ordered parallel variant of {@link TradeConsumerService}, enabled with
+ * {@code am.trade.kafka.trade.consumer.mode=parallel}.
+ *
+ * <p>Plain {@code setConcurrency(n)} would let two threads run
+ * {@code processTradeDetails} for the same portfolio at once and lose updates. Here a
+ * poll is fanned out over a bounded worker pool with a {@link KeyOrderedExecutor}:
+ * events with the same ordering key (portfolioId by default, or userId) run strictly
+ * one after another in offset order, while different keys run in parallel. A slow Mongo
+ * write therefore only stalls the portfolio it belongs to.
+ *
+ * <h2>Offset commits</h2>
+ * The listener waits for every event of the poll before committing:
+ * <ul>
+ *   <li>All succeeded → the whole poll is acknowledged.</li>
+ *   <li>Some failed → {@link BatchListenerFailedException} is thrown with the lowest
+ *       failed index. Every record before it has completed (later records of a failed
+ *       key are skipped, other keys keep running), so the error handler commits exactly
+ *       that prefix and redelivers the rest. Records after the index that did complete
+ *       are skipped on redelivery by the idempotency check.</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+@ConditionalOnExpression("${am.trade.kafka.trade.consumer.enabled:false} and '${am.trade.kafka.trade.consumer.mode:single}' == 'parallel'")
+public class TradeParallelConsumerService {
+
+    private final ObjectMapper objectMapper;
+    private final TradeEventHandler tradeEventHandler;
+    private final KeyOrderedExecutor keyOrderedExecutor;
+    private final boolean orderByUser;
+
+    public TradeParallelConsumerService(ObjectMapper objectMapper,
+                                        TradeEventHandler tradeEventHandler,
+                                        @Value("${am.trade.kafka.trade.consumer.parallel.threads:0}") int threads,
+                                        @Value("${am.trade.kafka.trade.consumer.parallel.ordering-key:portfolio}") String orderingKey) {
+        this.objectMapper = objectMapper;
+        this.tradeEventHandler = tradeEventHandler;
+        int workerThreads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.keyOrderedExecutor = new KeyOrderedExecutor(workerThreads, "trade-event-worker-");
+        this.orderByUser = "user".equalsIgnoreCase(orderingKey);
+        log.info("Parallel trade consumer started with {} worker threads, ordered by {}",
+                workerThreads, orderByUser ? "userId" : "portfolioId");
+    }
+
+    @KafkaListener(topics = "${am.trade.kafka.trade.topic}",
+                  groupId = "${am.trade.kafka.trade.consumer-group-id}",
+                  containerFactory = "batchKafkaListenerContainerFactory")
+    public void consumeParallel(List<ConsumerRecord<String, String>> records, Acknowledgment acknowledgment) {
+        log.info("Received batch of {} trade events for parallel processing", records.size());
+
+        // Step 1: Deserialize up to the first unreadable record (see TradeBatchConsumerService)
+        List<TradeUpdateEvent> events = new ArrayList<>(records.size());
+        Exception firstError = null;
+        int firstFailedIndex = -1;
+        for (int i = 0; i < records.size(); i++) {
+            try {
+                events.add(objectMapper.readValue(records.get(i).value(), TradeUpdateEvent.class));
+            } catch (Exception e) {
+                firstError = e;
+                firstFailedIndex = i;
+                break;
+            }
+        }
+
+        // Step 2: Fan out per ordering key and wait for every event to settle
+        List<CompletableFuture<Void>> futures = keyOrderedExecutor.submitAll(
+                events, this::orderingKey, tradeEventHandler::handle);
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .handle((ignored, ex) -> null)
+                .join();
+
+        // Step 3: Find the lowest failed index; everything before it has completed
+        for (int i = 0; i < futures.size(); i++) {
+            if (futures.get(i).isCompletedExceptionally()) {
+                firstError = unwrap(futures.get(i));
+                firstFailedIndex = i;
+                break;
+            }
+        }
+
+        if (firstError != null) {
+            log.error("Trade event at batch index {} failed; committing the {} records before it",
+                    firstFailedIndex, firstFailedIndex, firstError);
+            throw new BatchListenerFailedException("Failed to process trade event", firstError, firstFailedIndex);
+        }
+
+        // Step 4: Every event completed — commit the offsets of the whole poll
+        acknowledgment.acknowledge();
+        log.info("Trade event batch processed in parallel and acknowledged. records: {}", records.size());
+    }
+
+    private String orderingKey(TradeUpdateEvent event) {
+        return orderByUser ? event.getUserId() : event.getPortfolioId();
+    }
+
+    private Exception unwrap(CompletableFuture<Void> future) {
+        try {
+            future.join();
+            return null;
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return cause instanceof Exception ? (Exception) cause : new RuntimeException(cause);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        keyOrderedExecutor.close();
+    }
+}
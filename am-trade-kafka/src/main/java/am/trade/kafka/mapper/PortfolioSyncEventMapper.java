@@ -0,0 +1,87 @@
+package am.trade.kafka.mapper;
+
+import am.trade.common.models.TradeDetails;
+import am.trade.models.kafka.EquityPosition;
+import am.trade.models.kafka.PortfolioSyncEvent;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Component for building the PortfolioSyncEvent that notifies Portfolio about
+ * the holdings affected by a set of saved trades
+ */
+@Component
+public class PortfolioSyncEventMapper {
+
+    /**
+     * Build a batch synchronization payload from saved trades.
+     * When several trades touch the same symbol, the last one in iteration order wins,
+     * so callers should pass trades in the order they were received.
+     *
+     * @param id         Event ID (the originating Kafka event ID when there is one)
+     * @param brokerType Broker type name, or null for "UNKNOWN"
+     * @param userId     Owner of the trades
+     * @param trades     Saved trades in arrival order
+     * @return The sync event ready to publish
+     */
+    public PortfolioSyncEvent toPortfolioSyncEvent(String id, String brokerType, String userId,
+                                                   Collection<TradeDetails> trades) {
+        Map<String, TradeDetails> latestTradePerSymbol = trades.stream()
+            .filter(t -> t.getSymbol() != null)
+            .collect(Collectors.toMap(
+                TradeDetails::getSymbol,
+                t -> t,
+                (existing, replacement) -> replacement,
+                LinkedHashMap::new
+            ));
+
+        List<EquityPosition> equities = latestTradePerSymbol.values().stream()
+            .map(this::toEquityPosition)
+            .collect(Collectors.toList());
+
+        return PortfolioSyncEvent.builder()
+            .id(id != null ? id : java.util.UUID.randomUUID().toString())
+            .brokerType(brokerType != null ? brokerType : "UNKNOWN")
+            .userId(userId)
+            .equities(equities)
+            .timestamp(LocalDateTime.now())
+            .build();
+    }
+
+    private EquityPosition toEquityPosition(TradeDetails trade) {
+        BigDecimal quantity = trade.getEntryInfo() != null && trade.getEntryInfo().getQuantity() != null
+            ? BigDecimal.valueOf(trade.getEntryInfo().getQuantity())
+            : BigDecimal.ZERO;
+
+        BigDecimal price = trade.getEntryInfo() != null && trade.getEntryInfo().getPrice() != null
+            ? trade.getEntryInfo().getPrice()
+            : BigDecimal.ZERO;
+
+        String assetType = trade.getInstrumentInfo() != null && trade.getInstrumentInfo().getSegment() != null
+            ? trade.getInstrumentInfo().getSegment().name()
+            : "EQUITY";
+
+        String isin = trade.getInstrumentInfo() != null ? trade.getInstrumentInfo().getIsin() : null;
+
+        return EquityPosition.builder()
+            .symbol(trade.getSymbol())
+            .assetType(assetType)
+            .quantity(quantity)
+            .avgBuyingPrice(price)
+            .investmentValue(price.multiply(quantity))
+            .isin(isin)
+            // The Trade database does not store sector, industry, or marketCap natively.
+            // Leaving them null for Portfolio to hydrate or ignore.
+            .sector(null)
+            .industry(null)
+            .marketCap(null)
+            .build();
+    }
+}
@@ -1,13 +1,29 @@
 package am.trade.kafka.service;
 
+import am.trade.kafka.support.BloomFilter;
 import am.trade.persistence.entity.ProcessedKafkaMessage;
 import am.trade.persistence.repository.ProcessedKafkaMessageRepository;
-import lombok.RequiredArgsConstructor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Provides idempotency guarantees for Kafka consumers.
@@ -37,14 +53,76 @@ import java.time.Instant;
  * The underlying {@code ProcessedKafkaMessage} entity has a 7-day TTL index on
  * the {@code processedAt} field. MongoDB automatically deletes old records, so
  * this collection stays small indefinitely.
+ *
+ * <h2>Lookup Tiers</h2>
+ * To avoid a Mongo round trip for every message, lookups go through three tiers:
+ * <ol>
+ *   <li><b>Bloom filter</b> of every ID processed in the TTL window, rebuilt from
+ *       {@code processed_kafka_messages} at startup and daily after that, and topped up
+ *       whenever this node is assigned partitions. The daily rebuild drops IDs removed
+ *       by the TTL index, which a Bloom filter cannot forget on its own. A negative answer
+ *       is definitive, so most new messages are answered locally.</li>
+ *   <li><b>Caffeine cache</b> of recently marked IDs — answers redeliveries of
+ *       messages this node just processed.</li>
+ *   <li><b>MongoDB</b> — only for Bloom positives that are not in the cache, batched
+ *       into one {@code $in} query by {@link #findAlreadyProcessed(Collection)}.</li>
+ * </ol>
+ * Until the filter has been loaded, every lookup falls through to MongoDB. Counters
+ * {@code am.trade.kafka.idempotency.lookups} (tagged by {@code tier} and {@code result})
+ * show how often each tier answers, to size the cache and the filter.
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class KafkaIdempotencyService {
 
+    /** Overlap applied when topping up the filter, to tolerate small clock differences between nodes. */
+    private static final Duration SYNC_OVERLAP = Duration.ofMinutes(1);
+
+    private static final String LOOKUP_METRIC = "am.trade.kafka.idempotency.lookups";
+
     private final ProcessedKafkaMessageRepository repository;
 
+    private final Cache<String, Boolean> recentlyProcessed;
+
+    private final boolean bloomFilterEnabled;
+    private final long bloomExpectedInsertions;
+    private final double bloomFalsePositiveRate;
+
+    private volatile BloomFilter bloomFilter;
+    private volatile boolean bloomFilterReady;
+    private volatile Instant lastFilterSync;
+
+    private final Counter cacheHits;
+    private final Counter bloomNegatives;
+    private final Counter databaseHits;
+    private final Counter databaseMisses;
+
+    public KafkaIdempotencyService(ProcessedKafkaMessageRepository repository,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${am.trade.kafka.idempotency.cache.max-size:100000}") long cacheMaxSize,
+                                   @Value("${am.trade.kafka.idempotency.bloom-filter.enabled:true}") boolean bloomFilterEnabled,
+                                   @Value("${am.trade.kafka.idempotency.bloom-filter.expected-insertions:1000000}") long bloomExpectedInsertions,
+                                   @Value("${am.trade.kafka.idempotency.bloom-filter.false-positive-rate:0.01}") double bloomFalsePositiveRate) {
+        this.repository = repository;
+        this.bloomFilterEnabled = bloomFilterEnabled;
+        this.bloomExpectedInsertions = bloomExpectedInsertions;
+        this.bloomFalsePositiveRate = bloomFalsePositiveRate;
+        this.bloomFilter = BloomFilter.create(bloomExpectedInsertions, bloomFalsePositiveRate);
+
+        // Same lifetime as the Mongo TTL index on processedAt
+        this.recentlyProcessed = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(Duration.ofDays(7))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, recentlyProcessed, "kafkaIdempotencyCache");
+
+        this.cacheHits = meterRegistry.counter(LOOKUP_METRIC, "tier", "cache", "result", "hit");
+        this.bloomNegatives = meterRegistry.counter(LOOKUP_METRIC, "tier", "bloom", "result", "miss");
+        this.databaseHits = meterRegistry.counter(LOOKUP_METRIC, "tier", "database", "result", "hit");
+        this.databaseMisses = meterRegistry.counter(LOOKUP_METRIC, "tier", "database", "result", "miss");
+    }
+
     /**
      * Checks if a Kafka message has already been successfully processed.
      *
@@ -52,13 +130,63 @@ public class KafkaIdempotencyService {
      * @return {@code true} if already processed (skip it); {@code false} if this is the first time
      */
     public boolean isAlreadyProcessed(String messageId) {
+        if (isDefinitelyNew(messageId)) {
+            bloomNegatives.increment();
+            return false;
+        }
+        if (recentlyProcessed.getIfPresent(messageId) != null) {
+            cacheHits.increment();
+            log.warn("Duplicate Kafka message detected — skipping. messageId: {}", messageId);
+            return true;
+        }
+
         boolean exists = repository.existsById(messageId);
         if (exists) {
+            databaseHits.increment();
+            remember(messageId);
             log.warn("Duplicate Kafka message detected — skipping. messageId: {}", messageId);
+        } else {
+            databaseMisses.increment();
         }
         return exists;
     }
 
+    /**
+     * Batched variant of {@link #isAlreadyProcessed(String)} for batch consumption.
+     * IDs that the local tiers cannot answer are resolved with a single {@code $in} query.
+     *
+     * @param messageIds The message IDs of a poll
+     * @return The subset of IDs that have already been processed
+     */
+    public Set<String> findAlreadyProcessed(Collection<String> messageIds) {
+        Set<String> processed = new HashSet<>();
+        Set<String> unresolved = new HashSet<>();
+
+        for (String messageId : messageIds) {
+            if (isDefinitelyNew(messageId)) {
+                bloomNegatives.increment();
+            } else if (recentlyProcessed.getIfPresent(messageId) != null) {
+                cacheHits.increment();
+                processed.add(messageId);
+            } else {
+                unresolved.add(messageId);
+            }
+        }
+
+        if (!unresolved.isEmpty()) {
+            Set<String> existing = repository.findExistingIds(unresolved);
+            databaseHits.increment(existing.size());
+            databaseMisses.increment(unresolved.size() - existing.size());
+            existing.forEach(this::remember);
+            processed.addAll(existing);
+        }
+
+        if (!processed.isEmpty()) {
+            log.warn("Duplicate Kafka messages detected — skipping {} of {}", processed.size(), messageIds.size());
+        }
+        return processed;
+    }
+
     /**
      * Records a Kafka message as successfully processed, preventing future reprocessing.
      *
@@ -77,18 +205,125 @@ public class KafkaIdempotencyService {
      */
     public void markAsProcessed(String messageId, String topic, String consumerGroup) {
         try {
-            ProcessedKafkaMessage record = ProcessedKafkaMessage.builder()
-                    .messageId(messageId)
-                    .topic(topic)
-                    .consumerGroup(consumerGroup)
-                    .processedAt(Instant.now())
-                    .build();
-            repository.save(record);
+            repository.insert(toRecord(messageId, topic, consumerGroup, Instant.now()));
             log.debug("Marked message as processed. messageId: {}, topic: {}", messageId, topic);
         } catch (DuplicateKeyException e) {
             // Race condition: two consumer threads tried to mark the same message simultaneously.
             // The first one won; this one lost. The net result is correct — processed once.
             log.warn("Race condition on idempotency insert — message was already marked. messageId: {}", messageId);
         }
+        remember(messageId);
+    }
+
+    /**
+     * Batched variant of {@link #markAsProcessed(String, String, String)} using one unordered
+     * bulk insert. IDs that are already marked are skipped, with the same "processed once"
+     * outcome as the single-message race described above.
+     *
+     * @param messageIds    The message IDs to mark
+     * @param topic         The Kafka topic the messages came from (for traceability)
+     * @param consumerGroup The consumer group ID (for traceability)
+     */
+    public void markAllAsProcessed(Collection<String> messageIds, String topic, String consumerGroup) {
+        if (messageIds.isEmpty()) {
+            return;
+        }
+        Instant now = Instant.now();
+        List<ProcessedKafkaMessage> records = messageIds.stream()
+                .map(messageId -> toRecord(messageId, topic, consumerGroup, now))
+                .collect(Collectors.toList());
+        int inserted = repository.insertAllIgnoringDuplicates(records);
+        messageIds.forEach(this::remember);
+        log.debug("Marked {} messages as processed ({} new). topic: {}", messageIds.size(), inserted, topic);
+    }
+
+    /**
+     * Build the Bloom filter once the application is ready, on the application task executor
+     * so that startup does not wait for it; lookups use MongoDB until it completes.
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildFilterOnStartup() {
+        rebuildFilterSafely();
+    }
+
+    /**
+     * Rebuild the Bloom filter from the live processed IDs, so IDs that the TTL index has
+     * removed stop counting towards the false-positive rate.
+     * Runs at 4:15 AM every day by default, on the application task executor
+     */
+    @Async
+    @Scheduled(cron = "${am.trade.kafka.idempotency.bloom-filter.rebuild-cron:0 15 4 * * ?}")
+    public void rebuildFilterOnSchedule() {
+        rebuildFilterSafely();
+    }
+
+    private void rebuildFilterSafely() {
+        try {
+            rebuildFilter();
+        } catch (RuntimeException e) {
+            log.error("Failed to rebuild the idempotency Bloom filter; the current filter is kept", e);
+        }
+    }
+
+    /**
+     * Rebuild the Bloom filter from every ID currently in {@code processed_kafka_messages}.
+     * Until the first rebuild completes every lookup falls through to MongoDB; a failed
+     * rebuild keeps the previous filter.
+     * The IDs are loaded into a new filter without holding the lock; the new filter is then
+     * swapped in and topped up under the same lock as {@link #syncFilter()}, so a sync never
+     * runs halfway through the swap.
+     */
+    public void rebuildFilter() {
+        if (!bloomFilterEnabled) {
+            return;
+        }
+        Instant startedAt = Instant.now();
+        BloomFilter rebuilt = BloomFilter.create(bloomExpectedInsertions, bloomFalsePositiveRate);
+        long loaded = repository.forEachMessageIdSince(null, rebuilt::put);
+
+        // IDs marked on this node while loading went into the old filter; swap and then
+        // top up from the moment the rebuild started so none of them are lost.
+        synchronized (this) {
+            bloomFilter = rebuilt;
+            lastFilterSync = startedAt;
+            syncFilter();
+            bloomFilterReady = true;
+        }
+        log.info("Idempotency Bloom filter rebuilt with {} processed message IDs", loaded);
+    }
+
+    /**
+     * Add IDs marked since the last sync — including those marked by other nodes — to the
+     * Bloom filter. Called when this node is assigned partitions, because redelivered
+     * records may have been processed by the node that previously owned them.
+     */
+    public synchronized void syncFilter() {
+        if (!bloomFilterEnabled || lastFilterSync == null) {
+            return;
+        }
+        Instant startedAt = Instant.now();
+        BloomFilter current = bloomFilter;
+        long added = repository.forEachMessageIdSince(lastFilterSync.minus(SYNC_OVERLAP), current::put);
+        lastFilterSync = startedAt;
+        log.debug("Idempotency Bloom filter topped up with {} message IDs", added);
+    }
+
+    private boolean isDefinitelyNew(String messageId) {
+        return bloomFilterEnabled && bloomFilterReady && !bloomFilter.mightContain(messageId);
+    }
+
+    private void remember(String messageId) {
+        recentlyProcessed.put(messageId, Boolean.TRUE);
+        bloomFilter.put(messageId);
+    }
+
+    private ProcessedKafkaMessage toRecord(String messageId, String topic, String consumerGroup, Instant processedAt) {
+        return ProcessedKafkaMessage.builder()
+                .messageId(messageId)
+                .topic(topic)
+                .consumerGroup(consumerGroup)
+                .processedAt(processedAt)
+                .build();
     }
 }
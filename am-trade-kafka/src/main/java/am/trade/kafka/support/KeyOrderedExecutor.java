@@ -0,0 +1,82 @@
+package am.trade.kafka.support;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs tasks on a bounded worker pool while keeping strict submission order per key.
+ *
+ * <p>Tasks that share a key are chained one after the other, so they never overlap and
+ * always run in the order they were submitted. Tasks with different keys run in parallel
+ * on up to {@code threads} workers. If a task fails, every later task with the same key
+ * is skipped (its future completes exceptionally with the same cause), so a key never
+ * gets ahead of its own failure.
+ *
+ * <p>Ordering is only guaranteed within one {@link #submitAll} call; callers are expected
+ * to wait for the returned futures before submitting the next batch.
+ */
+public class KeyOrderedExecutor implements AutoCloseable {
+
+    private static final String NULL_KEY = "";
+
+    private final ExecutorService workers;
+
+    public KeyOrderedExecutor(int threads, String threadNamePrefix) {
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, threadNamePrefix + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Submit every item, chaining items with the same key.
+     *
+     * @param items  Items in the order they must be processed per key
+     * @param keyFn  Extracts the ordering key of an item (null keys share one chain)
+     * @param task   Work to run for each item
+     * @return One future per item, in the same order as {@code items}
+     */
+    public <T> List<CompletableFuture<Void>> submitAll(List<T> items, Function<T, String> keyFn, Consumer<T> task) {
+        Map<String, CompletableFuture<Void>> tailByKey = new HashMap<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>(items.size());
+
+        for (T item : items) {
+            String key = keyFn.apply(item);
+            if (key == null) {
+                key = NULL_KEY;
+            }
+            CompletableFuture<Void> tail = tailByKey.getOrDefault(key, CompletableFuture.completedFuture(null));
+            CompletableFuture<Void> next = tail.thenRunAsync(() -> task.accept(item), workers);
+            tailByKey.put(key, next);
+            futures.add(next);
+        }
+        return futures;
+    }
+
+    @Override
+    public void close() {
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(30, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
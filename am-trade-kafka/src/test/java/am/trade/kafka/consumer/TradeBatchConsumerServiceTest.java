@@ -0,0 +1,197 @@
+package am.trade.kafka.consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import am.trade.common.models.InstrumentInfo;
+import am.trade.common.models.TradeDetails;
+import am.trade.kafka.mapper.PortfolioSyncEventMapper;
+import am.trade.kafka.model.TradeUpdateEvent;
+import am.trade.kafka.service.KafkaIdempotencyService;
+import am.trade.models.kafka.PortfolioSyncEvent;
+import am.trade.services.publisher.TradeHoldingEventPublisher;
+import am.trade.services.service.TradeDetailsService;
+import am.trade.services.service.TradeProcessingService;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@ExtendWith(MockitoExtension.class)
+class TradeBatchConsumerServiceTest {
+
+    private static final String TOPIC = "am-trade";
+    private static final String GROUP = "am-trade-group";
+
+    @Mock
+    private TradeProcessingService tradeProcessingService;
+    @Mock
+    private TradeDetailsService tradeDetailsService;
+    @Mock
+    private TradeHoldingEventPublisher tradeHoldingEventPublisher;
+    @Mock
+    private KafkaIdempotencyService kafkaIdempotencyService;
+    @Mock
+    private Acknowledgment acknowledgment;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private TradeBatchConsumerService consumer;
+
+    @BeforeEach
+    void setUp() {
+        consumer = new TradeBatchConsumerService(objectMapper, tradeProcessingService, tradeDetailsService,
+                tradeHoldingEventPublisher, kafkaIdempotencyService, new PortfolioSyncEventMapper());
+        ReflectionTestUtils.setField(consumer, "topicName", TOPIC);
+        ReflectionTestUtils.setField(consumer, "consumerGroupId", GROUP);
+    }
+
+    @Test
+    void consumeBatch_shouldSaveAndRecomputeEachPortfolioOnce() {
+        // Given three events for two portfolios of the same user, interleaved
+        TradeUpdateEvent first = event("p1");
+        TradeUpdateEvent second = event("p2");
+        TradeUpdateEvent third = event("p1");
+        TradeDetails t1 = trade("t1", "INFY");
+        TradeDetails t2 = trade("t2", "TCS");
+        TradeDetails t3 = trade("t3", "HDFC");
+        when(kafkaIdempotencyService.findAlreadyProcessed(anyCollection())).thenReturn(Set.of());
+        when(tradeProcessingService.processTradeModels(anyList(), eq("p1"))).thenReturn(List.of(t1), List.of(t3));
+        when(tradeProcessingService.processTradeModels(anyList(), eq("p2"))).thenReturn(List.of(t2));
+        when(tradeDetailsService.saveAllTradeDetails(List.of(t1, t3))).thenReturn(List.of(t1, t3));
+        when(tradeDetailsService.saveAllTradeDetails(List.of(t2))).thenReturn(List.of(t2));
+
+        // When
+        consumer.consumeBatch(records(first, second, third), acknowledgment);
+
+        // Then each portfolio is written, recomputed, published and marked once, in arrival order
+        verify(tradeProcessingService).processTradeDetails(List.of("t1", "t3"), "p1", "u1");
+        verify(tradeProcessingService).processTradeDetails(List.of("t2"), "p2", "u1");
+        verify(kafkaIdempotencyService).markAllAsProcessed(ids(first, third), TOPIC, GROUP);
+        verify(kafkaIdempotencyService).markAllAsProcessed(ids(second), TOPIC, GROUP);
+        List<PortfolioSyncEvent> published = published(2);
+        assertEquals(third.getId().toString(), published.get(0).getId());
+        assertEquals(List.of("INFY", "HDFC"), symbols(published.get(0)));
+        assertEquals(List.of("TCS"), symbols(published.get(1)));
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    void consumeBatch_shouldSkipRedeliveredAndRepeatedEvents() {
+        // Given an event repeated in the poll and one processed by an earlier poll
+        TradeUpdateEvent fresh = event("p1");
+        TradeUpdateEvent redelivered = event("p2");
+        TradeDetails t1 = trade("t1", "INFY");
+        when(kafkaIdempotencyService.findAlreadyProcessed(anyCollection()))
+                .thenReturn(Set.of(redelivered.getId().toString()));
+        when(tradeProcessingService.processTradeModels(anyList(), eq("p1"))).thenReturn(List.of(t1));
+        when(tradeDetailsService.saveAllTradeDetails(List.of(t1))).thenReturn(List.of(t1));
+
+        // When
+        consumer.consumeBatch(records(fresh, redelivered, fresh), acknowledgment);
+
+        // Then only the first copy of the fresh event is processed
+        verify(tradeProcessingService, times(1)).processTradeModels(anyList(), eq("p1"));
+        verify(tradeProcessingService, never()).processTradeModels(anyList(), eq("p2"));
+        verify(kafkaIdempotencyService).markAllAsProcessed(ids(fresh), TOPIC, GROUP);
+        assertEquals(1, published(1).size());
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    void consumeBatch_shouldPublishAGroupBeforeMarkingItAndLeaveAFailedGroupUnmarked() {
+        // Given a second portfolio whose save fails
+        TradeUpdateEvent saved = event("p1");
+        TradeUpdateEvent failing = event("p2");
+        TradeDetails t1 = trade("t1", "INFY");
+        TradeDetails t2 = trade("t2", "TCS");
+        when(kafkaIdempotencyService.findAlreadyProcessed(anyCollection())).thenReturn(Set.of());
+        when(tradeProcessingService.processTradeModels(anyList(), eq("p1"))).thenReturn(List.of(t1));
+        when(tradeProcessingService.processTradeModels(anyList(), eq("p2"))).thenReturn(List.of(t2));
+        when(tradeDetailsService.saveAllTradeDetails(List.of(t1))).thenReturn(List.of(t1));
+        when(tradeDetailsService.saveAllTradeDetails(List.of(t2))).thenThrow(new IllegalStateException("write failed"));
+
+        // When
+        List<ConsumerRecord<String, String>> records = records(saved, failing);
+        assertThrows(IllegalStateException.class, () -> consumer.consumeBatch(records, acknowledgment));
+
+        // Then the first group is published and then marked, so a redelivery skips it safely,
+        // while the failed group stays unmarked and the poll is not acknowledged
+        InOrder order = inOrder(tradeHoldingEventPublisher, kafkaIdempotencyService);
+        order.verify(tradeHoldingEventPublisher).publishHoldingUpdate(any());
+        order.verify(kafkaIdempotencyService).markAllAsProcessed(ids(saved), TOPIC, GROUP);
+        verify(kafkaIdempotencyService, never()).markAllAsProcessed(ids(failing), TOPIC, GROUP);
+        verify(acknowledgment, never()).acknowledge();
+    }
+
+    private List<PortfolioSyncEvent> published(int count) {
+        ArgumentCaptor<PortfolioSyncEvent> captor = ArgumentCaptor.forClass(PortfolioSyncEvent.class);
+        verify(tradeHoldingEventPublisher, times(count)).publishHoldingUpdate(captor.capture());
+        return captor.getAllValues();
+    }
+
+    private static List<String> symbols(PortfolioSyncEvent event) {
+        List<String> symbols = new ArrayList<>();
+        event.getEquities().forEach(equity -> symbols.add(equity.getSymbol()));
+        return symbols;
+    }
+
+    private static List<String> ids(TradeUpdateEvent... events) {
+        List<String> ids = new ArrayList<>();
+        for (TradeUpdateEvent event : events) {
+            ids.add(event.getId().toString());
+        }
+        return ids;
+    }
+
+    private List<ConsumerRecord<String, String>> records(TradeUpdateEvent... events) {
+        List<ConsumerRecord<String, String>> records = new ArrayList<>();
+        for (TradeUpdateEvent event : events) {
+            try {
+                records.add(new ConsumerRecord<>(TOPIC, 0, records.size(), event.getPortfolioId(),
+                        objectMapper.writeValueAsString(event)));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return records;
+    }
+
+    private static TradeUpdateEvent event(String portfolioId) {
+        return TradeUpdateEvent.builder()
+                .id(UUID.randomUUID())
+                .userId("u1")
+                .portfolioId(portfolioId)
+                .trades(List.of())
+                .build();
+    }
+
+    private static TradeDetails trade(String tradeId, String symbol) {
+        return TradeDetails.builder()
+                .tradeId(tradeId)
+                .instrumentInfo(InstrumentInfo.builder().symbol(symbol).build())
+                .build();
+    }
+}
@@ -0,0 +1,164 @@
+package am.trade.kafka.consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.Acknowledgment;
+
+import am.trade.kafka.model.TradeUpdateEvent;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@ExtendWith(MockitoExtension.class)
+class TradeParallelConsumerServiceTest {
+
+    @Mock
+    private TradeEventHandler tradeEventHandler;
+    @Mock
+    private Acknowledgment acknowledgment;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final List<String> handled = Collections.synchronizedList(new ArrayList<>());
+    private TradeParallelConsumerService consumer;
+
+    @AfterEach
+    void tearDown() {
+        if (consumer != null) {
+            consumer.shutdown();
+        }
+    }
+
+    @Test
+    void consumeParallel_shouldHandleEachPortfolioInOffsetOrderAndAcknowledge() throws Exception {
+        // Given
+        consumer = consumer("portfolio");
+        recordHandled(0);
+
+        // When
+        consumer.consumeParallel(records(event("p1", "u1", 1), event("p2", "u1", 2), event("p1", "u1", 3),
+                event("p2", "u1", 4)), acknowledgment);
+
+        // Then
+        assertEquals(List.of("1", "3"), handledOf("p1"));
+        assertEquals(List.of("2", "4"), handledOf("p2"));
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    void consumeParallel_shouldReportTheLowestFailedIndexAndSkipTheRestOfItsPortfolio() throws Exception {
+        // Given the second event of p1 fails
+        consumer = consumer("portfolio");
+        recordHandled(3);
+
+        // When
+        BatchListenerFailedException error = assertThrows(BatchListenerFailedException.class,
+                () -> consumer.consumeParallel(records(event("p1", "u1", 1), event("p2", "u2", 2),
+                        event("p1", "u1", 3), event("p2", "u2", 4), event("p1", "u1", 5)), acknowledgment));
+
+        // Then the prefix before it is committed, p2 still ran, and p1 stopped at its failure
+        assertEquals(2, error.getIndex());
+        assertEquals("3", error.getCause().getMessage());
+        assertEquals(List.of("1"), handledOf("p1"));
+        assertEquals(List.of("2", "4"), handledOf("p2"));
+        verify(acknowledgment, never()).acknowledge();
+    }
+
+    @Test
+    void consumeParallel_shouldOrderByUserWhenConfigured() throws Exception {
+        // Given two portfolios of one user, whose events must then run one after another
+        consumer = consumer("user");
+        recordHandled(2);
+
+        // When
+        BatchListenerFailedException error = assertThrows(BatchListenerFailedException.class,
+                () -> consumer.consumeParallel(records(event("p1", "u1", 1), event("p2", "u1", 2),
+                        event("p1", "u1", 3)), acknowledgment));
+
+        // Then the failure in p2 also stops the later p1 event of the same user
+        assertEquals(1, error.getIndex());
+        assertEquals(List.of("1"), handledOf("p1"));
+    }
+
+    @Test
+    void consumeParallel_shouldHandleTheEventsBeforeAnUnreadableRecord() throws Exception {
+        // Given
+        consumer = consumer("portfolio");
+        recordHandled(0);
+        List<ConsumerRecord<String, String>> records = new ArrayList<>(records(event("p1", "u1", 1)));
+        records.add(new ConsumerRecord<>("am-trade", 0, 1, "p1", "{not json"));
+
+        // When
+        BatchListenerFailedException error = assertThrows(BatchListenerFailedException.class,
+                () -> consumer.consumeParallel(records, acknowledgment));
+
+        // Then
+        assertEquals(1, error.getIndex());
+        assertEquals(List.of("1"), handledOf("p1"));
+        verify(acknowledgment, never()).acknowledge();
+    }
+
+    private TradeParallelConsumerService consumer(String orderingKey) {
+        return new TradeParallelConsumerService(objectMapper, tradeEventHandler, 4, orderingKey);
+    }
+
+    /**
+     * Record every handled event as {@code portfolioId:label}, failing the one labelled {@code failing}
+     */
+    private void recordHandled(long failing) {
+        doAnswer(invocation -> {
+            TradeUpdateEvent event = invocation.getArgument(0);
+            long label = event.getId().getLeastSignificantBits();
+            if (label == failing) {
+                throw new IllegalStateException(String.valueOf(label));
+            }
+            handled.add(event.getPortfolioId() + ":" + label);
+            return true;
+        }).when(tradeEventHandler).handle(any());
+    }
+
+    private List<String> handledOf(String portfolioId) {
+        synchronized (handled) {
+            return handled.stream()
+                    .filter(entry -> entry.startsWith(portfolioId + ":"))
+                    .map(entry -> entry.substring(portfolioId.length() + 1))
+                    .toList();
+        }
+    }
+
+    private List<ConsumerRecord<String, String>> records(TradeUpdateEvent... events) throws Exception {
+        List<ConsumerRecord<String, String>> records = new ArrayList<>();
+        for (TradeUpdateEvent event : events) {
+            records.add(new ConsumerRecord<>("am-trade", 0, records.size(), event.getPortfolioId(),
+                    objectMapper.writeValueAsString(event)));
+        }
+        return records;
+    }
+
+    /**
+     * An event whose label is carried in its ID, so it survives serialization
+     */
+    private static TradeUpdateEvent event(String portfolioId, String userId, long label) {
+        return TradeUpdateEvent.builder()
+                .id(new UUID(0, label))
+                .userId(userId)
+                .portfolioId(portfolioId)
+                .trades(List.of())
+                .build();
+    }
+}
@@ -0,0 +1,158 @@
+package am.trade.kafka.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.notNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+
+import am.trade.persistence.entity.ProcessedKafkaMessage;
+import am.trade.persistence.repository.ProcessedKafkaMessageRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class KafkaIdempotencyServiceTest {
+
+    @Mock
+    private ProcessedKafkaMessageRepository repository;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private KafkaIdempotencyService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new KafkaIdempotencyService(repository, meterRegistry, 1_000, true, 10_000, 0.01);
+    }
+
+    @Test
+    void isAlreadyProcessed_shouldAskMongoUntilTheFilterIsBuilt() {
+        // Given
+        when(repository.existsById("m1")).thenReturn(false);
+
+        // When / Then
+        assertFalse(service.isAlreadyProcessed("m1"));
+        verify(repository).existsById("m1");
+        assertEquals(1.0, lookups("database", "miss"));
+    }
+
+    @Test
+    void isAlreadyProcessed_shouldAnswerUnseenIdsFromTheFilterAndConfirmPositivesInMongo() {
+        // Given a filter built from one stored ID
+        storedIds("m1");
+        service.rebuildFilter();
+        when(repository.existsById("m1")).thenReturn(true);
+
+        // When / Then a new ID never reaches Mongo, and the stored one is confirmed there once
+        assertFalse(service.isAlreadyProcessed("new"));
+        assertTrue(service.isAlreadyProcessed("m1"));
+        assertTrue(service.isAlreadyProcessed("m1"));
+        verify(repository, never()).existsById("new");
+        verify(repository, times(1)).existsById("m1");
+        assertEquals(1.0, lookups("bloom", "miss"));
+        assertEquals(1.0, lookups("database", "hit"));
+        assertEquals(1.0, lookups("cache", "hit"));
+    }
+
+    @Test
+    void isAlreadyProcessed_shouldAnswerAMessageMarkedOnThisNodeFromTheCache() {
+        // Given
+        when(repository.insert(any(ProcessedKafkaMessage.class)))
+                .thenThrow(new DuplicateKeyException("already marked"));
+
+        // When
+        service.markAsProcessed("m1", "am-trade", "am-trade-group");
+
+        // Then a lost insert race still counts as processed, without a lookup in Mongo
+        assertTrue(service.isAlreadyProcessed("m1"));
+        verify(repository, never()).existsById(anyString());
+    }
+
+    @Test
+    void rebuildFilter_shouldForgetIdsRemovedByTheTtl() {
+        // Given an ID that was stored, looked up and has since expired
+        storedIds("expired");
+        service.rebuildFilter();
+        when(repository.existsById("expired")).thenReturn(false);
+        assertFalse(service.isAlreadyProcessed("expired"));
+
+        // When the filter is rebuilt from the live IDs
+        storedIds();
+        service.rebuildFilter();
+
+        // Then the expired ID is answered by the filter again
+        assertFalse(service.isAlreadyProcessed("expired"));
+        verify(repository, times(1)).existsById("expired");
+    }
+
+    @Test
+    void findAlreadyProcessed_shouldResolveOnlyFilterPositivesOutsideTheCacheWithOneQuery() {
+        // Given
+        storedIds("stored", "marked", "expired");
+        service.rebuildFilter();
+        service.markAllAsProcessed(List.of("marked"), "am-trade", "am-trade-group");
+        when(repository.findExistingIds(Set.of("stored", "expired"))).thenReturn(Set.of("stored"));
+
+        // When
+        Set<String> processed = service.findAlreadyProcessed(List.of("new", "stored", "marked", "expired"));
+
+        // Then
+        assertEquals(Set.of("stored", "marked"), processed);
+        assertEquals(1.0, lookups("cache", "hit"));
+        assertEquals(1.0, lookups("database", "hit"));
+        assertEquals(1.0, lookups("database", "miss"));
+    }
+
+    @Test
+    void rebuildFilterOnSchedule_shouldKeepTheCurrentFilterWhenTheRebuildFails() {
+        // Given a built filter and a rebuild that fails
+        storedIds("stored");
+        service.rebuildFilter();
+        doThrow(new IllegalStateException("timeout")).when(repository).forEachMessageIdSince(isNull(), any());
+
+        // When
+        service.rebuildFilterOnSchedule();
+
+        // Then unseen IDs are still answered locally
+        assertFalse(service.isAlreadyProcessed("new"));
+        verify(repository, never()).existsById("new");
+    }
+
+    /**
+     * Serve the given IDs as the whole collection, and nothing as newer than a sync point
+     */
+    private void storedIds(String... ids) {
+        doAnswer(invocation -> {
+            Consumer<String> consumer = invocation.getArgument(1);
+            for (String id : ids) {
+                consumer.accept(id);
+            }
+            return (long) ids.length;
+        }).when(repository).forEachMessageIdSince(isNull(), any());
+        doReturn(0L).when(repository).forEachMessageIdSince(notNull(), any());
+    }
+
+    private double lookups(String tier, String result) {
+        return meterRegistry.counter("am.trade.kafka.idempotency.lookups", "tier", tier, "result", result).count();
+    }
+}
@@ -0,0 +1,128 @@
+package am.trade.kafka.support;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class KeyOrderedExecutorTest {
+
+    private final KeyOrderedExecutor executor = new KeyOrderedExecutor(4, "key-ordered-test-");
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    void submitAll_shouldRunTasksOfOneKeyInSubmissionOrderWithoutOverlap() {
+        // Given three keys interleaved in the submission order
+        List<String> items = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            items.add((char) ('a' + i % 3) + ":" + i);
+        }
+        Map<String, List<String>> runByKey = new ConcurrentHashMap<>();
+        Map<String, AtomicInteger> runningByKey = new ConcurrentHashMap<>();
+        AtomicBoolean overlapped = new AtomicBoolean();
+
+        // When
+        List<CompletableFuture<Void>> futures = executor.submitAll(items, KeyOrderedExecutorTest::key, item -> {
+            AtomicInteger running = runningByKey.computeIfAbsent(key(item), k -> new AtomicInteger());
+            if (running.incrementAndGet() > 1) {
+                overlapped.set(true);
+            }
+            runByKey.computeIfAbsent(key(item), k -> Collections.synchronizedList(new ArrayList<>())).add(item);
+            Thread.yield();
+            running.decrementAndGet();
+        });
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        // Then every key saw its own items in order, one at a time
+        assertFalse(overlapped.get());
+        for (String key : List.of("a", "b", "c")) {
+            assertEquals(items.stream().filter(item -> key(item).equals(key)).toList(), runByKey.get(key));
+        }
+    }
+
+    @Test
+    void submitAll_shouldRunDifferentKeysInParallel() {
+        // Given a task of key "a" that can only finish once a task of key "b" has started
+        CountDownLatch bStarted = new CountDownLatch(1);
+        AtomicBoolean aSawB = new AtomicBoolean();
+
+        // When
+        List<CompletableFuture<Void>> futures = executor.submitAll(List.of("a:1", "b:1"), KeyOrderedExecutorTest::key,
+                item -> {
+                    if (key(item).equals("b")) {
+                        bStarted.countDown();
+                        return;
+                    }
+                    try {
+                        aSawB.set(bStarted.await(10, TimeUnit.SECONDS));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        // Then
+        assertTrue(aSawB.get());
+    }
+
+    @Test
+    void submitAll_shouldSkipTheRestOfAFailedKeyAndKeepOtherKeysRunning() {
+        // Given the first task of key "a" fails
+        IllegalStateException failure = new IllegalStateException("write failed");
+        List<String> run = Collections.synchronizedList(new ArrayList<>());
+
+        // When
+        List<CompletableFuture<Void>> futures = executor.submitAll(List.of("a:1", "b:1", "a:2", "b:2", "a:3"),
+                KeyOrderedExecutorTest::key, item -> {
+                    if (item.equals("a:1")) {
+                        throw failure;
+                    }
+                    run.add(item);
+                });
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).handle((ignored, ex) -> null).join();
+
+        // Then the later "a" tasks fail with the same cause without running, and "b" completes
+        for (int index : new int[] {0, 2, 4}) {
+            CompletionException error = assertThrows(CompletionException.class, futures.get(index)::join);
+            assertSame(failure, error.getCause());
+        }
+        assertEquals(List.of("b:1", "b:2"), run);
+    }
+
+    @Test
+    void submitAll_shouldChainNullKeysTogether() {
+        // Given
+        List<String> run = Collections.synchronizedList(new ArrayList<>());
+
+        // When
+        List<CompletableFuture<Void>> futures = executor.submitAll(List.of("1", "2", "3", "4"), item -> null, run::add);
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        // Then
+        assertEquals(List.of("1", "2", "3", "4"), run);
+    }
+
+    private static String key(String item) {
+        return item.substring(0, item.indexOf(':'));
+    }
+}
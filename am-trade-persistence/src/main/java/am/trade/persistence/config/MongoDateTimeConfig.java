@@ -27,7 +27,10 @@ import am.trade.common.models.enums.TradeBehaviorPattern;
 @Configuration
 public class MongoDateTimeConfig {
 
-    private static final ZoneId IST_ZONE = ZoneId.of("Asia/Kolkata");
+    /**
+     * Zone of every stored LocalDateTime; aggregations on dates must use it as their timezone
+     */
+    public static final ZoneId IST_ZONE = ZoneId.of("Asia/Kolkata");
 
     /**
      * Custom converter to convert LocalDateTime to Date in IST timezone
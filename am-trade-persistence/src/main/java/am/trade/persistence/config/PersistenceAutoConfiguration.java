@@ -6,18 +6,21 @@ import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
+import org.springframework.scheduling.annotation.EnableAsync;
 import am.trade.persistence.mapper.PortfolioMapper;
 import am.trade.persistence.mapper.TradeDetailsMapper;
 
 /**
  * Auto-configuration class for the persistence module
  * Automatically configures all necessary beans and components
+ * Enables {@code @Async} so startup work such as index builds runs on the application task executor
  */
 @AutoConfiguration
 @ConditionalOnProperty(name = "am.trade.persistence.enabled", havingValue = "true", matchIfMissing = true)
 @ComponentScan(basePackages = {"am.trade.persistence", "am.trade.common.models"})
 @EntityScan(basePackages = "am.trade.persistence.entity")
 @EnableMongoRepositories(basePackages = "am.trade.persistence.repository")
+@EnableAsync
 //@Import(MongoConfig.class)
 public class PersistenceAutoConfiguration {
 
@@ -0,0 +1,38 @@
+package am.trade.persistence.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Time-bounded lease on a background job (or one shard of it), so that with several
+ * application replicas only one node runs it at a time.
+ *
+ * <p>A node owns the lease while {@code expiresAt} is in the future. Acquiring is a single
+ * conditional upsert on the lease name, which is the document ID, so two nodes can never both
+ * succeed. A node that dies while holding a lease blocks the job only until it expires.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "job_leases")
+public class JobLease {
+
+    /** Name of the job or shard the lease covers. */
+    @Id
+    private String name;
+
+    /** Node that holds or last held the lease. */
+    private String owner;
+
+    private Instant acquiredAt;
+
+    /** End of the lease; any node may take it over after this time. */
+    private Instant expiresAt;
+}
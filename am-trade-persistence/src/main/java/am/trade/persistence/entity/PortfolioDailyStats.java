@@ -0,0 +1,121 @@
+package am.trade.persistence.entity;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+import am.trade.common.util.QuantileSketch;
+import am.trade.common.util.TradeSketches;
+
+/**
+ * Daily rollup of a portfolio's trades, so that calendars and equity curves read one document
+ * per day instead of every trade.
+ *
+ * <p>A trade counts on the day it closed, or on the day it was entered while it has no exit.
+ * Money fields are stored as Decimal128 so they can be incremented in place as trades are
+ * written; the first and last trade times only ever widen between rebuilds. The same type
+ * carries a signed increment when passed to
+ * {@link am.trade.persistence.repository.PortfolioDailyStatsRepositoryCustom#applyIncrements}.
+ *
+ * <p>The sketch fields hold the {@link QuantileSketch} bucket counts of the day's trades, so
+ * that percentiles of any date range merge days instead of sorting trades; their counts are
+ * incremented in place like the other fields.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "portfolio_daily_stats")
+public class PortfolioDailyStats {
+
+    /** {@code portfolioId:yyyy-MM-dd}; see {@link #id(String, LocalDate)}. */
+    @Id
+    private String id;
+
+    private String portfolioId;
+
+    /** Start of the day in IST, like every stored LocalDateTime. */
+    private LocalDateTime date;
+
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal profitLoss;
+
+    /** Sum of the positive profit/loss of the day's trades. */
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal grossProfit;
+
+    /** Sum of the negative profit/loss of the day's trades, as a positive amount. */
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal grossLoss;
+
+    /** Entry and exit fees. */
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal fees;
+
+    /** Entry and exit total value. */
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal tradedValue;
+
+    private int tradeCount;
+    private int winCount;
+    private int lossCount;
+    private int breakEvenCount;
+    private int openCount;
+
+    private LocalDateTime firstTradeTime;
+    private LocalDateTime lastTradeTime;
+
+    /** Profit/loss sketch; see {@link TradeSketches}. */
+    private Map<String, Long> profitLossSketch;
+
+    /** Return percentage sketch. */
+    private Map<String, Long> returnSketch;
+
+    /** Entry price times quantity sketch. */
+    private Map<String, Long> positionSizeSketch;
+
+    /** Holding time in minutes sketch, of closed trades. */
+    private Map<String, Long> holdingMinutesSketch;
+
+    /** Time of the last increment or rebuild of this day. */
+    private Instant updatedAt;
+
+    /**
+     * Bumped by every increment and rebuild, so a rebuild can tell that a day changed under it.
+     * Null on days stored before it was introduced. Not a Spring Data {@code @Version}: the
+     * increments are plain {@code $inc} upserts.
+     */
+    private Long version;
+
+    /**
+     * Document ID of a portfolio's day
+     */
+    public static String id(String portfolioId, LocalDate day) {
+        return portfolioId + ":" + day;
+    }
+
+    /**
+     * The day this document covers
+     */
+    public LocalDate day() {
+        return date != null ? date.toLocalDate() : null;
+    }
+
+    /**
+     * Sketches of the day's trades, empty where none are stored
+     */
+    public TradeSketches sketches() {
+        return TradeSketches.of(profitLossSketch, returnSketch, positionSizeSketch, holdingMinutesSketch);
+    }
+}
@@ -4,7 +4,6 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
-import am.trade.persistence.entity.TradeDetailsEntity;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
@@ -46,15 +45,13 @@ public class PortfolioEntity {
     // Portfolio metrics
     private PortfolioMetrics metrics;
 
-    // List of trade IDs in this portfolio
-    private List<String> trades;
-
-    // List of winning trades in this portfolio
-    private List<String> winningTrades;
-
-    // List of losing trades in this portfolio
-    private List<String> losingTrades;
+    // Trades are not listed here: a trade belongs to the portfolio whose ID is in its
+    // trade_details.portfolioId field (see PortfolioMembershipMigration)
 
     // Asset allocation
     private List<AssetAllocation> assetAllocations;
+
+    // Incremented by every update in PortfolioRepositoryCustom and used there as an
+    // optimistic lock; null for documents written before versioning was introduced
+    private Long version;
 }
@@ -0,0 +1,29 @@
+package am.trade.persistence.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Version counter of a portfolio's trades, incremented on every trade write.
+ *
+ * <p>Results derived from a portfolio's trades are cached under the versions they were
+ * computed from, so a write makes every such entry unreachable without evicting it, on
+ * every replica at once. A portfolio without a document is at version 0.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "portfolio_versions")
+public class PortfolioVersion {
+
+    /** The portfolio ID. */
+    @Id
+    private String portfolioId;
+
+    private long version;
+}
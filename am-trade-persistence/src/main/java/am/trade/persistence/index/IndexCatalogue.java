@@ -0,0 +1,134 @@
+package am.trade.persistence.index;
+
+import java.util.List;
+
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.index.Index;
+
+import am.trade.common.models.NotebookItem;
+import am.trade.common.models.TradeJournalEntry;
+import am.trade.common.models.TradeSummaryBasic;
+import am.trade.persistence.entity.PortfolioDailyStats;
+import am.trade.persistence.entity.TradeDetailsEntity;
+import am.trade.persistence.entity.TradeReplay;
+import lombok.Value;
+
+/**
+ * Declared indexes for the query-heavy collections.
+ *
+ * <p>{@code auto-index-creation} is disabled, so {@code @Indexed} and {@code @CompoundIndex}
+ * annotations are never applied; this catalogue is what {@link IndexManager} creates. Every
+ * query method of the matching repositories must be served by one of these indexes without
+ * a collection scan or an in-memory sort, which {@code QueryPlanCoverageTest} checks.
+ *
+ * <p>Key order follows equality, then sort, then range, so one compound index also serves
+ * the queries on its prefix. Field names are the stored names, not Java property names.
+ *
+ * <p>Indexes that an earlier version of the catalogue created and a wider index has since
+ * replaced are listed in {@link #retired()}; {@link IndexManager} drops them once their
+ * replacement exists.
+ */
+public final class IndexCatalogue {
+
+    private IndexCatalogue() {
+    }
+
+    /**
+     * An index and the entity whose collection it belongs to
+     */
+    @Value
+    public static class Entry {
+        Class<?> entityClass;
+        Index index;
+    }
+
+    /**
+     * Name of an index that is no longer declared, and of the index that replaces it
+     */
+    @Value
+    public static class Retired {
+        Class<?> entityClass;
+        String name;
+        String replacedBy;
+    }
+
+    public static List<Entry> all() {
+        return List.of(
+                // trade_details
+                entry(TradeDetailsEntity.class, index("uk_trade_id").on("tradeId", Direction.ASC).unique()),
+                // tradeId breaks entry time ties for keyset pages; see TradeCursor
+                entry(TradeDetailsEntity.class, index("idx_portfolio_entry_time_trade")
+                        .on("portfolioId", Direction.ASC).on("entryInfo.timestamp", Direction.ASC)
+                        .on("tradeId", Direction.ASC)),
+                entry(TradeDetailsEntity.class, index("idx_user_entry_time_trade")
+                        .on("userId", Direction.ASC).on("entryInfo.timestamp", Direction.ASC)
+                        .on("tradeId", Direction.ASC)),
+                entry(TradeDetailsEntity.class, index("idx_user_portfolio_entry_time_trade")
+                        .on("userId", Direction.ASC).on("portfolioId", Direction.ASC)
+                        .on("entryInfo.timestamp", Direction.ASC).on("tradeId", Direction.ASC)),
+                entry(TradeDetailsEntity.class, index("idx_user_symbol_entry_time")
+                        .on("userId", Direction.ASC).on("symbol", Direction.ASC)
+                        .on("entryInfo.timestamp", Direction.ASC)),
+                entry(TradeDetailsEntity.class, index("idx_user_strategy_entry_time")
+                        .on("userId", Direction.ASC).on("entryReasoning.streategy", Direction.ASC)
+                        .on("entryInfo.timestamp", Direction.ASC)),
+                entry(TradeDetailsEntity.class, index("idx_symbol_entry_time")
+                        .on("symbol", Direction.ASC).on("entryInfo.timestamp", Direction.ASC)),
+                entry(TradeDetailsEntity.class, index("idx_symbol_exit_time")
+                        .on("symbol", Direction.ASC).on("exitInfo.timestamp", Direction.ASC)),
+                entry(TradeDetailsEntity.class, index("idx_entry_time").on("entryInfo.timestamp", Direction.ASC)),
+                entry(TradeDetailsEntity.class, index("idx_exit_time").on("exitInfo.timestamp", Direction.ASC)),
+                entry(TradeDetailsEntity.class, index("idx_status").on("status", Direction.ASC)),
+
+                // portfolio_daily_stats: day ranges of a portfolio
+                entry(PortfolioDailyStats.class, index("idx_portfolio_date")
+                        .on("portfolioId", Direction.ASC).on("date", Direction.ASC)),
+
+                // trade_summary_basic: trade writes mark summaries dirty by portfolio
+                entry(TradeSummaryBasic.class, index("idx_portfolio_ids").on("portfolioIds", Direction.ASC)),
+                entry(TradeSummaryBasic.class, index("idx_active_metrics_dirty")
+                        .on("active", Direction.ASC).on("metricsDirtySince", Direction.ASC)),
+
+                // trade journal
+                entry(TradeJournalEntry.class, index("idx_user_entry_date")
+                        .on("userId", Direction.ASC).on("entryDate", Direction.DESC)),
+                entry(TradeJournalEntry.class, index("idx_trade_entry_date")
+                        .on("tradeId", Direction.ASC).on("entryDate", Direction.DESC)),
+
+                // notebook items
+                entry(NotebookItem.class, index("idx_user_parent")
+                        .on("userId", Direction.ASC).on("parentId", Direction.ASC)),
+                entry(NotebookItem.class, index("idx_user_type")
+                        .on("userId", Direction.ASC).on("type", Direction.ASC)),
+
+                // trade_replays
+                entry(TradeReplay.class, index("idx_replay_id").on("replay_id", Direction.ASC)),
+                entry(TradeReplay.class, index("idx_symbol_entry_exit")
+                        .on("symbol", Direction.ASC).on("entry_date", Direction.ASC).on("exit_date", Direction.ASC)),
+                entry(TradeReplay.class, index("idx_entry_date").on("entry_date", Direction.ASC)),
+                entry(TradeReplay.class, index("idx_exit_date").on("exit_date", Direction.ASC)),
+                entry(TradeReplay.class, index("idx_portfolio").on("portfolio_id", Direction.ASC)),
+                entry(TradeReplay.class, index("idx_strategy").on("strategy_id", Direction.ASC)),
+                entry(TradeReplay.class, index("idx_original_trade").on("original_trade_id", Direction.ASC)));
+    }
+
+    /**
+     * Indexes created by earlier versions of the catalogue, each with the catalogue index that
+     * replaces it. A retired index left in place only costs writes, since its replacement serves
+     * every query on its keys.
+     */
+    public static List<Retired> retired() {
+        return List.of(
+                // Widened by tradeId for keyset pages
+                new Retired(TradeDetailsEntity.class, "idx_portfolio_entry_time", "idx_portfolio_entry_time_trade"),
+                new Retired(TradeDetailsEntity.class, "idx_user_entry_time", "idx_user_entry_time_trade"));
+    }
+
+    private static Index index(String name) {
+        return new Index().named(name);
+    }
+
+    private static Entry entry(Class<?> entityClass, Index index) {
+        return new Entry(entityClass, index);
+    }
+}
@@ -0,0 +1,195 @@
+package am.trade.persistence.index;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Creates and reports on the indexes declared in {@link IndexCatalogue}.
+ *
+ * <p>Runs in the background once the application is ready, so index builds do not hold up
+ * startup, unless {@code am.trade.persistence.indexes.create-on-startup=false}; large builds
+ * can then wait for a restart outside trading hours. An index counts as present when
+ * the collection already has one with the same keys and uniqueness, whatever its name, so
+ * indexes created earlier by hand or by annotations are reused rather than duplicated.
+ * {@link IndexCatalogue#retired() Retired} indexes are dropped by name once the index that
+ * replaces them is present.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IndexManager {
+
+    public enum State {
+        PRESENT, CREATED, MISSING, FAILED, RETIRED, DROPPED
+    }
+
+    /**
+     * State of one catalogue index in its collection
+     */
+    @lombok.Value
+    public static class IndexStatus {
+        String collection;
+        String name;
+        Document keys;
+        State state;
+        String message;
+    }
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${am.trade.persistence.indexes.create-on-startup:true}")
+    private boolean createOnStartup;
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void createOnStartup() {
+        if (!createOnStartup) {
+            log.info("Index creation on startup is disabled; {} catalogue indexes missing",
+                    report().stream().filter(status -> status.getState() == State.MISSING).count());
+            return;
+        }
+        ensureAll();
+    }
+
+    /**
+     * Create every catalogue index that does not exist yet.
+     * A failing index is reported and does not stop the others.
+     */
+    public List<IndexStatus> ensureAll() {
+        List<IndexStatus> statuses = new ArrayList<>();
+        for (IndexCatalogue.Entry entry : IndexCatalogue.all()) {
+            String collection = mongoTemplate.getCollectionName(entry.getEntityClass());
+            Document keys = entry.getIndex().getIndexKeys();
+            String name = indexName(entry);
+            IndexOperations indexOps = mongoTemplate.indexOps(collection);
+
+            if (findMatching(indexOps, entry) != null) {
+                statuses.add(new IndexStatus(collection, name, keys, State.PRESENT, null));
+                continue;
+            }
+            try {
+                indexOps.ensureIndex(entry.getIndex());
+                log.info("Created index {} on {} with keys {}", name, collection, keys.toJson());
+                statuses.add(new IndexStatus(collection, name, keys, State.CREATED, null));
+            } catch (RuntimeException e) {
+                log.error("Failed to create index {} on {}: {}", name, collection, e.getMessage());
+                statuses.add(new IndexStatus(collection, name, keys, State.FAILED, e.getMessage()));
+            }
+        }
+        dropRetired(statuses);
+        return statuses;
+    }
+
+    /**
+     * Compare the catalogue with the indexes that exist, without changing anything
+     */
+    public List<IndexStatus> report() {
+        List<IndexStatus> statuses = new ArrayList<>();
+        for (IndexCatalogue.Entry entry : IndexCatalogue.all()) {
+            String collection = mongoTemplate.getCollectionName(entry.getEntityClass());
+            IndexInfo existing = findMatching(mongoTemplate.indexOps(collection), entry);
+            statuses.add(new IndexStatus(collection, indexName(entry), entry.getIndex().getIndexKeys(),
+                    existing != null ? State.PRESENT : State.MISSING,
+                    existing != null ? "as " + existing.getName() : null));
+        }
+        for (IndexCatalogue.Retired retired : IndexCatalogue.retired()) {
+            String collection = mongoTemplate.getCollectionName(retired.getEntityClass());
+            IndexInfo existing = findNamed(mongoTemplate.indexOps(collection), retired.getName());
+            if (existing != null) {
+                statuses.add(new IndexStatus(collection, retired.getName(), keys(existing), State.RETIRED,
+                        "replaced by " + retired.getReplacedBy()));
+            }
+        }
+        return statuses;
+    }
+
+    /**
+     * Drop the retired indexes whose replacement was found or created above. A retired index
+     * whose replacement failed is kept, so its queries are not left without an index.
+     */
+    private void dropRetired(List<IndexStatus> statuses) {
+        for (IndexCatalogue.Retired retired : IndexCatalogue.retired()) {
+            String collection = mongoTemplate.getCollectionName(retired.getEntityClass());
+            boolean replaced = statuses.stream().anyMatch(status -> status.getCollection().equals(collection)
+                    && retired.getReplacedBy().equals(status.getName())
+                    && (status.getState() == State.PRESENT || status.getState() == State.CREATED));
+            IndexOperations indexOps = mongoTemplate.indexOps(collection);
+            IndexInfo existing = findNamed(indexOps, retired.getName());
+            if (existing == null || !replaced) {
+                continue;
+            }
+            try {
+                indexOps.dropIndex(retired.getName());
+                log.info("Dropped retired index {} on {}, replaced by {}", retired.getName(), collection,
+                        retired.getReplacedBy());
+                statuses.add(new IndexStatus(collection, retired.getName(), keys(existing), State.DROPPED, null));
+            } catch (RuntimeException e) {
+                log.error("Failed to drop retired index {} on {}: {}", retired.getName(), collection, e.getMessage());
+                statuses.add(new IndexStatus(collection, retired.getName(), keys(existing), State.FAILED,
+                        e.getMessage()));
+            }
+        }
+    }
+
+    private static IndexInfo findNamed(IndexOperations indexOps, String name) {
+        for (IndexInfo info : indexOps.getIndexInfo()) {
+            if (info.getName().equals(name)) {
+                return info;
+            }
+        }
+        return null;
+    }
+
+    private IndexInfo findMatching(IndexOperations indexOps, IndexCatalogue.Entry entry) {
+        Map<String, Integer> wantedKeys = keyPattern(entry.getIndex().getIndexKeys());
+        boolean wantedUnique = Boolean.TRUE.equals(entry.getIndex().getIndexOptions().get("unique"));
+        for (IndexInfo info : indexOps.getIndexInfo()) {
+            if (info.isUnique() == wantedUnique && wantedKeys.equals(keyPattern(info))) {
+                return info;
+            }
+        }
+        return null;
+    }
+
+    private static Map<String, Integer> keyPattern(Document keys) {
+        Map<String, Integer> pattern = new LinkedHashMap<>();
+        keys.forEach((field, direction) -> pattern.put(field, ((Number) direction).intValue()));
+        return pattern;
+    }
+
+    private static Document keys(IndexInfo info) {
+        return new Document(keyPattern(info));
+    }
+
+    private static Map<String, Integer> keyPattern(IndexInfo info) {
+        Map<String, Integer> pattern = new LinkedHashMap<>();
+        for (IndexField field : info.getIndexFields()) {
+            // Geo, text and hashed fields have no direction and never match a catalogue index
+            pattern.put(field.getKey(), field.getDirection() == Sort.Direction.DESC ? -1
+                    : field.getDirection() == Sort.Direction.ASC ? 1 : 0);
+        }
+        return pattern;
+    }
+
+    private static String indexName(IndexCatalogue.Entry entry) {
+        return Objects.toString(entry.getIndex().getIndexOptions().get("name"), null);
+    }
+}
@@ -32,19 +32,6 @@ public class PortfolioMapper {
             return null;
         }
 
-        // Map trades if present
-        // Note: PortfolioEntity now stores full TradeDetailsEntity objects, but
-        // PortfolioModel only has IDs.
-        // We cannot easily reconstruct full entities from IDs here without repository
-        // access.
-        // For now, valid use cases typically flow from Entity -> Model for reading,
-        // or Model -> Entity for creation where trades might be added separately.
-        // Map trades (IDs)
-        List<String> tradeIds = null;
-        if (model.getTradeIds() != null) {
-            tradeIds = new java.util.ArrayList<>(model.getTradeIds());
-        }
-
         // Map metrics if present
         PortfolioMetrics metricsEntity = null;
         if (model.getMetrics() != null) {
@@ -78,20 +65,6 @@ public class PortfolioMapper {
                     .collect(Collectors.toList());
         }
 
-        // Map winning trades if present
-        List<String> winningTradeIds = null;
-        if (model.getWinningTradeIds() != null) {
-            winningTradeIds = model.getWinningTradeIds().stream()
-                    .collect(Collectors.toList());
-        }
-
-        // Map losing trades if present
-        List<String> losingTradeIds = null;
-        if (model.getLosingTradeIds() != null) {
-            losingTradeIds = model.getLosingTradeIds().stream()
-                    .collect(Collectors.toList());
-        }
-
         return PortfolioEntity.builder()
                 .portfolioId(model.getPortfolioId())
                 .name(model.getName())
@@ -104,10 +77,8 @@ public class PortfolioMapper {
                 .createdDate(model.getCreatedDate())
                 .lastUpdatedDate(model.getLastUpdatedDate())
                 .metrics(metricsEntity)
-                .trades(tradeIds)
-                .winningTrades(winningTradeIds)
-                .losingTrades(losingTradeIds)
                 .assetAllocations(assetAllocations)
+                .version(model.getVersion())
                 .build();
     }
 
@@ -122,26 +93,6 @@ public class PortfolioMapper {
             return null;
         }
 
-        // Map trades if present
-        List<String> tradeIds = null;
-        if (entity.getTrades() != null) {
-            tradeIds = new java.util.ArrayList<>(entity.getTrades());
-        }
-
-        // Map winning trades if present
-        List<String> winningTradeIds = null;
-        if (entity.getWinningTrades() != null) {
-            winningTradeIds = entity.getWinningTrades().stream()
-                    .collect(Collectors.toList());
-        }
-
-        // Map losing trades if present
-        List<String> losingTradeIds = null;
-        if (entity.getLosingTrades() != null) {
-            losingTradeIds = entity.getLosingTrades().stream()
-                    .collect(Collectors.toList());
-        }
-
         // Map asset allocations if present
         List<AssetAllocation> assetAllocations = null;
         if (entity.getAssetAllocations() != null) {
@@ -162,10 +113,8 @@ public class PortfolioMapper {
                 .createdDate(entity.getCreatedDate())
                 .lastUpdatedDate(entity.getLastUpdatedDate())
                 .metrics(entity.getMetrics())
-                .tradeIds(tradeIds)
-                .winningTradeIds(winningTradeIds)
-                .losingTradeIds(losingTradeIds)
                 .assetAllocations(assetAllocations)
+                .version(entity.getVersion())
                 .build();
     }
 
@@ -2,6 +2,7 @@ package am.trade.persistence.mapper;
 
 import am.trade.common.models.TradeDetails;
 import am.trade.persistence.entity.TradeDetailsEntity;
+import am.trade.persistence.projection.TradeMetricsView;
 import org.springframework.stereotype.Component;
 
 /**
@@ -74,4 +75,34 @@ public class TradeDetailsMapper {
                 .exitReasoning(entity.getExitReasoning())
                 .build();
     }
+    
+    /**
+     * Convert a TradeMetricsView to a TradeDetails.
+     * Fields outside the projection stay null and tradeExecutions holds at most two elements,
+     * so the result is only fit for metric calculations, never for returning to clients.
+     *
+     * @param view The projection to convert
+     * @return The corresponding partial domain model, or null if view is null
+     */
+    public TradeDetails toTradeDetails(TradeMetricsView view) {
+        if (view == null) {
+            return null;
+        }
+        
+        return TradeDetails.builder()
+                .tradeId(view.getTradeId())
+                .portfolioId(view.getPortfolioId())
+                .symbol(view.getSymbol())
+                .instrumentInfo(view.getInstrumentInfo())
+                .tradePositionType(view.getTradePositionType())
+                .status(view.getStatus())
+                .entryInfo(view.getEntryInfo())
+                .exitInfo(view.getExitInfo())
+                .metrics(view.getMetrics())
+                .tradeExecutions(view.getTradeExecutions())
+                .userId(view.getUserId())
+                .tags(view.getTags())
+                .psychologyData(view.getPsychologyData())
+                .build();
+    }
 }
@@ -0,0 +1,184 @@
+package am.trade.persistence.migration;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.bson.Document;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import am.trade.persistence.entity.PortfolioEntity;
+import am.trade.persistence.entity.TradeDetailsEntity;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * One-off migration from trade ID arrays on {@code portfolio_trades} to membership
+ * through {@code trade_details.portfolioId}.
+ *
+ * <p>For every portfolio document that still carries a {@code trades} array, the listed
+ * trades get the portfolio's ID and the {@code trades}, {@code winningTrades} and
+ * {@code losingTrades} arrays are removed. The index that replaces the array lookups is
+ * declared in {@link am.trade.persistence.index.IndexCatalogue}. Each step only touches
+ * documents that are not migrated yet, so an interrupted run resumes where it stopped and
+ * several nodes can run it at once. Once it completes, a marker in
+ * {@code schema_migrations} makes later starts return straight away.
+ *
+ * <p>A trade listed by more than one portfolio cannot move to a single {@code portfolioId}
+ * without dropping a membership. Such trades keep their current {@code portfolioId}, and
+ * the portfolios that listed them are recorded under {@code sharedTrades} in the marker
+ * before the arrays are removed, so they can be resolved by hand.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "am.trade.persistence.migration.portfolio-membership.enabled", havingValue = "true", matchIfMissing = true)
+public class PortfolioMembershipMigration {
+
+    static final String MIGRATIONS_COLLECTION = "schema_migrations";
+    static final String MIGRATION_ID = "portfolio-membership";
+
+    /** Keeps each {@code $in} list, and the update command carrying it, small. */
+    private static final int TRADE_ID_CHUNK_SIZE = 1000;
+
+    private static final String[] LEGACY_TRADE_LISTS = {"trades", "winningTrades", "losingTrades"};
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Run the migration on the application task executor, so startup does not wait for it
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        try {
+            migrate();
+        } catch (RuntimeException e) {
+            log.error("Portfolio membership migration failed; it resumes on the next start", e);
+        }
+    }
+
+    public void migrate() {
+        if (mongoTemplate.exists(new Query(Criteria.where("_id").is(MIGRATION_ID).and("completedAt").exists(true)),
+                MIGRATIONS_COLLECTION)) {
+            log.debug("Portfolio membership migration already completed");
+            return;
+        }
+
+        List<Document> sharedTrades = findSharedTrades();
+        if (!sharedTrades.isEmpty()) {
+            // Recorded before any array is removed, so an interrupted run loses nothing
+            mongoTemplate.upsert(new Query(Criteria.where("_id").is(MIGRATION_ID)),
+                    new Update().addToSet("sharedTrades").each(sharedTrades.toArray()), MIGRATIONS_COLLECTION);
+            log.warn("{} trades are listed by more than one portfolio and keep their portfolioId; "
+                    + "the portfolios listing them are recorded in {}.{}", sharedTrades.size(),
+                    MIGRATIONS_COLLECTION, MIGRATION_ID);
+        }
+        // Includes trades recorded by an interrupted run, whose other portfolios are migrated already
+        Set<String> sharedTradeIds = recordedSharedTradeIds();
+
+        Query legacyPortfolios = new Query(Criteria.where("trades").exists(true));
+        legacyPortfolios.fields().include("_id").include("trades");
+
+        int portfolios = 0;
+        long tradesMoved = 0;
+        try (Stream<Document> stream = mongoTemplate.stream(legacyPortfolios, Document.class,
+                mongoTemplate.getCollectionName(PortfolioEntity.class))) {
+            Iterator<Document> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                Document portfolio = iterator.next();
+                tradesMoved += assignTrades(portfolio.get("_id"), portfolio.getList("trades", String.class),
+                        sharedTradeIds);
+                portfolios++;
+            }
+        }
+
+        mongoTemplate.upsert(new Query(Criteria.where("_id").is(MIGRATION_ID)),
+                new Update().set("completedAt", Instant.now())
+                        .set("portfolios", portfolios)
+                        .set("tradesReassigned", tradesMoved),
+                MIGRATIONS_COLLECTION);
+        log.info("Migrated {} portfolios to trade_details.portfolioId membership ({} trades reassigned)",
+                portfolios, tradesMoved);
+    }
+
+    /**
+     * Trades that appear in the {@code trades} array of more than one portfolio, as
+     * {@code {tradeId, portfolioIds}} documents
+     */
+    private List<Document> findSharedTrades() {
+        List<Document> pipeline = List.of(
+                new Document("$match", new Document("trades", new Document("$exists", true))),
+                new Document("$project", new Document("trades", 1)),
+                new Document("$unwind", "$trades"),
+                new Document("$group", new Document("_id", "$trades")
+                        .append("portfolios", new Document("$addToSet", "$_id"))),
+                new Document("$match", new Document("portfolios.1", new Document("$exists", true))));
+
+        List<Document> shared = new ArrayList<>();
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(PortfolioEntity.class))
+                .aggregate(pipeline)
+                .allowDiskUse(true)
+                .forEach(group -> {
+                    List<String> portfolioIds = new ArrayList<>();
+                    group.getList("portfolios", Object.class).forEach(id -> portfolioIds.add(id.toString()));
+                    Collections.sort(portfolioIds);
+                    shared.add(new Document("tradeId", group.getString("_id")).append("portfolioIds", portfolioIds));
+                });
+        return shared;
+    }
+
+    private Set<String> recordedSharedTradeIds() {
+        Set<String> tradeIds = new HashSet<>();
+        Query marker = new Query(Criteria.where("_id").is(MIGRATION_ID));
+        marker.fields().include("sharedTrades.tradeId");
+        Document recorded = mongoTemplate.findOne(marker, Document.class, MIGRATIONS_COLLECTION);
+        if (recorded != null && recorded.get("sharedTrades") != null) {
+            recorded.getList("sharedTrades", Document.class).forEach(shared -> tradeIds.add(shared.getString("tradeId")));
+        }
+        return tradeIds;
+    }
+
+    private long assignTrades(Object id, List<String> tradeIds, Set<String> sharedTradeIds) {
+        // The raw document holds the ObjectId that Spring Data made of the entity's String ID;
+        // its hex form is that String, which is what portfolioId holds
+        String portfolioId = id.toString();
+        long modified = 0;
+        if (tradeIds != null) {
+            List<String> ids = new ArrayList<>(tradeIds.size());
+            for (String tradeId : tradeIds) {
+                if (!sharedTradeIds.contains(tradeId)) {
+                    ids.add(tradeId);
+                }
+            }
+            for (int offset = 0; offset < ids.size(); offset += TRADE_ID_CHUNK_SIZE) {
+                List<String> chunk = ids.subList(offset, Math.min(offset + TRADE_ID_CHUNK_SIZE, ids.size()));
+                Query query = new Query(Criteria.where("tradeId").in(chunk).and("portfolioId").ne(portfolioId));
+                modified += mongoTemplate.updateMulti(query, Update.update("portfolioId", portfolioId),
+                        TradeDetailsEntity.class).getModifiedCount();
+            }
+        }
+
+        // Only dropped once every trade points at the portfolio, so an interrupted run resumes here
+        Update unsetLists = new Update();
+        for (String field : LEGACY_TRADE_LISTS) {
+            unsetLists.unset(field);
+        }
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(id)), unsetLists,
+                mongoTemplate.getCollectionName(PortfolioEntity.class));
+        return modified;
+    }
+}
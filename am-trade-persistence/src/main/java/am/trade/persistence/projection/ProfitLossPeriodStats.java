@@ -0,0 +1,35 @@
+package am.trade.persistence.projection;
+
+import java.math.BigDecimal;
+
+import org.springframework.data.annotation.Id;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Profit/loss totals of one heatmap period, as grouped by the database.
+ *
+ * <p>Sums and maxima skip trades without a profit/loss, while the counts include them, so
+ * {@code winProfitLoss / winCount} is the same average the heatmap always reported. Maxima
+ * are of absolute values and are null when no trade of that status has a profit/loss.
+ *
+ * @see am.trade.persistence.repository.TradeDetailsRepositoryCustom#aggregateProfitLossByPeriod
+ */
+@Data
+@NoArgsConstructor
+public class ProfitLossPeriodStats {
+
+    /**
+     * Entry date of the period in IST: {@code yyyy}, {@code yyyy-MM} or {@code yyyy-MM-dd}
+     */
+    @Id
+    private String periodId;
+    private BigDecimal profitLoss;
+    private int winCount;
+    private int lossCount;
+    private BigDecimal winProfitLoss;
+    private BigDecimal lossProfitLoss;
+    private BigDecimal maxWinAmount;
+    private BigDecimal maxLossAmount;
+}
@@ -0,0 +1,50 @@
+package am.trade.persistence.projection;
+
+import java.util.List;
+
+import am.trade.common.models.EntryExitInfo;
+import am.trade.common.models.InstrumentInfo;
+import am.trade.common.models.TradeMetrics;
+import am.trade.common.models.TradeModel;
+import am.trade.common.models.TradePsychologyData;
+import am.trade.common.models.enums.TradePositionType;
+import am.trade.common.models.enums.TradeStatus;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Read-only projection of a {@code trade_details} document for metrics and dashboard queries.
+ *
+ * <p>Holds only what the metric calculators read. Attachments, notes, entry/exit reasoning and
+ * psychology notes are never fetched, and {@code tradeExecutions} is sliced to its first two
+ * elements: the calculators only check whether a trade had more than one execution.
+ */
+@Data
+@NoArgsConstructor
+public class TradeMetricsView {
+
+    /**
+     * Field projection used by every repository method returning this type.
+     */
+    public static final String FIELDS = "{'tradeId': 1, 'portfolioId': 1, 'userId': 1, 'symbol': 1, "
+            + "'instrumentInfo': 1, 'tradePositionType': 1, 'status': 1, "
+            + "'entryInfo': 1, 'exitInfo': 1, 'metrics': 1, 'tags': 1, "
+            + "'psychologyData.entryPsychologyFactors': 1, 'psychologyData.exitPsychologyFactors': 1, "
+            + "'psychologyData.behaviorPatterns': 1, "
+            + "'tradeExecutions': {$slice: 2}}";
+
+    private String tradeId;
+    private String portfolioId;
+    private String userId;
+    private String symbol;
+    private InstrumentInfo instrumentInfo;
+    private TradePositionType tradePositionType;
+    private TradeStatus status;
+    private EntryExitInfo entryInfo;
+    private EntryExitInfo exitInfo;
+    private TradeMetrics metrics;
+    private List<String> tags;
+    private TradePsychologyData psychologyData;
+    private List<TradeModel> tradeExecutions;
+}
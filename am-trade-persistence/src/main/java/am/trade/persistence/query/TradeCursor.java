@@ -0,0 +1,105 @@
+package am.trade.persistence.query;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import am.trade.persistence.entity.TradeDetailsEntity;
+import lombok.Value;
+
+/**
+ * Position of the last trade on a keyset page of trade listings.
+ *
+ * <p>Listings are ordered by entry time, newest first, with {@code tradeId} as tie-breaker;
+ * trades without an entry time come last. A page starts strictly after the cursor, so the
+ * database seeks into the {@code (…, entryInfo.timestamp, tradeId)} index instead of
+ * skipping the earlier pages, and page N costs the same as page 1.
+ *
+ * <p>Clients only ever see the {@link #encode() encoded} form, which is opaque.
+ */
+@Value
+public class TradeCursor {
+
+    public static final String ENTRY_TIME = "entryInfo.timestamp";
+    public static final String TRADE_ID = "tradeId";
+
+    /**
+     * Order of every keyset listing; must match the index key order
+     */
+    public static final Sort SORT = Sort.by(Sort.Order.desc(ENTRY_TIME), Sort.Order.desc(TRADE_ID));
+
+    private static final char SEPARATOR = '\n';
+
+    /**
+     * Entry time of the last trade, null if it had none
+     */
+    LocalDateTime entryTime;
+    String tradeId;
+
+    /**
+     * Cursor positioned on {@code entity}, the last trade of a page
+     */
+    public static TradeCursor of(TradeDetailsEntity entity) {
+        LocalDateTime entryTime = entity.getEntryInfo() != null ? entity.getEntryInfo().getTimestamp() : null;
+        return new TradeCursor(entryTime, entity.getTradeId());
+    }
+
+    /**
+     * Decode a token produced by {@link #encode()}.
+     *
+     * @return The cursor, or null for a null or blank token, which means the first page
+     * @throws IllegalArgumentException if the token was not produced by {@link #encode()}
+     */
+    public static TradeCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.indexOf(SEPARATOR);
+            if (separator < 0 || separator == value.length() - 1) {
+                throw new IllegalArgumentException("Invalid trade cursor: " + token);
+            }
+            String entryTime = value.substring(0, separator);
+            return new TradeCursor(entryTime.isEmpty() ? null : LocalDateTime.parse(entryTime),
+                    value.substring(separator + 1));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid trade cursor: " + token, e);
+        }
+    }
+
+    public String encode() {
+        String value = (entryTime != null ? entryTime.toString() : "") + SEPARATOR + tradeId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Criteria for the trades that follow this cursor and have an entry time, or null once the
+     * cursor has reached the trades without one; see {@link #afterWithoutEntryTime()}.
+     *
+     * <p>The range is stated on the entry time itself so it becomes index bounds; the
+     * {@code $or} only drops the ties already returned.
+     */
+    public Criteria afterWithEntryTime() {
+        if (entryTime == null) {
+            return null;
+        }
+        return new Criteria().andOperator(
+                Criteria.where(ENTRY_TIME).lte(entryTime),
+                new Criteria().orOperator(
+                        Criteria.where(ENTRY_TIME).lt(entryTime),
+                        Criteria.where(TRADE_ID).lt(tradeId)));
+    }
+
+    /**
+     * Criteria for the trades without an entry time that follow this cursor
+     */
+    public Criteria afterWithoutEntryTime() {
+        Criteria criteria = Criteria.where(ENTRY_TIME).is(null);
+        return entryTime == null ? criteria.and(TRADE_ID).lt(tradeId) : criteria;
+    }
+}
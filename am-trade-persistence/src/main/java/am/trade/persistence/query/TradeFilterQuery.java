@@ -0,0 +1,188 @@
+package am.trade.persistence.query;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConvertOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import am.trade.common.models.MetricsFilterConfig;
+
+/**
+ * Compiles a {@link MetricsFilterConfig} into a {@code trade_details} query.
+ *
+ * <p>Every filter of the config is pushed down, so the database does the filtering, sorting
+ * and limiting. The config keeps its values in loosely typed maps, so they are parsed here
+ * once per request instead of once per trade.
+ *
+ * <p>Profit/loss and strike prices are {@code BigDecimal}s, which Spring Data stores as
+ * strings. Their bounds are compared with {@code $expr} after converting to a double, and
+ * they cannot be sorted on the server; {@link #supportsSort(Sort)} tells callers when the
+ * sort has to be applied in memory.
+ */
+public final class TradeFilterQuery {
+
+    private static final String ENTRY_TIME = "entryInfo.timestamp";
+    private static final String DERIVATIVE_INFO = "instrumentInfo.derivativeInfo";
+
+    private TradeFilterQuery() {
+    }
+
+    /**
+     * Build the criteria selecting the trades of {@code userId} that match the config.
+     *
+     * @throws java.time.format.DateTimeParseException if a date range bound is not an ISO date
+     */
+    public static Criteria criteria(String userId, MetricsFilterConfig config) {
+        Criteria criteria = Criteria.where("userId").is(userId)
+                .and("portfolioId").in(config.getPortfolioIds());
+        List<Criteria> clauses = new ArrayList<>();
+
+        if (config.getInstruments() != null && !config.getInstruments().isEmpty()) {
+            criteria = criteria.and("symbol").in(config.getInstruments());
+        }
+
+        Map<String, Object> dateRange = config.getDateRange();
+        if (dateRange != null && (dateRange.get("startDate") != null || dateRange.get("endDate") != null)) {
+            Criteria entryTime = criteria.and(ENTRY_TIME);
+            if (dateRange.get("startDate") != null) {
+                entryTime = entryTime.gte(LocalDate.parse(dateRange.get("startDate").toString()).atStartOfDay());
+            }
+            if (dateRange.get("endDate") != null) {
+                // Whole end day is included
+                entryTime = entryTime.lt(LocalDate.parse(dateRange.get("endDate").toString()).plusDays(1).atStartOfDay());
+            }
+            criteria = entryTime;
+        }
+
+        Map<String, Object> characteristics = config.getTradeCharacteristics();
+        if (characteristics != null) {
+            criteria = in(criteria, "status", characteristics.get("statuses"));
+            criteria = in(criteria, "strategy", characteristics.get("strategies"));
+            criteria = in(criteria, "tradePositionType", characteristics.get("positionTypes"));
+            criteria = in(criteria, "tags", characteristics.get("tags"));
+
+            // Trades without metrics have no holding time and are not excluded by it
+            Number minHours = (Number) characteristics.get("minHoldingTimeHours");
+            Number maxHours = (Number) characteristics.get("maxHoldingTimeHours");
+            if (minHours != null || maxHours != null) {
+                Criteria holdingTime = Criteria.where("metrics.holdingTimeHours");
+                if (minHours != null) {
+                    holdingTime = holdingTime.gte(minHours.longValue());
+                }
+                if (maxHours != null) {
+                    holdingTime = holdingTime.lte(maxHours.longValue());
+                }
+                clauses.add(new Criteria().orOperator(Criteria.where("metrics").is(null), holdingTime));
+            }
+        }
+
+        Map<String, Object> profitLoss = config.getProfitLossFilters();
+        if (profitLoss != null) {
+            Number minProfitLoss = (Number) profitLoss.get("minProfitLoss");
+            Number maxProfitLoss = (Number) profitLoss.get("maxProfitLoss");
+            if (minProfitLoss != null) {
+                clauses.add(new Criteria().orOperator(Criteria.where("metrics").is(null),
+                        atLeast("metrics.profitLoss", minProfitLoss)));
+            }
+            if (maxProfitLoss != null) {
+                clauses.add(new Criteria().orOperator(Criteria.where("metrics").is(null),
+                        atMost("metrics.profitLoss", maxProfitLoss)));
+            }
+        }
+
+        // Option type and strike only apply to trades that carry derivative info
+        Map<String, Object> instrumentFilters = config.getInstrumentFilters();
+        if (instrumentFilters != null) {
+            if (instrumentFilters.get("optionType") != null) {
+                String optionType = instrumentFilters.get("optionType").toString();
+                List<Criteria> optionMatch = new ArrayList<>();
+                optionMatch.add(Criteria.where(DERIVATIVE_INFO).is(null));
+                if ("CE".equals(optionType) || "PE".equals(optionType)) {
+                    optionMatch.add(Criteria.where(DERIVATIVE_INFO + ".isCall").is("CE".equals(optionType)));
+                }
+                clauses.add(new Criteria().orOperator(optionMatch));
+            }
+
+            String strikePrice = DERIVATIVE_INFO + ".strikePrice";
+            Number minStrike = (Number) instrumentFilters.get("minStrike");
+            Number maxStrike = (Number) instrumentFilters.get("maxStrike");
+            if (minStrike != null) {
+                clauses.add(new Criteria().orOperator(Criteria.where(strikePrice).is(null),
+                        atLeast(strikePrice, minStrike)));
+            }
+            if (maxStrike != null) {
+                clauses.add(new Criteria().orOperator(Criteria.where(strikePrice).is(null),
+                        atMost(strikePrice, maxStrike)));
+            }
+        }
+
+        return clauses.isEmpty() ? criteria : criteria.andOperator(clauses);
+    }
+
+    /**
+     * Sort keys the database can apply, as advertised to clients (matched case-insensitively).
+     */
+    public static final List<String> SUPPORTED_SORT_KEYS =
+            List.of("entryDate", "exitDate", "symbol", "status", "strategy", "holdingTime");
+
+    /**
+     * Whether every order of {@code sort} can be applied by the database.
+     */
+    public static boolean supportsSort(Sort sort) {
+        for (Sort.Order order : sort) {
+            if (documentPath(order.getProperty()) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Translate a client sort into document paths, with {@code _id} as tie-breaker so pages
+     * are stable. Only valid if {@link #supportsSort(Sort)} holds.
+     */
+    public static Sort toDocumentSort(Sort sort) {
+        List<Sort.Order> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            orders.add(new Sort.Order(order.getDirection(), documentPath(order.getProperty())));
+        }
+        orders.add(Sort.Order.asc("_id"));
+        return Sort.by(orders);
+    }
+
+    /**
+     * @return The document path for a client sort property, or null if it cannot be sorted
+     *         on the server. Unknown properties sort by entry time.
+     */
+    private static String documentPath(String property) {
+        return switch (property.toLowerCase()) {
+            case "exitdate", "exittimestamp" -> "exitInfo.timestamp";
+            case "profitloss", "pnl" -> null;
+            case "symbol" -> "symbol";
+            case "status" -> "status";
+            case "strategy" -> "strategy";
+            case "holdingtimehours", "holdingtime" -> "metrics.holdingTimeHours";
+            default -> ENTRY_TIME;
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Criteria in(Criteria criteria, String field, Object values) {
+        return values != null ? criteria.and(field).in((List<Object>) values) : criteria;
+    }
+
+    private static Criteria atLeast(String decimalField, Number bound) {
+        return Criteria.expr(ComparisonOperators.valueOf(ConvertOperators.valueOf(decimalField).convertToDouble())
+                .greaterThanEqualToValue(bound.doubleValue()));
+    }
+
+    private static Criteria atMost(String decimalField, Number bound) {
+        return Criteria.expr(ComparisonOperators.valueOf(ConvertOperators.valueOf(decimalField).convertToDouble())
+                .lessThanEqualToValue(bound.doubleValue()));
+    }
+}
@@ -0,0 +1,15 @@
+package am.trade.persistence.repository;
+
+import am.trade.persistence.entity.JobLease;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data MongoDB repository for background job leases.
+ *
+ * <p>Leases are looked up by name, the document ID, so no further index is needed.
+ * Acquiring and releasing live in {@link JobLeaseRepositoryCustom}.
+ */
+@Repository
+public interface JobLeaseRepository extends MongoRepository<JobLease, String>, JobLeaseRepositoryCustom {
+}
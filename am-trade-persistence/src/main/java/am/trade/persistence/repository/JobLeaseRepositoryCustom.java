@@ -0,0 +1,31 @@
+package am.trade.persistence.repository;
+
+import java.time.Duration;
+
+/**
+ * Atomic lease operations that Spring Data cannot derive from method names.
+ * Implemented by {@link JobLeaseRepositoryImpl}.
+ */
+public interface JobLeaseRepositoryCustom {
+
+    /**
+     * Take the lease if it is free, expired or already held by {@code owner}, extending it
+     * to {@code duration} from now. One conditional upsert, so at most one node succeeds.
+     *
+     * @param name     Lease name
+     * @param owner    Node acquiring the lease
+     * @param duration How long the lease is held unless released or renewed
+     * @return true if {@code owner} now holds the lease
+     */
+    boolean tryAcquire(String name, String owner, Duration duration);
+
+    /**
+     * Release a lease held by {@code owner}. The lease stays held for {@code holdFor} from its
+     * acquisition, so nodes whose schedule fires slightly later do not run the job again.
+     *
+     * @param name    Lease name
+     * @param owner   Node holding the lease
+     * @param holdFor Minimum time the lease stays held after it was acquired
+     */
+    void release(String name, String owner, Duration holdFor);
+}
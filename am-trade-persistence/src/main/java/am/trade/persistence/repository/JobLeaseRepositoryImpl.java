@@ -0,0 +1,56 @@
+package am.trade.persistence.repository;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import am.trade.persistence.entity.JobLease;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * MongoTemplate-backed implementation of {@link JobLeaseRepositoryCustom}.
+ * Picked up by Spring Data through the {@code Impl} naming convention.
+ */
+@RequiredArgsConstructor
+public class JobLeaseRepositoryImpl implements JobLeaseRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public boolean tryAcquire(String name, String owner, Duration duration) {
+        Instant now = Instant.now();
+        Query query = new Query(Criteria.where("_id").is(name)
+                .orOperator(Criteria.where("expiresAt").lte(now), Criteria.where("owner").is(owner)));
+        Update update = new Update()
+                .set("owner", owner)
+                .set("acquiredAt", now)
+                .set("expiresAt", now.plus(duration));
+        try {
+            JobLease lease = mongoTemplate.findAndModify(query, update,
+                    FindAndModifyOptions.options().upsert(true).returnNew(true), JobLease.class);
+            return lease != null && owner.equals(lease.getOwner());
+        } catch (DuplicateKeyException e) {
+            // The lease exists and another node holds it, so the upsert tried to insert a second one
+            return false;
+        }
+    }
+
+    @Override
+    public void release(String name, String owner, Duration holdFor) {
+        Query query = new Query(Criteria.where("_id").is(name).and("owner").is(owner));
+        JobLease lease = mongoTemplate.findOne(query, JobLease.class);
+        if (lease == null) {
+            return;
+        }
+        Instant now = Instant.now();
+        Instant heldUntil = lease.getAcquiredAt() != null ? lease.getAcquiredAt().plus(holdFor) : now;
+        mongoTemplate.updateFirst(query.addCriteria(Criteria.where("acquiredAt").is(lease.getAcquiredAt())),
+                new Update().set("expiresAt", heldUntil.isAfter(now) ? heldUntil : now), JobLease.class);
+    }
+}
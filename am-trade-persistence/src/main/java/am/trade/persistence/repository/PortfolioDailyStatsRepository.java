@@ -0,0 +1,31 @@
+package am.trade.persistence.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import am.trade.persistence.entity.PortfolioDailyStats;
+
+/**
+ * Spring Data MongoDB repository for the daily rollup of portfolio trades.
+ * Incremental updates and rebuilds live in {@link PortfolioDailyStatsRepositoryCustom}.
+ */
+@Repository
+public interface PortfolioDailyStatsRepository extends MongoRepository<PortfolioDailyStats, String>,
+        PortfolioDailyStatsRepositoryCustom {
+
+    /**
+     * Every day of a portfolio, oldest first
+     */
+    @Query(value = "{'portfolioId': ?0}", sort = "{'date': 1}")
+    List<PortfolioDailyStats> findByPortfolioId(String portfolioId);
+
+    /**
+     * Days of a portfolio from {@code startDate} to {@code endDate}, both inclusive, oldest first
+     */
+    @Query(value = "{'portfolioId': ?0, 'date': {$gte: ?1, $lte: ?2}}", sort = "{'date': 1}")
+    List<PortfolioDailyStats> findByPortfolioIdAndDateBetween(String portfolioId, LocalDateTime startDate, LocalDateTime endDate);
+}
@@ -0,0 +1,37 @@
+package am.trade.persistence.repository;
+
+import java.util.Collection;
+
+import am.trade.persistence.entity.PortfolioDailyStats;
+
+/**
+ * Incremental maintenance and rebuilds of the daily rollup that Spring Data cannot derive from
+ * method names. Implemented by {@link PortfolioDailyStatsRepositoryImpl}.
+ */
+public interface PortfolioDailyStatsRepositoryCustom {
+
+    /**
+     * Add signed increments to their days with one unordered bulk upsert: {@code $inc} on the
+     * amounts, counts, sketch buckets and version, {@code $min}/{@code $max} on the trade times
+     * where set. Days left without trades are deleted.
+     *
+     * @param increments One increment per day, identified by portfolio ID and date
+     */
+    void applyIncrements(Collection<PortfolioDailyStats> increments);
+
+    /**
+     * Recompute every day of a portfolio from its trades with one aggregation, replace the
+     * stored days with the result and delete the days that no longer have trades.
+     *
+     * <p>Each day is only replaced or deleted at the version it had before the trades were read,
+     * and the versions are checked again afterwards. If an increment was applied in between,
+     * the rebuild starts over, so the increment is neither lost nor counted twice. A trade whose
+     * increment is applied after the rebuild finished was seen by it and is counted twice until
+     * the next rebuild.
+     *
+     * @param portfolioId Portfolio to rebuild
+     * @return Number of days written
+     * @throws IllegalStateException if every attempt raced an increment
+     */
+    int rebuild(String portfolioId);
+}
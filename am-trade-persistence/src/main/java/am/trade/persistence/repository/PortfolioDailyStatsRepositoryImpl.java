@@ -0,0 +1,309 @@
+package am.trade.persistence.repository;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.mongodb.bulk.BulkWriteResult;
+
+import am.trade.common.models.enums.TradeStatus;
+import am.trade.common.util.TradeSketches;
+import am.trade.persistence.config.MongoDateTimeConfig;
+import am.trade.persistence.entity.PortfolioDailyStats;
+import am.trade.persistence.entity.TradeDetailsEntity;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * MongoTemplate-backed implementation of {@link PortfolioDailyStatsRepositoryCustom}.
+ * Picked up by Spring Data through the {@code Impl} naming convention.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class PortfolioDailyStatsRepositoryImpl implements PortfolioDailyStatsRepositoryCustom {
+
+    private static final Decimal128 ZERO = new Decimal128(BigDecimal.ZERO);
+    private static final String SKETCH_VALUES = "sketchValues";
+    private static final int DUPLICATE_KEY_ERROR = 11000;
+    private static final int MAX_REBUILD_ATTEMPTS = 3;
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void applyIncrements(Collection<PortfolioDailyStats> increments) {
+        if (increments == null || increments.isEmpty()) {
+            return;
+        }
+
+        Instant now = Instant.now();
+        List<String> ids = new ArrayList<>(increments.size());
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, PortfolioDailyStats.class);
+        for (PortfolioDailyStats increment : increments) {
+            String id = PortfolioDailyStats.id(increment.getPortfolioId(), increment.day());
+            ids.add(id);
+            Update update = new Update()
+                    .setOnInsert("portfolioId", increment.getPortfolioId())
+                    .setOnInsert("date", increment.getDate())
+                    .inc("profitLoss", decimal(increment.getProfitLoss()))
+                    .inc("grossProfit", decimal(increment.getGrossProfit()))
+                    .inc("grossLoss", decimal(increment.getGrossLoss()))
+                    .inc("fees", decimal(increment.getFees()))
+                    .inc("tradedValue", decimal(increment.getTradedValue()))
+                    .inc("tradeCount", increment.getTradeCount())
+                    .inc("winCount", increment.getWinCount())
+                    .inc("lossCount", increment.getLossCount())
+                    .inc("breakEvenCount", increment.getBreakEvenCount())
+                    .inc("openCount", increment.getOpenCount())
+                    .inc("version", 1)
+                    .set("updatedAt", now);
+            incrementBuckets(update, "profitLossSketch", increment.getProfitLossSketch());
+            incrementBuckets(update, "returnSketch", increment.getReturnSketch());
+            incrementBuckets(update, "positionSizeSketch", increment.getPositionSizeSketch());
+            incrementBuckets(update, "holdingMinutesSketch", increment.getHoldingMinutesSketch());
+            if (increment.getFirstTradeTime() != null) {
+                update.min("firstTradeTime", increment.getFirstTradeTime());
+            }
+            if (increment.getLastTradeTime() != null) {
+                update.max("lastTradeTime", increment.getLastTradeTime());
+            }
+            bulkOps.upsert(new Query(Criteria.where("_id").is(id)), update);
+        }
+        bulkOps.execute();
+
+        // A day whose last trade moved away keeps no zero-count document
+        mongoTemplate.remove(new Query(Criteria.where("_id").in(ids).and("tradeCount").lte(0)), PortfolioDailyStats.class);
+    }
+
+    @Override
+    public int rebuild(String portfolioId) {
+        for (int attempt = 1; ; attempt++) {
+            OptionalInt days = rebuildOnce(portfolioId);
+            if (days.isPresent()) {
+                return days.getAsInt();
+            }
+            if (attempt == MAX_REBUILD_ATTEMPTS) {
+                throw new IllegalStateException("Daily stats of portfolio " + portfolioId
+                        + " were incremented during each of " + MAX_REBUILD_ATTEMPTS + " rebuilds");
+            }
+            log.debug("Daily stats of portfolio {} were incremented during rebuild {}; rebuilding again",
+                    portfolioId, attempt);
+        }
+    }
+
+    /**
+     * Rebuild once, replacing or deleting each day only at the version it had before the trades
+     * were read
+     *
+     * @return Number of days written, or empty if an increment raced the rebuild
+     */
+    private OptionalInt rebuildOnce(String portfolioId) {
+        Instant startedAt = Instant.now();
+        // Read before the trades, so an increment for a trade the aggregation sees has a newer version
+        Map<String, Long> versions = versions(Criteria.where("portfolioId").is(portfolioId));
+        List<PortfolioDailyStats> days = aggregateDays(portfolioId);
+
+        boolean raced = false;
+        Map<String, Long> written = new HashMap<>();
+        if (!days.isEmpty()) {
+            BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, PortfolioDailyStats.class);
+            for (PortfolioDailyStats stats : days) {
+                Long version = versions.get(stats.getId());
+                stats.setVersion(version != null ? version + 1 : 1L);
+                stats.setUpdatedAt(startedAt);
+                written.put(stats.getId(), stats.getVersion());
+                bulkOps.replaceOne(new Query(Criteria.where("_id").is(stats.getId()).and("version").is(version)), stats,
+                        FindAndReplaceOptions.options().upsert());
+            }
+            raced = !replacedAtReadVersions(bulkOps, days, versions.keySet());
+        }
+
+        // Days no trade falls on any more, unless an increment changed them meanwhile
+        List<Query> stale = new ArrayList<>();
+        versions.forEach((id, version) -> {
+            if (!written.containsKey(id)) {
+                stale.add(new Query(Criteria.where("_id").is(id).and("version").is(version)));
+            }
+        });
+        int removed = 0;
+        if (!stale.isEmpty()) {
+            removed = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, PortfolioDailyStats.class)
+                    .remove(stale)
+                    .execute()
+                    .getDeletedCount();
+            raced |= removed < stale.size();
+        }
+
+        // An increment applied after its day was replaced may count a trade the aggregation already saw
+        if (!raced && !written.isEmpty()) {
+            raced = !versions(Criteria.where("_id").in(written.keySet())).equals(written);
+        }
+        log.debug("Rebuilt {} days of portfolio {} and removed {} empty days{}", days.size(), portfolioId,
+                removed, raced ? " while it was being incremented" : "");
+        return raced ? OptionalInt.empty() : OptionalInt.of(days.size());
+    }
+
+    /**
+     * Execute the replacements of a rebuild
+     *
+     * @return Whether every day was replaced at the version it was read at
+     */
+    private static boolean replacedAtReadVersions(BulkOperations bulkOps, List<PortfolioDailyStats> days,
+                                                  Set<String> existing) {
+        BulkWriteResult result;
+        try {
+            result = bulkOps.execute();
+        } catch (BulkOperationException e) {
+            boolean onlyDuplicates = e.getErrors().stream().allMatch(error -> error.getCode() == DUPLICATE_KEY_ERROR);
+            if (!onlyDuplicates) {
+                throw e;
+            }
+            // A day incremented since its version was read matched no filter, and its ID is taken
+            return false;
+        }
+        // A day deleted since its version was read was inserted anew
+        return result.getUpserts().stream().noneMatch(upsert -> existing.contains(days.get(upsert.getIndex()).getId()));
+    }
+
+    /**
+     * Versions of the matching days by ID; null for days written before days had versions
+     */
+    private Map<String, Long> versions(Criteria criteria) {
+        Query query = new Query(criteria);
+        query.fields().include("version");
+        Map<String, Long> versions = new HashMap<>();
+        for (PortfolioDailyStats day : mongoTemplate.find(query, PortfolioDailyStats.class)) {
+            versions.put(day.getId(), day.getVersion());
+        }
+        return versions;
+    }
+
+    /**
+     * Days of a portfolio computed from its trades
+     */
+    private List<PortfolioDailyStats> aggregateDays(String portfolioId) {
+        String timezone = MongoDateTimeConfig.IST_ZONE.getId();
+
+        // Same day and amounts as the increments: exit day, else entry day; unreadable amounts count as 0
+        AggregationOperation project = context -> new Document("$project", new Document("portfolioId", 1)
+                .append("status", 1)
+                .append("time", new Document("$ifNull", Arrays.asList("$exitInfo.timestamp", "$entryInfo.timestamp")))
+                .append("profitLoss", decimalOrZero("$metrics.profitLoss"))
+                .append("fees", new Document("$add",
+                        Arrays.asList(decimalOrZero("$entryInfo.fees"), decimalOrZero("$exitInfo.fees"))))
+                .append("tradedValue", new Document("$add",
+                        Arrays.asList(decimalOrZero("$entryInfo.totalValue"), decimalOrZero("$exitInfo.totalValue"))))
+                // Raw sketch values; bucketing them here keeps one bucket function for rebuilds and increments
+                .append(SKETCH_VALUES, new Document("profitLoss", doubleOrNull("$metrics.profitLoss"))
+                        .append("returnPercentage", doubleOrNull("$metrics.profitLossPercentage"))
+                        .append("positionSize", new Document("$multiply",
+                                Arrays.asList(doubleOrNull("$entryInfo.price"), doubleOrNull("$entryInfo.quantity"))))
+                        .append("holdingMinutes", new Document("$divide", Arrays.asList(
+                                new Document("$subtract", Arrays.asList("$exitInfo.timestamp", "$entryInfo.timestamp")),
+                                60_000)))));
+        AggregationOperation dated = context -> new Document("$match", new Document("time", new Document("$ne", null)));
+        AggregationOperation day = context -> new Document("$addFields", new Document("day",
+                new Document("$dateToString", new Document("format", "%Y-%m-%d")
+                        .append("date", "$time")
+                        .append("timezone", timezone))));
+        AggregationOperation group = context -> new Document("$group",
+                new Document("_id", new Document("$concat", Arrays.asList("$portfolioId", ":", "$day")))
+                        .append("portfolioId", new Document("$first", "$portfolioId"))
+                        .append("date", new Document("$first", new Document("$dateFromString",
+                                new Document("dateString", "$day")
+                                        .append("format", "%Y-%m-%d")
+                                        .append("timezone", timezone))))
+                        .append("profitLoss", new Document("$sum", "$profitLoss"))
+                        .append("grossProfit", new Document("$sum", new Document("$cond", Arrays.asList(
+                                new Document("$gt", Arrays.asList("$profitLoss", 0)), "$profitLoss", 0))))
+                        .append("grossLoss", new Document("$sum", new Document("$cond", Arrays.asList(
+                                new Document("$lt", Arrays.asList("$profitLoss", 0)),
+                                new Document("$subtract", Arrays.asList(0, "$profitLoss")), 0))))
+                        .append("fees", new Document("$sum", "$fees"))
+                        .append("tradedValue", new Document("$sum", "$tradedValue"))
+                        .append("tradeCount", new Document("$sum", 1))
+                        .append("winCount", new Document("$sum", ifStatus(TradeStatus.WIN)))
+                        .append("lossCount", new Document("$sum", ifStatus(TradeStatus.LOSS)))
+                        .append("breakEvenCount", new Document("$sum", ifStatus(TradeStatus.BREAK_EVEN)))
+                        .append("openCount", new Document("$sum", ifStatus(TradeStatus.OPEN)))
+                        .append("firstTradeTime", new Document("$min", "$time"))
+                        .append("lastTradeTime", new Document("$max", "$time"))
+                        .append(SKETCH_VALUES, new Document("$push", "$" + SKETCH_VALUES)));
+
+        List<Document> results = mongoTemplate.aggregate(Aggregation.newAggregation(
+                        Aggregation.match(Criteria.where("portfolioId").is(portfolioId)), project, dated, day, group),
+                TradeDetailsEntity.class, Document.class).getMappedResults();
+        List<PortfolioDailyStats> days = new ArrayList<>(results.size());
+        for (Document result : results) {
+            List<Document> sketchValues = result.getList(SKETCH_VALUES, Document.class, List.of());
+            result.remove(SKETCH_VALUES);
+            PortfolioDailyStats stats = mongoTemplate.getConverter().read(PortfolioDailyStats.class, result);
+            setSketches(stats, sketchValues);
+            days.add(stats);
+        }
+        return days;
+    }
+
+    private static void setSketches(PortfolioDailyStats stats, List<Document> sketchValues) {
+        TradeSketches sketches = new TradeSketches();
+        for (Document values : sketchValues) {
+            sketches.add(doubleOrNaN(values.get("profitLoss")), doubleOrNaN(values.get("returnPercentage")),
+                    doubleOrNaN(values.get("positionSize")), doubleOrNaN(values.get("holdingMinutes")), 1);
+        }
+        stats.setProfitLossSketch(sketches.getProfitLoss().toBuckets());
+        stats.setReturnSketch(sketches.getReturnPercentage().toBuckets());
+        stats.setPositionSizeSketch(sketches.getPositionSize().toBuckets());
+        stats.setHoldingMinutesSketch(sketches.getHoldingMinutes().toBuckets());
+    }
+
+    private static double doubleOrNaN(Object value) {
+        return value instanceof Number number ? number.doubleValue() : Double.NaN;
+    }
+
+    private static void incrementBuckets(Update update, String field, Map<String, Long> buckets) {
+        if (buckets != null) {
+            buckets.forEach((bucket, count) -> update.inc(field + "." + bucket, count));
+        }
+    }
+
+    private static Decimal128 decimal(BigDecimal value) {
+        return value != null ? new Decimal128(value.round(MathContext.DECIMAL128)) : ZERO;
+    }
+
+    private static Document decimalOrZero(String path) {
+        return new Document("$convert", new Document("input", path)
+                .append("to", "decimal")
+                .append("onError", ZERO)
+                .append("onNull", ZERO));
+    }
+
+    private static Document doubleOrNull(String path) {
+        return new Document("$convert", new Document("input", path)
+                .append("to", "double")
+                .append("onError", null)
+                .append("onNull", null));
+    }
+
+    private static Document ifStatus(TradeStatus status) {
+        return new Document("$cond", Arrays.asList(new Document("$eq", Arrays.asList("$status", status.name())), 1, 0));
+    }
+}
@@ -14,10 +14,11 @@ import am.trade.persistence.entity.PortfolioEntity;
 
 /**
  * Repository interface for Portfolio entities
- * Provides CRUD operations and custom queries for portfolios
+ * Provides CRUD operations and custom queries for portfolios.
+ * Atomic, versioned updates come from {@link PortfolioRepositoryCustom}.
  */
 @Repository
-public interface PortfolioRepository extends MongoRepository<PortfolioEntity, String> {
+public interface PortfolioRepository extends MongoRepository<PortfolioEntity, String>, PortfolioRepositoryCustom {
     
     /**
      * Find a portfolio by its business ID
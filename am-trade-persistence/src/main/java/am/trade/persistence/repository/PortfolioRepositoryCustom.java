@@ -0,0 +1,35 @@
+package am.trade.persistence.repository;
+
+import am.trade.common.models.PortfolioMetrics;
+import am.trade.persistence.entity.PortfolioEntity;
+
+/**
+ * Atomic, versioned portfolio updates that Spring Data cannot derive from
+ * method names. Implemented by {@link PortfolioRepositoryImpl}.
+ *
+ * <p>Every update matches on the {@code version} read by the caller and increments it,
+ * so two writers can never overwrite each other: the loser's update matches nothing
+ * and it has to re-read and try again. Updates are expressed with Mongo operators
+ * ({@code $set}, {@code $inc}) instead of rewriting the document, so their cost does
+ * not depend on how many trades the portfolio holds.
+ */
+public interface PortfolioRepositoryCustom {
+
+    /**
+     * Set the metrics in one atomic update.
+     *
+     * @param portfolioId     The business ID of the portfolio
+     * @param expectedVersion Version the caller read, or null for an unversioned document
+     * @param metrics         Metrics to store
+     * @return true if the update was applied, false if the version no longer matches
+     */
+    boolean updateMetrics(String portfolioId, Long expectedVersion, PortfolioMetrics metrics);
+
+    /**
+     * Insert a new portfolio at version 0.
+     *
+     * @param entity The portfolio to insert
+     * @return true if inserted, false if a portfolio with the same ID already exists
+     */
+    boolean insertIfAbsent(PortfolioEntity entity);
+}
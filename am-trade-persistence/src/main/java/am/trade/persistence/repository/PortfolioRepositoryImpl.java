@@ -0,0 +1,58 @@
+package am.trade.persistence.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import am.trade.common.models.PortfolioMetrics;
+import am.trade.persistence.entity.PortfolioEntity;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * MongoTemplate-backed implementation of {@link PortfolioRepositoryCustom}.
+ * Picked up by Spring Data through the {@code Impl} naming convention.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class PortfolioRepositoryImpl implements PortfolioRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public boolean updateMetrics(String portfolioId, Long expectedVersion, PortfolioMetrics metrics) {
+        Update update = new Update()
+                .set("metrics", metrics)
+                .set("lastUpdatedDate", LocalDateTime.now());
+        // Unversioned documents may hold an explicit null, which $inc rejects, so they start at 1
+        if (expectedVersion == null) {
+            update.set("version", 1L);
+        } else {
+            update.inc("version", 1L);
+        }
+
+        // is(null) matches documents where the field is missing as well as explicitly null
+        Query query = new Query(Criteria.where("_id").is(portfolioId).and("version").is(expectedVersion));
+        boolean applied = mongoTemplate.updateFirst(query, update, PortfolioEntity.class).getMatchedCount() == 1;
+        if (!applied) {
+            log.debug("Version conflict updating portfolio {} at version {}", portfolioId, expectedVersion);
+        }
+        return applied;
+    }
+
+    @Override
+    public boolean insertIfAbsent(PortfolioEntity entity) {
+        entity.setVersion(0L);
+        try {
+            mongoTemplate.insert(entity);
+            return true;
+        } catch (DuplicateKeyException e) {
+            log.debug("Portfolio {} was created concurrently", entity.getPortfolioId());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package am.trade.persistence.repository;
+
+import am.trade.persistence.entity.PortfolioVersion;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data MongoDB repository for portfolio version counters.
+ *
+ * <p>Counters are looked up by portfolio ID, the document ID, so no further index is needed.
+ * Incrementing and batched reads live in {@link PortfolioVersionRepositoryCustom}.
+ */
+@Repository
+public interface PortfolioVersionRepository extends MongoRepository<PortfolioVersion, String>,
+        PortfolioVersionRepositoryCustom {
+}
@@ -0,0 +1,26 @@
+package am.trade.persistence.repository;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Batched version counter operations that Spring Data cannot derive from method names.
+ * Implemented by {@link PortfolioVersionRepositoryImpl}.
+ */
+public interface PortfolioVersionRepositoryCustom {
+
+    /**
+     * Increment the version of every portfolio with one unordered bulk upsert.
+     *
+     * @param portfolioIds Portfolios whose trades were written
+     */
+    void incrementAll(Collection<String> portfolioIds);
+
+    /**
+     * Read the current versions of the portfolios with one {@code $in} query on {@code _id}.
+     *
+     * @param portfolioIds Portfolio IDs
+     * @return Version per portfolio; portfolios never written are at 0
+     */
+    Map<String, Long> findVersions(Collection<String> portfolioIds);
+}
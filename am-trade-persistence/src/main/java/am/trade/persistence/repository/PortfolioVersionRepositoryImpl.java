@@ -0,0 +1,52 @@
+package am.trade.persistence.repository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import am.trade.persistence.entity.PortfolioVersion;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * MongoTemplate-backed implementation of {@link PortfolioVersionRepositoryCustom}.
+ * Picked up by Spring Data through the {@code Impl} naming convention.
+ */
+@RequiredArgsConstructor
+public class PortfolioVersionRepositoryImpl implements PortfolioVersionRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void incrementAll(Collection<String> portfolioIds) {
+        if (portfolioIds == null || portfolioIds.isEmpty()) {
+            return;
+        }
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, PortfolioVersion.class);
+        for (String portfolioId : portfolioIds) {
+            bulkOps.upsert(new Query(Criteria.where("_id").is(portfolioId)), new Update().inc("version", 1L));
+        }
+        bulkOps.execute();
+    }
+
+    @Override
+    public Map<String, Long> findVersions(Collection<String> portfolioIds) {
+        Map<String, Long> versions = new HashMap<>();
+        if (portfolioIds == null || portfolioIds.isEmpty()) {
+            return versions;
+        }
+        for (String portfolioId : portfolioIds) {
+            versions.put(portfolioId, 0L);
+        }
+        for (PortfolioVersion version : mongoTemplate.find(new Query(Criteria.where("_id").in(portfolioIds)),
+                PortfolioVersion.class)) {
+            versions.put(version.getPortfolioId(), version.getVersion());
+        }
+        return versions;
+    }
+}
@@ -14,9 +14,12 @@ import org.springframework.stereotype.Repository;
  * The {@code @Id} field ({@code messageId}) is MongoDB's primary key, which is
  * natively indexed. So {@code existsById()} is an O(1) index lookup — extremely
  * fast, even at millions of records.
+ *
+ * <p>Batched lookups and bulk inserts live in {@link ProcessedKafkaMessageRepositoryCustom}.
  */
 @Repository
-public interface ProcessedKafkaMessageRepository extends MongoRepository<ProcessedKafkaMessage, String> {
+public interface ProcessedKafkaMessageRepository extends MongoRepository<ProcessedKafkaMessage, String>,
+        ProcessedKafkaMessageRepositoryCustom {
     // existsById(String id)  — inherited, checks if messageId exists
     // save(ProcessedKafkaMessage entity) — inherited, inserts/updates a document
 }
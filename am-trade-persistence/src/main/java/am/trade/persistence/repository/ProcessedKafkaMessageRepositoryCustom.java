@@ -0,0 +1,43 @@
+package am.trade.persistence.repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import am.trade.persistence.entity.ProcessedKafkaMessage;
+
+/**
+ * Batched operations for idempotency tracking that Spring Data cannot derive
+ * from method names. Implemented by {@link ProcessedKafkaMessageRepositoryImpl}.
+ */
+public interface ProcessedKafkaMessageRepositoryCustom {
+
+    /**
+     * Find which of the given message IDs have already been processed, with one {@code $in} query.
+     *
+     * @param messageIds Message IDs to check
+     * @return The subset of IDs that exist in the collection
+     */
+    Set<String> findExistingIds(Collection<String> messageIds);
+
+    /**
+     * Insert processed-message records with one unordered bulk write.
+     * Records whose ID already exists are skipped instead of failing the whole write.
+     *
+     * @param records Records to insert
+     * @return Number of records actually inserted
+     */
+    int insertAllIgnoringDuplicates(List<ProcessedKafkaMessage> records);
+
+    /**
+     * Stream the IDs of every message processed at or after {@code since},
+     * reading only the {@code _id} field.
+     *
+     * @param since    Lower bound on {@code processedAt}, or null for all records
+     * @param consumer Callback invoked once per message ID
+     * @return Number of IDs visited
+     */
+    long forEachMessageIdSince(Instant since, Consumer<String> consumer);
+}
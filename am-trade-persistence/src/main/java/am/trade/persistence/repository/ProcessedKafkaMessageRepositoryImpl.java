@@ -0,0 +1,81 @@
+package am.trade.persistence.repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import am.trade.persistence.entity.ProcessedKafkaMessage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * MongoTemplate-backed implementation of {@link ProcessedKafkaMessageRepositoryCustom}.
+ * Picked up by Spring Data through the {@code Impl} naming convention.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ProcessedKafkaMessageRepositoryImpl implements ProcessedKafkaMessageRepositoryCustom {
+
+    private static final int DUPLICATE_KEY_ERROR = 11000;
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public Set<String> findExistingIds(Collection<String> messageIds) {
+        if (messageIds == null || messageIds.isEmpty()) {
+            return Set.of();
+        }
+        Query query = new Query(Criteria.where("_id").in(messageIds));
+        query.fields().include("_id");
+        return mongoTemplate.find(query, ProcessedKafkaMessage.class).stream()
+                .map(ProcessedKafkaMessage::getMessageId)
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public int insertAllIgnoringDuplicates(List<ProcessedKafkaMessage> records) {
+        if (records == null || records.isEmpty()) {
+            return 0;
+        }
+        try {
+            return mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ProcessedKafkaMessage.class)
+                    .insert(records)
+                    .execute()
+                    .getInsertedCount();
+        } catch (BulkOperationException e) {
+            boolean onlyDuplicates = e.getErrors().stream().allMatch(error -> error.getCode() == DUPLICATE_KEY_ERROR);
+            if (!onlyDuplicates) {
+                throw e;
+            }
+            // Unordered: every non-duplicate record was still inserted
+            log.warn("Skipped {} already processed message IDs during bulk insert", e.getErrors().size());
+            return e.getResult().getInsertedCount();
+        }
+    }
+
+    @Override
+    public long forEachMessageIdSince(Instant since, Consumer<String> consumer) {
+        Query query = since != null
+                ? new Query(Criteria.where("processedAt").gte(since))
+                : new Query();
+        query.fields().include("_id");
+        long count = 0;
+        try (Stream<ProcessedKafkaMessage> stream = mongoTemplate.stream(query, ProcessedKafkaMessage.class)) {
+            for (ProcessedKafkaMessage message : (Iterable<ProcessedKafkaMessage>) stream::iterator) {
+                consumer.accept(message.getMessageId());
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -12,12 +12,14 @@ import org.springframework.stereotype.Repository;
 
 import am.trade.common.models.enums.TradeStatus;
 import am.trade.persistence.entity.TradeDetailsEntity;
+import am.trade.persistence.projection.TradeMetricsView;
 
 /**
- * Repository interface for Trade document
+ * Repository interface for Trade document.
+ * Bulk writes come from {@link TradeDetailsRepositoryCustom}.
  */
 @Repository
-public interface TradeDetailsRepository extends MongoRepository<TradeDetailsEntity, String> {
+public interface TradeDetailsRepository extends MongoRepository<TradeDetailsEntity, String>, TradeDetailsRepositoryCustom {
 
     Optional<TradeDetailsEntity> findById(String id);
     
@@ -75,9 +77,41 @@ public interface TradeDetailsRepository extends MongoRepository<TradeDetailsEnti
     @Query("{'portfolioId': ?0, 'entryInfo.timestamp': {$gte: ?1, $lte: ?2}}")
     Page<TradeDetailsEntity> findByPortfolioIdAndTradeDateBetween(String portfolioId, LocalDateTime startDate, LocalDateTime endDate, Pageable pageable);
     
+    /**
+     * Find the trades of a portfolio entered within a time range.
+     * Served by the {@code idx_portfolio_entry_time_trade} compound index as a single range scan.
+     */
+    @Query("{'portfolioId': ?0, 'entryInfo.timestamp': {$gte: ?1, $lte: ?2}}")
+    List<TradeDetailsEntity> findByPortfolioIdAndEntryInfoTimestampBetween(String portfolioId, LocalDateTime startDate, LocalDateTime endDate);
+    
+    /**
+     * Metrics projection of the trades of several portfolios entered within a time range.
+     *
+     * @see TradeMetricsView
+     */
+    @Query(value = "{'portfolioId': {$in: ?0}, 'entryInfo.timestamp': {$gte: ?1, $lte: ?2}}", fields = TradeMetricsView.FIELDS)
+    List<TradeMetricsView> findMetricsViewByPortfolioIdInAndEntryInfoTimestampBetween(List<String> portfolioIds, LocalDateTime startDate, LocalDateTime endDate);
+    
     @Query("{'tradeId': {$in: ?0}}")
     List<TradeDetailsEntity> findByTradeIdIn(List<String> tradeIds);
     
+    /**
+     * Fields the daily rollup is built from, its sketches included: a field left out here reads
+     * back as missing, so the previous value is never taken out of its buckets
+     */
+    String ROLLUP_FIELDS = "{'tradeId': 1, 'portfolioId': 1, 'status': 1, "
+            + "'entryInfo.timestamp': 1, 'entryInfo.price': 1, 'entryInfo.quantity': 1, "
+            + "'entryInfo.fees': 1, 'entryInfo.totalValue': 1, "
+            + "'exitInfo.timestamp': 1, 'exitInfo.fees': 1, 'exitInfo.totalValue': 1, "
+            + "'metrics.profitLoss': 1, 'metrics.profitLossPercentage': 1}";
+    
+    /**
+     * Only the fields the daily rollup is built from, read before the trades are overwritten
+     * so that their previous contribution can be taken out of it
+     */
+    @Query(value = "{'tradeId': {$in: ?0}}", fields = ROLLUP_FIELDS)
+    List<TradeDetailsEntity> findRollupFieldsByTradeIdIn(List<String> tradeIds);
+    
     /**
      * Find all trade details belonging to a specific user
      * 
@@ -0,0 +1,98 @@
+package am.trade.persistence.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import com.mongodb.bulk.BulkWriteError;
+
+import am.trade.common.models.MetricsFilterConfig;
+import am.trade.common.models.ProfitLossHeatmapData.GranularityType;
+import am.trade.persistence.entity.TradeDetailsEntity;
+import am.trade.persistence.projection.ProfitLossPeriodStats;
+import am.trade.persistence.query.TradeCursor;
+
+/**
+ * Bulk writes, filter queries and aggregations for trade details that Spring Data cannot derive
+ * from method names. Implemented by {@link TradeDetailsRepositoryImpl}.
+ */
+public interface TradeDetailsRepositoryCustom {
+
+    /**
+     * Upsert trade details keyed on the unique {@code tradeId}, using one unordered
+     * bulk write per chunk instead of a lookup and a save per document.
+     *
+     * <p>Existing documents get a {@code $set} of the fields the entity maps to, so fields
+     * left null keep their stored value, and keep their {@code _id}; new ones are inserted.
+     * Entities without a {@code tradeId} are plain inserts and are given a generated
+     * {@code id} first. Because the writes are unordered, a failing document does not stop
+     * the rest of its chunk. Read the documents back to see what was stored.
+     *
+     * @param entities Entities to write
+     * @return One error per document that was not written, with {@code index} pointing
+     *         into {@code entities}; empty if everything was written
+     */
+    List<BulkWriteError> upsertAllByTradeId(List<TradeDetailsEntity> entities);
+
+    /**
+     * Find a page of a user's trades matching a filter config, filtered, sorted and
+     * limited by the database.
+     *
+     * @param userId   Owner of the trades
+     * @param config   Filter config; its portfolio IDs must not be empty
+     * @param pageable Page to return; its sort uses client property names and must satisfy
+     *                 {@link am.trade.persistence.query.TradeFilterQuery#supportsSort}
+     */
+    Page<TradeDetailsEntity> findByFilter(String userId, MetricsFilterConfig config, Pageable pageable);
+
+    /**
+     * Find every trade of a user matching a filter config, in no particular order.
+     *
+     * @param userId Owner of the trades
+     * @param config Filter config; its portfolio IDs must not be empty
+     */
+    List<TradeDetailsEntity> findAllByFilter(String userId, MetricsFilterConfig config);
+
+    /**
+     * Find the next keyset page of a user's trades matching a filter config, newest entry
+     * first. Ask for one more than the page size to learn whether another page follows.
+     *
+     * @param userId Owner of the trades
+     * @param config Filter config; its portfolio IDs must not be empty
+     * @param after  Last trade of the previous page, or null for the first page
+     * @param limit  Maximum number of trades to return
+     */
+    List<TradeDetailsEntity> findByFilterAfter(String userId, MetricsFilterConfig config, TradeCursor after, int limit);
+
+    /**
+     * Find the next keyset page of a user's trades in a portfolio, newest entry first. Ask
+     * for one more than the page size to learn whether another page follows.
+     *
+     * @param userId      Owner of the trades
+     * @param portfolioId Portfolio of the trades
+     * @param after       Last trade of the previous page, or null for the first page
+     * @param limit       Maximum number of trades to return
+     */
+    List<TradeDetailsEntity> findByUserIdAndPortfolioIdAfter(String userId, String portfolioId, TradeCursor after, int limit);
+
+    /**
+     * Group a portfolio's trades by the IST year, month or day of their entry time and total
+     * their profit/loss in the database, so no trade document is sent to the application.
+     * Trades without an entry time are left out.
+     *
+     * @param portfolioId Portfolio of the trades
+     * @param granularity Length of the periods
+     * @param from        Earliest entry time, inclusive, or null for no lower bound
+     * @param to          Latest entry time, exclusive, or null for no upper bound
+     * @return One row per period with at least one trade, in no particular order
+     */
+    List<ProfitLossPeriodStats> aggregateProfitLossByPeriod(String portfolioId, GranularityType granularity,
+                                                            LocalDateTime from, LocalDateTime to);
+
+    /**
+     * IDs of every portfolio that has trades, read from the {@code portfolioId} index.
+     */
+    List<String> findDistinctPortfolioIds();
+}
@@ -0,0 +1,209 @@
+package am.trade.persistence.repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import com.mongodb.bulk.BulkWriteError;
+
+import am.trade.common.models.MetricsFilterConfig;
+import am.trade.common.models.ProfitLossHeatmapData.GranularityType;
+import am.trade.common.models.enums.TradeStatus;
+import am.trade.persistence.config.MongoDateTimeConfig;
+import am.trade.persistence.entity.TradeDetailsEntity;
+import am.trade.persistence.projection.ProfitLossPeriodStats;
+import am.trade.persistence.query.TradeCursor;
+import am.trade.persistence.query.TradeFilterQuery;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * MongoTemplate-backed implementation of {@link TradeDetailsRepositoryCustom}.
+ * Picked up by Spring Data through the {@code Impl} naming convention.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class TradeDetailsRepositoryImpl implements TradeDetailsRepositoryCustom {
+
+    /** Keeps each bulk command well below the 16MB message limit, even with large trade executions. */
+    private static final int BULK_CHUNK_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public List<BulkWriteError> upsertAllByTradeId(List<TradeDetailsEntity> entities) {
+        List<BulkWriteError> failures = new ArrayList<>();
+        if (entities == null || entities.isEmpty()) {
+            return failures;
+        }
+
+        for (int offset = 0; offset < entities.size(); offset += BULK_CHUNK_SIZE) {
+            List<TradeDetailsEntity> chunk = entities.subList(offset, Math.min(offset + BULK_CHUNK_SIZE, entities.size()));
+            BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TradeDetailsEntity.class);
+            for (TradeDetailsEntity entity : chunk) {
+                if (entity.getTradeId() == null) {
+                    if (entity.getId() == null) {
+                        entity.setId(new ObjectId().toHexString());
+                    }
+                    bulkOps.insert(entity);
+                } else {
+                    bulkOps.upsert(new Query(Criteria.where("tradeId").is(entity.getTradeId())), setFields(entity));
+                }
+            }
+
+            try {
+                bulkOps.execute();
+            } catch (BulkOperationException e) {
+                // Unordered: every other document of the chunk was still written
+                for (BulkWriteError error : e.getErrors()) {
+                    failures.add(new BulkWriteError(error.getCode(), error.getMessage(), error.getDetails(),
+                            offset + error.getIndex()));
+                }
+            }
+        }
+
+        if (!failures.isEmpty()) {
+            log.warn("Bulk upsert wrote {} of {} trade details", entities.size() - failures.size(), entities.size());
+        }
+        return failures;
+    }
+
+    /**
+     * {@code $set} of every field the entity maps to, so fields it leaves null keep their stored
+     * value. Its {@code _id} is only used when the upsert inserts.
+     */
+    private Update setFields(TradeDetailsEntity entity) {
+        Document document = new Document();
+        mongoTemplate.getConverter().write(entity, document);
+        Object id = document.remove("_id");
+        Update update = new Update();
+        document.forEach(update::set);
+        if (id != null) {
+            update.setOnInsert("_id", id);
+        }
+        return update;
+    }
+
+    @Override
+    public Page<TradeDetailsEntity> findByFilter(String userId, MetricsFilterConfig config, Pageable pageable) {
+        Criteria criteria = TradeFilterQuery.criteria(userId, config);
+        Query query = new Query(criteria).with(PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(),
+                TradeFilterQuery.toDocumentSort(pageable.getSort())));
+        List<TradeDetailsEntity> content = mongoTemplate.find(query, TradeDetailsEntity.class);
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> mongoTemplate.count(new Query(criteria), TradeDetailsEntity.class));
+    }
+
+    @Override
+    public List<TradeDetailsEntity> findAllByFilter(String userId, MetricsFilterConfig config) {
+        return mongoTemplate.find(new Query(TradeFilterQuery.criteria(userId, config)), TradeDetailsEntity.class);
+    }
+
+    @Override
+    public List<TradeDetailsEntity> findByFilterAfter(String userId, MetricsFilterConfig config, TradeCursor after, int limit) {
+        return findAfter(TradeFilterQuery.criteria(userId, config), after, limit);
+    }
+
+    @Override
+    public List<TradeDetailsEntity> findByUserIdAndPortfolioIdAfter(String userId, String portfolioId, TradeCursor after, int limit) {
+        return findAfter(Criteria.where("userId").is(userId).and("portfolioId").is(portfolioId), after, limit);
+    }
+
+    @Override
+    public List<ProfitLossPeriodStats> aggregateProfitLossByPeriod(String portfolioId, GranularityType granularity,
+                                                                   LocalDateTime from, LocalDateTime to) {
+        Criteria criteria = Criteria.where("portfolioId").is(portfolioId).and("entryInfo.timestamp").ne(null);
+        if (from != null) {
+            criteria.gte(from);
+        }
+        if (to != null) {
+            criteria.lt(to);
+        }
+
+        // Stored dates are IST wall-clock times, so periods are cut in IST as well
+        Document periodId = new Document("$dateToString", new Document("format", periodFormat(granularity))
+                .append("date", "$entryInfo.timestamp")
+                .append("timezone", MongoDateTimeConfig.IST_ZONE.getId()));
+        // BigDecimal may be stored as a string or a decimal; anything else counts as no profit/loss
+        Document profitLoss = new Document("$convert", new Document("input", "$metrics.profitLoss")
+                .append("to", "decimal")
+                .append("onError", null)
+                .append("onNull", null));
+        AggregationOperation project = context -> new Document("$project", new Document("periodId", periodId)
+                .append("status", 1)
+                .append("profitLoss", profitLoss));
+        AggregationOperation group = context -> new Document("$group", new Document("_id", "$periodId")
+                .append("profitLoss", new Document("$sum", "$profitLoss"))
+                .append("winCount", new Document("$sum", ifStatus(TradeStatus.WIN, 1, 0)))
+                .append("lossCount", new Document("$sum", ifStatus(TradeStatus.LOSS, 1, 0)))
+                .append("winProfitLoss", new Document("$sum", ifStatus(TradeStatus.WIN, "$profitLoss", null)))
+                .append("lossProfitLoss", new Document("$sum", ifStatus(TradeStatus.LOSS, "$profitLoss", null)))
+                .append("maxWinAmount", new Document("$max",
+                        ifStatus(TradeStatus.WIN, new Document("$abs", "$profitLoss"), null)))
+                .append("maxLossAmount", new Document("$max",
+                        ifStatus(TradeStatus.LOSS, new Document("$abs", "$profitLoss"), null))));
+
+        return mongoTemplate.aggregate(Aggregation.newAggregation(Aggregation.match(criteria), project, group),
+                TradeDetailsEntity.class, ProfitLossPeriodStats.class).getMappedResults();
+    }
+
+    @Override
+    public List<String> findDistinctPortfolioIds() {
+        List<String> portfolioIds = new ArrayList<>(
+                mongoTemplate.findDistinct(new Query(), "portfolioId", TradeDetailsEntity.class, String.class));
+        portfolioIds.removeIf(portfolioId -> portfolioId == null);
+        return portfolioIds;
+    }
+
+    private static String periodFormat(GranularityType granularity) {
+        return switch (granularity) {
+            case YEARLY -> "%Y";
+            case MONTHLY -> "%Y-%m";
+            case DAILY -> "%Y-%m-%d";
+        };
+    }
+
+    private static Document ifStatus(TradeStatus status, Object then, Object otherwise) {
+        return new Document("$cond", Arrays.asList(new Document("$eq", Arrays.asList("$status", status.name())),
+                then, otherwise));
+    }
+
+    /**
+     * Seek past {@code after} in {@link TradeCursor#SORT} order. Trades without an entry time
+     * sort last but fall outside any entry time range, so once the dated trades run out the
+     * page is filled from them with a second query.
+     */
+    private List<TradeDetailsEntity> findAfter(Criteria criteria, TradeCursor after, int limit) {
+        if (after == null) {
+            return mongoTemplate.find(new Query(criteria).with(TradeCursor.SORT).limit(limit), TradeDetailsEntity.class);
+        }
+
+        List<TradeDetailsEntity> trades = new ArrayList<>(limit);
+        Criteria withEntryTime = after.afterWithEntryTime();
+        if (withEntryTime != null) {
+            trades.addAll(mongoTemplate.find(new Query(new Criteria().andOperator(criteria, withEntryTime))
+                    .with(TradeCursor.SORT).limit(limit), TradeDetailsEntity.class));
+        }
+        if (trades.size() < limit) {
+            trades.addAll(mongoTemplate.find(new Query(new Criteria().andOperator(criteria, after.afterWithoutEntryTime()))
+                    .with(TradeCursor.SORT).limit(limit - trades.size()), TradeDetailsEntity.class));
+        }
+        return trades;
+    }
+}
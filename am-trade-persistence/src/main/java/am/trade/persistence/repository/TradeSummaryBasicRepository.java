@@ -17,7 +17,8 @@ import am.trade.common.models.TradeSummaryBasic;
  * Handles the storage and retrieval of basic trade summary information
  */
 @Repository
-public interface TradeSummaryBasicRepository extends MongoRepository<TradeSummaryBasic, String> {
+public interface TradeSummaryBasicRepository extends MongoRepository<TradeSummaryBasic, String>,
+        TradeSummaryBasicRepositoryCustom {
     
     Optional<TradeSummaryBasic> findById(String id);
     
@@ -38,6 +39,12 @@ public interface TradeSummaryBasicRepository extends MongoRepository<TradeSummar
     @Query("{'active': true}")
     List<TradeSummaryBasic> findAllActive();
     
+    /**
+     * Find active summaries whose metrics are behind their trades
+     */
+    @Query("{'active': true, 'metricsDirtySince': {$ne: null}}")
+    List<TradeSummaryBasic> findAllActiveMetricsDirty();
+
     @Query("{'active': true, 'owner_id': ?0}")
     List<TradeSummaryBasic> findAllActiveByOwnerId(String ownerId);
 }
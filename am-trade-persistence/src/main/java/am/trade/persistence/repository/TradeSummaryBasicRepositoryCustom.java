@@ -0,0 +1,43 @@
+package am.trade.persistence.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Metrics staleness tracking for basic trade summaries that Spring Data cannot derive
+ * from method names. Implemented by {@link TradeSummaryBasicRepositoryImpl}.
+ */
+public interface TradeSummaryBasicRepositoryCustom {
+
+    /**
+     * Mark the metrics of every summary containing one of the portfolios as dirty, with one
+     * multi-document update. Summaries that are already dirty keep their earlier timestamp;
+     * the last-written time of every matching summary moves forward to {@code writtenAt}.
+     *
+     * @param portfolioIds Portfolios whose trades were written
+     * @param writtenAt    Time of the write
+     * @return Number of summaries newly marked dirty
+     */
+    long markMetricsDirty(Collection<String> portfolioIds, LocalDateTime writtenAt);
+
+    /**
+     * Clear the dirty mark of a summary whose metrics were calculated from data read at
+     * {@code calculatedFrom}. The mark is kept if any trade was written after that time, even
+     * when the summary was already dirty before the calculation, so the write is picked up by
+     * the next recalculation.
+     *
+     * @param summaryId      Basic summary ID
+     * @param calculatedFrom Time the calculation started reading trades
+     * @return true if the mark was cleared
+     */
+    boolean clearMetricsDirty(String summaryId, LocalDateTime calculatedFrom);
+
+    /**
+     * Find the IDs of the summaries containing any of the portfolios, reading only {@code _id}.
+     *
+     * @param portfolioIds Portfolio IDs
+     * @return IDs of the matching summaries
+     */
+    List<String> findIdsByPortfolioIds(Collection<String> portfolioIds);
+}
@@ -0,0 +1,64 @@
+package am.trade.persistence.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import am.trade.common.models.TradeSummaryBasic;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * MongoTemplate-backed implementation of {@link TradeSummaryBasicRepositoryCustom}.
+ * Picked up by Spring Data through the {@code Impl} naming convention.
+ */
+@RequiredArgsConstructor
+public class TradeSummaryBasicRepositoryImpl implements TradeSummaryBasicRepositoryCustom {
+
+    private static final String METRICS_DIRTY_SINCE = "metricsDirtySince";
+    private static final String TRADES_LAST_WRITTEN_AT = "tradesLastWrittenAt";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public long markMetricsDirty(Collection<String> portfolioIds, LocalDateTime writtenAt) {
+        if (portfolioIds == null || portfolioIds.isEmpty()) {
+            return 0;
+        }
+        // Every write moves the last-written time forward, also on summaries that are already dirty,
+        // and before the mark is set, so a concurrent clear either sees it or is followed by the mark
+        mongoTemplate.updateMulti(new Query(Criteria.where("portfolioIds").in(portfolioIds)),
+                new Update().max(TRADES_LAST_WRITTEN_AT, writtenAt), TradeSummaryBasic.class);
+        Query query = new Query(Criteria.where("portfolioIds").in(portfolioIds)
+                .and(METRICS_DIRTY_SINCE).is(null));
+        return mongoTemplate.updateMulti(query, new Update().set(METRICS_DIRTY_SINCE, writtenAt),
+                TradeSummaryBasic.class).getModifiedCount();
+    }
+
+    @Override
+    public boolean clearMetricsDirty(String summaryId, LocalDateTime calculatedFrom) {
+        // Summaries marked before the last-written time was kept are judged by their mark alone
+        Query query = new Query(Criteria.where("_id").is(summaryId).orOperator(
+                Criteria.where(TRADES_LAST_WRITTEN_AT).lte(calculatedFrom),
+                Criteria.where(TRADES_LAST_WRITTEN_AT).is(null).and(METRICS_DIRTY_SINCE).lte(calculatedFrom)));
+        return mongoTemplate.updateFirst(query, new Update().unset(METRICS_DIRTY_SINCE),
+                TradeSummaryBasic.class).getModifiedCount() > 0;
+    }
+
+    @Override
+    public List<String> findIdsByPortfolioIds(Collection<String> portfolioIds) {
+        if (portfolioIds == null || portfolioIds.isEmpty()) {
+            return List.of();
+        }
+        Query query = new Query(Criteria.where("portfolioIds").in(portfolioIds));
+        query.fields().include("_id");
+        return mongoTemplate.find(query, TradeSummaryBasic.class).stream()
+                .map(TradeSummaryBasic::getId)
+                .collect(Collectors.toList());
+    }
+}
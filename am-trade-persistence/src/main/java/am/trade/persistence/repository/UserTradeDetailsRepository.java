@@ -0,0 +1,56 @@
+package am.trade.persistence.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.repository.Repository;
+
+import am.trade.persistence.entity.TradeDetailsEntity;
+
+/**
+ * Owner-scoped, read-only finders for trade details.
+ *
+ * <p>Every query takes the owning user ID as its leading predicate, so callers acting for a
+ * user never load other users' trades and then drop them, and pages and counts only cover
+ * that user's trades. The {@code userId}-prefixed indexes of
+ * {@link am.trade.persistence.index.IndexCatalogue} serve these queries; lookups by trade
+ * ID use the unique {@code tradeId} index. Writes go through {@link TradeDetailsRepository}.
+ */
+@org.springframework.stereotype.Repository
+public interface UserTradeDetailsRepository extends Repository<TradeDetailsEntity, String> {
+
+    @Query("{'userId': ?0, 'tradeId': {$in: ?1}}")
+    List<TradeDetailsEntity> findByUserIdAndTradeIdIn(String userId, List<String> tradeIds);
+
+    @Query("{'userId': ?0, 'portfolioId': ?1}")
+    List<TradeDetailsEntity> findByUserIdAndPortfolioId(String userId, String portfolioId);
+
+    @Query("{'userId': ?0, 'portfolioId': ?1}")
+    Page<TradeDetailsEntity> findByUserIdAndPortfolioId(String userId, String portfolioId, Pageable pageable);
+
+    @Query("{'userId': ?0, 'portfolioId': ?1, 'symbol': {$in: ?2}}")
+    List<TradeDetailsEntity> findByUserIdAndPortfolioIdAndSymbolIn(String userId, String portfolioId, List<String> symbols);
+
+    @Query("{'userId': ?0, 'entryInfo.timestamp': {$gte: ?1, $lte: ?2}}")
+    List<TradeDetailsEntity> findByUserIdAndEntryInfoTimestampBetween(String userId, LocalDateTime startDate, LocalDateTime endDate);
+
+    @Query("{'userId': ?0, 'symbol': ?1}")
+    List<TradeDetailsEntity> findByUserIdAndSymbol(String userId, String symbol);
+
+    @Query("{'userId': ?0, 'symbol': ?1, 'entryInfo.timestamp': {$gte: ?2, $lte: ?3}}")
+    List<TradeDetailsEntity> findByUserIdAndSymbolAndEntryInfoTimestampBetween(String userId, String symbol,
+            LocalDateTime startDate, LocalDateTime endDate);
+
+    /**
+     * Find a user's trades by the strategy recorded in their entry reasoning
+     */
+    @Query("{'userId': ?0, 'entryReasoning.streategy': ?1}")
+    List<TradeDetailsEntity> findByUserIdAndEntryStrategy(String userId, String strategy);
+
+    @Query("{'userId': ?0, 'entryReasoning.streategy': ?1, 'entryInfo.timestamp': {$gte: ?2, $lte: ?3}}")
+    List<TradeDetailsEntity> findByUserIdAndEntryStrategyAndEntryInfoTimestampBetween(String userId, String strategy,
+            LocalDateTime startDate, LocalDateTime endDate);
+}
@@ -0,0 +1,81 @@
+package am.trade.persistence.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+
+import am.trade.persistence.entity.TradeDetailsEntity;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+
+/**
+ * Applies the catalogue to an embedded MongoDB that still has retired indexes. Skipped when
+ * the embedded MongoDB binary cannot be downloaded or started.
+ */
+class IndexManagerTest {
+
+    private static TransitionWalker.ReachedState<RunningMongodProcess> mongod;
+    private static MongoClient mongoClient;
+    private static MongoTemplate mongoTemplate;
+
+    @BeforeAll
+    static void startMongo() {
+        try {
+            mongod = Mongod.instance().start(Version.Main.V7_0);
+        } catch (RuntimeException e) {
+            Assumptions.abort("Embedded MongoDB is not available: " + e.getMessage());
+        }
+        mongoClient = MongoClients.create("mongodb://" + mongod.current().getServerAddress().getHost() + ":"
+                + mongod.current().getServerAddress().getPort());
+        mongoTemplate = new MongoTemplate(mongoClient, "index_manager");
+    }
+
+    @AfterAll
+    static void stopMongo() {
+        if (mongoClient != null) {
+            mongoClient.close();
+        }
+        if (mongod != null) {
+            mongod.close();
+        }
+    }
+
+    @Test
+    void ensureAll_shouldDropRetiredIndexesOnceReplaced() {
+        mongoTemplate.indexOps(TradeDetailsEntity.class).ensureIndex(new Index().named("idx_portfolio_entry_time")
+                .on("portfolioId", Direction.ASC).on("entryInfo.timestamp", Direction.ASC));
+        IndexManager indexManager = new IndexManager(mongoTemplate);
+
+        assertTrue(indexManager.report().stream().anyMatch(status -> status.getState() == IndexManager.State.RETIRED
+                && status.getName().equals("idx_portfolio_entry_time")));
+
+        List<IndexManager.IndexStatus> statuses = indexManager.ensureAll();
+
+        assertTrue(statuses.stream().anyMatch(status -> status.getState() == IndexManager.State.DROPPED
+                && status.getName().equals("idx_portfolio_entry_time")));
+        List<String> names = mongoTemplate.indexOps(TradeDetailsEntity.class).getIndexInfo().stream()
+                .map(IndexInfo::getName).toList();
+        assertTrue(names.contains("idx_portfolio_entry_time_trade"));
+        assertFalse(names.contains("idx_portfolio_entry_time"));
+
+        // Nothing left to drop on the next run
+        assertEquals(0, indexManager.ensureAll().stream()
+                .filter(status -> status.getState() == IndexManager.State.DROPPED).count());
+    }
+}
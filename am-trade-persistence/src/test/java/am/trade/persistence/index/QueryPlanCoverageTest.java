@@ -0,0 +1,252 @@
+package am.trade.persistence.index;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+
+import am.trade.common.models.MetricsFilterConfig;
+import am.trade.common.models.ProfitLossHeatmapData.GranularityType;
+import am.trade.persistence.query.TradeCursor;
+import am.trade.persistence.repository.NotebookItemRepository;
+import am.trade.persistence.repository.PortfolioDailyStatsRepository;
+import am.trade.persistence.repository.PortfolioDailyStatsRepositoryImpl;
+import am.trade.persistence.repository.TradeDetailsRepository;
+import am.trade.persistence.repository.TradeDetailsRepositoryImpl;
+import am.trade.persistence.repository.TradeJournalRepository;
+import am.trade.persistence.repository.TradeReplayRepository;
+import am.trade.persistence.repository.UserTradeDetailsRepository;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+
+/**
+ * Runs every query method of the indexed repositories against an embedded MongoDB with
+ * the {@link IndexCatalogue} applied, and fails if the winning plan of any command it
+ * sends scans the whole collection or sorts in memory.
+ *
+ * <p>Commands are captured from the driver, so derived queries, {@code @Query} methods
+ * and the count that backs a {@code Page} are all covered. The test is skipped when the
+ * embedded MongoDB binary cannot be downloaded or started.
+ */
+class QueryPlanCoverageTest {
+
+    private static final Set<String> QUERY_COMMANDS = Set.of("find", "aggregate", "count", "distinct");
+    private static final Set<String> REJECTED_STAGES = Set.of("COLLSCAN", "SORT");
+
+    private static TransitionWalker.ReachedState<RunningMongodProcess> mongod;
+    private static MongoClient mongoClient;
+    private static MongoTemplate mongoTemplate;
+    private static final List<BsonDocument> capturedCommands = new CopyOnWriteArrayList<>();
+
+    @BeforeAll
+    static void startMongo() {
+        try {
+            mongod = Mongod.instance().start(Version.Main.V7_0);
+        } catch (RuntimeException e) {
+            Assumptions.abort("Embedded MongoDB is not available: " + e.getMessage());
+        }
+
+        CommandListener recorder = new CommandListener() {
+            @Override
+            public void commandStarted(CommandStartedEvent event) {
+                if (QUERY_COMMANDS.contains(event.getCommandName())) {
+                    capturedCommands.add(event.getCommand().clone());
+                }
+            }
+        };
+        mongoClient = MongoClients.create(MongoClientSettings.builder()
+                .applyConnectionString(new ConnectionString("mongodb://" + mongod.current().getServerAddress().getHost()
+                        + ":" + mongod.current().getServerAddress().getPort()))
+                .addCommandListener(recorder)
+                .build());
+        mongoTemplate = new MongoTemplate(mongoClient, "query_plan_coverage");
+
+        // Explaining against a missing collection yields an EOF plan, so create them through their indexes
+        List<IndexManager.IndexStatus> statuses = new IndexManager(mongoTemplate).ensureAll();
+        statuses.forEach(status -> assertTrue(status.getState() != IndexManager.State.FAILED,
+                "Catalogue index " + status.getName() + " failed: " + status.getMessage()));
+    }
+
+    @AfterAll
+    static void stopMongo() {
+        if (mongoClient != null) {
+            mongoClient.close();
+        }
+        if (mongod != null) {
+            mongod.close();
+        }
+    }
+
+    @TestFactory
+    Stream<DynamicTest> everyRepositoryQueryUsesAnIndex() {
+        MongoRepositoryFactory factory = new MongoRepositoryFactory(mongoTemplate);
+        List<DynamicTest> tests = new ArrayList<>();
+        addQueryTests(tests, TradeDetailsRepository.class,
+                factory.getRepository(TradeDetailsRepository.class, new TradeDetailsRepositoryImpl(mongoTemplate)));
+        addQueryTests(tests, UserTradeDetailsRepository.class, factory.getRepository(UserTradeDetailsRepository.class));
+        addQueryTests(tests, TradeJournalRepository.class, factory.getRepository(TradeJournalRepository.class));
+        addQueryTests(tests, NotebookItemRepository.class, factory.getRepository(NotebookItemRepository.class));
+        addQueryTests(tests, TradeReplayRepository.class, factory.getRepository(TradeReplayRepository.class));
+        addQueryTests(tests, PortfolioDailyStatsRepository.class, factory.getRepository(PortfolioDailyStatsRepository.class,
+                new PortfolioDailyStatsRepositoryImpl(mongoTemplate)));
+        return tests.stream();
+    }
+
+    @TestFactory
+    Stream<DynamicTest> keysetPagesSeekIntoAnIndex() {
+        TradeDetailsRepositoryImpl repository = new TradeDetailsRepositoryImpl(mongoTemplate);
+        MetricsFilterConfig config = MetricsFilterConfig.builder().portfolioIds(List.of("sample")).build();
+        TradeCursor dated = new TradeCursor(LocalDateTime.of(2024, 1, 1, 0, 0), "sample");
+        TradeCursor undated = new TradeCursor(null, "sample");
+        return Stream.of(
+                DynamicTest.dynamicTest("findByUserIdAndPortfolioIdAfter(first page)",
+                        () -> assertIndexed("findByUserIdAndPortfolioIdAfter", () -> repository.findByUserIdAndPortfolioIdAfter("sample", "sample", null, 21))),
+                DynamicTest.dynamicTest("findByUserIdAndPortfolioIdAfter(dated cursor)",
+                        () -> assertIndexed("findByUserIdAndPortfolioIdAfter", () -> repository.findByUserIdAndPortfolioIdAfter("sample", "sample", dated, 21))),
+                DynamicTest.dynamicTest("findByUserIdAndPortfolioIdAfter(undated cursor)",
+                        () -> assertIndexed("findByUserIdAndPortfolioIdAfter", () -> repository.findByUserIdAndPortfolioIdAfter("sample", "sample", undated, 21))),
+                DynamicTest.dynamicTest("findByFilterAfter(dated cursor)",
+                        () -> assertIndexed("findByFilterAfter", () -> repository.findByFilterAfter("sample", config, dated, 21))));
+    }
+
+    @TestFactory
+    Stream<DynamicTest> heatmapAggregationsUseAnIndex() {
+        TradeDetailsRepositoryImpl repository = new TradeDetailsRepositoryImpl(mongoTemplate);
+        LocalDateTime from = LocalDateTime.of(2024, 4, 1, 0, 0);
+        return Stream.of(GranularityType.values()).flatMap(granularity -> Stream.of(
+                DynamicTest.dynamicTest("aggregateProfitLossByPeriod(" + granularity + ")",
+                        () -> assertIndexed("aggregateProfitLossByPeriod",
+                                () -> repository.aggregateProfitLossByPeriod("sample", granularity, null, null))),
+                DynamicTest.dynamicTest("aggregateProfitLossByPeriod(" + granularity + ", range)",
+                        () -> assertIndexed("aggregateProfitLossByPeriod",
+                                () -> repository.aggregateProfitLossByPeriod("sample", granularity, from, from.plusYears(1))))));
+    }
+
+    private void addQueryTests(List<DynamicTest> tests, Class<?> repositoryInterface, Object repository) {
+        for (Method method : repositoryInterface.getDeclaredMethods()) {
+            if (method.isDefault() || Modifier.isStatic(method.getModifiers())
+                    || method.getName().startsWith("delete")) {
+                continue;
+            }
+            tests.add(DynamicTest.dynamicTest(repositoryInterface.getSimpleName() + "." + signature(method),
+                    () -> assertIndexed(method, repository)));
+        }
+    }
+
+    private void assertIndexed(Method method, Object repository) throws Exception {
+        assertIndexed(method.getName(), () -> method.invoke(repository, sampleArguments(method)));
+    }
+
+    private void assertIndexed(String name, Callable<?> query) throws Exception {
+        capturedCommands.clear();
+        query.call();
+        assertTrue(!capturedCommands.isEmpty(), "No query was sent by " + name);
+
+        for (BsonDocument command : capturedCommands) {
+            Document explain = mongoTemplate.getDb().runCommand(new Document("explain", explainable(command))
+                    .append("verbosity", "queryPlanner"));
+            List<String> stages = new ArrayList<>();
+            collectWinningStages(explain, false, stages);
+            List<String> rejected = stages.stream().filter(REJECTED_STAGES::contains).toList();
+            assertTrue(rejected.isEmpty(), name + " runs " + rejected + " for " + command.toJson()
+                    + "; add a matching index to IndexCatalogue");
+        }
+    }
+
+    /**
+     * Strip the fields the driver adds to every command, which explain does not accept
+     */
+    private static BsonDocument explainable(BsonDocument command) {
+        BsonDocument copy = command.clone();
+        for (String field : List.of("$db", "lsid", "$clusterTime", "$readPreference", "txnNumber")) {
+            copy.remove(field);
+        }
+        return copy;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void collectWinningStages(Object node, boolean inWinningPlan, List<String> stages) {
+        if (node instanceof Document document) {
+            for (String key : document.keySet()) {
+                Object value = document.get(key);
+                if ("rejectedPlans".equals(key)) {
+                    continue;
+                }
+                if (inWinningPlan && "stage".equals(key) && value instanceof String stage) {
+                    stages.add(stage);
+                }
+                collectWinningStages(value, inWinningPlan || "winningPlan".equals(key), stages);
+            }
+        } else if (node instanceof Collection<?> values) {
+            for (Object value : (Collection<Object>) values) {
+                collectWinningStages(value, inWinningPlan, stages);
+            }
+        }
+    }
+
+    private static Object[] sampleArguments(Method method) {
+        Class<?>[] types = method.getParameterTypes();
+        Object[] args = new Object[types.length];
+        for (int i = 0; i < types.length; i++) {
+            args[i] = sampleValue(types[i]);
+        }
+        return args;
+    }
+
+    private static Object sampleValue(Class<?> type) {
+        if (type == String.class) {
+            return "sample";
+        }
+        if (type == LocalDateTime.class) {
+            return LocalDateTime.of(2024, 1, 1, 0, 0);
+        }
+        if (List.class.isAssignableFrom(type)) {
+            return List.of("sample", "other");
+        }
+        if (Pageable.class.isAssignableFrom(type)) {
+            return PageRequest.of(0, 20);
+        }
+        if (type.isEnum()) {
+            return type.getEnumConstants()[0];
+        }
+        throw new IllegalArgumentException("No sample value for parameter type " + type.getName());
+    }
+
+    private static String signature(Method method) {
+        StringBuilder signature = new StringBuilder(method.getName()).append('(');
+        Class<?>[] types = method.getParameterTypes();
+        for (int i = 0; i < types.length; i++) {
+            signature.append(i > 0 ? ", " : "").append(types[i].getSimpleName());
+        }
+        return signature.append(')').toString();
+    }
+}
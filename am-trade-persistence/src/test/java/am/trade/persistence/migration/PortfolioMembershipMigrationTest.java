@@ -0,0 +1,174 @@
+package am.trade.persistence.migration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+
+import am.trade.persistence.entity.PortfolioEntity;
+import am.trade.persistence.entity.TradeDetailsEntity;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+
+/**
+ * Runs the migration against an embedded MongoDB. Skipped when the embedded MongoDB binary
+ * cannot be downloaded or started.
+ */
+class PortfolioMembershipMigrationTest {
+
+    private static TransitionWalker.ReachedState<RunningMongodProcess> mongod;
+    private static MongoClient mongoClient;
+    private static MongoTemplate mongoTemplate;
+
+    @BeforeAll
+    static void startMongo() {
+        try {
+            mongod = Mongod.instance().start(Version.Main.V7_0);
+        } catch (RuntimeException e) {
+            Assumptions.abort("Embedded MongoDB is not available: " + e.getMessage());
+        }
+        mongoClient = MongoClients.create("mongodb://" + mongod.current().getServerAddress().getHost() + ":"
+                + mongod.current().getServerAddress().getPort());
+        mongoTemplate = new MongoTemplate(mongoClient, "portfolio_membership_migration");
+    }
+
+    @AfterAll
+    static void stopMongo() {
+        if (mongoClient != null) {
+            mongoClient.close();
+        }
+        if (mongod != null) {
+            mongod.close();
+        }
+    }
+
+    @BeforeEach
+    void clear() {
+        mongoTemplate.dropCollection(PortfolioEntity.class);
+        mongoTemplate.dropCollection(TradeDetailsEntity.class);
+        mongoTemplate.dropCollection(PortfolioMembershipMigration.MIGRATIONS_COLLECTION);
+    }
+
+    @Test
+    void migrate_shouldMoveTradesToTheirPortfolioAndDropTheArrays() {
+        ObjectId portfolio = new ObjectId();
+        insertPortfolio(portfolio, "t1", "t2");
+        insertTrade("t1", null);
+        insertTrade("t2", "stale");
+
+        new PortfolioMembershipMigration(mongoTemplate).migrate();
+
+        assertEquals(portfolio.toHexString(), portfolioIdOf("t1"));
+        assertEquals(portfolio.toHexString(), portfolioIdOf("t2"));
+        Document migrated = portfolioDocument(portfolio);
+        assertFalse(migrated.containsKey("trades"));
+        assertFalse(migrated.containsKey("winningTrades"));
+    }
+
+    @Test
+    void migrate_shouldRecordTradesListedBySeveralPortfoliosAndLeaveTheirPortfolioId() {
+        ObjectId first = new ObjectId();
+        ObjectId second = new ObjectId();
+        ObjectId other = new ObjectId();
+        insertPortfolio(first, "shared", "own");
+        insertPortfolio(second, "shared");
+        insertPortfolio(other, "single");
+        insertTrade("shared", "original");
+        insertTrade("own", null);
+        insertTrade("single", null);
+
+        new PortfolioMembershipMigration(mongoTemplate).migrate();
+
+        assertEquals("original", portfolioIdOf("shared"));
+        assertEquals(first.toHexString(), portfolioIdOf("own"));
+        assertEquals(other.toHexString(), portfolioIdOf("single"));
+        // Every array is dropped; the shared membership is kept in the migration record
+        assertFalse(portfolioDocument(first).containsKey("trades"));
+        assertFalse(portfolioDocument(second).containsKey("trades"));
+        assertFalse(portfolioDocument(other).containsKey("trades"));
+        List<Document> sharedTrades = marker().getList("sharedTrades", Document.class);
+        assertEquals(1, sharedTrades.size());
+        assertEquals("shared", sharedTrades.get(0).getString("tradeId"));
+        assertEquals(List.of(first.toHexString(), second.toHexString()).stream().sorted().toList(),
+                sharedTrades.get(0).getList("portfolioIds", String.class));
+    }
+
+    @Test
+    void migrate_shouldReturnStraightAwayOnceCompleted() {
+        // Given a completed migration
+        new PortfolioMembershipMigration(mongoTemplate).migrate();
+        assertNotNull(marker().get("completedAt"));
+
+        // When a legacy portfolio shows up afterwards
+        ObjectId late = new ObjectId();
+        insertPortfolio(late, "t1");
+        insertTrade("t1", null);
+        new PortfolioMembershipMigration(mongoTemplate).migrate();
+
+        // Then it is not scanned again
+        assertTrue(portfolioDocument(late).containsKey("trades"));
+        assertNull(portfolioIdOf("t1"));
+    }
+
+    @Test
+    void migrate_shouldKeepTheTradesRecordedByAnInterruptedRunShared() {
+        // Given a run that recorded a shared trade and migrated one of its two portfolios
+        ObjectId remaining = new ObjectId();
+        insertPortfolio(remaining, "shared");
+        insertTrade("shared", "original");
+        mongoTemplate.insert(new Document("_id", PortfolioMembershipMigration.MIGRATION_ID)
+                .append("sharedTrades", List.of(new Document("tradeId", "shared")
+                        .append("portfolioIds", List.of("migrated", remaining.toHexString())))),
+                PortfolioMembershipMigration.MIGRATIONS_COLLECTION);
+
+        // When
+        new PortfolioMembershipMigration(mongoTemplate).migrate();
+
+        // Then the trade is not given to the portfolio that happens to be left
+        assertEquals("original", portfolioIdOf("shared"));
+        assertFalse(portfolioDocument(remaining).containsKey("trades"));
+        assertNotNull(marker().get("completedAt"));
+    }
+
+    private static void insertPortfolio(ObjectId id, String... tradeIds) {
+        mongoTemplate.insert(new Document("_id", id).append("trades", List.of(tradeIds))
+                .append("winningTrades", List.of()), mongoTemplate.getCollectionName(PortfolioEntity.class));
+    }
+
+    private static void insertTrade(String tradeId, String portfolioId) {
+        mongoTemplate.insert(new Document("tradeId", tradeId).append("portfolioId", portfolioId),
+                mongoTemplate.getCollectionName(TradeDetailsEntity.class));
+    }
+
+    private static String portfolioIdOf(String tradeId) {
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(TradeDetailsEntity.class))
+                .find(new Document("tradeId", tradeId)).first().getString("portfolioId");
+    }
+
+    private static Document marker() {
+        return mongoTemplate.getCollection(PortfolioMembershipMigration.MIGRATIONS_COLLECTION)
+                .find(new Document("_id", PortfolioMembershipMigration.MIGRATION_ID)).first();
+    }
+
+    private static Document portfolioDocument(ObjectId id) {
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(PortfolioEntity.class))
+                .find(new Document("_id", id)).first();
+    }
+}
@@ -0,0 +1,72 @@
+package am.trade.persistence.query;
+
+import am.trade.common.models.EntryExitInfo;
+import am.trade.persistence.entity.TradeDetailsEntity;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TradeCursorTest {
+
+    private static final LocalDateTime ENTRY = LocalDateTime.of(2024, 3, 5, 9, 15, 30, 123_000_000);
+
+    @Test
+    void testEncodeDecodeRoundTrip() {
+        TradeCursor cursor = new TradeCursor(ENTRY, "trade-42");
+
+        String token = cursor.encode();
+
+        assertFalse(token.contains("trade-42"), "Token should be opaque: " + token);
+        assertEquals(cursor, TradeCursor.decode(token));
+    }
+
+    @Test
+    void testCursorWithoutEntryTimeRoundTrips() {
+        TradeCursor cursor = TradeCursor.of(TradeDetailsEntity.builder().tradeId("trade-7").build());
+
+        assertNull(cursor.getEntryTime());
+        assertEquals(cursor, TradeCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void testBlankTokenMeansFirstPage() {
+        assertNull(TradeCursor.decode(null));
+        assertNull(TradeCursor.decode(" "));
+    }
+
+    @Test
+    void testMalformedTokenIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> TradeCursor.decode("not base64!"));
+        assertThrows(IllegalArgumentException.class, () -> TradeCursor.decode("bm8tc2VwYXJhdG9y"));
+    }
+
+    @Test
+    void testSeekBoundsEntryTimeAndBreaksTiesOnTradeId() {
+        TradeCursor cursor = TradeCursor.of(TradeDetailsEntity.builder()
+                .tradeId("trade-42")
+                .entryInfo(EntryExitInfo.builder().timestamp(ENTRY).build())
+                .build());
+
+        List<?> clauses = (List<?>) cursor.afterWithEntryTime().getCriteriaObject().get("$and");
+
+        assertEquals(new Document("entryInfo.timestamp", new Document("$lte", ENTRY)), clauses.get(0));
+        assertEquals(List.of(
+                new Document("entryInfo.timestamp", new Document("$lt", ENTRY)),
+                new Document("tradeId", new Document("$lt", "trade-42"))),
+                ((Document) clauses.get(1)).get("$or"));
+    }
+
+    @Test
+    void testTradesWithoutEntryTimeFollowTheDatedOnes() {
+        Document afterDated = new TradeCursor(ENTRY, "trade-42").afterWithoutEntryTime().getCriteriaObject();
+        assertEquals(new Document("entryInfo.timestamp", null), afterDated);
+
+        TradeCursor undated = new TradeCursor(null, "trade-7");
+        assertNull(undated.afterWithEntryTime());
+        assertEquals(new Document("$lt", "trade-7"), undated.afterWithoutEntryTime().getCriteriaObject().get("tradeId"));
+    }
+}
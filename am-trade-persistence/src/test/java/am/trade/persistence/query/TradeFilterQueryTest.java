@@ -0,0 +1,108 @@
+package am.trade.persistence.query;
+
+import am.trade.common.models.MetricsFilterConfig;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TradeFilterQueryTest {
+
+    @Test
+    void testOwnerAndPortfoliosAlwaysApplied() {
+        MetricsFilterConfig config = MetricsFilterConfig.builder()
+                .portfolioIds(List.of("p1", "p2"))
+                .build();
+
+        Document query = TradeFilterQuery.criteria("user-1", config).getCriteriaObject();
+
+        assertEquals("user-1", query.get("userId"));
+        assertEquals(new Document("$in", List.of("p1", "p2")), query.get("portfolioId"));
+        assertEquals(2, query.size());
+    }
+
+    @Test
+    void testDateRangeIncludesWholeEndDay() {
+        MetricsFilterConfig config = MetricsFilterConfig.builder()
+                .portfolioIds(List.of("p1"))
+                .dateRange(Map.of("startDate", "2024-01-01", "endDate", "2024-01-31"))
+                .build();
+
+        Document entryTime = (Document) TradeFilterQuery.criteria("user-1", config)
+                .getCriteriaObject().get("entryInfo.timestamp");
+
+        assertEquals(LocalDateTime.of(2024, 1, 1, 0, 0), entryTime.get("$gte"));
+        assertEquals(LocalDateTime.of(2024, 2, 1, 0, 0), entryTime.get("$lt"));
+    }
+
+    @Test
+    void testCharacteristicsBecomeInClauses() {
+        MetricsFilterConfig config = MetricsFilterConfig.builder()
+                .portfolioIds(List.of("p1"))
+                .instruments(List.of("NIFTY"))
+                .tradeCharacteristics(Map.of(
+                        "statuses", List.of("WIN"),
+                        "positionTypes", List.of("LONG"),
+                        "tags", List.of("breakout")))
+                .build();
+
+        Document query = TradeFilterQuery.criteria("user-1", config).getCriteriaObject();
+
+        assertEquals(new Document("$in", List.of("NIFTY")), query.get("symbol"));
+        assertEquals(new Document("$in", List.of("WIN")), query.get("status"));
+        assertEquals(new Document("$in", List.of("LONG")), query.get("tradePositionType"));
+        assertEquals(new Document("$in", List.of("breakout")), query.get("tags"));
+        assertNull(query.get("$and"));
+    }
+
+    @Test
+    void testBoundsOnOptionalFieldsKeepTradesWithoutThem() {
+        MetricsFilterConfig config = MetricsFilterConfig.builder()
+                .portfolioIds(List.of("p1"))
+                .tradeCharacteristics(Map.of("minHoldingTimeHours", 2))
+                .profitLossFilters(Map.of("minProfitLoss", 100))
+                .instrumentFilters(Map.of("optionType", "CE", "maxStrike", 20000))
+                .build();
+
+        List<?> clauses = (List<?>) TradeFilterQuery.criteria("user-1", config).getCriteriaObject().get("$and");
+
+        assertEquals(4, clauses.size());
+        for (Object clause : clauses) {
+            List<?> alternatives = (List<?>) ((Document) clause).get("$or");
+            assertEquals(2, alternatives.size());
+            Document passThrough = (Document) alternatives.get(0);
+            assertTrue(passThrough.containsValue(null), "First alternative must match a missing field: " + passThrough);
+        }
+    }
+
+    @Test
+    void testProfitLossSortIsNotPushedDown() {
+        assertTrue(TradeFilterQuery.supportsSort(Sort.by(Sort.Direction.DESC, "entryDate")));
+        assertTrue(TradeFilterQuery.supportsSort(Sort.unsorted()));
+        assertFalse(TradeFilterQuery.supportsSort(Sort.by("symbol", "pnl")));
+    }
+
+    @Test
+    void testAdvertisedSortKeysArePushedDown() {
+        for (String key : TradeFilterQuery.SUPPORTED_SORT_KEYS) {
+            Sort sort = Sort.by(key);
+
+            String path = TradeFilterQuery.toDocumentSort(sort).toList().get(0).getProperty();
+
+            assertTrue(TradeFilterQuery.supportsSort(sort), key);
+            assertEquals(key.equals("entryDate"), path.equals("entryInfo.timestamp"), key + " -> " + path);
+        }
+    }
+
+    @Test
+    void testDocumentSortAddsIdTieBreaker() {
+        Sort sort = TradeFilterQuery.toDocumentSort(Sort.by(Sort.Direction.DESC, "exitDate"));
+
+        assertEquals(List.of(Sort.Order.desc("exitInfo.timestamp"), Sort.Order.asc("_id")), sort.toList());
+    }
+}
@@ -0,0 +1,125 @@
+package am.trade.persistence.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+
+import am.trade.persistence.entity.JobLease;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+
+/**
+ * Runs the lease operations against an embedded MongoDB. Skipped when the embedded MongoDB
+ * binary cannot be downloaded or started.
+ */
+class JobLeaseRepositoryImplTest {
+
+    private static final String LEASE = "metrics-recalculation-dirty";
+    private static final Duration HOUR = Duration.ofHours(1);
+
+    private static TransitionWalker.ReachedState<RunningMongodProcess> mongod;
+    private static MongoClient mongoClient;
+    private static MongoTemplate mongoTemplate;
+
+    private JobLeaseRepositoryImpl repository;
+
+    @BeforeAll
+    static void startMongo() {
+        try {
+            mongod = Mongod.instance().start(Version.Main.V7_0);
+        } catch (RuntimeException e) {
+            Assumptions.abort("Embedded MongoDB is not available: " + e.getMessage());
+        }
+        mongoClient = MongoClients.create("mongodb://" + mongod.current().getServerAddress().getHost() + ":"
+                + mongod.current().getServerAddress().getPort());
+        mongoTemplate = new MongoTemplate(mongoClient, "job_leases");
+    }
+
+    @AfterAll
+    static void stopMongo() {
+        if (mongoClient != null) {
+            mongoClient.close();
+        }
+        if (mongod != null) {
+            mongod.close();
+        }
+    }
+
+    @BeforeEach
+    void clear() {
+        mongoTemplate.dropCollection(JobLease.class);
+        repository = new JobLeaseRepositoryImpl(mongoTemplate);
+    }
+
+    @Test
+    void tryAcquire_shouldGiveAHeldLeaseOnlyToItsOwner() {
+        assertTrue(repository.tryAcquire(LEASE, "node-a", HOUR));
+
+        assertFalse(repository.tryAcquire(LEASE, "node-b", HOUR));
+        // Renewing keeps the lease with its owner
+        assertTrue(repository.tryAcquire(LEASE, "node-a", HOUR));
+        assertEquals("node-a", lease().getOwner());
+        assertEquals(1, mongoTemplate.count(new Query(), JobLease.class));
+    }
+
+    @Test
+    void tryAcquire_shouldTakeOverAnExpiredLease() {
+        assertTrue(repository.tryAcquire(LEASE, "node-a", Duration.ZERO));
+
+        assertTrue(repository.tryAcquire(LEASE, "node-b", HOUR));
+        assertEquals("node-b", lease().getOwner());
+        assertFalse(repository.tryAcquire(LEASE, "node-a", HOUR));
+    }
+
+    @Test
+    void release_shouldHoldTheLeaseForTheMinimumTimeFromItsAcquisition() {
+        repository.tryAcquire(LEASE, "node-a", HOUR);
+
+        repository.release(LEASE, "node-a", HOUR.dividedBy(2));
+
+        JobLease released = lease();
+        assertEquals(released.getAcquiredAt().plus(HOUR.dividedBy(2)), released.getExpiresAt());
+        assertFalse(repository.tryAcquire(LEASE, "node-b", HOUR));
+    }
+
+    @Test
+    void release_shouldFreeTheLeaseOnceTheMinimumTimeHasPassed() {
+        repository.tryAcquire(LEASE, "node-a", HOUR);
+
+        repository.release(LEASE, "node-a", Duration.ZERO);
+
+        assertFalse(lease().getExpiresAt().isAfter(Instant.now()));
+        assertTrue(repository.tryAcquire(LEASE, "node-b", HOUR));
+    }
+
+    @Test
+    void release_shouldIgnoreNodesThatDoNotHoldTheLease() {
+        repository.tryAcquire(LEASE, "node-a", HOUR);
+        Instant expiresAt = lease().getExpiresAt();
+
+        repository.release(LEASE, "node-b", Duration.ZERO);
+
+        assertEquals(expiresAt, lease().getExpiresAt());
+        assertEquals("node-a", lease().getOwner());
+    }
+
+    private static JobLease lease() {
+        return mongoTemplate.findById(LEASE, JobLease.class);
+    }
+}
@@ -0,0 +1,217 @@
+package am.trade.persistence.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.SimpleMongoClientDatabaseFactory;
+import org.springframework.data.mongodb.core.convert.DefaultDbRefResolver;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+
+import am.trade.common.models.EntryExitInfo;
+import am.trade.common.models.ProfitLossHeatmapData.GranularityType;
+import am.trade.common.models.TradeMetrics;
+import am.trade.common.models.enums.TradeStatus;
+import am.trade.persistence.config.MongoDateTimeConfig;
+import am.trade.persistence.entity.TradeDetailsEntity;
+import am.trade.persistence.projection.ProfitLossPeriodStats;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+
+/**
+ * Checks {@link TradeDetailsRepositoryImpl#aggregateProfitLossByPeriod} against the Java
+ * grouping the heatmap used before: trades grouped by the period of their IST entry time,
+ * profit/loss summed over the trades that have one, WIN and LOSS counted whether or not they
+ * have one. Skipped when the embedded MongoDB binary cannot be downloaded or started.
+ */
+class ProfitLossByPeriodParityTest {
+
+    private static final String PORTFOLIO_ID = "parity";
+    private static final TradeStatus[] STATUSES = {TradeStatus.WIN, TradeStatus.LOSS, TradeStatus.OPEN};
+
+    private static TransitionWalker.ReachedState<RunningMongodProcess> mongod;
+    private static MongoClient mongoClient;
+    private static TradeDetailsRepositoryImpl repository;
+    private static final List<TradeDetailsEntity> trades = new ArrayList<>();
+
+    @BeforeAll
+    static void startMongo() {
+        try {
+            mongod = Mongod.instance().start(Version.Main.V7_0);
+        } catch (RuntimeException e) {
+            Assumptions.abort("Embedded MongoDB is not available: " + e.getMessage());
+        }
+        mongoClient = MongoClients.create("mongodb://" + mongod.current().getServerAddress().getHost() + ":"
+                + mongod.current().getServerAddress().getPort());
+        MongoTemplate mongoTemplate = istTemplate(mongoClient, "profit_loss_by_period");
+        repository = new TradeDetailsRepositoryImpl(mongoTemplate);
+
+        Random random = new Random(21);
+        for (int i = 0; i < 400; i++) {
+            // Half the trades sit within an hour of IST midnight, where a UTC grouping would differ
+            LocalDateTime entryTime = LocalDateTime.of(2024, 1, 1, 0, 0)
+                    .plusDays(random.nextInt(500))
+                    .plusMinutes(i % 2 == 0 ? random.nextInt(24 * 60) : (random.nextBoolean() ? random.nextInt(60)
+                            : 23 * 60 + random.nextInt(60)));
+            BigDecimal profitLoss = i % 9 == 0 ? null
+                    : BigDecimal.valueOf(random.nextInt(200_000) - 100_000, 2);
+            trades.add(trade("t" + i, i % 25 == 0 ? null : entryTime, STATUSES[random.nextInt(STATUSES.length)],
+                    profitLoss));
+        }
+        trades.forEach(mongoTemplate::insert);
+
+        // Another portfolio's trades are never counted
+        TradeDetailsEntity other = trade("other", LocalDateTime.of(2024, 6, 1, 12, 0), TradeStatus.WIN, BigDecimal.TEN);
+        other.setPortfolioId("other");
+        mongoTemplate.insert(other);
+    }
+
+    @AfterAll
+    static void stopMongo() {
+        if (mongoClient != null) {
+            mongoClient.close();
+        }
+        if (mongod != null) {
+            mongod.close();
+        }
+    }
+
+    @Test
+    void aggregateProfitLossByPeriod_shouldMatchTheJavaGrouping() {
+        for (GranularityType granularity : GranularityType.values()) {
+            assertParity(granularity, null, null);
+        }
+    }
+
+    @Test
+    void aggregateProfitLossByPeriod_shouldMatchTheJavaGroupingWithinARange() {
+        // A financial year, as the monthly heatmap asks for it
+        for (GranularityType granularity : GranularityType.values()) {
+            assertParity(granularity, LocalDateTime.of(2024, 4, 1, 0, 0), LocalDateTime.of(2025, 4, 1, 0, 0));
+        }
+    }
+
+    private static void assertParity(GranularityType granularity, LocalDateTime from, LocalDateTime to) {
+        List<String> expected = groupInJava(granularity, from, to).entrySet().stream()
+                .map(entry -> describe(entry.getKey(), entry.getValue()))
+                .toList();
+        List<String> actual = repository.aggregateProfitLossByPeriod(PORTFOLIO_ID, granularity, from, to).stream()
+                .sorted(Comparator.comparing(ProfitLossPeriodStats::getPeriodId))
+                .map(stats -> describe(stats.getPeriodId(), stats))
+                .toList();
+
+        assertEquals(expected, actual, granularity.name());
+    }
+
+    private static Map<String, ProfitLossPeriodStats> groupInJava(GranularityType granularity, LocalDateTime from,
+                                                                 LocalDateTime to) {
+        DateTimeFormatter format = DateTimeFormatter.ofPattern(switch (granularity) {
+            case YEARLY -> "yyyy";
+            case MONTHLY -> "yyyy-MM";
+            case DAILY -> "yyyy-MM-dd";
+        });
+        Map<String, List<TradeDetailsEntity>> byPeriod = trades.stream()
+                .filter(trade -> trade.getEntryInfo().getTimestamp() != null)
+                .filter(trade -> from == null || !trade.getEntryInfo().getTimestamp().isBefore(from))
+                .filter(trade -> to == null || trade.getEntryInfo().getTimestamp().isBefore(to))
+                .collect(Collectors.groupingBy(trade -> trade.getEntryInfo().getTimestamp().format(format),
+                        TreeMap::new, Collectors.toList()));
+
+        Map<String, ProfitLossPeriodStats> stats = new TreeMap<>();
+        byPeriod.forEach((periodId, periodTrades) -> {
+            ProfitLossPeriodStats period = new ProfitLossPeriodStats();
+            period.setPeriodId(periodId);
+            period.setProfitLoss(sum(periodTrades, null));
+            period.setWinCount((int) periodTrades.stream().filter(t -> t.getStatus() == TradeStatus.WIN).count());
+            period.setLossCount((int) periodTrades.stream().filter(t -> t.getStatus() == TradeStatus.LOSS).count());
+            period.setWinProfitLoss(sum(periodTrades, TradeStatus.WIN));
+            period.setLossProfitLoss(sum(periodTrades, TradeStatus.LOSS));
+            period.setMaxWinAmount(maxAbs(periodTrades, TradeStatus.WIN));
+            period.setMaxLossAmount(maxAbs(periodTrades, TradeStatus.LOSS));
+            stats.put(periodId, period);
+        });
+        return stats;
+    }
+
+    private static BigDecimal sum(List<TradeDetailsEntity> trades, TradeStatus status) {
+        return profitLosses(trades, status).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private static BigDecimal maxAbs(List<TradeDetailsEntity> trades, TradeStatus status) {
+        return profitLosses(trades, status).map(BigDecimal::abs).max(BigDecimal::compareTo).orElse(null);
+    }
+
+    private static Stream<BigDecimal> profitLosses(List<TradeDetailsEntity> trades, TradeStatus status) {
+        return trades.stream()
+                .filter(trade -> status == null || trade.getStatus() == status)
+                .map(trade -> trade.getMetrics().getProfitLoss())
+                .filter(Objects::nonNull);
+    }
+
+    /**
+     * Numbers are compared without their scale; a sum of nothing is zero either way
+     */
+    private static String describe(String periodId, ProfitLossPeriodStats stats) {
+        return String.join(" ", periodId, plain(orZero(stats.getProfitLoss())),
+                String.valueOf(stats.getWinCount()), String.valueOf(stats.getLossCount()),
+                plain(orZero(stats.getWinProfitLoss())), plain(orZero(stats.getLossProfitLoss())),
+                plain(stats.getMaxWinAmount()), plain(stats.getMaxLossAmount()));
+    }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+
+    private static String plain(BigDecimal value) {
+        return value == null ? "-" : value.stripTrailingZeros().toPlainString();
+    }
+
+    private static TradeDetailsEntity trade(String tradeId, LocalDateTime entryTime, TradeStatus status,
+                                            BigDecimal profitLoss) {
+        return TradeDetailsEntity.builder()
+                .tradeId(tradeId)
+                .portfolioId(PORTFOLIO_ID)
+                .status(status)
+                .entryInfo(EntryExitInfo.builder().timestamp(entryTime).build())
+                .metrics(TradeMetrics.builder().profitLoss(profitLoss).build())
+                .build();
+    }
+
+    /**
+     * A template that stores LocalDateTime at IST, as the application's does
+     */
+    static MongoTemplate istTemplate(MongoClient mongoClient, String database) {
+        SimpleMongoClientDatabaseFactory factory = new SimpleMongoClientDatabaseFactory(mongoClient, database);
+        MongoCustomConversions conversions = new MongoDateTimeConfig().mongoCustomConversions();
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        MappingMongoConverter converter = new MappingMongoConverter(new DefaultDbRefResolver(factory), mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        return new MongoTemplate(factory, converter);
+    }
+}
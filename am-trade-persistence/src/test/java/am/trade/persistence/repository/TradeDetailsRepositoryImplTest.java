@@ -0,0 +1,132 @@
+package am.trade.persistence.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+
+import am.trade.common.models.enums.TradeStatus;
+import am.trade.persistence.entity.TradeDetailsEntity;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+
+/**
+ * Runs the bulk upsert against an embedded MongoDB. Skipped when the embedded MongoDB binary
+ * cannot be downloaded or started.
+ */
+class TradeDetailsRepositoryImplTest {
+
+    private static TransitionWalker.ReachedState<RunningMongodProcess> mongod;
+    private static MongoClient mongoClient;
+    private static MongoTemplate mongoTemplate;
+
+    private TradeDetailsRepositoryImpl repository;
+
+    @BeforeAll
+    static void startMongo() {
+        try {
+            mongod = Mongod.instance().start(Version.Main.V7_0);
+        } catch (RuntimeException e) {
+            Assumptions.abort("Embedded MongoDB is not available: " + e.getMessage());
+        }
+        mongoClient = MongoClients.create("mongodb://" + mongod.current().getServerAddress().getHost() + ":"
+                + mongod.current().getServerAddress().getPort());
+        mongoTemplate = new MongoTemplate(mongoClient, "trade_details_upsert");
+    }
+
+    @AfterAll
+    static void stopMongo() {
+        if (mongoClient != null) {
+            mongoClient.close();
+        }
+        if (mongod != null) {
+            mongod.close();
+        }
+    }
+
+    @BeforeEach
+    void clear() {
+        mongoTemplate.dropCollection(TradeDetailsEntity.class);
+        mongoTemplate.indexOps(TradeDetailsEntity.class).ensureIndex(new Index("tradeId", Direction.ASC).unique());
+        repository = new TradeDetailsRepositoryImpl(mongoTemplate);
+    }
+
+    @Test
+    void upsertAllByTradeId_shouldOnlySetTheFieldsThatWereSent() {
+        // Given a stored trade with notes and tags
+        TradeDetailsEntity stored = mongoTemplate.insert(TradeDetailsEntity.builder()
+                .tradeId("t1")
+                .portfolioId("p1")
+                .status(TradeStatus.OPEN)
+                .notes("waiting for the breakout")
+                .tags(List.of("swing"))
+                .build());
+
+        // When it is written again without them
+        List<BulkWriteError> errors = repository.upsertAllByTradeId(List.of(TradeDetailsEntity.builder()
+                .tradeId("t1")
+                .portfolioId("p1")
+                .status(TradeStatus.WIN)
+                .build()));
+
+        // Then the sent fields change and the others, including _id, are kept
+        assertTrue(errors.isEmpty());
+        TradeDetailsEntity updated = find("t1");
+        assertEquals(stored.getId(), updated.getId());
+        assertEquals(TradeStatus.WIN, updated.getStatus());
+        assertEquals("waiting for the breakout", updated.getNotes());
+        assertEquals(List.of("swing"), updated.getTags());
+    }
+
+    @Test
+    void upsertAllByTradeId_shouldInsertNewTradesAndGiveTradesWithoutATradeIdAnId() {
+        // Given
+        TradeDetailsEntity withoutTradeId = TradeDetailsEntity.builder().portfolioId("p1").build();
+
+        // When
+        List<BulkWriteError> errors = repository.upsertAllByTradeId(List.of(
+                TradeDetailsEntity.builder().tradeId("t2").portfolioId("p1").build(),
+                withoutTradeId));
+
+        // Then
+        assertTrue(errors.isEmpty());
+        assertNotNull(find("t2").getId());
+        assertNotNull(withoutTradeId.getId());
+        assertNotNull(mongoTemplate.findById(withoutTradeId.getId(), TradeDetailsEntity.class));
+        assertEquals(2, mongoTemplate.count(new Query(), TradeDetailsEntity.class));
+    }
+
+    @Test
+    void upsertAllByTradeId_shouldKeepTheIdOfANewTradeThatHasOne() {
+        // When
+        repository.upsertAllByTradeId(List.of(TradeDetailsEntity.builder()
+                .id("65f0c0ffee0000000000abcd")
+                .tradeId("t3")
+                .build()));
+
+        // Then
+        assertEquals("65f0c0ffee0000000000abcd", find("t3").getId());
+    }
+
+    private TradeDetailsEntity find(String tradeId) {
+        return mongoTemplate.findOne(new Query(Criteria.where("tradeId").is(tradeId)), TradeDetailsEntity.class);
+    }
+}
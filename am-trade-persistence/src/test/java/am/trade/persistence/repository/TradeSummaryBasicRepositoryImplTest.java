@@ -0,0 +1,126 @@
+package am.trade.persistence.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+
+import am.trade.common.models.TradeSummaryBasic;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+
+/**
+ * Runs the dirty-mark updates against an embedded MongoDB. Skipped when the embedded MongoDB
+ * binary cannot be downloaded or started.
+ */
+class TradeSummaryBasicRepositoryImplTest {
+
+    private static final LocalDateTime FIRST_WRITE = LocalDateTime.of(2025, 3, 10, 9, 0);
+    private static final LocalDateTime CALCULATION_START = FIRST_WRITE.plusMinutes(5);
+    private static final LocalDateTime SECOND_WRITE = FIRST_WRITE.plusMinutes(10);
+
+    private static TransitionWalker.ReachedState<RunningMongodProcess> mongod;
+    private static MongoClient mongoClient;
+    private static MongoTemplate mongoTemplate;
+
+    private TradeSummaryBasicRepositoryImpl repository;
+
+    @BeforeAll
+    static void startMongo() {
+        try {
+            mongod = Mongod.instance().start(Version.Main.V7_0);
+        } catch (RuntimeException e) {
+            Assumptions.abort("Embedded MongoDB is not available: " + e.getMessage());
+        }
+        mongoClient = MongoClients.create("mongodb://" + mongod.current().getServerAddress().getHost() + ":"
+                + mongod.current().getServerAddress().getPort());
+        mongoTemplate = new MongoTemplate(mongoClient, "trade_summary_dirty_marks");
+    }
+
+    @AfterAll
+    static void stopMongo() {
+        if (mongoClient != null) {
+            mongoClient.close();
+        }
+        if (mongod != null) {
+            mongod.close();
+        }
+    }
+
+    @BeforeEach
+    void clear() {
+        mongoTemplate.dropCollection(TradeSummaryBasic.class);
+        repository = new TradeSummaryBasicRepositoryImpl(mongoTemplate);
+        mongoTemplate.insert(TradeSummaryBasic.builder().id("s1").portfolioIds(List.of("p1", "p2")).build());
+        mongoTemplate.insert(TradeSummaryBasic.builder().id("s2").portfolioIds(List.of("p3")).build());
+    }
+
+    @Test
+    void markMetricsDirty_shouldKeepTheFirstMarkAndTheLatestWrite() {
+        assertEquals(1, repository.markMetricsDirty(List.of("p2"), FIRST_WRITE));
+        assertEquals(0, repository.markMetricsDirty(List.of("p1"), SECOND_WRITE));
+        // A write that arrives late does not move the last-written time back
+        repository.markMetricsDirty(List.of("p1"), CALCULATION_START);
+
+        TradeSummaryBasic summary = summary("s1");
+        assertEquals(FIRST_WRITE, summary.getMetricsDirtySince());
+        assertEquals(SECOND_WRITE, summary.getTradesLastWrittenAt());
+        assertNull(summary("s2").getMetricsDirtySince());
+    }
+
+    @Test
+    void clearMetricsDirty_shouldKeepTheMarkOfASummaryWrittenDuringTheCalculation() {
+        // Dirty before the calculation started and written again while it ran
+        repository.markMetricsDirty(List.of("p1"), FIRST_WRITE);
+        repository.markMetricsDirty(List.of("p1"), SECOND_WRITE);
+
+        assertFalse(repository.clearMetricsDirty("s1", CALCULATION_START));
+        assertEquals(FIRST_WRITE, summary("s1").getMetricsDirtySince());
+
+        // The next calculation covers the write
+        assertTrue(repository.clearMetricsDirty("s1", SECOND_WRITE));
+        assertNull(summary("s1").getMetricsDirtySince());
+    }
+
+    @Test
+    void clearMetricsDirty_shouldClearWhenNothingWasWrittenSinceTheCalculationStarted() {
+        repository.markMetricsDirty(List.of("p1"), FIRST_WRITE);
+
+        assertTrue(repository.clearMetricsDirty("s1", CALCULATION_START));
+
+        TradeSummaryBasic summary = summary("s1");
+        assertNull(summary.getMetricsDirtySince());
+        assertEquals(FIRST_WRITE, summary.getTradesLastWrittenAt());
+        // A write after the clear marks it again
+        assertEquals(1, repository.markMetricsDirty(List.of("p1"), SECOND_WRITE));
+    }
+
+    @Test
+    void clearMetricsDirty_shouldJudgeSummariesWithoutALastWriteByTheirMark() {
+        TradeSummaryBasic legacy = summary("s2");
+        legacy.setMetricsDirtySince(FIRST_WRITE);
+        mongoTemplate.save(legacy);
+
+        assertFalse(repository.clearMetricsDirty("s2", FIRST_WRITE.minusMinutes(1)));
+        assertTrue(repository.clearMetricsDirty("s2", CALCULATION_START));
+    }
+
+    private static TradeSummaryBasic summary(String id) {
+        return mongoTemplate.findById(id, TradeSummaryBasic.class);
+    }
+}
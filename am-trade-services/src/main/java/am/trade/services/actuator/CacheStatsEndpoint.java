@@ -0,0 +1,62 @@
+package am.trade.services.actuator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import am.trade.services.cache.CacheInvalidationBus;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+
+/**
+ * Hit, miss and eviction statistics of every application cache.
+ *
+ * <p>{@code GET /actuator/cachestats} lists one entry per cache. {@code evictions} are the
+ * entries Caffeine dropped for size or expiry; {@code invalidations} are the entries evicted
+ * because trades they depend on were written (see {@link CacheInvalidationBus}).
+ */
+@Component
+@Endpoint(id = "cachestats")
+@RequiredArgsConstructor
+public class CacheStatsEndpoint {
+
+    private final CacheManager cacheManager;
+    private final CacheInvalidationBus cacheInvalidationBus;
+
+    /**
+     * Statistics of one cache
+     */
+    @Value
+    public static class CacheStatistics {
+        String name;
+        long size;
+        long hits;
+        long misses;
+        double hitRate;
+        long evictions;
+        long invalidations;
+    }
+
+    @ReadOperation
+    public List<CacheStatistics> caches() {
+        List<CacheStatistics> statistics = new ArrayList<>();
+        for (String name : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache == null
+                    || !(cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeine)) {
+                continue;
+            }
+            CacheStats stats = caffeine.stats();
+            statistics.add(new CacheStatistics(name, caffeine.estimatedSize(), stats.hitCount(), stats.missCount(),
+                    stats.hitRate(), stats.evictionCount(), cacheInvalidationBus.invalidations(name)));
+        }
+        return statistics;
+    }
+}
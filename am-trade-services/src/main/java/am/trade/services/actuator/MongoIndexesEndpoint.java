@@ -0,0 +1,31 @@
+package am.trade.services.actuator;
+
+import java.util.List;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import am.trade.persistence.index.IndexManager;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Read-only report on the MongoDB index catalogue.
+ *
+ * <p>{@code GET /actuator/mongoindexes} lists every catalogue index and whether it exists,
+ * and the retired indexes still waiting to be dropped. Actuator paths are public, so the
+ * endpoint has no write operation; missing indexes are built by {@link IndexManager} when the
+ * application starts with {@code am.trade.persistence.indexes.create-on-startup} on.
+ */
+@Component
+@Endpoint(id = "mongoindexes")
+@RequiredArgsConstructor
+public class MongoIndexesEndpoint {
+
+    private final IndexManager indexManager;
+
+    @ReadOperation
+    public List<IndexManager.IndexStatus> indexes() {
+        return indexManager.report();
+    }
+}
@@ -0,0 +1,89 @@
+package am.trade.services.cache;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Evicts cached results affected by trade writes.
+ *
+ * <p>Trade writes publish a {@link TradesWrittenEvent}; every {@link CacheKeyResolver} maps its
+ * portfolios to the keys of its cache and only those entries are evicted, so caches can keep
+ * long expiry times without serving results that predate a write. Eviction runs on the writing
+ * thread right after the write. A failing resolver is logged and skipped; its cache then relies
+ * on its expiry time.
+ *
+ * <p>Evicted entries are counted per cache as {@code cache.invalidations}.
+ */
+@Component
+@Slf4j
+public class CacheInvalidationBus {
+
+    private static final String INVALIDATION_COUNTER = "cache.invalidations";
+
+    private final CacheManager cacheManager;
+    private final List<CacheKeyResolver> resolvers;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, LongAdder> invalidations = new ConcurrentHashMap<>();
+
+    public CacheInvalidationBus(CacheManager cacheManager,
+                                List<CacheKeyResolver> resolvers,
+                                ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.cacheManager = cacheManager;
+        this.resolvers = resolvers;
+        this.meterRegistry = meterRegistryProvider.getIfAvailable();
+    }
+
+    @EventListener
+    public void onTradesWritten(TradesWrittenEvent event) {
+        if (event.getPortfolioIds() == null || event.getPortfolioIds().isEmpty()) {
+            return;
+        }
+        for (CacheKeyResolver resolver : resolvers) {
+            Cache cache = cacheManager.getCache(resolver.cacheName());
+            if (cache == null) {
+                continue;
+            }
+            try {
+                Collection<?> keys = resolver.keysFor(event.getPortfolioIds());
+                keys.forEach(cache::evict);
+                record(resolver.cacheName(), keys.size());
+                log.debug("Evicted {} {} entries for portfolios {}", keys.size(), resolver.cacheName(),
+                        event.getPortfolioIds());
+            } catch (RuntimeException e) {
+                log.error("Failed to evict {} entries for portfolios {}", resolver.cacheName(),
+                        event.getPortfolioIds(), e);
+            }
+        }
+    }
+
+    /**
+     * Number of entries of a cache evicted because of trade writes since startup
+     */
+    public long invalidations(String cacheName) {
+        LongAdder count = invalidations.get(cacheName);
+        return count != null ? count.sum() : 0L;
+    }
+
+    private void record(String cacheName, int evicted) {
+        if (evicted == 0) {
+            return;
+        }
+        invalidations.computeIfAbsent(cacheName, name -> new LongAdder()).add(evicted);
+        if (meterRegistry != null) {
+            Counter.builder(INVALIDATION_COUNTER).tag("cache", cacheName).register(meterRegistry).increment(evicted);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package am.trade.services.cache;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Maps written portfolios to the keys of one cache whose entries depend on them.
+ *
+ * <p>Every resolver bean is picked up by {@link CacheInvalidationBus}; a cache whose entries
+ * are derived from trades registers one so that writes evict exactly the affected entries.
+ */
+public interface CacheKeyResolver {
+
+    /**
+     * Name of the cache the keys belong to
+     */
+    String cacheName();
+
+    /**
+     * Keys of the entries that depend on any of the portfolios
+     *
+     * @param portfolioIds Portfolios whose trades were written
+     * @return Keys to evict, empty when none are affected
+     */
+    Collection<?> keysFor(Set<String> portfolioIds);
+}
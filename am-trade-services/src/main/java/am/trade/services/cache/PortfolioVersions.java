@@ -0,0 +1,47 @@
+package am.trade.services.cache;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import am.trade.persistence.repository.PortfolioVersionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Monotonic version per portfolio, incremented after every trade write.
+ *
+ * <p>Caches of results computed from trades put the versions of the portfolios involved into
+ * their keys. Reading the versions before reading the trades guarantees an entry never holds
+ * data older than its key, and a write moves every replica to new keys at once, so such
+ * entries need no eviction and no time-to-live to stay correct.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PortfolioVersions {
+
+    private final PortfolioVersionRepository portfolioVersionRepository;
+
+    @EventListener
+    public void onTradesWritten(TradesWrittenEvent event) {
+        if (event.getPortfolioIds() == null || event.getPortfolioIds().isEmpty()) {
+            return;
+        }
+        try {
+            portfolioVersionRepository.incrementAll(event.getPortfolioIds());
+        } catch (RuntimeException e) {
+            // Versioned caches keep serving the previous results until their backstop expiry
+            log.error("Failed to increment versions of portfolios {}", event.getPortfolioIds(), e);
+        }
+    }
+
+    /**
+     * Current version of each portfolio; portfolios never written are at 0
+     */
+    public Map<String, Long> current(Collection<String> portfolioIds) {
+        return portfolioVersionRepository.findVersions(portfolioIds);
+    }
+}
@@ -0,0 +1,32 @@
+package am.trade.services.cache;
+
+import java.util.Collection;
+import java.util.Set;
+
+import org.springframework.stereotype.Component;
+
+import am.trade.persistence.repository.TradeSummaryBasicRepository;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Resolves written portfolios to the {@code tradeSummaryCache} keys, which are the IDs of the
+ * basic summaries containing those portfolios
+ */
+@Component
+@RequiredArgsConstructor
+public class TradeSummaryCacheKeyResolver implements CacheKeyResolver {
+
+    public static final String CACHE_NAME = "tradeSummaryCache";
+
+    private final TradeSummaryBasicRepository tradeSummaryBasicRepository;
+
+    @Override
+    public String cacheName() {
+        return CACHE_NAME;
+    }
+
+    @Override
+    public Collection<?> keysFor(Set<String> portfolioIds) {
+        return tradeSummaryBasicRepository.findIdsByPortfolioIds(portfolioIds);
+    }
+}
@@ -0,0 +1,17 @@
+package am.trade.services.cache;
+
+import java.util.Set;
+
+import lombok.Value;
+
+/**
+ * Published after trades are stored, naming the portfolios they belong to, so that cached
+ * results derived from those portfolios can be evicted. See {@link CacheInvalidationBus}.
+ * Also published after a portfolio's daily stats rollup is rebuilt from its trades.
+ */
+@Value
+public class TradesWrittenEvent {
+
+    /** Portfolios whose trades were written. */
+    Set<String> portfolioIds;
+}
@@ -12,7 +12,9 @@ import java.util.concurrent.TimeUnit;
 
 /**
  * Configuration for caching using Caffeine cache provider
- * Sets up caches for trade summaries and metrics with configurable expiry and size
+ * Sets up caches for trade summaries and metrics with configurable expiry and size.
+ * Entries affected by trade writes are evicted by {@link am.trade.services.cache.CacheInvalidationBus},
+ * so expiry only bounds staleness from changes made outside this application.
  */
 @Configuration
 @EnableCaching
@@ -2,13 +2,18 @@ package am.trade.services.config;
 
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
+import am.trade.services.rollup.PortfolioDailyStatsRollup;
 import am.trade.services.service.TradeDetailsService;
 import am.trade.services.service.impl.TradeDetailsServiceImpl;
 import am.trade.persistence.repository.TradeDetailsRepository;
+import am.trade.persistence.repository.TradeSummaryBasicRepository;
+import am.trade.persistence.repository.UserTradeDetailsRepository;
 import am.trade.persistence.mapper.TradeDetailsMapper;
 import am.trade.persistence.config.PersistenceAutoConfiguration;
 
@@ -17,6 +22,7 @@ import am.trade.persistence.config.PersistenceAutoConfiguration;
  */
 @AutoConfiguration
 @Import(PersistenceAutoConfiguration.class)
+@EnableScheduling
 @ComponentScan(basePackages = {"am.trade.services.service", "am.trade.services.service.impl"})
 public class ServicesAutoConfiguration {
     
@@ -24,14 +30,23 @@ public class ServicesAutoConfiguration {
      * Creates the TradeDetailsService bean if not already defined
      * 
      * @param tradeDetailsRepository The trade details repository
+     * @param userTradeDetailsRepository The owner-scoped trade details finders
      * @param tradeDetailsMapper The trade details mapper
+     * @param tradeSummaryBasicRepository The basic trade summary repository, to mark summaries dirty on writes
+     * @param eventPublisher Publishes the portfolios of written trades for cache invalidation
+     * @param dailyStatsRollup Keeps the daily rollup of portfolio trades up to date on writes
      * @return TradeDetailsService instance
      */
     @Bean
     @ConditionalOnMissingBean
     public TradeDetailsService tradeDetailsService(
             TradeDetailsRepository tradeDetailsRepository,
-            TradeDetailsMapper tradeDetailsMapper) {
-        return new TradeDetailsServiceImpl(tradeDetailsRepository, tradeDetailsMapper);
+            UserTradeDetailsRepository userTradeDetailsRepository,
+            TradeDetailsMapper tradeDetailsMapper,
+            TradeSummaryBasicRepository tradeSummaryBasicRepository,
+            ApplicationEventPublisher eventPublisher,
+            PortfolioDailyStatsRollup dailyStatsRollup) {
+        return new TradeDetailsServiceImpl(tradeDetailsRepository, userTradeDetailsRepository, tradeDetailsMapper,
+                tradeSummaryBasicRepository, eventPublisher, dailyStatsRollup);
     }
 }
@@ -0,0 +1,149 @@
+package am.trade.services.rollup;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import am.trade.persistence.repository.JobLeaseRepository;
+import am.trade.persistence.repository.PortfolioDailyStatsRepository;
+import am.trade.persistence.repository.TradeDetailsRepository;
+import am.trade.services.cache.TradesWrittenEvent;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Rebuilds the {@code portfolio_daily_stats} rollup of every portfolio from its trades.
+ *
+ * <p>Runs nightly to correct what incremental updates missed (a failed increment, an
+ * increment applied just after a rebuild read its trade, first/last trade times that should
+ * narrow), and once after startup
+ * while the rollup is still empty. A lease in Mongo keeps it to one node at a time; the node
+ * renews the lease between portfolios and stops if it loses it.
+ *
+ * <p>Every rebuilt portfolio is announced with a {@link TradesWrittenEvent}, like a trade write,
+ * so that its version moves on and results cached from its previous rollup are rebuilt.
+ */
+@Component
+@Slf4j
+public class PortfolioDailyStatsRebuildJob {
+
+    private static final String LEASE = "portfolio-daily-stats-rebuild";
+
+    private final PortfolioDailyStatsRollup portfolioDailyStatsRollup;
+    private final PortfolioDailyStatsRepository portfolioDailyStatsRepository;
+    private final TradeDetailsRepository tradeDetailsRepository;
+    private final JobLeaseRepository jobLeaseRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final Duration leaseDuration;
+    private final Duration minimumHold;
+    private final String nodeId;
+
+    public PortfolioDailyStatsRebuildJob(PortfolioDailyStatsRollup portfolioDailyStatsRollup,
+                                         PortfolioDailyStatsRepository portfolioDailyStatsRepository,
+                                         TradeDetailsRepository tradeDetailsRepository,
+                                         JobLeaseRepository jobLeaseRepository,
+                                         ApplicationEventPublisher eventPublisher,
+                                         @Value("${am.trade.services.daily-stats.rebuild.enabled:true}") boolean enabled,
+                                         @Value("${am.trade.services.daily-stats.rebuild.lease-ms:3600000}") long leaseMillis,
+                                         @Value("${am.trade.services.daily-stats.rebuild.min-hold-ms:60000}") long minimumHoldMillis,
+                                         @Value("${am.trade.services.daily-stats.rebuild.node-id:}") String nodeId) {
+        this.portfolioDailyStatsRollup = portfolioDailyStatsRollup;
+        this.portfolioDailyStatsRepository = portfolioDailyStatsRepository;
+        this.tradeDetailsRepository = tradeDetailsRepository;
+        this.jobLeaseRepository = jobLeaseRepository;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.leaseDuration = Duration.ofMillis(leaseMillis);
+        this.minimumHold = Duration.ofMillis(minimumHoldMillis);
+        this.nodeId = nodeId == null || nodeId.isBlank() ? defaultNodeId() : nodeId;
+    }
+
+    /**
+     * Seed the rollup in the background when it has never been built
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedIfEmpty() {
+        if (!enabled) {
+            return;
+        }
+        Thread seeder = new Thread(() -> {
+            try {
+                if (portfolioDailyStatsRepository.count() == 0) {
+                    log.info("Daily stats rollup is empty; building it");
+                    rebuildAll();
+                }
+            } catch (RuntimeException e) {
+                log.error("Failed to seed the daily stats rollup", e);
+            }
+        }, "daily-stats-seed");
+        seeder.setDaemon(true);
+        seeder.start();
+    }
+
+    /**
+     * Rebuild the rollup of every portfolio with trades
+     * Runs at 3:30 AM every day by default
+     */
+    @Scheduled(cron = "${am.trade.services.daily-stats.rebuild.cron:0 30 3 * * ?}")
+    public void rebuildAll() {
+        if (!enabled) {
+            return;
+        }
+        if (!jobLeaseRepository.tryAcquire(LEASE, nodeId, leaseDuration)) {
+            log.debug("Lease {} is held by another node; skipping the daily stats rebuild", LEASE);
+            return;
+        }
+
+        long start = System.nanoTime();
+        int portfolios = 0;
+        int days = 0;
+        int failed = 0;
+        try {
+            List<String> portfolioIds = tradeDetailsRepository.findDistinctPortfolioIds();
+            long renewEveryNanos = Math.max(1L, leaseDuration.toNanos() / 3);
+            long renewAt = System.nanoTime() + renewEveryNanos;
+            for (String portfolioId : portfolioIds) {
+                try {
+                    days += portfolioDailyStatsRollup.rebuild(portfolioId);
+                    portfolios++;
+                    eventPublisher.publishEvent(new TradesWrittenEvent(Set.of(portfolioId)));
+                } catch (RuntimeException e) {
+                    failed++;
+                    log.error("Failed to rebuild daily stats of portfolio {}", portfolioId, e);
+                }
+                if (System.nanoTime() - renewAt >= 0) {
+                    if (!jobLeaseRepository.tryAcquire(LEASE, nodeId, leaseDuration)) {
+                        log.warn("Lost lease {} after {} of {} portfolios; stopping", LEASE, portfolios + failed,
+                                portfolioIds.size());
+                        break;
+                    }
+                    renewAt = System.nanoTime() + renewEveryNanos;
+                }
+            }
+        } finally {
+            jobLeaseRepository.release(LEASE, nodeId, minimumHold);
+        }
+        log.info("Rebuilt daily stats of {} portfolios ({} days, {} failed) in {} ms", portfolios, days, failed,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
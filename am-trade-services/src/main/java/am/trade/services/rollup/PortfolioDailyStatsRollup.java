@@ -0,0 +1,189 @@
+package am.trade.services.rollup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+
+import am.trade.common.models.EntryExitInfo;
+import am.trade.common.util.TradeSketches;
+import am.trade.persistence.entity.PortfolioDailyStats;
+import am.trade.persistence.entity.TradeDetailsEntity;
+import am.trade.persistence.repository.PortfolioDailyStatsRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the {@code portfolio_daily_stats} rollup in step with trade writes and reads it back.
+ *
+ * <p>A write takes the previous contribution of every trade it overwrites out of that trade's
+ * day and adds the new contribution, so a trade that closes, changes its profit/loss or moves
+ * to another day is moved between days with a single bulk {@code $inc}. Increments are not
+ * atomic with the trade write itself; {@link PortfolioDailyStatsRebuildJob} recomputes the
+ * rollup from the trades to correct any drift. Sketch buckets move the same way: the old
+ * values' buckets are decremented and the new values' incremented.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PortfolioDailyStatsRollup {
+
+    private final PortfolioDailyStatsRepository portfolioDailyStatsRepository;
+
+    /**
+     * Apply written trades to the rollup
+     *
+     * @param previous Stored versions of the trades that were overwritten, before the write
+     * @param written Trades as written
+     */
+    public void tradesWritten(List<TradeDetailsEntity> previous, List<TradeDetailsEntity> written) {
+        Map<String, PortfolioDailyStats> increments = new LinkedHashMap<>();
+        Map<String, TradeSketches> sketches = new LinkedHashMap<>();
+        previous.forEach(trade -> add(increments, sketches, trade, -1));
+        written.forEach(trade -> add(increments, sketches, trade, 1));
+        sketches.forEach((id, daySketches) -> {
+            PortfolioDailyStats increment = increments.get(id);
+            increment.setProfitLossSketch(daySketches.getProfitLoss().toBuckets());
+            increment.setReturnSketch(daySketches.getReturnPercentage().toBuckets());
+            increment.setPositionSizeSketch(daySketches.getPositionSize().toBuckets());
+            increment.setHoldingMinutesSketch(daySketches.getHoldingMinutes().toBuckets());
+        });
+        // Trades written again unchanged cancel out
+        increments.values().removeIf(PortfolioDailyStatsRollup::isZero);
+        if (increments.isEmpty()) {
+            return;
+        }
+        portfolioDailyStatsRepository.applyIncrements(increments.values());
+        log.debug("Applied {} daily stats increments for {} written trades", increments.size(), written.size());
+    }
+
+    /**
+     * Days of a portfolio from {@code startDate} to {@code endDate}, both inclusive, oldest first;
+     * days without trades are absent
+     */
+    public List<PortfolioDailyStats> findDays(String portfolioId, LocalDate startDate, LocalDate endDate) {
+        return portfolioDailyStatsRepository.findByPortfolioIdAndDateBetween(portfolioId,
+                startDate.atStartOfDay(), endDate.atStartOfDay());
+    }
+
+    /**
+     * Every day of a portfolio with trades, oldest first
+     */
+    public List<PortfolioDailyStats> findDays(String portfolioId) {
+        return portfolioDailyStatsRepository.findByPortfolioId(portfolioId);
+    }
+
+    /**
+     * Sketches of a portfolio's trades from {@code startDate} to {@code endDate}, both
+     * inclusive, merged from its days
+     */
+    public TradeSketches sketches(String portfolioId, LocalDate startDate, LocalDate endDate) {
+        TradeSketches sketches = new TradeSketches();
+        for (PortfolioDailyStats day : findDays(portfolioId, startDate, endDate)) {
+            sketches.merge(day.sketches());
+        }
+        return sketches;
+    }
+
+    /**
+     * Recompute a portfolio's days from its trades, starting over if they are incremented meanwhile
+     *
+     * @return Number of days with trades
+     * @throws IllegalStateException if increments kept racing the rebuild
+     */
+    public int rebuild(String portfolioId) {
+        return portfolioDailyStatsRepository.rebuild(portfolioId);
+    }
+
+    /**
+     * Day a trade counts on: its exit time, or its entry time while it has none
+     */
+    private static LocalDateTime rollupTime(TradeDetailsEntity trade) {
+        if (trade.getExitInfo() != null && trade.getExitInfo().getTimestamp() != null) {
+            return trade.getExitInfo().getTimestamp();
+        }
+        return trade.getEntryInfo() != null ? trade.getEntryInfo().getTimestamp() : null;
+    }
+
+    private static void add(Map<String, PortfolioDailyStats> increments, Map<String, TradeSketches> sketches,
+                            TradeDetailsEntity trade, int sign) {
+        LocalDateTime time = rollupTime(trade);
+        if (trade.getPortfolioId() == null || time == null) {
+            return;
+        }
+        LocalDate day = time.toLocalDate();
+        PortfolioDailyStats increment = increments.computeIfAbsent(PortfolioDailyStats.id(trade.getPortfolioId(), day),
+                id -> PortfolioDailyStats.builder()
+                        .id(id)
+                        .portfolioId(trade.getPortfolioId())
+                        .date(day.atStartOfDay())
+                        .profitLoss(BigDecimal.ZERO)
+                        .grossProfit(BigDecimal.ZERO)
+                        .grossLoss(BigDecimal.ZERO)
+                        .fees(BigDecimal.ZERO)
+                        .tradedValue(BigDecimal.ZERO)
+                        .build());
+
+        sketches.computeIfAbsent(increment.getId(), id -> new TradeSketches())
+                .add(trade.getEntryInfo(), trade.getExitInfo(), trade.getMetrics(), sign);
+
+        BigDecimal signum = BigDecimal.valueOf(sign);
+        BigDecimal profitLoss = trade.getMetrics() != null ? orZero(trade.getMetrics().getProfitLoss()) : BigDecimal.ZERO;
+        increment.setProfitLoss(increment.getProfitLoss().add(profitLoss.multiply(signum)));
+        if (profitLoss.signum() > 0) {
+            increment.setGrossProfit(increment.getGrossProfit().add(profitLoss.multiply(signum)));
+        } else if (profitLoss.signum() < 0) {
+            increment.setGrossLoss(increment.getGrossLoss().subtract(profitLoss.multiply(signum)));
+        }
+        increment.setFees(increment.getFees()
+                .add(fees(trade.getEntryInfo()).add(fees(trade.getExitInfo())).multiply(signum)));
+        increment.setTradedValue(increment.getTradedValue()
+                .add(totalValue(trade.getEntryInfo()).add(totalValue(trade.getExitInfo())).multiply(signum)));
+
+        increment.setTradeCount(increment.getTradeCount() + sign);
+        if (trade.getStatus() != null) {
+            switch (trade.getStatus()) {
+                case WIN -> increment.setWinCount(increment.getWinCount() + sign);
+                case LOSS -> increment.setLossCount(increment.getLossCount() + sign);
+                case BREAK_EVEN -> increment.setBreakEvenCount(increment.getBreakEvenCount() + sign);
+                case OPEN -> increment.setOpenCount(increment.getOpenCount() + sign);
+            }
+        }
+
+        // Times can only widen a day; narrowing them is left to the rebuild
+        if (sign > 0) {
+            if (increment.getFirstTradeTime() == null || time.isBefore(increment.getFirstTradeTime())) {
+                increment.setFirstTradeTime(time);
+            }
+            if (increment.getLastTradeTime() == null || time.isAfter(increment.getLastTradeTime())) {
+                increment.setLastTradeTime(time);
+            }
+        }
+    }
+
+    private static boolean isZero(PortfolioDailyStats increment) {
+        return increment.getTradeCount() == 0 && increment.getWinCount() == 0 && increment.getLossCount() == 0
+                && increment.getBreakEvenCount() == 0 && increment.getOpenCount() == 0
+                && increment.getProfitLoss().signum() == 0 && increment.getGrossProfit().signum() == 0
+                && increment.getGrossLoss().signum() == 0 && increment.getFees().signum() == 0
+                && increment.getTradedValue().signum() == 0
+                && increment.getProfitLossSketch().isEmpty() && increment.getReturnSketch().isEmpty()
+                && increment.getPositionSizeSketch().isEmpty() && increment.getHoldingMinutesSketch().isEmpty();
+    }
+
+    private static BigDecimal fees(EntryExitInfo info) {
+        return info != null ? orZero(info.getFees()) : BigDecimal.ZERO;
+    }
+
+    private static BigDecimal totalValue(EntryExitInfo info) {
+        return info != null ? orZero(info.getTotalValue()) : BigDecimal.ZERO;
+    }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+}
@@ -9,10 +9,9 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import am.trade.common.models.PortfolioMetrics;
 import am.trade.common.models.PortfolioModel;
-import am.trade.common.models.TradeDetails;
 import am.trade.persistence.entity.PortfolioEntity;
-import am.trade.persistence.entity.TradeDetailsEntity;
 import am.trade.persistence.mapper.PortfolioMapper;
 import am.trade.persistence.mapper.TradeDetailsMapper;
 import am.trade.persistence.repository.PortfolioRepository;
@@ -70,6 +69,29 @@ public class PortfolioPersistenceService {
                 .map(portfolioMapper::toModel);
     }
 
+    /**
+     * Atomically store new metrics, provided the portfolio is still at the version of
+     * {@code portfolio}
+     * 
+     * @param portfolio The portfolio as read by the caller
+     * @param metrics   The new metrics
+     * @return true if applied, false on a version conflict
+     */
+    public boolean updateMetrics(PortfolioModel portfolio, PortfolioMetrics metrics) {
+        return portfolioRepository.updateMetrics(portfolio.getPortfolioId(), portfolio.getVersion(), metrics);
+    }
+
+    /**
+     * Create a portfolio unless one with the same ID already exists
+     * 
+     * @param portfolioModel The portfolio to create
+     * @return true if created, false if another writer created it first
+     */
+    public boolean createPortfolio(PortfolioModel portfolioModel) {
+        log.info("Creating portfolio with ID: {}", portfolioModel.getPortfolioId());
+        return portfolioRepository.insertIfAbsent(portfolioMapper.toEntity(portfolioModel));
+    }
+
     /**
      * Find all portfolios owned by a specific user
      * 
@@ -136,38 +158,4 @@ public class PortfolioPersistenceService {
 
         portfolioRepository.deleteByPortfolioId(portfolioId);
     }
-
-    /**
-     * Update trades for a specific portfolio
-     * 
-     * @param portfolioId  The business ID of the portfolio
-     * @param tradeDetails The list of trade details to update
-     * @return The updated portfolio model
-     */
-    public PortfolioModel updatePortfolioTrades(String portfolioId, List<TradeDetails> tradeDetails) {
-        log.info("Updating trades for portfolio with ID: {}", portfolioId);
-
-        Optional<PortfolioEntity> portfolioOpt = portfolioRepository.findByPortfolioId(portfolioId);
-
-        if (portfolioOpt.isPresent()) {
-            PortfolioEntity portfolio = portfolioOpt.get();
-
-            // Convert trade details to IDs
-            List<String> tradeIds = tradeDetails.stream()
-                    .map(TradeDetails::getTradeId)
-                    .collect(Collectors.toList());
-
-            // Update trades
-            portfolio.setTrades(tradeIds);
-
-            // Save updated portfolio
-            PortfolioEntity savedEntity = portfolioRepository.save(portfolio);
-
-            // Return updated model
-            return portfolioMapper.toModel(savedEntity);
-        } else {
-            log.warn("Portfolio with ID {} not found for trade update", portfolioId);
-            return null;
-        }
-    }
-}
+}
\ No newline at end of file
@@ -10,7 +10,6 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import am.trade.common.models.PortfolioModel;
-import am.trade.common.models.TradeDetails;
 import am.trade.persistence.entity.PortfolioEntity;
 import am.trade.persistence.entity.TradeDetailsEntity;
 import am.trade.persistence.mapper.PortfolioMapper;
@@ -140,38 +139,4 @@ public class PortfolioService {
 
         portfolioRepository.deleteByPortfolioId(portfolioId);
     }
-
-    /**
-     * Update trades for a specific portfolio
-     * 
-     * @param portfolioId  The business ID of the portfolio
-     * @param tradeDetails The list of trade details to update
-     * @return The updated portfolio model
-     */
-    public PortfolioModel updatePortfolioTrades(String portfolioId, List<TradeDetails> tradeDetails) {
-        log.info("Updating trades for portfolio with ID: {}", portfolioId);
-
-        Optional<PortfolioEntity> portfolioOpt = portfolioRepository.findByPortfolioId(portfolioId);
-
-        if (portfolioOpt.isPresent()) {
-            PortfolioEntity portfolio = portfolioOpt.get();
-
-            // Convert trade details to IDs
-            List<String> tradeIds = tradeDetails.stream()
-                    .map(TradeDetails::getTradeId)
-                    .collect(Collectors.toList());
-
-            // Update trades
-            portfolio.setTrades(tradeIds);
-
-            // Save updated portfolio
-            PortfolioEntity savedEntity = portfolioRepository.save(portfolio);
-
-            // Return updated model
-            return portfolioMapper.toModel(savedEntity);
-        } else {
-            log.warn("Portfolio with ID {} not found for trade update", portfolioId);
-            return null;
-        }
-    }
 }
@@ -1,5 +1,10 @@
 package am.trade.services.service;
 
+import am.trade.common.models.MetricsFilterConfig;
+import am.trade.common.models.PeriodProfitLossData;
+import am.trade.common.models.ProfitLossHeatmapData.GranularityType;
+import am.trade.common.models.TradeBulkSaveResult;
+import am.trade.common.models.TradeCursorPage;
 import am.trade.common.models.TradeDetails;
 import am.trade.common.models.enums.TradeStatus;
 
@@ -32,6 +37,8 @@ public interface TradeDetailsService {
     List<TradeDetails> findModelsByPortfolioId(String portfolioId);
     List<TradeDetails> findByPortfolioIdIn(List<String> portfolioIds);
     
+    List<TradeDetails> findModelsByPortfolioIdAndEntryDateBetween(String portfolioId, LocalDateTime startDate, LocalDateTime endDate);
+    
     List<TradeDetails> findModelsBySymbolAndEntryDateBetween(String symbol, LocalDateTime startDate, LocalDateTime endDate);
     
     List<TradeDetails> findModelsBySymbolAndExitDateBetween(String symbol, LocalDateTime startDate, LocalDateTime endDate);
@@ -48,11 +55,23 @@ public interface TradeDetailsService {
     TradeDetails saveTradeDetails(TradeDetails tradeDetails);
     
     /**
-     * Save a list of TradeDetails models to the database
+     * Save a list of TradeDetails models to the database with a bulk upsert on tradeId.
+     * An existing trade only has the fields that are set in its model updated.
      * @param tradeDetailsList The list of trade details models to save
-     * @return The list of saved trade details models with any generated IDs
+     * @return The list of saved trade details models, as stored after the write
+     * @throws am.trade.exceptions.TradeException listing every trade that could not be saved;
+     *         the other trades are still written
      */
     List<TradeDetails> saveAllTradeDetails(List<TradeDetails> tradeDetailsList);
+
+    /**
+     * Save a list of TradeDetails models with a bulk upsert on tradeId, reporting
+     * per-trade failures instead of throwing.
+     * An existing trade only has the fields that are set in its model updated.
+     * @param tradeDetailsList The list of trade details models to save
+     * @return The saved trade details models, as stored after the write, and the trades that failed
+     */
+    TradeBulkSaveResult bulkSaveTradeDetails(List<TradeDetails> tradeDetailsList);
     
     /**
      * Find trade details by multiple trade IDs in a single database call
@@ -70,6 +89,96 @@ public interface TradeDetailsService {
      */
     List<TradeDetails> findByPortfolioIdInAndEntryInfoTimestampBetween(List<String> portfolioIds, LocalDateTime startDate, LocalDateTime endDate);
     
+    /**
+     * Metrics-only variant of {@link #findByPortfolioIdInAndEntryInfoTimestampBetween}.
+     * Heavy fields (attachments, notes, reasoning, psychology notes) are not loaded and
+     * tradeExecutions holds at most two elements, so the result must not be returned to clients.
+     * @param portfolioIds List of portfolio IDs to search for
+     * @param startDate Start date for entry timestamp range
+     * @param endDate End date for entry timestamp range
+     * @return Partial trade details for metric calculations
+     */
+    List<TradeDetails> findMetricsViewsByPortfolioIdInAndEntryInfoTimestampBetween(List<String> portfolioIds, LocalDateTime startDate, LocalDateTime endDate);
+    
+    /**
+     * Profit/loss of a portfolio's trades per IST year, month or day of their entry time,
+     * aggregated by the database. Trades without an entry time are left out.
+     * @param portfolioId Portfolio of the trades
+     * @param granularity Length of the periods
+     * @param startDate Earliest entry time, inclusive, or null for no lower bound
+     * @param endDate Latest entry time, exclusive, or null for no upper bound
+     * @return Every period with at least one trade, in chronological order
+     */
+    List<PeriodProfitLossData> findProfitLossByPeriod(String portfolioId, GranularityType granularity, LocalDateTime startDate, LocalDateTime endDate);
+    
+    /**
+     * Find a page of a user's trades matching a filter config. Filtering, sorting and
+     * paging all run in the database.
+     * @param userId Owner of the trades
+     * @param config Filter config with at least one portfolio ID
+     * @param pageable Page to return; its sort must satisfy TradeFilterQuery.supportsSort
+     * @return Page of matching trades
+     */
+    Page<TradeDetails> findModelsByFilter(String userId, MetricsFilterConfig config, Pageable pageable);
+    
+    /**
+     * Find a keyset page of a user's trades matching a filter config, newest entry first.
+     * Only the page itself is read, however deep it is.
+     * @param userId Owner of the trades
+     * @param config Filter config with at least one portfolio ID
+     * @param cursor Continuation token from the previous page, or null for the first page
+     * @param size Page size
+     * @return Page of matching trades with the token for the next one
+     * @throws IllegalArgumentException if the cursor is not a valid continuation token
+     */
+    TradeCursorPage findModelsByFilterAfter(String userId, MetricsFilterConfig config, String cursor, int size);
+    
+    /**
+     * Find a keyset page of a user's trades in a portfolio, newest entry first.
+     * @param userId Owner of the trades
+     * @param portfolioId Portfolio of the trades
+     * @param cursor Continuation token from the previous page, or null for the first page
+     * @param size Page size
+     * @return Page of trades with the token for the next one
+     * @throws IllegalArgumentException if the cursor is not a valid continuation token
+     */
+    TradeCursorPage findModelsByUserIdAndPortfolioIdAfter(String userId, String portfolioId, String cursor, int size);
+    
+    /**
+     * Find every trade of a user matching a filter config, in no particular order.
+     * @param userId Owner of the trades
+     * @param config Filter config with at least one portfolio ID
+     * @return Matching trades
+     */
+    List<TradeDetails> findModelsByFilter(String userId, MetricsFilterConfig config);
+    
+    /**
+     * Find a user's trades among the given trade IDs in a single database call.
+     * IDs of other users' trades are not matched.
+     * @param userId Owner of the trades
+     * @param tradeIds Trade IDs to search for
+     * @return The user's trades with those IDs
+     */
+    List<TradeDetails> findModelsByUserIdAndTradeIds(String userId, List<String> tradeIds);
+    
+    /**
+     * Find a user's trades in a portfolio, optionally restricted to some symbols
+     * @param userId Owner of the trades
+     * @param portfolioId Portfolio of the trades
+     * @param symbols Symbols to match exactly or by their upper-case spelling; null or empty for all symbols
+     * @return The user's trades in the portfolio
+     */
+    List<TradeDetails> findModelsByUserIdAndPortfolioId(String userId, String portfolioId, List<String> symbols);
+    
+    /**
+     * Find a page of a user's trades in a portfolio
+     * @param userId Owner of the trades
+     * @param portfolioId Portfolio of the trades
+     * @param pageable Pagination information
+     * @return Page of the user's trades in the portfolio
+     */
+    Page<TradeDetails> findModelsByUserIdAndPortfolioId(String userId, String portfolioId, Pageable pageable);
+    
     /**
      * Find trade details by user ID and entry timestamp between given dates
      * @param userId User ID to search for
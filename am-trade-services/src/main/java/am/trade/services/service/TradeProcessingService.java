@@ -1,5 +1,6 @@
 package am.trade.services.service;
 
+import am.trade.common.models.PortfolioModel;
 import am.trade.common.models.TradeDetails;
 import am.trade.common.models.TradeModel;
 
@@ -32,13 +33,43 @@ public interface TradeProcessingService {
     void processTradeDetails(List<String> tradeIds, String portfolioId, String userId);
     
     /**
-     * Process trade details and update portfolio metrics using objects directly
+     * Process trade details and update portfolio metrics using objects directly.
+     * Only for newly created trades; updated trades go through {@link #processTradeUpdate}
      * 
      * @param trades List of trade detail objects
      * @param portfolioId The portfolio ID
      * @param userId The user ID
      */
     void processTradeDetailsWithObjects(List<TradeDetails> trades, String portfolioId, String userId);
+
+    /**
+     * Replace the contribution of an already processed trade in the portfolio metrics
+     * 
+     * @param previousTrade The trade as it was before the update
+     * @param updatedTrade The saved, updated trade
+     * @param portfolioId The portfolio ID
+     * @param userId The user ID
+     */
+    void processTradeUpdate(TradeDetails previousTrade, TradeDetails updatedTrade, String portfolioId, String userId);
+
+    /**
+     * Subtract trades that were deleted from, or moved out of, the portfolio from its metrics
+     * 
+     * @param trades The trades to remove
+     * @param portfolioId The portfolio ID
+     * @param userId The user ID
+     */
+    void removeTradeDetails(List<TradeDetails> trades, String portfolioId, String userId);
+
+    /**
+     * Rebuild the portfolio metrics from every trade of the portfolio.
+     * Repair operation for metrics that drifted or predate incremental maintenance.
+     * 
+     * @param portfolioId The portfolio ID
+     * @param userId The user ID
+     * @return The rebuilt portfolio, or null if the portfolio neither exists nor has trades
+     */
+    PortfolioModel rebuildPortfolioMetrics(String portfolioId, String userId);
     
     /**
      * Get the current status of an open position
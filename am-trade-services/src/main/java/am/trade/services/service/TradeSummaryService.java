@@ -124,6 +124,23 @@ public interface TradeSummaryService {
      */
     List<TradeSummaryBasic> findAllActiveBasic();
     
+    /**
+     * Find all active TradeSummaryBasic documents whose metrics are behind their trades
+     * 
+     * @return List of active TradeSummaryBasic documents marked dirty by trade writes
+     */
+    List<TradeSummaryBasic> findAllActiveMetricsDirtyBasic();
+    
+    /**
+     * Clear the metrics dirty mark of a TradeSummaryBasic, unless a trade was written
+     * after the metrics calculation started
+     * 
+     * @param basicId The basic summary ID
+     * @param calculatedFrom The time the metrics calculation started
+     * @return true if the mark was cleared
+     */
+    boolean clearMetricsDirty(String basicId, LocalDateTime calculatedFrom);
+    
     /**
      * Find all active TradeSummaryBasic documents by owner ID
      * 
@@ -0,0 +1,156 @@
+package am.trade.services.service.impl;
+
+import am.trade.common.models.PortfolioMetrics;
+import am.trade.common.models.TradeDetails;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Mergeable form of {@link PortfolioMetrics}.
+ *
+ * <p>Only the additive parts of the metrics are kept here: status counts, the profit and
+ * loss sums and the total entry value. Win rate, loss rate, profit factor, expectancy and
+ * net P&amp;L are derived from them in {@link #toMetrics(int)}. Because every field is a
+ * plain sum, a trade can be added, removed or replaced without looking at the rest of the
+ * portfolio, and the result is exactly what a full rebuild would produce.
+ */
+final class PortfolioMetricsAccumulator {
+
+    private static final int DECIMAL_SCALE = 4;
+    private static final RoundingMode ROUNDING_MODE = RoundingMode.HALF_UP;
+
+    private int winningTrades;
+    private int losingTrades;
+    private int breakEvenTrades;
+    private int openPositions;
+
+    private BigDecimal totalProfit = BigDecimal.ZERO;
+    private BigDecimal totalLoss = BigDecimal.ZERO;
+    private BigDecimal totalValue = BigDecimal.ZERO;
+
+    static PortfolioMetricsAccumulator empty() {
+        return new PortfolioMetricsAccumulator();
+    }
+
+    /**
+     * Resume from stored metrics.
+     *
+     * @return The accumulator, or null if the stored metrics predate the sums being
+     *         persisted and the portfolio has to be rebuilt instead
+     */
+    static PortfolioMetricsAccumulator from(PortfolioMetrics metrics) {
+        if (metrics == null || metrics.getTotalProfit() == null
+                || metrics.getTotalLoss() == null || metrics.getTotalValue() == null) {
+            return null;
+        }
+        PortfolioMetricsAccumulator accumulator = new PortfolioMetricsAccumulator();
+        accumulator.winningTrades = metrics.getWinningTrades();
+        accumulator.losingTrades = metrics.getLosingTrades();
+        accumulator.breakEvenTrades = metrics.getBreakEvenTrades();
+        accumulator.openPositions = metrics.getOpenPositions();
+        accumulator.totalProfit = metrics.getTotalProfit();
+        accumulator.totalLoss = metrics.getTotalLoss();
+        accumulator.totalValue = metrics.getTotalValue();
+        return accumulator;
+    }
+
+    void add(TradeDetails trade) {
+        apply(trade, 1);
+    }
+
+    void remove(TradeDetails trade) {
+        apply(trade, -1);
+    }
+
+    private void apply(TradeDetails trade, int sign) {
+        if (trade.getStatus() != null) {
+            BigDecimal profitLoss = trade.getMetrics() != null ? trade.getMetrics().getProfitLoss() : null;
+            switch (trade.getStatus()) {
+                case WIN:
+                    winningTrades += sign;
+                    if (profitLoss != null) {
+                        totalProfit = totalProfit.add(signed(profitLoss, sign));
+                    }
+                    break;
+                case LOSS:
+                    losingTrades += sign;
+                    if (profitLoss != null) {
+                        totalLoss = totalLoss.add(signed(profitLoss.abs(), sign));
+                    }
+                    break;
+                case BREAK_EVEN:
+                    breakEvenTrades += sign;
+                    break;
+                case OPEN:
+                    openPositions += sign;
+                    break;
+            }
+        }
+
+        if (trade.getEntryInfo() != null && trade.getEntryInfo().getTotalValue() != null) {
+            totalValue = totalValue.add(signed(trade.getEntryInfo().getTotalValue(), sign));
+        }
+    }
+
+    private static BigDecimal signed(BigDecimal value, int sign) {
+        return sign < 0 ? value.negate() : value;
+    }
+
+    /**
+     * Derive the full metrics from the accumulated sums.
+     *
+     * @param totalTrades Number of trade IDs in the portfolio
+     */
+    PortfolioMetrics toMetrics(int totalTrades) {
+        // Calculate win rate and loss rate
+        BigDecimal winRate = BigDecimal.ZERO;
+        BigDecimal lossRate = BigDecimal.ZERO;
+        int closedTrades = winningTrades + losingTrades + breakEvenTrades;
+
+        if (closedTrades > 0) {
+            winRate = BigDecimal.valueOf(winningTrades)
+                    .divide(BigDecimal.valueOf(closedTrades), DECIMAL_SCALE, ROUNDING_MODE)
+                    .multiply(BigDecimal.valueOf(100));
+
+            lossRate = BigDecimal.valueOf(losingTrades)
+                    .divide(BigDecimal.valueOf(closedTrades), DECIMAL_SCALE, ROUNDING_MODE)
+                    .multiply(BigDecimal.valueOf(100));
+        }
+
+        // Calculate profit factor
+        BigDecimal profitFactor = totalLoss.compareTo(BigDecimal.ZERO) > 0
+                ? totalProfit.divide(totalLoss, DECIMAL_SCALE, ROUNDING_MODE)
+                : totalProfit.compareTo(BigDecimal.ZERO) > 0 ? BigDecimal.valueOf(999) : BigDecimal.ONE;
+
+        // Calculate net profit/loss
+        BigDecimal netProfitLoss = totalProfit.subtract(totalLoss);
+
+        // Calculate net profit/loss percentage
+        BigDecimal netProfitLossPercentage = totalValue.compareTo(BigDecimal.ZERO) > 0
+                ? netProfitLoss.divide(totalValue, DECIMAL_SCALE, ROUNDING_MODE).multiply(BigDecimal.valueOf(100))
+                : BigDecimal.ZERO;
+
+        // Calculate expectancy
+        BigDecimal expectancy = closedTrades > 0
+                ? netProfitLoss.divide(BigDecimal.valueOf(closedTrades), DECIMAL_SCALE, ROUNDING_MODE)
+                : BigDecimal.ZERO;
+
+        return PortfolioMetrics.builder()
+                .totalTrades(totalTrades)
+                .winningTrades(winningTrades)
+                .losingTrades(losingTrades)
+                .breakEvenTrades(breakEvenTrades)
+                .openPositions(openPositions)
+                .winRate(winRate)
+                .lossRate(lossRate)
+                .profitFactor(profitFactor)
+                .expectancy(expectancy)
+                .totalValue(totalValue)
+                .totalProfit(totalProfit)
+                .totalLoss(totalLoss)
+                .netProfitLoss(netProfitLoss)
+                .netProfitLossPercentage(netProfitLossPercentage)
+                .build();
+    }
+}
@@ -1,21 +1,46 @@
 package am.trade.services.service.impl;
 
+import am.trade.common.models.MetricsFilterConfig;
+import am.trade.common.models.PeriodProfitLossData;
+import am.trade.common.models.ProfitLossHeatmapData.GranularityType;
+import am.trade.common.models.TradeBulkSaveResult;
+import am.trade.common.models.TradeCursorPage;
 import am.trade.common.models.TradeDetails;
 import am.trade.common.models.enums.TradeStatus;
 import am.trade.persistence.entity.TradeDetailsEntity;
 import am.trade.persistence.mapper.TradeDetailsMapper;
+import am.trade.persistence.projection.ProfitLossPeriodStats;
+import am.trade.persistence.query.TradeCursor;
 import am.trade.persistence.repository.TradeDetailsRepository;
+import am.trade.persistence.repository.TradeSummaryBasicRepository;
+import am.trade.persistence.repository.UserTradeDetailsRepository;
+import am.trade.exceptions.TradeException;
+import am.trade.services.cache.TradesWrittenEvent;
+import am.trade.services.rollup.PortfolioDailyStatsRollup;
 import am.trade.services.service.TradeDetailsService;
+import com.mongodb.bulk.BulkWriteError;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Implementation of TradeDetailsService that converts repository entities to domain models
@@ -25,13 +50,27 @@ import java.util.stream.Collectors;
 @Slf4j
 public class TradeDetailsServiceImpl implements TradeDetailsService {
 
+    private static final int MAX_CURSOR_PAGE_SIZE = 500;
+    
     private final TradeDetailsRepository tradeDetailsRepository;
+    private final UserTradeDetailsRepository userTradeDetailsRepository;
     private final TradeDetailsMapper tradeDetailsMapper;
+    private final TradeSummaryBasicRepository tradeSummaryBasicRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PortfolioDailyStatsRollup dailyStatsRollup;
     
     public TradeDetailsServiceImpl(TradeDetailsRepository tradeDetailsRepository, 
-                                  TradeDetailsMapper tradeDetailsMapper) {
+                                  UserTradeDetailsRepository userTradeDetailsRepository,
+                                  TradeDetailsMapper tradeDetailsMapper,
+                                  TradeSummaryBasicRepository tradeSummaryBasicRepository,
+                                  ApplicationEventPublisher eventPublisher,
+                                  PortfolioDailyStatsRollup dailyStatsRollup) {
         this.tradeDetailsRepository = tradeDetailsRepository;
+        this.userTradeDetailsRepository = userTradeDetailsRepository;
         this.tradeDetailsMapper = tradeDetailsMapper;
+        this.tradeSummaryBasicRepository = tradeSummaryBasicRepository;
+        this.eventPublisher = eventPublisher;
+        this.dailyStatsRollup = dailyStatsRollup;
     }
     
     @Override
@@ -100,6 +139,14 @@ public class TradeDetailsServiceImpl implements TradeDetailsService {
                 .collect(Collectors.toList());
     }
     
+    @Override
+    public List<TradeDetails> findModelsByPortfolioIdAndEntryDateBetween(String portfolioId, LocalDateTime startDate, LocalDateTime endDate) {
+        log.debug("Finding trade details by portfolio: {} and entry date between {} and {}", portfolioId, startDate, endDate);
+        return tradeDetailsRepository.findByPortfolioIdAndEntryInfoTimestampBetween(portfolioId, startDate, endDate).stream()
+                .map(tradeDetailsMapper::toTradeDetails)
+                .collect(Collectors.toList());
+    }
+    
     @Override
     public List<TradeDetails> findModelsBySymbolAndEntryDateBetween(String symbol, LocalDateTime startDate, LocalDateTime endDate) {
         log.debug("Finding trade details by symbol: {} and entry date between {} and {}", symbol, startDate, endDate);
@@ -141,32 +188,142 @@ public class TradeDetailsServiceImpl implements TradeDetailsService {
         log.debug("Saving trade details: {}", tradeDetails);
         TradeDetailsEntity entity = tradeDetailsMapper.toTradeEntity(tradeDetails);
         
+        List<TradeDetailsEntity> previous = new ArrayList<>(1);
         if (tradeDetails.getTradeId() != null) {
             tradeDetailsRepository.findByTradeId(tradeDetails.getTradeId())
-                    .ifPresent(existing -> entity.setId(existing.getId()));
+                    .ifPresent(existing -> {
+                        entity.setId(existing.getId());
+                        previous.add(existing);
+                    });
         }
         
-        return tradeDetailsMapper.toTradeDetails(tradeDetailsRepository.save(entity));
+        TradeDetailsEntity saved = tradeDetailsRepository.save(entity);
+        tradesWritten(previous, List.of(saved));
+        return tradeDetailsMapper.toTradeDetails(saved);
     }
     
     @Override
     public List<TradeDetails> saveAllTradeDetails(List<TradeDetails> tradeDetailsList) {
-        log.debug("Saving {} trade details records", tradeDetailsList.size());
+        TradeBulkSaveResult result = bulkSaveTradeDetails(tradeDetailsList);
+        if (result.hasFailures()) {
+            throw bulkSaveFailed(result, tradeDetailsList.size());
+        }
+        return result.getSaved();
+    }
+
+    @Override
+    public TradeBulkSaveResult bulkSaveTradeDetails(List<TradeDetails> tradeDetailsList) {
+        log.debug("Bulk saving {} trade details records", tradeDetailsList.size());
         List<TradeDetailsEntity> entities = tradeDetailsList.stream()
-                .map(tradeDetails -> {
-                    TradeDetailsEntity entity = tradeDetailsMapper.toTradeEntity(tradeDetails);
-                    if (tradeDetails.getTradeId() != null) {
-                        tradeDetailsRepository.findByTradeId(tradeDetails.getTradeId())
-                                .ifPresent(existing -> entity.setId(existing.getId()));
-                    }
-                    return entity;
-                })
+                .map(tradeDetailsMapper::toTradeEntity)
                 .collect(Collectors.toList());
-        List<TradeDetailsEntity> savedEntities = tradeDetailsRepository.saveAll(entities);
-        
-        return savedEntities.stream()
-                .map(tradeDetailsMapper::toTradeDetails)
+
+        // Read what the upsert replaces, so it can be taken out of the daily rollup
+        List<String> tradeIds = entities.stream()
+                .map(TradeDetailsEntity::getTradeId)
+                .filter(tradeId -> tradeId != null)
+                .distinct()
                 .collect(Collectors.toList());
+        List<TradeDetailsEntity> previous = tradeIds.isEmpty()
+                ? List.of()
+                : tradeDetailsRepository.findRollupFieldsByTradeIdIn(tradeIds);
+
+        List<BulkWriteError> errors = tradeDetailsRepository.upsertAllByTradeId(entities);
+
+        // Read the written trades back: an update only sets the fields that were sent, and a
+        // trade inserted by the upsert gets its _id from Mongo
+        Set<Integer> failedIndexes = errors.stream().map(BulkWriteError::getIndex).collect(Collectors.toSet());
+        List<String> writtenTradeIds = new ArrayList<>();
+        for (int i = 0; i < entities.size(); i++) {
+            String tradeId = entities.get(i).getTradeId();
+            if (!failedIndexes.contains(i) && tradeId != null) {
+                writtenTradeIds.add(tradeId);
+            }
+        }
+        Map<String, TradeDetailsEntity> storedByTradeId = writtenTradeIds.isEmpty()
+                ? Map.of()
+                : tradeDetailsRepository.findByTradeIdIn(writtenTradeIds).stream()
+                        .collect(Collectors.toMap(TradeDetailsEntity::getTradeId, entity -> entity,
+                                (first, second) -> first));
+
+        List<TradeDetails> saved = new ArrayList<>(entities.size() - failedIndexes.size());
+        List<TradeDetailsEntity> written = new ArrayList<>(entities.size() - failedIndexes.size());
+        Set<String> seenTradeIds = new HashSet<>();
+        for (int i = 0; i < entities.size(); i++) {
+            if (failedIndexes.contains(i)) {
+                continue;
+            }
+            TradeDetailsEntity entity = entities.get(i);
+            TradeDetailsEntity stored = entity.getTradeId() != null
+                    ? storedByTradeId.getOrDefault(entity.getTradeId(), entity)
+                    : entity;
+            // A trade sent twice is stored once, so it only moves the rollup once
+            if (entity.getTradeId() == null || seenTradeIds.add(entity.getTradeId())) {
+                written.add(stored);
+            }
+            saved.add(tradeDetailsMapper.toTradeDetails(stored));
+        }
+        Set<String> writtenIds = storedByTradeId.keySet();
+        tradesWritten(previous.stream()
+                .filter(trade -> writtenIds.contains(trade.getTradeId()))
+                .collect(Collectors.toList()), written);
+
+        List<TradeBulkSaveResult.Failure> failures = errors.stream()
+                .map(error -> TradeBulkSaveResult.Failure.builder()
+                        .index(error.getIndex())
+                        .tradeId(entities.get(error.getIndex()).getTradeId())
+                        .code(error.getCode())
+                        .message(error.getMessage())
+                        .build())
+                .collect(Collectors.toList());
+        failures.forEach(failure -> log.error("Failed to save trade {} at index {}: {}",
+                failure.getTradeId(), failure.getIndex(), failure.getMessage()));
+
+        return TradeBulkSaveResult.builder()
+                .saved(saved)
+                .failures(failures)
+                .build();
+    }
+
+    /**
+     * Move the written trades in the daily rollup, flag the summaries covering their portfolios
+     * for metrics recalculation and evict the cached results derived from them. The trades are
+     * already stored, so a failure here is logged rather than failing the save; the rollup is
+     * then corrected by its nightly rebuild and the summaries when their metrics expire.
+     */
+    private void tradesWritten(List<TradeDetailsEntity> previous, List<TradeDetailsEntity> written) {
+        // A trade moved to another portfolio changes the one it left as well
+        Set<String> portfolioIds = Stream.concat(previous.stream(), written.stream())
+                .map(TradeDetailsEntity::getPortfolioId)
+                .filter(portfolioId -> portfolioId != null)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (portfolioIds.isEmpty()) {
+            return;
+        }
+        // Before the event, so readers keyed by the new portfolio versions see the updated rollup
+        try {
+            dailyStatsRollup.tradesWritten(previous, written);
+        } catch (RuntimeException e) {
+            log.error("Failed to update daily stats for portfolios {}", portfolioIds, e);
+        }
+        try {
+            long marked = tradeSummaryBasicRepository.markMetricsDirty(portfolioIds, LocalDateTime.now());
+            log.debug("Marked {} trade summaries dirty for portfolios {}", marked, portfolioIds);
+        } catch (RuntimeException e) {
+            log.error("Failed to mark trade summaries dirty for portfolios {}", portfolioIds, e);
+        }
+        eventPublisher.publishEvent(new TradesWrittenEvent(portfolioIds));
+    }
+
+    private TradeException bulkSaveFailed(TradeBulkSaveResult result, int total) {
+        TradeException exception = new TradeException(
+                String.format("Failed to save %d of %d trades", result.getFailures().size(), total),
+                HttpStatus.UNPROCESSABLE_ENTITY);
+        for (TradeBulkSaveResult.Failure failure : result.getFailures()) {
+            exception.addError("trades[" + failure.getIndex() + "]", failure.getMessage(),
+                    "BULK_WRITE_ERROR_" + failure.getCode());
+        }
+        return exception;
     }
     
     @Override
@@ -194,6 +351,75 @@ public class TradeDetailsServiceImpl implements TradeDetailsService {
         return tradeDetails;
     }
 
+    @Override
+    public List<TradeDetails> findMetricsViewsByPortfolioIdInAndEntryInfoTimestampBetween(List<String> portfolioIds, LocalDateTime startDate, LocalDateTime endDate) {
+        log.debug("Finding trade metrics views by portfolio IDs: {} and entry date between {} and {}", portfolioIds, startDate, endDate);
+        return tradeDetailsRepository.findMetricsViewByPortfolioIdInAndEntryInfoTimestampBetween(portfolioIds, startDate, endDate).stream()
+                .map(tradeDetailsMapper::toTradeDetails)
+                .collect(Collectors.toList());
+    }
+    
+    @Override
+    public List<PeriodProfitLossData> findProfitLossByPeriod(String portfolioId, GranularityType granularity, LocalDateTime startDate, LocalDateTime endDate) {
+        log.debug("Aggregating {} profit/loss of portfolio: {} between {} and {}", granularity, portfolioId, startDate, endDate);
+        return tradeDetailsRepository.aggregateProfitLossByPeriod(portfolioId, granularity, startDate, endDate).stream()
+                .map(this::toPeriodProfitLossData)
+                .sorted(Comparator.comparing(PeriodProfitLossData::getPeriodId))
+                .collect(Collectors.toList());
+    }
+    
+    @Override
+    public Page<TradeDetails> findModelsByFilter(String userId, MetricsFilterConfig config, Pageable pageable) {
+        log.debug("Finding page {} of trade details for user: {} by filter", pageable.getPageNumber(), userId);
+        return tradeDetailsRepository.findByFilter(userId, config, pageable)
+                .map(tradeDetailsMapper::toTradeDetails);
+    }
+    
+    @Override
+    public TradeCursorPage findModelsByFilterAfter(String userId, MetricsFilterConfig config, String cursor, int size) {
+        log.debug("Finding keyset page of trade details for user: {} by filter", userId);
+        validatePageSize(size);
+        return toCursorPage(tradeDetailsRepository.findByFilterAfter(userId, config, TradeCursor.decode(cursor), size + 1), size);
+    }
+    
+    @Override
+    public TradeCursorPage findModelsByUserIdAndPortfolioIdAfter(String userId, String portfolioId, String cursor, int size) {
+        log.debug("Finding keyset page of trade details for user: {} in portfolio: {}", userId, portfolioId);
+        validatePageSize(size);
+        return toCursorPage(tradeDetailsRepository.findByUserIdAndPortfolioIdAfter(userId, portfolioId,
+                TradeCursor.decode(cursor), size + 1), size);
+    }
+    
+    private void validatePageSize(int size) {
+        if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_CURSOR_PAGE_SIZE);
+        }
+    }
+    
+    /**
+     * Build a page from up to {@code size + 1} entities; the extra one only signals that
+     * another page follows.
+     */
+    private TradeCursorPage toCursorPage(List<TradeDetailsEntity> entities, int size) {
+        boolean hasNext = entities.size() > size;
+        List<TradeDetailsEntity> page = hasNext ? entities.subList(0, size) : entities;
+        return TradeCursorPage.builder()
+                .trades(page.stream()
+                        .map(tradeDetailsMapper::toTradeDetails)
+                        .collect(Collectors.toList()))
+                .size(size)
+                .nextCursor(hasNext ? TradeCursor.of(page.get(page.size() - 1)).encode() : null)
+                .build();
+    }
+    
+    @Override
+    public List<TradeDetails> findModelsByFilter(String userId, MetricsFilterConfig config) {
+        log.debug("Finding trade details for user: {} by filter", userId);
+        return tradeDetailsRepository.findAllByFilter(userId, config).stream()
+                .map(tradeDetailsMapper::toTradeDetails)
+                .collect(Collectors.toList());
+    }
+    
     @Override
     public List<TradeDetails> findByPortfolioIdIn(List<String> portfolioIds) {
         log.debug("Finding trade details by portfolio IDs: {}", portfolioIds);
@@ -202,33 +428,39 @@ public class TradeDetailsServiceImpl implements TradeDetailsService {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public List<TradeDetails> findModelsByUserIdAndTradeIds(String userId, List<String> tradeIds) {
+        log.debug("Finding trade details by user ID: {} and {} trade IDs", userId, tradeIds.size());
+        return toModels(userTradeDetailsRepository.findByUserIdAndTradeIdIn(userId, tradeIds));
+    }
+    
+    @Override
+    public List<TradeDetails> findModelsByUserIdAndPortfolioId(String userId, String portfolioId, List<String> symbols) {
+        log.debug("Finding trade details by user ID: {} and portfolio ID: {} with symbols: {}", userId, portfolioId, symbols);
+        if (symbols == null || symbols.isEmpty()) {
+            return toModels(userTradeDetailsRepository.findByUserIdAndPortfolioId(userId, portfolioId));
+        }
+        
+        // The database matches symbols exactly; also asking for the upper-case spelling covers lower-case requests
+        Set<String> symbolVariants = new LinkedHashSet<>(symbols);
+        symbols.forEach(symbol -> symbolVariants.add(symbol.toUpperCase(Locale.ROOT)));
+        return toModels(userTradeDetailsRepository.findByUserIdAndPortfolioIdAndSymbolIn(
+                userId, portfolioId, new ArrayList<>(symbolVariants)));
+    }
+    
+    @Override
+    public Page<TradeDetails> findModelsByUserIdAndPortfolioId(String userId, String portfolioId, Pageable pageable) {
+        log.debug("Finding page {} of trade details by user ID: {} and portfolio ID: {}", pageable.getPageNumber(), userId, portfolioId);
+        return userTradeDetailsRepository.findByUserIdAndPortfolioId(userId, portfolioId, pageable)
+                .map(tradeDetailsMapper::toTradeDetails);
+    }
+    
     @Override
     public List<TradeDetails> findByUserIdAndEntryInfoTimestampBetween(String userId, LocalDateTime startDate,
             LocalDateTime endDate) {
         log.debug("Finding trade details by user ID: {} and entry date between {} and {}", userId, startDate, endDate);
-        
-        // Use the repository method to get trades by user ID
-        List<TradeDetailsEntity> userEntities = tradeDetailsRepository.findByUserId(userId);
-        
-        // Filter by entry date in memory
-        List<TradeDetailsEntity> dateFilteredEntities = userEntities.stream()
-                .filter(entity -> {
-                    // Access timestamp through entryInfo
-                    if (entity.getEntryInfo() == null) {
-                        return false;
-                    }
-                    LocalDateTime entryDate = entity.getEntryInfo().getTimestamp();
-                    return entryDate != null && 
-                           (entryDate.isEqual(startDate) || entryDate.isAfter(startDate)) && 
-                           (entryDate.isEqual(endDate) || entryDate.isBefore(endDate));
-                })
-                .collect(Collectors.toList());
-        
-        // Map entities to domain models
-        List<TradeDetails> userTradeDetails = dateFilteredEntities.stream()
-                .map(tradeDetailsMapper::toTradeDetails)
-                .collect(Collectors.toList());
-                
+        List<TradeDetails> userTradeDetails = toModels(
+                userTradeDetailsRepository.findByUserIdAndEntryInfoTimestampBetween(userId, startDate, endDate));
         log.info("Found {} trades matching user ID and date range criteria", userTradeDetails.size());
         return userTradeDetails;
     }
@@ -239,34 +471,11 @@ public class TradeDetailsServiceImpl implements TradeDetailsService {
         log.debug("Finding trade details by user ID: {} and symbol: {} with date range: {} to {}", 
                 userId, symbol, startDate, endDate);
         
-        // Get all trades by user ID
-        List<TradeDetailsEntity> userEntities = tradeDetailsRepository.findByUserId(userId);
-        
-        // Filter by symbol and date range in memory
-        List<TradeDetailsEntity> filteredEntities = userEntities.stream()
-                .filter(entity -> entity.getSymbol().equals(symbol))
-                .filter(entity -> {
-                    // If no date range specified, include all trades
-                    if (startDate == null || endDate == null) {
-                        return true;
-                    }
-                    
-                    // Otherwise filter by entry date
-                    if (entity.getEntryInfo() == null) {
-                        return false;
-                    }
-                    LocalDateTime entryDate = entity.getEntryInfo().getTimestamp();
-                    return entryDate != null && 
-                           (entryDate.isEqual(startDate) || entryDate.isAfter(startDate)) && 
-                           (entryDate.isEqual(endDate) || entryDate.isBefore(endDate));
-                })
-                .collect(Collectors.toList());
-        
-        // Map entities to domain models
-        List<TradeDetails> tradeDetails = filteredEntities.stream()
-                .map(tradeDetailsMapper::toTradeDetails)
-                .collect(Collectors.toList());
-                
+        // A date range only applies when both ends are given
+        List<TradeDetailsEntity> entities = startDate == null || endDate == null
+                ? userTradeDetailsRepository.findByUserIdAndSymbol(userId, symbol)
+                : userTradeDetailsRepository.findByUserIdAndSymbolAndEntryInfoTimestampBetween(userId, symbol, startDate, endDate);
+        List<TradeDetails> tradeDetails = toModels(entities);
         log.info("Found {} trades matching user ID, symbol, and date range criteria", tradeDetails.size());
         return tradeDetails;
     }
@@ -274,20 +483,7 @@ public class TradeDetailsServiceImpl implements TradeDetailsService {
     @Override
     public List<TradeDetails> findByUserIdAndSymbol(String userId, String symbol) {
         log.debug("Finding trade details by user ID: {} and symbol: {}", userId, symbol);
-        
-        // Get all trades by user ID
-        List<TradeDetailsEntity> userEntities = tradeDetailsRepository.findByUserId(userId);
-        
-        // Filter by symbol in memory
-        List<TradeDetailsEntity> filteredEntities = userEntities.stream()
-                .filter(entity -> entity.getSymbol().equals(symbol))
-                .collect(Collectors.toList());
-        
-        // Map entities to domain models
-        List<TradeDetails> tradeDetails = filteredEntities.stream()
-                .map(tradeDetailsMapper::toTradeDetails)
-                .collect(Collectors.toList());
-                
+        List<TradeDetails> tradeDetails = toModels(userTradeDetailsRepository.findByUserIdAndSymbol(userId, symbol));
         log.info("Found {} trades matching user ID and symbol criteria", tradeDetails.size());
         return tradeDetails;
     }
@@ -298,41 +494,45 @@ public class TradeDetailsServiceImpl implements TradeDetailsService {
         log.debug("Finding trade details by user ID: {} and strategy: {} with date range: {} to {}", 
                 userId, strategy, startDate, endDate);
         
-        // Get all trades by user ID
-        List<TradeDetailsEntity> userEntities = tradeDetailsRepository.findByUserId(userId);
-        
-        // Filter by strategy and date range in memory
-        List<TradeDetailsEntity> filteredEntities = userEntities.stream()
-                .filter(entity -> {
-                    // Check if the entity has entry reasoning with the specified strategy
-                    if (entity.getEntryReasoning() == null) {
-                        return false;
-                    }
-                    return strategy.equals(entity.getEntryReasoning().getStreategy());
-                })
-                .filter(entity -> {
-                    // If no date range specified, include all trades
-                    if (startDate == null || endDate == null) {
-                        return true;
-                    }
-                    
-                    // Otherwise filter by entry date
-                    if (entity.getEntryInfo() == null) {
-                        return false;
-                    }
-                    LocalDateTime entryDate = entity.getEntryInfo().getTimestamp();
-                    return entryDate != null && 
-                           (entryDate.isEqual(startDate) || entryDate.isAfter(startDate)) && 
-                           (entryDate.isEqual(endDate) || entryDate.isBefore(endDate));
-                })
-                .collect(Collectors.toList());
-        
-        // Map entities to domain models
-        List<TradeDetails> tradeDetails = filteredEntities.stream()
-                .map(tradeDetailsMapper::toTradeDetails)
-                .collect(Collectors.toList());
-                
+        // A date range only applies when both ends are given
+        List<TradeDetailsEntity> entities = startDate == null || endDate == null
+                ? userTradeDetailsRepository.findByUserIdAndEntryStrategy(userId, strategy)
+                : userTradeDetailsRepository.findByUserIdAndEntryStrategyAndEntryInfoTimestampBetween(userId, strategy, startDate, endDate);
+        List<TradeDetails> tradeDetails = toModels(entities);
         log.info("Found {} trades matching user ID, strategy, and date range criteria", tradeDetails.size());
         return tradeDetails;
     }
+    
+    private PeriodProfitLossData toPeriodProfitLossData(ProfitLossPeriodStats stats) {
+        int decided = stats.getWinCount() + stats.getLossCount();
+        return PeriodProfitLossData.builder()
+                .periodId(stats.getPeriodId())
+                .profitLoss(orZero(stats.getProfitLoss()))
+                .winCount(stats.getWinCount())
+                .lossCount(stats.getLossCount())
+                .winRate(decided == 0 ? BigDecimal.ZERO : BigDecimal.valueOf(stats.getWinCount() * 100L)
+                        .divide(BigDecimal.valueOf(decided), 2, RoundingMode.HALF_UP))
+                .avgWinAmount(average(stats.getWinProfitLoss(), stats.getWinCount()))
+                .avgLossAmount(average(stats.getLossProfitLoss(), stats.getLossCount()))
+                .maxWinAmount(orZero(stats.getMaxWinAmount()))
+                .maxLossAmount(orZero(stats.getMaxLossAmount()))
+                .build();
+    }
+    
+    /**
+     * Average over every trade counted, including those without a profit/loss
+     */
+    private static BigDecimal average(BigDecimal total, int count) {
+        return count == 0 ? BigDecimal.ZERO : orZero(total).divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP);
+    }
+    
+    private static BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+    
+    private List<TradeDetails> toModels(List<TradeDetailsEntity> entities) {
+        return entities.stream()
+                .map(tradeDetailsMapper::toTradeDetails)
+                .collect(Collectors.toList());
+    }
 }
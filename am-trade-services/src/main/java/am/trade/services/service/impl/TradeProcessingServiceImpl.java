@@ -13,6 +13,7 @@ import am.trade.services.service.PortfolioPersistenceService;
 import am.trade.services.service.TradeDetailsService;
 import am.trade.services.service.TradeProcessingService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
@@ -21,13 +22,16 @@ import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
 import java.util.stream.Collectors;
 
 /**
@@ -48,6 +52,10 @@ public class TradeProcessingServiceImpl implements TradeProcessingService {
 
     private static final int DECIMAL_SCALE = 4;
     private static final RoundingMode ROUNDING_MODE = RoundingMode.HALF_UP;
+
+    // Bounded optimistic retry for concurrent updates of the same portfolio
+    private static final int MAX_UPDATE_ATTEMPTS = 5;
+    private static final long RETRY_BACKOFF_MS = 25;
     
     /**
      * Converts InstrumentInfo from TradeModel to standalone InstrumentInfo class
@@ -74,34 +82,9 @@ public class TradeProcessingServiceImpl implements TradeProcessingService {
         if (tradeIds == null || tradeIds.isEmpty()) {
             return;
         }
-        
-        // Check if portfolio already exists
-        Optional<PortfolioModel> existingPortfolio = portfolioPersistenceService.findByPortfolioId(portfolioId);
-        
-        Set<String> uniqueTradeIds = new HashSet<>();
-        
-        if (existingPortfolio.isPresent()) {
-            // Combine existing trades with new ones
-            List<String> existingTrades = existingPortfolio.get().getTradeIds();
-            if (existingTrades != null && !existingTrades.isEmpty()) {
-                log.info("Combining {} existing trades with {} new trades for portfolio {}", 
-                        existingTrades.size(), tradeIds.size(), portfolioId);
-                
-                // Add all existing trades to the set to ensure uniqueness
-                uniqueTradeIds.addAll(existingTrades);
-            }
-        }
-        
-        // Add all new trades to the set (duplicates will be automatically eliminated)
-        uniqueTradeIds.addAll(tradeIds);
-        
-        log.info("After removing duplicates: {} unique trades for portfolio {}", 
-                uniqueTradeIds.size(), portfolioId);
-                
-        // Convert back to list for further processing
-        List<String> allTradeIds = new ArrayList<>(uniqueTradeIds);
-        
-        processTradeDetailsAndGetPortfolio(allTradeIds, portfolioId, userId);
+
+        List<TradeDetails> trades = tradeDetailsService.findModelsByTradeIds(new ArrayList<>(new LinkedHashSet<>(tradeIds)));
+        applyNewTrades(trades, portfolioId, userId);
     }
 
     @Override
@@ -109,81 +92,206 @@ public class TradeProcessingServiceImpl implements TradeProcessingService {
         if (trades == null || trades.isEmpty()) {
             return;
         }
-        
-        List<String> newTradeIds = trades.stream().map(TradeDetails::getTradeId).collect(Collectors.toList());
-        
-        Optional<PortfolioModel> existingPortfolio = portfolioPersistenceService.findByPortfolioId(portfolioId);
-        Set<String> uniqueTradeIds = new HashSet<>();
-        
-        if (existingPortfolio.isPresent()) {
-            List<String> existingTrades = existingPortfolio.get().getTradeIds();
-            if (existingTrades != null && !existingTrades.isEmpty()) {
-                uniqueTradeIds.addAll(existingTrades);
+
+        applyNewTrades(distinctByTradeId(trades), portfolioId, userId);
+    }
+
+    @Override
+    public void processTradeUpdate(TradeDetails previousTrade, TradeDetails updatedTrade, String portfolioId, String userId) {
+        refreshClosedTradeMetrics(List.of(updatedTrade));
+
+        withVersionRetry(portfolioId, () -> {
+            Optional<PortfolioModel> existingPortfolio = portfolioPersistenceService.findByPortfolioId(portfolioId);
+            PortfolioMetricsAccumulator accumulator = existingPortfolio
+                    .map(portfolio -> PortfolioMetricsAccumulator.from(portfolio.getMetrics()))
+                    .orElse(null);
+
+            // The previous contribution is only known to be counted in existing, accumulated metrics
+            if (accumulator == null) {
+                rebuildPortfolioMetrics(portfolioId, userId);
+                return true;
             }
+
+            PortfolioModel portfolioModel = existingPortfolio.get();
+            accumulator.remove(previousTrade);
+            accumulator.add(updatedTrade);
+
+            log.info("Applying update of trade {} to portfolio {}", updatedTrade.getTradeId(), portfolioId);
+            return portfolioPersistenceService.updateMetrics(portfolioModel,
+                    accumulator.toMetrics(portfolioModel.getMetrics().getTotalTrades()));
+        });
+    }
+
+    @Override
+    public void removeTradeDetails(List<TradeDetails> trades, String portfolioId, String userId) {
+        if (trades == null || trades.isEmpty()) {
+            return;
         }
-        
-        uniqueTradeIds.addAll(newTradeIds);
-        List<String> allTradeIds = new ArrayList<>(uniqueTradeIds);
-        
-        processTradeDetailsAndGetPortfolio(allTradeIds, portfolioId, userId);
+
+        List<TradeDetails> removedTrades = distinctByTradeId(trades);
+        withVersionRetry(portfolioId, () -> {
+            Optional<PortfolioModel> existingPortfolio = portfolioPersistenceService.findByPortfolioId(portfolioId);
+            if (existingPortfolio.isEmpty()) {
+                return true;
+            }
+
+            PortfolioModel portfolioModel = existingPortfolio.get();
+            PortfolioMetricsAccumulator accumulator = PortfolioMetricsAccumulator.from(portfolioModel.getMetrics());
+            if (accumulator == null) {
+                rebuildPortfolioMetrics(portfolioId, userId);
+                return true;
+            }
+
+            removedTrades.forEach(accumulator::remove);
+            int totalTrades = Math.max(0, portfolioModel.getMetrics().getTotalTrades() - removedTrades.size());
+            log.info("Removing {} trades from portfolio {}", removedTrades.size(), portfolioId);
+            return portfolioPersistenceService.updateMetrics(portfolioModel, accumulator.toMetrics(totalTrades));
+        });
     }
 
-    private PortfolioModel processTradeDetailsAndGetPortfolio(List<String> tradeIds, String portfolioId, String userId) {
+    @Override
+    public PortfolioModel rebuildPortfolioMetrics(String portfolioId, String userId) {
+        log.info("Rebuilding portfolio metrics from scratch for portfolio {}", portfolioId);
 
-        // Calculate portfolio-level metrics
-        PortfolioMetrics portfolioMetrics = calculatePortfolioMetrics(tradeIds);
-        
-        // Check if portfolio already exists
-        Optional<PortfolioModel> existingPortfolio = portfolioPersistenceService.findByPortfolioId(portfolioId);
-        
-        PortfolioModel portfolioModel;
-        
-        if (existingPortfolio.isPresent()) {
-            // Update existing portfolio
-            log.info("Updating existing portfolio with ID: {}", portfolioId);
-            portfolioModel = existingPortfolio.get();
-            
-            // Update metrics and trades
+        AtomicReference<PortfolioModel> rebuilt = new AtomicReference<>();
+        withVersionRetry(portfolioId, () -> {
+            Optional<PortfolioModel> existingPortfolio = portfolioPersistenceService.findByPortfolioId(portfolioId);
+            List<TradeDetails> trades = tradeDetailsService.findModelsByPortfolioId(portfolioId);
+
+            if (existingPortfolio.isEmpty() && trades.isEmpty()) {
+                rebuilt.set(null);
+                return true;
+            }
+
+            PortfolioMetrics portfolioMetrics = calculatePortfolioMetrics(trades);
+
+            PortfolioModel portfolioModel = existingPortfolio.orElseGet(() -> newPortfolio(portfolioId, userId));
             portfolioModel.setMetrics(portfolioMetrics);
-            portfolioModel.setTradeIds(tradeIds);
             portfolioModel.setLastUpdatedDate(LocalDateTime.now());
-        } else {
-            // Create new portfolio
-            log.info("Creating new portfolio with ID: {}", portfolioId);
-            portfolioModel = PortfolioModel.builder()
-                .portfolioId(portfolioId)
-                .ownerId(userId)
-                .name(portfolioId)
-                .description("Auto-generated portfolio from trades")
-                .active(true)
-                .createdDate(LocalDateTime.now())
-                .lastUpdatedDate(LocalDateTime.now())
-                .tradeIds(tradeIds)
-                .metrics(portfolioMetrics)
-                .build();
+            rebuilt.set(portfolioModel);
+
+            return existingPortfolio.isPresent()
+                    ? portfolioPersistenceService.updateMetrics(portfolioModel, portfolioMetrics)
+                    : portfolioPersistenceService.createPortfolio(portfolioModel);
+        });
+        return rebuilt.get();
+    }
+
+    /**
+     * Apply newly created trades to the portfolio.
+     *
+     * <p>A trade belongs to the portfolio through its own {@code portfolioId}, which is
+     * already set when the trade is saved, so the portfolio document itself is never
+     * touched beyond its metrics. The trades are added to the stored accumulator, so the
+     * cost is proportional to the trades in the event rather than to the size of the
+     * portfolio. Callers must only pass trades that have not been counted yet; updated
+     * trades go through {@link #processTradeUpdate} or a rebuild. If the stored metrics
+     * predate the accumulator fields, the portfolio is rebuilt instead.
+     */
+    private void applyNewTrades(List<TradeDetails> trades, String portfolioId, String userId) {
+        refreshClosedTradeMetrics(trades);
+
+        withVersionRetry(portfolioId, () -> {
+            Optional<PortfolioModel> existingPortfolio = portfolioPersistenceService.findByPortfolioId(portfolioId);
+
+            if (existingPortfolio.isEmpty()) {
+                // Rebuilding also picks up any trades stored before the portfolio existed
+                rebuildPortfolioMetrics(portfolioId, userId);
+                return true;
+            }
+
+            PortfolioModel portfolioModel = existingPortfolio.get();
+            PortfolioMetricsAccumulator accumulator = PortfolioMetricsAccumulator.from(portfolioModel.getMetrics());
+            if (accumulator == null) {
+                log.info("Falling back to a full rebuild for portfolio {}", portfolioId);
+                rebuildPortfolioMetrics(portfolioId, userId);
+                return true;
+            }
+
+            trades.forEach(accumulator::add);
+            int totalTrades = portfolioModel.getMetrics().getTotalTrades() + trades.size();
+
+            log.info("Adding {} trades to portfolio {} ({} trades in total)", trades.size(), portfolioId, totalTrades);
+            return portfolioPersistenceService.updateMetrics(portfolioModel, accumulator.toMetrics(totalTrades));
+        });
+    }
+
+    private List<TradeDetails> distinctByTradeId(List<TradeDetails> trades) {
+        Map<String, TradeDetails> byTradeId = new LinkedHashMap<>();
+        List<TradeDetails> withoutId = new ArrayList<>();
+        for (TradeDetails trade : trades) {
+            if (trade.getTradeId() == null) {
+                withoutId.add(trade);
+            } else {
+                byTradeId.putIfAbsent(trade.getTradeId(), trade);
+            }
         }
-        
-        // Save the portfolio model to the database
-        portfolioModel = portfolioPersistenceService.savePortfolio(portfolioModel);
+        List<TradeDetails> distinct = new ArrayList<>(byTradeId.values());
+        distinct.addAll(withoutId);
+        return distinct;
+    }
+
+    /**
+     * Run a read-modify-write attempt against the portfolio until it is not beaten by a
+     * concurrent writer. Each attempt re-reads the portfolio and returns false when its
+     * versioned update matched nothing. Gives up after {@link #MAX_UPDATE_ATTEMPTS} so a
+     * hot portfolio surfaces as an error (and a Kafka retry) instead of spinning forever.
+     */
+    private void withVersionRetry(String portfolioId, BooleanSupplier attempt) {
+        for (int attemptNumber = 1; attemptNumber <= MAX_UPDATE_ATTEMPTS; attemptNumber++) {
+            if (attempt.getAsBoolean()) {
+                return;
+            }
+            log.debug("Concurrent update of portfolio {} detected, retrying (attempt {} of {})",
+                    portfolioId, attemptNumber, MAX_UPDATE_ATTEMPTS);
+            try {
+                Thread.sleep(ThreadLocalRandom.current().nextLong(RETRY_BACKOFF_MS * attemptNumber + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        throw new OptimisticLockingFailureException(
+                "Portfolio " + portfolioId + " kept changing during update; gave up after " + MAX_UPDATE_ATTEMPTS + " attempts");
+    }
 
-        return portfolioModel;
+    private PortfolioModel newPortfolio(String portfolioId, String userId) {
+        // Create new portfolio
+        log.info("Creating new portfolio with ID: {}", portfolioId);
+        return PortfolioModel.builder()
+            .portfolioId(portfolioId)
+            .ownerId(userId)
+            .name(portfolioId)
+            .description("Auto-generated portfolio from trades")
+            .active(true)
+            .createdDate(LocalDateTime.now())
+            .lastUpdatedDate(LocalDateTime.now())
+            .build();
     }
-    
+
+    /**
+     * Calculate portfolio-level metrics from every trade of the portfolio.
+     * Only used for rebuilds.
+     */
+    private PortfolioMetrics calculatePortfolioMetrics(List<TradeDetails> tradeDetails) {
+        refreshClosedTradeMetrics(tradeDetails);
+
+        PortfolioMetricsAccumulator accumulator = PortfolioMetricsAccumulator.empty();
+        tradeDetails.forEach(accumulator::add);
+        return accumulator.toMetrics(tradeDetails.size());
+    }
+
     /**
-     * Calculate portfolio-level metrics from trade details
+     * Recalculate and persist P&amp;L metrics for every CLOSED trade
+     * (WIN / LOSS / BREAK_EVEN) using the trade's own entryInfo + exitInfo.
+     * This guarantees that the TradeDetails document in MongoDB always holds
+     * the real P&amp;L, so the UI can display it directly.
+     * OPEN trades are skipped — we have no live market price here, so
+     * storing zeros would overwrite any unrealized P&amp;L already set.
+     * Only trades whose P&amp;L actually changed are written back.
      */
-    private PortfolioMetrics calculatePortfolioMetrics(List<String> tradeIds) {
-        List<TradeDetails> tradeDetails = tradeDetailsService.findModelsByTradeIds(tradeIds);
-
-        // ----------------------------------------------------------------
-        // STEP 1: Recalculate and persist P&L metrics for every CLOSED trade
-        // (WIN / LOSS / BREAK_EVEN) using the trade's own entryInfo + exitInfo.
-        // This guarantees that the TradeDetails document in MongoDB always holds
-        // the real P&L, so the UI can display it directly.
-        // OPEN trades are skipped — we have no live market price here, so
-        // storing zeros would overwrite any unrealized P&L already set.
-        // ----------------------------------------------------------------
-        List<TradeDetails> tradesToUpdate = new java.util.ArrayList<>();
+    private void refreshClosedTradeMetrics(List<TradeDetails> tradeDetails) {
+        List<TradeDetails> tradesToUpdate = new ArrayList<>();
         for (TradeDetails trade : tradeDetails) {
             boolean isClosed = trade.getStatus() == TradeStatus.WIN
                             || trade.getStatus() == TradeStatus.LOSS
@@ -195,6 +303,9 @@ public class TradeProcessingServiceImpl implements TradeProcessingService {
                     trade.getExitInfo(),
                     trade.getTradePositionType()
                 );
+                if (samePnl(trade.getMetrics(), freshMetrics)) {
+                    continue;
+                }
                 trade.setMetrics(freshMetrics);
                 tradesToUpdate.add(trade);
                 log.info("Recalculated metrics for {} trade {}: P&L={}, P&L%={}",
@@ -204,102 +315,18 @@ public class TradeProcessingServiceImpl implements TradeProcessingService {
                     freshMetrics.getProfitLossPercentage());
             }
         }
-        
+
         if (!tradesToUpdate.isEmpty()) {
             tradeDetailsService.saveAllTradeDetails(tradesToUpdate);
         }
+    }
 
-        // Initialize counters and accumulators
-        int totalTrades = tradeIds.size();
-        int winningTrades = 0;
-        int losingTrades = 0;
-        int breakEvenTrades = 0;
-        int openPositions = 0;
-        
-        BigDecimal totalProfit = BigDecimal.ZERO;
-        BigDecimal totalLoss = BigDecimal.ZERO;
-        BigDecimal totalValue = BigDecimal.ZERO;
-        
-        // Process each trade to calculate portfolio metrics
-        for (TradeDetails trade : tradeDetails) {
-            // Count trades by status
-            switch (trade.getStatus()) {
-                case WIN:
-                    winningTrades++;
-                    if (trade.getMetrics() != null && trade.getMetrics().getProfitLoss() != null) {
-                        totalProfit = totalProfit.add(trade.getMetrics().getProfitLoss());
-                    }
-                    break;
-                case LOSS:
-                    losingTrades++;
-                    if (trade.getMetrics() != null && trade.getMetrics().getProfitLoss() != null) {
-                        totalLoss = totalLoss.add(trade.getMetrics().getProfitLoss().abs());
-                    }
-                    break;
-                case BREAK_EVEN:
-                    breakEvenTrades++;
-                    break;
-                case OPEN:
-                    openPositions++;
-                    break;
-            }
-            
-            // Add to total value
-            if (trade.getEntryInfo() != null && trade.getEntryInfo().getTotalValue() != null) {
-                totalValue = totalValue.add(trade.getEntryInfo().getTotalValue());
-            }
-        }
-        
-        // Calculate win rate and loss rate
-        BigDecimal winRate = BigDecimal.ZERO;
-        BigDecimal lossRate = BigDecimal.ZERO;
-        int closedTrades = winningTrades + losingTrades + breakEvenTrades;
-        
-        if (closedTrades > 0) {
-            winRate = BigDecimal.valueOf(winningTrades)
-                    .divide(BigDecimal.valueOf(closedTrades), DECIMAL_SCALE, ROUNDING_MODE)
-                    .multiply(BigDecimal.valueOf(100));
-            
-            lossRate = BigDecimal.valueOf(losingTrades)
-                    .divide(BigDecimal.valueOf(closedTrades), DECIMAL_SCALE, ROUNDING_MODE)
-                    .multiply(BigDecimal.valueOf(100));
-        }
-        
-        // Calculate profit factor
-        BigDecimal profitFactor = totalLoss.compareTo(BigDecimal.ZERO) > 0
-                ? totalProfit.divide(totalLoss, DECIMAL_SCALE, ROUNDING_MODE)
-                : totalProfit.compareTo(BigDecimal.ZERO) > 0 ? BigDecimal.valueOf(999) : BigDecimal.ONE;
-        
-        // Calculate net profit/loss
-        BigDecimal netProfitLoss = totalProfit.subtract(totalLoss);
-        
-        // Calculate net profit/loss percentage
-        BigDecimal netProfitLossPercentage = totalValue.compareTo(BigDecimal.ZERO) > 0
-                ? netProfitLoss.divide(totalValue, DECIMAL_SCALE, ROUNDING_MODE).multiply(BigDecimal.valueOf(100))
-                : BigDecimal.ZERO;
-        
-        // Calculate expectancy
-        BigDecimal expectancy = closedTrades > 0
-                ? netProfitLoss.divide(BigDecimal.valueOf(closedTrades), DECIMAL_SCALE, ROUNDING_MODE)
-                : BigDecimal.ZERO;
-        
-        // Build and return portfolio metrics
-        return PortfolioMetrics.builder()
-                .totalTrades(totalTrades)
-                .winningTrades(winningTrades)
-                .losingTrades(losingTrades)
-                .breakEvenTrades(breakEvenTrades)
-                .openPositions(openPositions)
-                .winRate(winRate)
-                .lossRate(lossRate)
-                .profitFactor(profitFactor)
-                .expectancy(expectancy)
-                .totalValue(totalValue)
-                .totalProfit(totalProfit)
-                .totalLoss(totalLoss)
-                .netProfitLoss(netProfitLoss)
-                .netProfitLossPercentage(netProfitLossPercentage)
-                .build();
+    private boolean samePnl(TradeMetrics stored, TradeMetrics fresh) {
+        return stored != null
+                && stored.getProfitLoss() != null
+                && stored.getProfitLossPercentage() != null
+                && stored.getProfitLoss().compareTo(fresh.getProfitLoss()) == 0
+                && stored.getProfitLossPercentage().compareTo(fresh.getProfitLossPercentage()) == 0;
     }
 
     @Override
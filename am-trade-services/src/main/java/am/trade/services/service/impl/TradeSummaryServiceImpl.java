@@ -141,6 +141,16 @@ public class TradeSummaryServiceImpl implements TradeSummaryService {
         return basicRepository.findAllActive();
     }
 
+    @Override
+    public List<TradeSummaryBasic> findAllActiveMetricsDirtyBasic() {
+        return basicRepository.findAllActiveMetricsDirty();
+    }
+
+    @Override
+    public boolean clearMetricsDirty(String basicId, LocalDateTime calculatedFrom) {
+        return basicRepository.clearMetricsDirty(basicId, calculatedFrom);
+    }
+
     @Override
     public List<TradeSummaryBasic> findAllActiveBasicByOwnerId(String ownerId) {
         return basicRepository.findAllActiveByOwnerId(ownerId);
@@ -0,0 +1,78 @@
+package am.trade.services.rollup;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import am.trade.persistence.repository.JobLeaseRepository;
+import am.trade.persistence.repository.PortfolioDailyStatsRepository;
+import am.trade.persistence.repository.TradeDetailsRepository;
+import am.trade.services.cache.TradesWrittenEvent;
+
+@ExtendWith(MockitoExtension.class)
+class PortfolioDailyStatsRebuildJobTest {
+
+    @Mock
+    private PortfolioDailyStatsRollup portfolioDailyStatsRollup;
+    @Mock
+    private PortfolioDailyStatsRepository portfolioDailyStatsRepository;
+    @Mock
+    private TradeDetailsRepository tradeDetailsRepository;
+    @Mock
+    private JobLeaseRepository jobLeaseRepository;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private PortfolioDailyStatsRebuildJob job;
+
+    @BeforeEach
+    void setUp() {
+        job = new PortfolioDailyStatsRebuildJob(portfolioDailyStatsRollup, portfolioDailyStatsRepository,
+                tradeDetailsRepository, jobLeaseRepository, eventPublisher, true, 3_600_000, 60_000, "node-a");
+    }
+
+    @Test
+    void rebuildAll_shouldMoveTheVersionOfEveryRebuiltPortfolio() {
+        // Given
+        when(jobLeaseRepository.tryAcquire(eq("portfolio-daily-stats-rebuild"), eq("node-a"), any())).thenReturn(true);
+        when(tradeDetailsRepository.findDistinctPortfolioIds()).thenReturn(List.of("p1", "p2", "p3"));
+        when(portfolioDailyStatsRollup.rebuild("p2")).thenThrow(new IllegalStateException("aggregation failed"));
+
+        // When
+        job.rebuildAll();
+
+        // Then the portfolio that failed keeps its version
+        ArgumentCaptor<TradesWrittenEvent> events = ArgumentCaptor.forClass(TradesWrittenEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(events.capture());
+        assertEquals(List.of(Set.of("p1"), Set.of("p3")),
+                events.getAllValues().stream().map(TradesWrittenEvent::getPortfolioIds).toList());
+        verify(jobLeaseRepository).release(eq("portfolio-daily-stats-rebuild"), eq("node-a"), any());
+    }
+
+    @Test
+    void rebuildAll_shouldLeaveEverythingToTheNodeHoldingTheLease() {
+        when(jobLeaseRepository.tryAcquire(anyString(), anyString(), any())).thenReturn(false);
+
+        job.rebuildAll();
+
+        verifyNoInteractions(portfolioDailyStatsRollup, tradeDetailsRepository, eventPublisher);
+        verify(jobLeaseRepository, never()).release(anyString(), anyString(), any());
+    }
+}
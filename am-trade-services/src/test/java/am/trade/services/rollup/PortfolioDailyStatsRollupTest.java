@@ -0,0 +1,375 @@
+package am.trade.services.rollup;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.SimpleMongoClientDatabaseFactory;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.convert.DefaultDbRefResolver;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+
+import am.trade.common.models.EntryExitInfo;
+import am.trade.common.models.TradeMetrics;
+import am.trade.common.models.enums.TradeStatus;
+import am.trade.common.util.QuantileSketch;
+import am.trade.common.util.TradeSketches;
+import am.trade.persistence.config.MongoDateTimeConfig;
+import am.trade.persistence.entity.PortfolioDailyStats;
+import am.trade.persistence.entity.TradeDetailsEntity;
+import am.trade.persistence.repository.PortfolioDailyStatsRepository;
+import am.trade.persistence.repository.PortfolioDailyStatsRepositoryImpl;
+import am.trade.persistence.repository.TradeDetailsRepository;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+
+/**
+ * Applies trade writes to the rollup in an embedded MongoDB and checks the days, sketch buckets
+ * included, against a rebuild from the same trades. Skipped when the embedded MongoDB binary cannot be downloaded
+ * or started.
+ */
+class PortfolioDailyStatsRollupTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2025, 3, 10);
+
+    private static TransitionWalker.ReachedState<RunningMongodProcess> mongod;
+    private static MongoClient mongoClient;
+    private static MongoTemplate mongoTemplate;
+    private static PortfolioDailyStatsRollup rollup;
+
+    @BeforeAll
+    static void startMongo() {
+        try {
+            mongod = Mongod.instance().start(Version.Main.V7_0);
+        } catch (RuntimeException e) {
+            Assumptions.abort("Embedded MongoDB is not available: " + e.getMessage());
+        }
+        mongoClient = MongoClients.create("mongodb://" + mongod.current().getServerAddress().getHost() + ":"
+                + mongod.current().getServerAddress().getPort());
+        mongoTemplate = istTemplate(mongoClient, "portfolio_daily_stats_rollup");
+        PortfolioDailyStatsRepository repository = new MongoRepositoryFactory(mongoTemplate).getRepository(
+                PortfolioDailyStatsRepository.class,
+                RepositoryFragments.just(new PortfolioDailyStatsRepositoryImpl(mongoTemplate)));
+        rollup = new PortfolioDailyStatsRollup(repository);
+    }
+
+    @AfterAll
+    static void stopMongo() {
+        if (mongoClient != null) {
+            mongoClient.close();
+        }
+        if (mongod != null) {
+            mongod.close();
+        }
+    }
+
+    @BeforeEach
+    void clear() {
+        mongoTemplate.dropCollection(TradeDetailsEntity.class);
+        mongoTemplate.dropCollection(PortfolioDailyStats.class);
+    }
+
+    @Test
+    void tradesWritten_shouldMoveATradeThatClosesToItsExitDayAndDeleteTheDayItLeft() {
+        write(trade("t1", "p1", MONDAY.atTime(10, 0), null, TradeStatus.OPEN, null));
+        assertEquals(1, day("p1", MONDAY).getOpenCount());
+
+        write(trade("t1", "p1", MONDAY.atTime(10, 0), MONDAY.plusDays(2).atTime(11, 0), TradeStatus.WIN, "100"));
+
+        assertNull(day("p1", MONDAY));
+        PortfolioDailyStats closed = day("p1", MONDAY.plusDays(2));
+        assertEquals(1, closed.getTradeCount());
+        assertEquals(0, closed.getOpenCount());
+        assertEquals(1, closed.getWinCount());
+        assertMoney("100", closed.getProfitLoss());
+        assertMoney("100", closed.getGrossProfit());
+        assertEquals(MONDAY.plusDays(2).atTime(11, 0), closed.getFirstTradeTime());
+    }
+
+    @Test
+    void tradesWritten_shouldReverseTheEarlierVersionOfAnEditedTrade() {
+        write(trade("t1", "p1", MONDAY.atTime(10, 0), MONDAY.atTime(12, 0), TradeStatus.WIN, "100"));
+        write(trade("t2", "p1", MONDAY.atTime(11, 0), MONDAY.atTime(13, 0), TradeStatus.WIN, "30"));
+
+        write(trade("t1", "p1", MONDAY.atTime(10, 0), MONDAY.atTime(12, 0), TradeStatus.LOSS, "-40"));
+
+        PortfolioDailyStats day = day("p1", MONDAY);
+        assertEquals(2, day.getTradeCount());
+        assertEquals(1, day.getWinCount());
+        assertEquals(1, day.getLossCount());
+        assertMoney("-10", day.getProfitLoss());
+        assertMoney("30", day.getGrossProfit());
+        assertMoney("40", day.getGrossLoss());
+        assertMoney("4", day.getFees());
+        assertMoney("4000", day.getTradedValue());
+    }
+
+    @Test
+    void tradesWritten_shouldMoveATradeToAnotherDayAndPortfolio() {
+        write(trade("t1", "p1", MONDAY.atTime(10, 0), MONDAY.atTime(12, 0), TradeStatus.WIN, "100"));
+        write(trade("t2", "p1", MONDAY.atTime(11, 0), MONDAY.atTime(13, 0), TradeStatus.LOSS, "-20"));
+
+        // Exit corrected to the next day
+        write(trade("t2", "p1", MONDAY.atTime(11, 0), MONDAY.plusDays(1).atTime(9, 30), TradeStatus.LOSS, "-20"));
+        assertEquals(1, day("p1", MONDAY).getTradeCount());
+        assertMoney("100", day("p1", MONDAY).getProfitLoss());
+        assertEquals(1, day("p1", MONDAY.plusDays(1)).getLossCount());
+
+        // Moved to another portfolio
+        write(trade("t2", "p2", MONDAY.atTime(11, 0), MONDAY.plusDays(1).atTime(9, 30), TradeStatus.LOSS, "-20"));
+        assertNull(day("p1", MONDAY.plusDays(1)));
+        PortfolioDailyStats moved = day("p2", MONDAY.plusDays(1));
+        assertEquals(1, moved.getTradeCount());
+        assertMoney("-20", moved.getProfitLoss());
+        assertMoney("20", moved.getGrossLoss());
+    }
+
+    @Test
+    void tradesWritten_shouldLeaveTheSketchesOfATradeSavedAgainUnchanged() {
+        writeAll(trade("t1", "p1", MONDAY.atTime(10, 0), MONDAY.atTime(12, 0), TradeStatus.WIN, "100"));
+        PortfolioDailyStats first = day("p1", MONDAY);
+
+        writeAll(trade("t1", "p1", MONDAY.atTime(10, 0), MONDAY.atTime(12, 0), TradeStatus.WIN, "100"));
+
+        PortfolioDailyStats again = day("p1", MONDAY);
+        assertSameSketches(first, again);
+        assertEquals(1, again.sketches().getPositionSize().count());
+        assertEquals(1, again.sketches().getReturnPercentage().count());
+        assertEquals(1, again.getTradeCount());
+    }
+
+    @Test
+    void tradesWritten_shouldMoveTheBucketsOfAnEditedTrade() {
+        writeAll(trade("t1", "p1", MONDAY.atTime(10, 0), MONDAY.atTime(12, 0), TradeStatus.WIN, "100"));
+
+        // Profit/loss, return and holding time change; the position size does not
+        writeAll(trade("t1", "p1", MONDAY.atTime(10, 0), MONDAY.atTime(13, 30), TradeStatus.LOSS, "-40"));
+
+        TradeSketches sketches = day("p1", MONDAY).sketches();
+        assertEquals(Map.of(QuantileSketch.bucket(-40), 1L), sketches.getProfitLoss().toBuckets());
+        assertEquals(Map.of(QuantileSketch.bucket(-4), 1L), sketches.getReturnPercentage().toBuckets());
+        assertEquals(Map.of(QuantileSketch.bucket(1000), 1L), sketches.getPositionSize().toBuckets());
+        assertEquals(Map.of(QuantileSketch.bucket(210), 1L), sketches.getHoldingMinutes().toBuckets());
+    }
+
+    @Test
+    void rebuild_shouldMatchTheIncrementsIncludingDaysAroundIstMidnight() {
+        write(trade("t1", "p1", MONDAY.atTime(9, 15), MONDAY.atTime(15, 0), TradeStatus.WIN, "120.50"));
+        // Either side of midnight IST, which are the same UTC day
+        write(trade("t2", "p1", MONDAY.atTime(20, 0), MONDAY.atTime(23, 30), TradeStatus.LOSS, "-35.25"));
+        write(trade("t3", "p1", MONDAY.atTime(20, 0), MONDAY.plusDays(1).atTime(0, 15), TradeStatus.BREAK_EVEN, "0"));
+        write(trade("t4", "p1", MONDAY.plusDays(3).atTime(10, 0), null, TradeStatus.OPEN, null));
+        // Edited and closed after the first write, through the bulk path's projection
+        writeAll(trade("t1", "p1", MONDAY.atTime(9, 15), MONDAY.atTime(15, 0), TradeStatus.WIN, "99.99"),
+                trade("t4", "p1", MONDAY.plusDays(3).atTime(10, 0), MONDAY.plusDays(4).atTime(10, 0),
+                        TradeStatus.LOSS, "-8"));
+        write(trade("t5", "p2", MONDAY.atTime(10, 0), MONDAY.atTime(11, 0), TradeStatus.WIN, "7"));
+
+        List<PortfolioDailyStats> incremented = rollup.findDays("p1");
+        assertEquals(List.of("p1:2025-03-10", "p1:2025-03-11", "p1:2025-03-14"),
+                incremented.stream().map(PortfolioDailyStats::getId).toList());
+
+        assertEquals(3, rollup.rebuild("p1"));
+
+        List<PortfolioDailyStats> rebuilt = rollup.findDays("p1");
+        assertEquals(incremented.size(), rebuilt.size());
+        for (int i = 0; i < rebuilt.size(); i++) {
+            assertSameDay(rebuilt.get(i), incremented.get(i));
+        }
+        assertEquals(1, rollup.findDays("p2").size());
+    }
+
+    @Test
+    void rebuild_shouldStartOverWhenATradeIsWrittenAfterItReadTheTrades() {
+        write(trade("t1", "p1", MONDAY.atTime(9, 15), MONDAY.atTime(15, 0), TradeStatus.WIN, "120.50"));
+        AtomicInteger aggregations = new AtomicInteger();
+        PortfolioDailyStatsRollup racing = rollupAfterAggregation(() -> {
+            if (aggregations.incrementAndGet() == 1) {
+                // Not in the aggregated days, but incremented before they replace the stored ones
+                write(trade("t2", "p1", MONDAY.atTime(10, 0), MONDAY.atTime(11, 0), TradeStatus.LOSS, "-35.25"));
+            }
+        });
+
+        assertEquals(1, racing.rebuild("p1"));
+
+        assertEquals(2, aggregations.get());
+        PortfolioDailyStats monday = day("p1", MONDAY);
+        assertEquals(2, monday.getTradeCount());
+        assertEquals(1, monday.getLossCount());
+        assertMoney("85.25", monday.getProfitLoss());
+    }
+
+    @Test
+    void rebuild_shouldGiveUpWhenEveryAttemptIsRaced() {
+        write(trade("t1", "p1", MONDAY.atTime(9, 15), MONDAY.atTime(15, 0), TradeStatus.WIN, "120.50"));
+        AtomicInteger aggregations = new AtomicInteger();
+        PortfolioDailyStatsRollup racing = rollupAfterAggregation(() -> write(trade("r" + aggregations.incrementAndGet(),
+                "p1", MONDAY.atTime(10, 0), MONDAY.atTime(11, 0), TradeStatus.WIN, "1")));
+
+        assertThrows(IllegalStateException.class, () -> racing.rebuild("p1"));
+
+        assertEquals(3, aggregations.get());
+        // The increments were kept, so the day still counts every trade
+        assertEquals(4, day("p1", MONDAY).getTradeCount());
+    }
+
+    /**
+     * A rollup whose rebuilds run {@code afterAggregation} between reading the trades and writing the days
+     */
+    private static PortfolioDailyStatsRollup rollupAfterAggregation(Runnable afterAggregation) {
+        MongoTemplate template = new MongoTemplate(mongoTemplate.getMongoDatabaseFactory(), mongoTemplate.getConverter()) {
+            @Override
+            public <O> AggregationResults<O> aggregate(Aggregation aggregation, Class<?> inputType, Class<O> outputType) {
+                AggregationResults<O> results = super.aggregate(aggregation, inputType, outputType);
+                afterAggregation.run();
+                return results;
+            }
+        };
+        return new PortfolioDailyStatsRollup(new MongoRepositoryFactory(template).getRepository(
+                PortfolioDailyStatsRepository.class,
+                RepositoryFragments.just(new PortfolioDailyStatsRepositoryImpl(template))));
+    }
+
+    /**
+     * Write a trade the way a single save does: read the stored version, replace it and apply both
+     */
+    private static void write(TradeDetailsEntity trade) {
+        TradeDetailsEntity existing = mongoTemplate.findOne(new Query(Criteria.where("tradeId").is(trade.getTradeId())),
+                TradeDetailsEntity.class);
+        if (existing != null) {
+            trade.setId(existing.getId());
+        }
+        mongoTemplate.save(trade);
+        rollup.tradesWritten(existing != null ? List.of(existing) : List.of(), List.of(trade));
+    }
+
+    /**
+     * Write trades the way a bulk save does: read only the rollup fields of the stored versions,
+     * replace them and apply both
+     */
+    private static void writeAll(TradeDetailsEntity... trades) {
+        List<String> tradeIds = Arrays.stream(trades).map(TradeDetailsEntity::getTradeId).toList();
+        List<TradeDetailsEntity> previous = mongoTemplate.find(new BasicQuery(
+                new Document("tradeId", new Document("$in", tradeIds)),
+                Document.parse(TradeDetailsRepository.ROLLUP_FIELDS)), TradeDetailsEntity.class);
+        Map<String, String> ids = previous.stream()
+                .collect(Collectors.toMap(TradeDetailsEntity::getTradeId, TradeDetailsEntity::getId));
+        for (TradeDetailsEntity trade : trades) {
+            trade.setId(ids.get(trade.getTradeId()));
+            mongoTemplate.save(trade);
+        }
+        rollup.tradesWritten(previous, List.of(trades));
+    }
+
+    private static TradeDetailsEntity trade(String tradeId, String portfolioId, LocalDateTime entryTime,
+                                            LocalDateTime exitTime, TradeStatus status, String profitLoss) {
+        return TradeDetailsEntity.builder()
+                .tradeId(tradeId)
+                .portfolioId(portfolioId)
+                .status(status)
+                .entryInfo(EntryExitInfo.builder()
+                        .timestamp(entryTime)
+                        .price(new BigDecimal("100"))
+                        .quantity(10)
+                        .totalValue(new BigDecimal("1000"))
+                        .fees(BigDecimal.ONE)
+                        .build())
+                .exitInfo(exitTime == null ? null : EntryExitInfo.builder()
+                        .timestamp(exitTime)
+                        .totalValue(new BigDecimal("1000"))
+                        .fees(BigDecimal.ONE)
+                        .build())
+                .metrics(profitLoss == null ? null : TradeMetrics.builder()
+                        .profitLoss(new BigDecimal(profitLoss))
+                        .profitLossPercentage(new BigDecimal(profitLoss).divide(BigDecimal.TEN))
+                        .build())
+                .build();
+    }
+
+    private static PortfolioDailyStats day(String portfolioId, LocalDate day) {
+        return mongoTemplate.findById(PortfolioDailyStats.id(portfolioId, day), PortfolioDailyStats.class);
+    }
+
+    private static void assertSameDay(PortfolioDailyStats expected, PortfolioDailyStats actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getDate(), actual.getDate());
+        for (Function<PortfolioDailyStats, Integer> count : List.<Function<PortfolioDailyStats, Integer>>of(
+                PortfolioDailyStats::getTradeCount, PortfolioDailyStats::getWinCount,
+                PortfolioDailyStats::getLossCount, PortfolioDailyStats::getBreakEvenCount,
+                PortfolioDailyStats::getOpenCount)) {
+            assertEquals(count.apply(expected), count.apply(actual), expected.getId());
+        }
+        for (Function<PortfolioDailyStats, BigDecimal> money : List.<Function<PortfolioDailyStats, BigDecimal>>of(
+                PortfolioDailyStats::getProfitLoss, PortfolioDailyStats::getGrossProfit,
+                PortfolioDailyStats::getGrossLoss, PortfolioDailyStats::getFees,
+                PortfolioDailyStats::getTradedValue)) {
+            assertMoney(money.apply(expected).toPlainString(), money.apply(actual));
+        }
+        assertEquals(expected.getFirstTradeTime(), actual.getFirstTradeTime(), expected.getId());
+        assertEquals(expected.getLastTradeTime(), actual.getLastTradeTime(), expected.getId());
+        assertSameSketches(expected, actual);
+    }
+
+    /**
+     * Same non-zero buckets; an incremented day keeps buckets emptied by a decrement at zero
+     */
+    private static void assertSameSketches(PortfolioDailyStats expected, PortfolioDailyStats actual) {
+        TradeSketches expectedSketches = expected.sketches();
+        TradeSketches actualSketches = actual.sketches();
+        for (Function<TradeSketches, QuantileSketch> sketch : List.<Function<TradeSketches, QuantileSketch>>of(
+                TradeSketches::getProfitLoss, TradeSketches::getReturnPercentage,
+                TradeSketches::getPositionSize, TradeSketches::getHoldingMinutes)) {
+            assertEquals(sketch.apply(expectedSketches).toBuckets(), sketch.apply(actualSketches).toBuckets(),
+                    expected.getId());
+        }
+    }
+
+    private static void assertMoney(String expected, BigDecimal actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), () -> "expected " + expected + " but was " + actual);
+    }
+
+    /**
+     * A template that stores LocalDateTime at IST, as the application's does
+     */
+    private static MongoTemplate istTemplate(MongoClient mongoClient, String database) {
+        SimpleMongoClientDatabaseFactory factory = new SimpleMongoClientDatabaseFactory(mongoClient, database);
+        MongoCustomConversions conversions = new MongoDateTimeConfig().mongoCustomConversions();
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        MappingMongoConverter converter = new MappingMongoConverter(new DefaultDbRefResolver(factory), mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        return new MongoTemplate(factory, converter);
+    }
+}
@@ -0,0 +1,211 @@
+package am.trade.services.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import am.trade.common.models.EntryExitInfo;
+import am.trade.common.models.PortfolioMetrics;
+import am.trade.common.models.TradeDetails;
+import am.trade.common.models.TradeMetrics;
+import am.trade.common.models.enums.TradeStatus;
+
+class PortfolioMetricsAccumulatorTest {
+
+    private static final TradeStatus[] STATUSES = TradeStatus.values();
+
+    @Test
+    void addRemoveAndReplace_shouldMatchAFullRecomputeOfTheFinalTrades() {
+        // Given a portfolio built up one write at a time
+        Random random = new Random(42);
+        Map<String, TradeDetails> portfolio = new LinkedHashMap<>();
+        PortfolioMetricsAccumulator accumulator = PortfolioMetricsAccumulator.empty();
+        for (int i = 0; i < 200; i++) {
+            TradeDetails trade = randomTrade("t" + i, random);
+            portfolio.put(trade.getTradeId(), trade);
+            accumulator.add(trade);
+        }
+
+        // When trades are updated and removed, resuming from the stored metrics in between
+        for (int i = 0; i < 200; i += 3) {
+            TradeDetails previous = portfolio.get("t" + i);
+            TradeDetails updated = randomTrade(previous.getTradeId(), random);
+            accumulator.remove(previous);
+            accumulator.add(updated);
+            portfolio.put(updated.getTradeId(), updated);
+        }
+        accumulator = PortfolioMetricsAccumulator.from(accumulator.toMetrics(portfolio.size()));
+        for (int i = 1; i < 200; i += 7) {
+            accumulator.remove(portfolio.remove("t" + i));
+        }
+
+        // Then
+        assertSameMetrics(fullRecompute(new ArrayList<>(portfolio.values())), accumulator.toMetrics(portfolio.size()));
+    }
+
+    @Test
+    void toMetrics_shouldMatchAFullRecomputeOfTradesWithMissingFields() {
+        // Given trades without a status, metrics or entry value
+        List<TradeDetails> trades = List.of(
+                trade("t1", TradeStatus.WIN, null, "1000.00"),
+                trade("t2", TradeStatus.LOSS, "-40.25", null),
+                TradeDetails.builder().tradeId("t3").build(),
+                trade("t4", TradeStatus.OPEN, null, "500"),
+                trade("t5", TradeStatus.BREAK_EVEN, "0", "250.125"));
+        PortfolioMetricsAccumulator accumulator = PortfolioMetricsAccumulator.empty();
+        trades.forEach(accumulator::add);
+
+        // When
+        PortfolioMetrics metrics = accumulator.toMetrics(trades.size());
+
+        // Then
+        assertSameMetrics(fullRecompute(trades), metrics);
+        assertEquals(0, new BigDecimal("1750.125").compareTo(metrics.getTotalValue()));
+    }
+
+    @Test
+    void removingEveryTrade_shouldLeaveEmptyMetrics() {
+        // Given
+        List<TradeDetails> trades = List.of(
+                trade("t1", TradeStatus.WIN, "120.50", "1000"),
+                trade("t2", TradeStatus.LOSS, "-60.125", "800.40"));
+        PortfolioMetricsAccumulator accumulator = PortfolioMetricsAccumulator.empty();
+        trades.forEach(accumulator::add);
+
+        // When
+        trades.forEach(accumulator::remove);
+
+        // Then
+        assertSameMetrics(fullRecompute(List.of()), accumulator.toMetrics(0));
+    }
+
+    @Test
+    void from_shouldRequireTheStoredSums() {
+        PortfolioMetrics legacy = PortfolioMetrics.builder()
+                .totalTrades(3)
+                .winningTrades(2)
+                .totalProfit(BigDecimal.TEN)
+                .build();
+
+        assertNull(PortfolioMetricsAccumulator.from(null));
+        assertNull(PortfolioMetricsAccumulator.from(legacy));
+        assertNotNull(PortfolioMetricsAccumulator.from(PortfolioMetricsAccumulator.empty().toMetrics(0)));
+    }
+
+    /**
+     * Portfolio metrics as the full rebuild calculated them before they were accumulated:
+     * one pass over every trade of the portfolio
+     */
+    private static PortfolioMetrics fullRecompute(List<TradeDetails> trades) {
+        int winningTrades = 0;
+        int losingTrades = 0;
+        int breakEvenTrades = 0;
+        int openPositions = 0;
+        BigDecimal totalProfit = BigDecimal.ZERO;
+        BigDecimal totalLoss = BigDecimal.ZERO;
+        BigDecimal totalValue = BigDecimal.ZERO;
+
+        for (TradeDetails trade : trades) {
+            BigDecimal profitLoss = trade.getMetrics() != null ? trade.getMetrics().getProfitLoss() : null;
+            if (trade.getStatus() == TradeStatus.WIN) {
+                winningTrades++;
+                totalProfit = profitLoss != null ? totalProfit.add(profitLoss) : totalProfit;
+            } else if (trade.getStatus() == TradeStatus.LOSS) {
+                losingTrades++;
+                totalLoss = profitLoss != null ? totalLoss.add(profitLoss.abs()) : totalLoss;
+            } else if (trade.getStatus() == TradeStatus.BREAK_EVEN) {
+                breakEvenTrades++;
+            } else if (trade.getStatus() == TradeStatus.OPEN) {
+                openPositions++;
+            }
+            if (trade.getEntryInfo() != null && trade.getEntryInfo().getTotalValue() != null) {
+                totalValue = totalValue.add(trade.getEntryInfo().getTotalValue());
+            }
+        }
+
+        int closedTrades = winningTrades + losingTrades + breakEvenTrades;
+        BigDecimal hundred = BigDecimal.valueOf(100);
+        BigDecimal netProfitLoss = totalProfit.subtract(totalLoss);
+        return PortfolioMetrics.builder()
+                .totalTrades(trades.size())
+                .winningTrades(winningTrades)
+                .losingTrades(losingTrades)
+                .breakEvenTrades(breakEvenTrades)
+                .openPositions(openPositions)
+                .winRate(closedTrades > 0 ? BigDecimal.valueOf(winningTrades)
+                        .divide(BigDecimal.valueOf(closedTrades), 4, RoundingMode.HALF_UP).multiply(hundred)
+                        : BigDecimal.ZERO)
+                .lossRate(closedTrades > 0 ? BigDecimal.valueOf(losingTrades)
+                        .divide(BigDecimal.valueOf(closedTrades), 4, RoundingMode.HALF_UP).multiply(hundred)
+                        : BigDecimal.ZERO)
+                .profitFactor(totalLoss.signum() > 0 ? totalProfit.divide(totalLoss, 4, RoundingMode.HALF_UP)
+                        : totalProfit.signum() > 0 ? BigDecimal.valueOf(999) : BigDecimal.ONE)
+                .expectancy(closedTrades > 0
+                        ? netProfitLoss.divide(BigDecimal.valueOf(closedTrades), 4, RoundingMode.HALF_UP)
+                        : BigDecimal.ZERO)
+                .totalValue(totalValue)
+                .totalProfit(totalProfit)
+                .totalLoss(totalLoss)
+                .netProfitLoss(netProfitLoss)
+                .netProfitLossPercentage(totalValue.signum() > 0
+                        ? netProfitLoss.divide(totalValue, 4, RoundingMode.HALF_UP).multiply(hundred)
+                        : BigDecimal.ZERO)
+                .build();
+    }
+
+    /**
+     * Compare by value: sums that had trades removed can keep a larger scale than a rebuild
+     */
+    private static void assertSameMetrics(PortfolioMetrics expected, PortfolioMetrics actual) {
+        assertEquals(expected.getTotalTrades(), actual.getTotalTrades(), "totalTrades");
+        assertEquals(expected.getWinningTrades(), actual.getWinningTrades(), "winningTrades");
+        assertEquals(expected.getLosingTrades(), actual.getLosingTrades(), "losingTrades");
+        assertEquals(expected.getBreakEvenTrades(), actual.getBreakEvenTrades(), "breakEvenTrades");
+        assertEquals(expected.getOpenPositions(), actual.getOpenPositions(), "openPositions");
+        assertSameValue(expected.getWinRate(), actual.getWinRate(), "winRate");
+        assertSameValue(expected.getLossRate(), actual.getLossRate(), "lossRate");
+        assertSameValue(expected.getProfitFactor(), actual.getProfitFactor(), "profitFactor");
+        assertSameValue(expected.getExpectancy(), actual.getExpectancy(), "expectancy");
+        assertSameValue(expected.getTotalValue(), actual.getTotalValue(), "totalValue");
+        assertSameValue(expected.getTotalProfit(), actual.getTotalProfit(), "totalProfit");
+        assertSameValue(expected.getTotalLoss(), actual.getTotalLoss(), "totalLoss");
+        assertSameValue(expected.getNetProfitLoss(), actual.getNetProfitLoss(), "netProfitLoss");
+        assertSameValue(expected.getNetProfitLossPercentage(), actual.getNetProfitLossPercentage(),
+                "netProfitLossPercentage");
+    }
+
+    private static void assertSameValue(BigDecimal expected, BigDecimal actual, String field) {
+        assertEquals(0, expected.compareTo(actual), field + ": expected " + expected + " but was " + actual);
+    }
+
+    private static TradeDetails randomTrade(String tradeId, Random random) {
+        TradeStatus status = STATUSES[random.nextInt(STATUSES.length)];
+        BigDecimal value = BigDecimal.valueOf(random.nextInt(1_000_000), 2);
+        BigDecimal profitLoss = BigDecimal.valueOf(random.nextInt(200_000) + 1, random.nextInt(4));
+        if (status == TradeStatus.LOSS) {
+            profitLoss = profitLoss.negate();
+        } else if (status == TradeStatus.BREAK_EVEN) {
+            profitLoss = BigDecimal.ZERO;
+        }
+        return trade(tradeId, status, profitLoss.toPlainString(), value.toPlainString());
+    }
+
+    private static TradeDetails trade(String tradeId, TradeStatus status, String profitLoss, String entryValue) {
+        return TradeDetails.builder()
+                .tradeId(tradeId)
+                .status(status)
+                .metrics(profitLoss != null ? TradeMetrics.builder().profitLoss(new BigDecimal(profitLoss)).build() : null)
+                .entryInfo(entryValue != null ? EntryExitInfo.builder().totalValue(new BigDecimal(entryValue)).build() : null)
+                .build();
+    }
+}